@@ -0,0 +1,34 @@
+package com.mb.transactionbatchprocessor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Generated feeds shared by the benchmarks. A feed is written once per row count with a fixed seed and kept
+ * under {@code target/jmh-fixtures}, so repeated runs measure the same input without regenerating it.
+ */
+final class BenchmarkFixtures {
+
+	private static final Path FIXTURE_DIR = Paths.get("target/jmh-fixtures");
+	private static final long SEED = 42;
+
+	private BenchmarkFixtures() {
+	}
+
+	static synchronized Path feed(int rows) throws IOException {
+		Path file = FIXTURE_DIR.resolve("feed-" + rows + ".txt");
+		if (Files.exists(file)) {
+			return file;
+		}
+
+		// Written under a temporary name first, so an interrupted run never leaves a truncated fixture behind
+		Files.createDirectories(FIXTURE_DIR);
+		Path partial = FIXTURE_DIR.resolve("feed-" + rows + ".txt.partial");
+		TransactionFeedGenerator.write(partial, rows, SEED);
+		Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+		return file;
+	}
+}
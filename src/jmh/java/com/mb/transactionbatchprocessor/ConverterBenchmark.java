@@ -0,0 +1,62 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.util.StringToLocalDateConverter;
+import com.mb.transactionbatchprocessor.util.StringToLocalTimeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts the date and time columns of a generated feed, cycling through a few thousand distinct values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+
+	private static final int VALUES = 4096;
+
+	private final StringToLocalDateConverter dateConverter = new StringToLocalDateConverter();
+	private final StringToLocalTimeConverter timeConverter = new StringToLocalTimeConverter();
+	private final String[] dates = new String[VALUES];
+	private final String[] times = new String[VALUES];
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		try (BufferedReader reader = Files.newBufferedReader(BenchmarkFixtures.feed(1_000_000))) {
+			reader.readLine();  // Skip the header row
+			for (int i = 0; i < VALUES; i++) {
+				String[] fields = reader.readLine().split("\\|");
+				dates[i] = fields[3];
+				times[i] = fields[4];
+			}
+		}
+	}
+
+	@Benchmark
+	public LocalDate convertDate() {
+		return dateConverter.convert(dates[next++ & (VALUES - 1)]);
+	}
+
+	@Benchmark
+	public LocalTime convertTime() {
+		return timeConverter.convert(times[next++ & (VALUES - 1)]);
+	}
+}
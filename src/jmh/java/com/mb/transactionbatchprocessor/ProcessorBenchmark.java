@@ -0,0 +1,60 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.core.io.FileSystemResource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates records read from a generated feed with the {@code transactionRecordProcessor()} bean.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorBenchmark {
+
+	private static final int RECORDS = 4096;
+
+	private final TransactionRecord[] records = new TransactionRecord[RECORDS];
+	private ItemProcessor<TransactionRecord, TransactionRecord> processor;
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		BatchConfig batchConfig = new BatchConfig(null, null, null);
+		processor = batchConfig.transactionRecordProcessor();
+
+		FlatFileItemReader<TransactionRecord> reader = batchConfig.transactionRecordReader();
+		reader.setResource(new FileSystemResource(BenchmarkFixtures.feed(1_000_000)));
+		reader.open(new ExecutionContext());
+		for (int i = 0; i < RECORDS; i++) {
+			records[i] = reader.read();
+		}
+		reader.close();
+	}
+
+	@Benchmark
+	public TransactionRecord process() throws Exception {
+		TransactionRecord transactionRecord = records[next++ & (RECORDS - 1)];
+		// Every record reaches the processor fresh from the reader, without a version
+		transactionRecord.setVersion(null);
+		return processor.process(transactionRecord);
+	}
+}
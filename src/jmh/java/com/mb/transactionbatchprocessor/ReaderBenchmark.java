@@ -0,0 +1,79 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import com.mb.transactionbatchprocessor.batch.MappedTransactionRecordReader;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a whole generated feed with each reader type. Divide {@code rows} by the reported time for records/sec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ReaderBenchmark {
+
+	@Param({"1000000", "10000000"})
+	private int rows;
+
+	@Param({"line", "mapped"})
+	private String readerType;
+
+	private Path feed;
+
+	@Setup
+	public void setUp() throws Exception {
+		feed = BenchmarkFixtures.feed(rows);
+	}
+
+	@Benchmark
+	public long readFeed(Blackhole blackhole) throws Exception {
+		ItemStreamReader<TransactionRecord> reader = reader();
+		reader.open(new ExecutionContext());
+		long count = 0;
+		try {
+			TransactionRecord transactionRecord;
+			while ((transactionRecord = reader.read()) != null) {
+				blackhole.consume(transactionRecord);
+				count++;
+			}
+		} finally {
+			reader.close();
+		}
+		return count;
+	}
+
+	private ItemStreamReader<TransactionRecord> reader() {
+		if ("mapped".equals(readerType)) {
+			MappedTransactionRecordReader reader = new MappedTransactionRecordReader();
+			reader.setResource(new FileSystemResource(feed));
+			return reader;
+		}
+
+		// The reader bean only needs its line mapper, none of the configuration's collaborators
+		FlatFileItemReader<TransactionRecord> reader = new BatchConfig(null, null, null).transactionRecordReader();
+		reader.setResource(new FileSystemResource(feed));
+		return reader;
+	}
+}
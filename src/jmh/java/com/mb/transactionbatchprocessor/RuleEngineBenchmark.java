@@ -0,0 +1,82 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.validation.TransactionRuleEngine;
+import com.mb.transactionbatchprocessor.validation.ValidationError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.core.io.FileSystemResource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates records read from a generated feed against the first {@code rules} of a list of rules that they all
+ * pass, reporting records per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleEngineBenchmark {
+
+	private static final int RECORDS = 4096;
+
+	private static final List<String> RULES = List.of(
+			"account-required",
+			"account-digits=10",
+			"amount-max=1000000.00",
+			"date-from=2019-01-01",
+			"date-to=2019-12-31",
+			"customer-id-digits=1-6",
+			"description-required",
+			"amount-min=0.00");
+
+	@Param({"1", "2", "4", "8"})
+	private int rules;
+
+	private final TransactionRecord[] records = new TransactionRecord[RECORDS];
+	private TransactionRuleEngine ruleEngine;
+
+	@Setup
+	public void setUp() throws Exception {
+		ruleEngine = TransactionRuleEngine.compile(RULES.subList(0, rules), LocalDate.of(2019, 12, 31));
+
+		FlatFileItemReader<TransactionRecord> reader = new BatchConfig(null, null, null).transactionRecordReader();
+		reader.setResource(new FileSystemResource(BenchmarkFixtures.feed(1_000_000)));
+		reader.open(new ExecutionContext());
+		for (int i = 0; i < RECORDS; i++) {
+			records[i] = reader.read();
+			if (ruleEngine.validate(records[i]) != null) {
+				throw new IllegalStateException("The fixture must pass all rules: " + records[i]);
+			}
+		}
+		reader.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void validate(Blackhole blackhole) {
+		for (TransactionRecord transactionRecord : records) {
+			ValidationError error = ruleEngine.validate(transactionRecord);
+			blackhole.consume(error);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and commits one chunk per invocation with the {@code transactionRecordWriter()} bean of an application
+ * context running on an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+
+	@Param({"batch", "multi-row"})
+	private String writerMode;
+
+	@Param({"10", "500"})
+	private int chunkSize;
+
+	private ConfigurableApplicationContext context;
+	private ItemWriter<TransactionRecord> writer;
+	private TransactionTemplate transactionTemplate;
+	private JdbcTemplate jdbcTemplate;
+	private Chunk<TransactionRecord> chunk;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		Path runDir = Paths.get("target/jmh-runs", UUID.randomUUID().toString());
+		Files.createDirectories(runDir.resolve("input"));
+		context = new SpringApplicationBuilder(TransactionBatchProcessorApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(
+						// Command line arguments, because default properties would lose to the test application.properties
+						"--transaction.input.dir=" + runDir.resolve("input"),
+						"--transaction.completed.dir=" + runDir.resolve("completed"),
+						"--transaction.error.dir=" + runDir.resolve("error"),
+						"--transaction.writer.mode=" + writerMode,
+						"--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+						"--logging.level.root=WARN");
+		writer = context.getBean("transactionRecordWriter", ItemWriter.class);
+		transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+		FlatFileItemReader<TransactionRecord> reader = new BatchConfig(null, null, null).transactionRecordReader();
+		List<TransactionRecord> records = new ArrayList<>(chunkSize);
+		reader.setResource(new FileSystemResource(BenchmarkFixtures.feed(1_000_000)));
+		reader.open(new ExecutionContext());
+		for (int i = 0; i < chunkSize; i++) {
+			TransactionRecord transactionRecord = reader.read();
+			transactionRecord.setVersion(0);
+			records.add(transactionRecord);
+		}
+		reader.close();
+		chunk = new Chunk<>(records);
+	}
+
+	@TearDown(Level.Iteration)
+	public void truncate() {
+		jdbcTemplate.execute("TRUNCATE TABLE transaction_record");
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public void writeChunk() {
+		transactionTemplate.executeWithoutResult(status -> {
+			try {
+				writer.write(chunk);
+			} catch (Exception e) {
+				throw e instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(e);
+			}
+		});
+	}
+}
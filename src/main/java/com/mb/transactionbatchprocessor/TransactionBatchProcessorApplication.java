@@ -1,11 +1,16 @@
 package com.mb.transactionbatchprocessor;
 
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import com.mb.transactionbatchprocessor.batch.JobCompletionWaiter;
+import com.mb.transactionbatchprocessor.batch.RestartingJobLauncher;
+import com.mb.transactionbatchprocessor.batch.TransactionDirectoryWatcher;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
-import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.WebApplicationType;
@@ -18,14 +23,40 @@ public class TransactionBatchProcessorApplication implements CommandLineRunner {
 	@Autowired
 	private JobLauncher jobLauncher;
 
+	@Autowired
+	private RestartingJobLauncher restartingJobLauncher;
+
+	@Autowired
+	private JobCompletionWaiter jobCompletionWaiter;
+
 	@Autowired
 	private Job importTransactionRecordJob;
 
+	@Autowired
+	private Job replayRejectsJob;
+
+	@Autowired
+	private ObjectProvider<TransactionDirectoryWatcher> directoryWatcher;
+
+	@Value("${transaction.replay.file:}")
+	private String replayFile;
+
+	@Value("${transaction.input.dir}")
+	private String inputDir;
+
+	@Value("${transaction.lease.enabled:false}")
+	private boolean leaseEnabled;
+
 	public static void main(String[] args) {
 		SpringApplication app = new SpringApplication(TransactionBatchProcessorApplication.class);
 		app.setWebApplicationType(WebApplicationType.NONE);  // Disable web environment if not needed
 		ConfigurableApplicationContext context = app.run(args);
 
+		// In watch mode keep running until the application is stopped
+		if (context.getBeanProvider(TransactionDirectoryWatcher.class).getIfAvailable() != null) {
+			return;
+		}
+
 		// Exit the application context and close the application
 		int exitCode = SpringApplication.exit(context);
 		System.exit(exitCode);
@@ -33,11 +64,25 @@ public class TransactionBatchProcessorApplication implements CommandLineRunner {
 
 	@Override
 	public void run(String... args) throws Exception {
-		// Trigger the job execution
-		JobParameters jobParameters = new JobParametersBuilder()
-				.addLong("startAt", System.currentTimeMillis())
-				.toJobParameters();
-		JobExecution execution = jobLauncher.run(importTransactionRecordJob, jobParameters);
+		// In watch mode TransactionDirectoryWatcher launches the jobs as files arrive
+		if (directoryWatcher.getIfAvailable() != null) {
+			return;
+		}
+
+		// Trigger the job execution, resuming an interrupted import or replaying the rejects of one error file if one is given.
+		// With virtual threads enabled the job runs on its own thread, so wait for it before the context closes.
+		JobParametersBuilder jobParameters = new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis());
+		JobExecution execution;
+		if (replayFile.isEmpty() && leaseEnabled) {
+			// Other nodes run the import at the same time, and the leases resume the ranges of the nodes that stopped
+			execution = jobCompletionWaiter.runAndWait(() -> jobLauncher.run(importTransactionRecordJob, jobParameters.toJobParameters()));
+		} else if (replayFile.isEmpty()) {
+			execution = jobCompletionWaiter.runAndWait(() -> restartingJobLauncher.run(importTransactionRecordJob, jobParameters.toJobParameters(), inputDir));
+		} else {
+			jobParameters.addString(BatchConfig.REPLAY_FILE_PARAMETER, replayFile);
+			execution = jobCompletionWaiter.runAndWait(() -> jobLauncher.run(replayRejectsJob, jobParameters.toJobParameters()));
+		}
 		System.out.println("Job Status: " + execution.getStatus());
 	}
 }
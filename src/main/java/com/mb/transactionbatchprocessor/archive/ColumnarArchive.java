@@ -0,0 +1,62 @@
+package com.mb.transactionbatchprocessor.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the columnar archive written by {@link ColumnarArchiveWriter} and read by {@link ColumnarArchiveReader}.
+ * <p>
+ * An archive starts with {@link #MAGIC}, {@link #VERSION} and the header line of the archived file. Then come the
+ * blocks of up to a fixed number of records, each holding the {@link #COLUMN_COUNT} columns in the order of the
+ * input fields. A column is stored as its raw length, its deflated length and the deflated bytes:
+ * <ul>
+ *     <li>account number, description and customer id: a dictionary of the distinct values of the block followed by
+ *     one index per record, where 0 is {@code null}</li>
+ *     <li>amount: the minor units of each record</li>
+ *     <li>date and time: the difference of each record's epoch day, or second of the day, from the previous record</li>
+ * </ul>
+ * All numbers inside the columns are zigzag varints. The footer lists each block's offset and record count with
+ * the minimum and maximum date, amount and account number, so that a reader can skip the blocks that cannot
+ * match. The archive ends with the footer's offset and {@link #MAGIC} again.
+ */
+final class ColumnarArchive {
+
+	static final int MAGIC = 0x54434f4c;  // "TCOL"
+	static final byte VERSION = 1;
+	static final int COLUMN_COUNT = 6;
+
+	static final int ACCOUNT_NUMBER = 0;
+	static final int AMOUNT = 1;
+	static final int DESCRIPTION = 2;
+	static final int DATE = 3;
+	static final int TIME = 4;
+	static final int CUSTOMER_ID = 5;
+
+	private ColumnarArchive() {
+	}
+
+	static void writeVarLong(ByteArrayOutputStream out, long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7fL) != 0) {
+			out.write((int) ((zigzag & 0x7f) | 0x80));
+			zigzag >>>= 7;
+		}
+		out.write((int) zigzag);
+	}
+
+	static long readVarLong(ByteBuffer in) throws IOException {
+		long zigzag = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (!in.hasRemaining()) {
+				throw new IOException("Truncated column");
+			}
+			byte b = in.get();
+			zigzag |= (long) (b & 0x7f) << shift;
+			if (b >= 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+}
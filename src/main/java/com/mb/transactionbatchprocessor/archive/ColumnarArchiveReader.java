@@ -0,0 +1,230 @@
+package com.mb.transactionbatchprocessor.archive;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the records of an archive written by {@link ColumnarArchiveWriter}.
+ * <p>
+ * Only the footer is read when the archive is opened. A query by date range or account number reads just the
+ * blocks whose minimum and maximum values overlap it, one block at a time.
+ */
+public class ColumnarArchiveReader implements Closeable {
+
+	private final FileChannel channel;
+	private final String header;
+	private final List<Block> blocks;
+	private final long footerOffset;
+
+	public ColumnarArchiveReader(Path archive) throws IOException {
+		this.channel = FileChannel.open(archive, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < 17) {
+				throw new IOException("Not a transaction archive: " + archive);
+			}
+			ByteBuffer trailer = read(size - 12, 12);
+			this.footerOffset = trailer.getLong();
+			if (trailer.getInt() != ColumnarArchive.MAGIC || footerOffset < 5 || footerOffset > size - 16) {
+				throw new IOException("Not a transaction archive, or truncated: " + archive);
+			}
+
+			DataInputStream start = stream(read(0, (int) Math.min(size, 5 + 2 + 65_535)));
+			if (start.readInt() != ColumnarArchive.MAGIC) {
+				throw new IOException("Not a transaction archive: " + archive);
+			}
+			byte version = start.readByte();
+			if (version != ColumnarArchive.VERSION) {
+				throw new IOException("Unsupported transaction archive version " + version + ": " + archive);
+			}
+			this.header = start.readUTF();
+
+			DataInputStream footer = stream(read(footerOffset, (int) (size - 12 - footerOffset)));
+			int blockCount = footer.readInt();
+			this.blocks = new ArrayList<>(blockCount);
+			for (int i = 0; i < blockCount; i++) {
+				long offset = footer.readLong();
+				int rowCount = footer.readInt();
+				int minDay = footer.readInt();
+				int maxDay = footer.readInt();
+				footer.readLong();  // minimum amount
+				footer.readLong();  // maximum amount
+				blocks.add(new Block(offset, rowCount, minDay, maxDay, footer.readUTF(), footer.readUTF()));
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * The header line of the archived file.
+	 */
+	public String getHeader() {
+		return header;
+	}
+
+	public int getBlockCount() {
+		return blocks.size();
+	}
+
+	public long getRowCount() {
+		return blocks.stream().mapToLong(block -> block.rowCount).sum();
+	}
+
+	/**
+	 * Passes every record to the consumer, in the order of the archived file.
+	 */
+	public void forEach(Consumer<TransactionRecord> consumer) throws IOException {
+		forEach(null, null, null, consumer);
+	}
+
+	/**
+	 * Passes the records dated within {@code from} and {@code to}, both inclusive, of the given account to the
+	 * consumer. A {@code null} argument does not restrict the records.
+	 *
+	 * @return the number of blocks read
+	 */
+	public int forEach(LocalDate from, LocalDate to, String accountNumber, Consumer<TransactionRecord> consumer) throws IOException {
+		long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+		long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+		int blocksRead = 0;
+		for (int i = 0; i < blocks.size(); i++) {
+			Block block = blocks.get(i);
+			if (block.maxDay < fromDay || block.minDay > toDay || (accountNumber != null
+					&& (accountNumber.compareTo(block.minAccount) < 0 || accountNumber.compareTo(block.maxAccount) > 0))) {
+				continue;
+			}
+
+			long end = i + 1 < blocks.size() ? blocks.get(i + 1).offset : footerOffset;
+			List<TransactionRecord> records = decode(read(block.offset, (int) (end - block.offset)));
+			blocksRead++;
+			for (TransactionRecord transactionRecord : records) {
+				long day = transactionRecord.getTrxDate().toEpochDay();
+				if (day >= fromDay && day <= toDay
+						&& (accountNumber == null || accountNumber.equals(transactionRecord.getAccountNumber()))) {
+					consumer.accept(transactionRecord);
+				}
+			}
+		}
+		return blocksRead;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static List<TransactionRecord> decode(ByteBuffer block) throws IOException {
+		int rowCount = block.getInt();
+		ByteBuffer[] columns = new ByteBuffer[ColumnarArchive.COLUMN_COUNT];
+		for (int column = 0; column < columns.length; column++) {
+			columns[column] = inflate(block);
+		}
+		String[] accounts = readDictionary(columns[ColumnarArchive.ACCOUNT_NUMBER]);
+		String[] descriptions = readDictionary(columns[ColumnarArchive.DESCRIPTION]);
+		String[] customers = readDictionary(columns[ColumnarArchive.CUSTOMER_ID]);
+
+		List<TransactionRecord> records = new ArrayList<>(rowCount);
+		long day = 0;
+		long second = 0;
+		for (int row = 0; row < rowCount; row++) {
+			TransactionRecord transactionRecord = new TransactionRecord();
+			transactionRecord.setAccountNumber(accounts[(int) ColumnarArchive.readVarLong(columns[ColumnarArchive.ACCOUNT_NUMBER])]);
+			transactionRecord.setTrxAmountMinor(ColumnarArchive.readVarLong(columns[ColumnarArchive.AMOUNT]));
+			transactionRecord.setDescription(descriptions[(int) ColumnarArchive.readVarLong(columns[ColumnarArchive.DESCRIPTION])]);
+			day += ColumnarArchive.readVarLong(columns[ColumnarArchive.DATE]);
+			transactionRecord.setTrxDate(LocalDate.ofEpochDay(day));
+			second += ColumnarArchive.readVarLong(columns[ColumnarArchive.TIME]);
+			transactionRecord.setTrxTime(LocalTime.ofSecondOfDay(second));
+			transactionRecord.setCustomerId(customers[(int) ColumnarArchive.readVarLong(columns[ColumnarArchive.CUSTOMER_ID])]);
+			records.add(transactionRecord);
+		}
+		return records;
+	}
+
+	private static ByteBuffer inflate(ByteBuffer block) throws IOException {
+		int rawLength = block.getInt();
+		int compressedLength = block.getInt();
+		byte[] raw = new byte[rawLength];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(block.slice(block.position(), compressedLength));
+			if (inflater.inflate(raw) != rawLength || !inflater.finished()) {
+				throw new IOException("Corrupt column");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt column", e);
+		} finally {
+			inflater.end();
+		}
+		block.position(block.position() + compressedLength);
+		return ByteBuffer.wrap(raw);
+	}
+
+	/**
+	 * The dictionary at the start of a string column, indexed from 1 so that index 0 is {@code null}.
+	 */
+	private static String[] readDictionary(ByteBuffer column) throws IOException {
+		String[] values = new String[(int) ColumnarArchive.readVarLong(column) + 1];
+		for (int i = 1; i < values.length; i++) {
+			int length = (int) ColumnarArchive.readVarLong(column);
+			values[i] = new String(column.array(), column.position(), length, StandardCharsets.UTF_8);
+			column.position(column.position() + length);
+		}
+		return values;
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Truncated transaction archive");
+			}
+		}
+		return buffer.flip();
+	}
+
+	private static DataInputStream stream(ByteBuffer buffer) {
+		return new DataInputStream(new ByteArrayInputStream(buffer.array(), buffer.position(), buffer.remaining()));
+	}
+
+	/**
+	 * The footer entry of one block.
+	 */
+	private static final class Block {
+
+		private final long offset;
+		private final int rowCount;
+		private final int minDay;
+		private final int maxDay;
+		private final String minAccount;
+		private final String maxAccount;
+
+		Block(long offset, int rowCount, int minDay, int maxDay, String minAccount, String maxAccount) {
+			this.offset = offset;
+			this.rowCount = rowCount;
+			this.minDay = minDay;
+			this.maxDay = maxDay;
+			this.minAccount = minAccount;
+			this.maxAccount = maxAccount;
+		}
+	}
+}
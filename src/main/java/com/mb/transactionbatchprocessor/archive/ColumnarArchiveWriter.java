@@ -0,0 +1,199 @@
+package com.mb.transactionbatchprocessor.archive;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streams transaction records into the columnar archive format described in {@link ColumnarArchive}, holding
+ * at most one block of records in memory.
+ * <p>
+ * Times are kept to the second, as they are in the input files; a record whose time has a fraction of a second
+ * is rejected with an {@link IOException}, as is a record without a date or time.
+ */
+public class ColumnarArchiveWriter implements Closeable {
+
+	public static final int DEFAULT_ROWS_PER_BLOCK = 65_536;
+
+	private final DataOutputStream out;
+	private final int rowsPerBlock;
+	private final List<TransactionRecord> block;
+	private final ByteArrayOutputStream footer = new ByteArrayOutputStream();
+	private int blockCount;
+	private long rowCount;
+	private boolean closed;
+
+	public ColumnarArchiveWriter(OutputStream out, String header) throws IOException {
+		this(out, header, DEFAULT_ROWS_PER_BLOCK);
+	}
+
+	public ColumnarArchiveWriter(OutputStream out, String header, int rowsPerBlock) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.rowsPerBlock = rowsPerBlock;
+		this.block = new ArrayList<>(Math.min(rowsPerBlock, 4096));
+		this.out.writeInt(ColumnarArchive.MAGIC);
+		this.out.writeByte(ColumnarArchive.VERSION);
+		this.out.writeUTF(header);
+	}
+
+	public void write(TransactionRecord transactionRecord) throws IOException {
+		if (transactionRecord.getTrxDate() == null || transactionRecord.getTrxTime() == null) {
+			throw new IOException("Cannot archive a record without a date and time: " + transactionRecord);
+		}
+		if (transactionRecord.getTrxTime().getNano() != 0) {
+			throw new IOException("Cannot archive a time with a fraction of a second: " + transactionRecord);
+		}
+		block.add(transactionRecord);
+		if (block.size() == rowsPerBlock) {
+			writeBlock();
+		}
+	}
+
+	public long getRowCount() {
+		return rowCount + block.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (!block.isEmpty()) {
+			writeBlock();
+		}
+		long footerOffset = out.size();
+		out.writeInt(blockCount);
+		footer.writeTo(out);
+		out.writeLong(footerOffset);
+		out.writeInt(ColumnarArchive.MAGIC);
+		out.close();
+	}
+
+	private void writeBlock() throws IOException {
+		long offset = out.size();
+		int minDay = Integer.MAX_VALUE;
+		int maxDay = Integer.MIN_VALUE;
+		long minAmount = Long.MAX_VALUE;
+		long maxAmount = Long.MIN_VALUE;
+		String minAccount = null;
+		String maxAccount = null;
+
+		ByteArrayOutputStream[] columns = new ByteArrayOutputStream[ColumnarArchive.COLUMN_COUNT];
+		for (int column = 0; column < columns.length; column++) {
+			columns[column] = new ByteArrayOutputStream(block.size() * 2);
+		}
+		Dictionary accounts = new Dictionary();
+		Dictionary descriptions = new Dictionary();
+		Dictionary customers = new Dictionary();
+		long previousDay = 0;
+		long previousSecond = 0;
+		for (TransactionRecord transactionRecord : block) {
+			String accountNumber = transactionRecord.getAccountNumber();
+			ColumnarArchive.writeVarLong(columns[ColumnarArchive.ACCOUNT_NUMBER], accounts.index(accountNumber));
+			ColumnarArchive.writeVarLong(columns[ColumnarArchive.AMOUNT], transactionRecord.getTrxAmountMinor());
+			ColumnarArchive.writeVarLong(columns[ColumnarArchive.DESCRIPTION], descriptions.index(transactionRecord.getDescription()));
+			long day = transactionRecord.getTrxDate().toEpochDay();
+			ColumnarArchive.writeVarLong(columns[ColumnarArchive.DATE], day - previousDay);
+			previousDay = day;
+			LocalTime time = transactionRecord.getTrxTime();
+			long second = time.toSecondOfDay();
+			ColumnarArchive.writeVarLong(columns[ColumnarArchive.TIME], second - previousSecond);
+			previousSecond = second;
+			ColumnarArchive.writeVarLong(columns[ColumnarArchive.CUSTOMER_ID], customers.index(transactionRecord.getCustomerId()));
+
+			minDay = Math.min(minDay, (int) day);
+			maxDay = Math.max(maxDay, (int) day);
+			minAmount = Math.min(minAmount, transactionRecord.getTrxAmountMinor());
+			maxAmount = Math.max(maxAmount, transactionRecord.getTrxAmountMinor());
+			if (accountNumber != null) {
+				minAccount = minAccount == null || accountNumber.compareTo(minAccount) < 0 ? accountNumber : minAccount;
+				maxAccount = maxAccount == null || accountNumber.compareTo(maxAccount) > 0 ? accountNumber : maxAccount;
+			}
+		}
+
+		out.writeInt(block.size());
+		writeColumn(accounts.withIndexes(columns[ColumnarArchive.ACCOUNT_NUMBER]));
+		writeColumn(columns[ColumnarArchive.AMOUNT]);
+		writeColumn(descriptions.withIndexes(columns[ColumnarArchive.DESCRIPTION]));
+		writeColumn(columns[ColumnarArchive.DATE]);
+		writeColumn(columns[ColumnarArchive.TIME]);
+		writeColumn(customers.withIndexes(columns[ColumnarArchive.CUSTOMER_ID]));
+
+		DataOutputStream entry = new DataOutputStream(footer);
+		entry.writeLong(offset);
+		entry.writeInt(block.size());
+		entry.writeInt(minDay);
+		entry.writeInt(maxDay);
+		entry.writeLong(minAmount);
+		entry.writeLong(maxAmount);
+		entry.writeUTF(minAccount == null ? "" : minAccount);
+		entry.writeUTF(maxAccount == null ? "" : maxAccount);
+
+		blockCount++;
+		rowCount += block.size();
+		block.clear();
+	}
+
+	private void writeColumn(ByteArrayOutputStream column) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, column.size() / 4));
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try (DeflaterOutputStream deflating = new DeflaterOutputStream(compressed, deflater)) {
+			column.writeTo(deflating);
+		} finally {
+			deflater.end();
+		}
+		out.writeInt(column.size());
+		out.writeInt(compressed.size());
+		compressed.writeTo(out);
+	}
+
+	/**
+	 * The distinct values of one string column of a block, in order of first appearance.
+	 */
+	private static final class Dictionary {
+
+		private final Map<String, Integer> indexes = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+
+		int index(String value) {
+			if (value == null) {
+				return 0;
+			}
+			Integer index = indexes.get(value);
+			if (index == null) {
+				values.add(value);
+				index = values.size();
+				indexes.put(value, index);
+			}
+			return index;
+		}
+
+		/**
+		 * The dictionary followed by the given indexes.
+		 */
+		ByteArrayOutputStream withIndexes(ByteArrayOutputStream indexColumn) throws IOException {
+			ByteArrayOutputStream column = new ByteArrayOutputStream(indexColumn.size() + values.size() * 16);
+			ColumnarArchive.writeVarLong(column, values.size());
+			for (String value : values) {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				ColumnarArchive.writeVarLong(column, bytes.length);
+				column.write(bytes);
+			}
+			indexColumn.writeTo(column);
+			return column;
+		}
+	}
+}
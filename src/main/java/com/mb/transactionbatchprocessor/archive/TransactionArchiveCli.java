@@ -0,0 +1,119 @@
+package com.mb.transactionbatchprocessor.archive;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.MinorUnitsAttributeConverter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints the records of one or more archives in the pipe-delimited input format, optionally only those of an
+ * account or a date range:
+ * <pre>
+ * java -cp target/TransactionBatchProcessor-0.0.1-SNAPSHOT.jar \
+ *     -Dloader.main=com.mb.transactionbatchprocessor.archive.TransactionArchiveCli \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--account number] archive.tcol...
+ * </pre>
+ * The header of the first archive is printed before the records. The number of records printed and of blocks
+ * read go to standard error.
+ */
+public final class TransactionArchiveCli {
+
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+	private TransactionArchiveCli() {
+	}
+
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	public static int run(String[] args, PrintStream out, PrintStream err) {
+		LocalDate from = null;
+		LocalDate to = null;
+		String accountNumber = null;
+		List<Path> archives = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--from" -> from = LocalDate.parse(value(args, ++i));
+					case "--to" -> to = LocalDate.parse(value(args, ++i));
+					case "--account" -> accountNumber = value(args, ++i);
+					default -> archives.add(Paths.get(args[i]));
+				}
+			}
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			err.println(e.getMessage());
+			archives.clear();
+		}
+		if (archives.isEmpty()) {
+			err.println("Usage: TransactionArchiveCli [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--account number] archive...");
+			return 2;
+		}
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+		long[] printed = {0};
+		int blocksRead = 0;
+		int blockCount = 0;
+		try {
+			for (int i = 0; i < archives.size(); i++) {
+				try (ColumnarArchiveReader reader = new ColumnarArchiveReader(archives.get(i))) {
+					if (i == 0) {
+						writer.write(reader.getHeader());
+						writer.write('\n');
+					}
+					blockCount += reader.getBlockCount();
+					blocksRead += reader.forEach(from, to, accountNumber, transactionRecord -> {
+						try {
+							writer.write(format(transactionRecord));
+							writer.write('\n');
+							printed[0]++;
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+				}
+			}
+			writer.flush();
+		} catch (IOException | UncheckedIOException e) {
+			err.println("Failed to read the archives: " + e.getMessage());
+			return 1;
+		}
+		err.println("Printed " + printed[0] + " records, read " + blocksRead + " of " + blockCount + " blocks");
+		return 0;
+	}
+
+	public static String format(TransactionRecord transactionRecord) {
+		return String.join("|",
+				nullToEmpty(transactionRecord.getAccountNumber()),
+				MinorUnitsAttributeConverter.toDecimal(transactionRecord.getTrxAmountMinor()).toPlainString(),
+				nullToEmpty(transactionRecord.getDescription()),
+				transactionRecord.getTrxDate().toString(),
+				TIME_FORMAT.format(transactionRecord.getTrxTime()),
+				nullToEmpty(transactionRecord.getCustomerId()));
+	}
+
+	private static String value(String[] args, int i) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+		}
+		return args[i];
+	}
+
+	private static String nullToEmpty(String value) {
+		return value == null ? "" : value;
+	}
+}
@@ -0,0 +1,123 @@
+package com.mb.transactionbatchprocessor.archive;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.ExclusiveFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.file.LineMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Converts an imported input file into a columnar archive next to its target in the completed directory.
+ * <p>
+ * The records are parsed again with the import's line mapper and streamed into a temporary archive, which is
+ * then read back and compared with a second parse of the file. Only once every record matches is the archive
+ * put into place, never replacing a file of its name; the caller deletes the input file after that. Amounts are
+ * kept as minor units, so an amount written as {@code 5.5} reads back as {@code 5.50}.
+ */
+public class TransactionFileArchiver {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransactionFileArchiver.class);
+
+	public static final String ARCHIVE_SUFFIX = ".tcol";
+
+	private final LineMapper<TransactionRecord> lineMapper;
+	private final int rowsPerBlock;
+
+	public TransactionFileArchiver(LineMapper<TransactionRecord> lineMapper, int rowsPerBlock) {
+		this.lineMapper = lineMapper;
+		this.rowsPerBlock = rowsPerBlock;
+	}
+
+	/**
+	 * Writes and verifies the archive of the file at the given path.
+	 *
+	 * @return the number of records archived
+	 * @throws FileAlreadyExistsException if the archive exists, which is never replaced
+	 * @throws IOException                if the file cannot be parsed or archived, or the archive does not match it; no
+	 *                                    archive is left behind then
+	 */
+	public long archive(Path file, Path archive) throws IOException {
+		long start = System.nanoTime();
+		Path temp = ExclusiveFiles.createTempSibling(archive);
+		try {
+			long rowCount = write(file, temp);
+			verify(file, temp, rowCount);
+			ExclusiveFiles.moveNew(temp, archive);
+			logger.info("Archived {} records of '{}' into '{}' ({} of {} bytes) in {} ms", rowCount, file.getFileName(),
+					archive, Files.size(archive), Files.size(file), (System.nanoTime() - start) / 1_000_000);
+			return rowCount;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private long write(Path file, Path archive) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			if (header == null) {
+				throw new IOException("Cannot archive an empty file: " + file);
+			}
+			try (ColumnarArchiveWriter writer = new ColumnarArchiveWriter(
+					new BufferedOutputStream(Files.newOutputStream(archive), 64 * 1024), header, rowsPerBlock)) {
+				int lineNumber = 1;
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					writer.write(parse(file, line, ++lineNumber));
+				}
+				return writer.getRowCount();
+			}
+		}
+	}
+
+	private void verify(Path file, Path archive, long rowCount) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+			 ColumnarArchiveReader archiveReader = new ColumnarArchiveReader(archive)) {
+			if (!archiveReader.getHeader().equals(reader.readLine()) || archiveReader.getRowCount() != rowCount) {
+				throw new IOException("Archive of " + file + " does not match its header or record count");
+			}
+			int[] lineNumber = {1};
+			archiveReader.forEach(archived -> {
+				try {
+					String line = reader.readLine();
+					lineNumber[0]++;
+					if (line == null || !sameFields(parse(file, line, lineNumber[0]), archived)) {
+						throw new IOException("Archive of " + file + " does not match line " + lineNumber[0]);
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			if (reader.readLine() != null) {
+				throw new IOException("Archive of " + file + " is missing records");
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private TransactionRecord parse(Path file, String line, int lineNumber) throws IOException {
+		try {
+			return lineMapper.mapLine(line, lineNumber);
+		} catch (Exception e) {
+			throw new IOException("Cannot archive line " + lineNumber + " of " + file + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static boolean sameFields(TransactionRecord expected, TransactionRecord actual) {
+		return Objects.equals(expected.getAccountNumber(), actual.getAccountNumber())
+				&& expected.getTrxAmountMinor() == actual.getTrxAmountMinor()
+				&& Objects.equals(expected.getDescription(), actual.getDescription())
+				&& Objects.equals(expected.getTrxDate(), actual.getTrxDate())
+				&& Objects.equals(expected.getTrxTime(), actual.getTrxTime())
+				&& Objects.equals(expected.getCustomerId(), actual.getCustomerId());
+	}
+}
@@ -0,0 +1,90 @@
+package com.mb.transactionbatchprocessor.aspect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count and a power-of-two latency histogram for one traced method.
+ * <p>
+ * Every call is counted, but only sampled calls are timed. Bucket {@code i} holds durations in
+ * {@code [2^i, 2^(i+1))} nanoseconds, so percentiles are reported as the upper bound of their bucket.
+ */
+public final class MethodTimings {
+
+	private static final int BUCKETS = 64;
+
+	private final String method;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder samples = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	public MethodTimings(String method) {
+		this.method = method;
+	}
+
+	public void recordCall() {
+		calls.increment();
+	}
+
+	public void recordSample(long nanos) {
+		samples.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		buckets.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getSamples() {
+		return samples.sum();
+	}
+
+	public long getMeanNanos() {
+		long count = samples.sum();
+		return count == 0 ? 0 : totalNanos.sum() / count;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns the upper bound of the bucket holding the given percentile of sampled durations.
+	 */
+	public long getPercentileNanos(double percentile) {
+		long count = samples.sum();
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				long upperBound = i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+				return Math.min(upperBound, getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	@Override
+	public String toString() {
+		return "method=" + method +
+				" calls=" + getCalls() +
+				" samples=" + getSamples() +
+				" meanMicros=" + getMeanNanos() / 1_000 +
+				" p50Micros=" + getPercentileNanos(50) / 1_000 +
+				" p99Micros=" + getPercentileNanos(99) / 1_000 +
+				" maxMicros=" + getMaxNanos() / 1_000;
+	}
+}
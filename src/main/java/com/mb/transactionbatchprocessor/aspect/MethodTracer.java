@@ -0,0 +1,80 @@
+package com.mb.transactionbatchprocessor.aspect;
+
+import jakarta.annotation.PreDestroy;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Counts traced calls and times a sample of them into per-method {@link MethodTimings}.
+ * <p>
+ * Unsampled calls only increment a counter. A sampled call is timed and, when this class logs at DEBUG,
+ * reported as a {@code key=value} line; arguments are formatted only at TRACE. The collected timings are
+ * logged when the application shuts down.
+ */
+@Component
+@ConditionalOnProperty(name = "tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class MethodTracer {
+
+	private static final Logger logger = LoggerFactory.getLogger(MethodTracer.class);
+
+	private final Map<Method, MethodTimings> timings = new ConcurrentHashMap<>();
+
+	@Value("${tracing.sample-rate:0.01}")
+	private double sampleRate;
+
+	public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		MethodTimings methodTimings = timings.computeIfAbsent(method,
+				m -> new MethodTimings(m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+		methodTimings.recordCall();
+		if (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+			return joinPoint.proceed();
+		}
+
+		long start = System.nanoTime();
+		String outcome = "returned";
+		try {
+			return joinPoint.proceed();
+		} catch (Throwable t) {
+			outcome = t.getClass().getSimpleName();
+			throw t;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			methodTimings.recordSample(elapsed);
+			if (logger.isTraceEnabled()) {
+				logger.trace("trace method={} durationMicros={} outcome={} args={}", methodTimings.getMethod(),
+						elapsed / 1_000, outcome, Arrays.toString(joinPoint.getArgs()));
+			} else if (logger.isDebugEnabled()) {
+				logger.debug("trace method={} durationMicros={} outcome={}", methodTimings.getMethod(), elapsed / 1_000, outcome);
+			}
+		}
+	}
+
+	public List<MethodTimings> getTimings() {
+		return timings.values().stream()
+				.sorted(Comparator.comparingLong((MethodTimings t) -> t.getMeanNanos() * t.getCalls()).reversed())
+				.toList();
+	}
+
+	@PreDestroy
+	public void logTimings() {
+		if (timings.isEmpty()) {
+			return;
+		}
+		logger.info("Method timings, {}% of calls sampled:", sampleRate * 100);
+		getTimings().forEach(methodTimings -> logger.info("{}", methodTimings));
+	}
+}
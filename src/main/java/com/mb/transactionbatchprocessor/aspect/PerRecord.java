@@ -0,0 +1,18 @@
+package com.mb.transactionbatchprocessor.aspect;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method, or every method of a class, that runs once per record or per chunk outside the Spring Batch
+ * and conversion interfaces that {@link TracingAspect} recognizes by type. {@link TracingAspect} leaves such
+ * methods untraced unless {@code tracing.per-record.enabled=true}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface PerRecord {
+}
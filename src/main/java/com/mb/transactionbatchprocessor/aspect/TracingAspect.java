@@ -0,0 +1,70 @@
+package com.mb.transactionbatchprocessor.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Traces calls into the application's beans through {@link MethodTracer}.
+ * <p>
+ * Methods that run once per record or per chunk (readers, processors, writers, stream updates, step listeners,
+ * completion policies and converters) are left out, so their beans are not proxied at all. Any other method that
+ * runs once per record must be marked {@link PerRecord}, directly or on its class. Set
+ * {@code tracing.per-record.enabled=true} to trace them as well.
+ */
+@Component
+@Aspect
+@ConditionalOnProperty(name = "tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingAspect {
+
+	private final MethodTracer methodTracer;
+
+	public TracingAspect(MethodTracer methodTracer) {
+		this.methodTracer = methodTracer;
+	}
+
+	@Pointcut("execution(* com.mb.transactionbatchprocessor..*(..)) && !within(com.mb.transactionbatchprocessor.aspect..*)")
+	public void applicationPackagePointcut() {
+	}
+
+	@Pointcut("execution(* org.springframework.batch.item.ItemReader+.read(..))" +
+			" || execution(* org.springframework.batch.item.ItemProcessor+.process(..))" +
+			" || execution(* org.springframework.batch.item.ItemWriter+.write(..))" +
+			" || execution(* org.springframework.batch.item.ItemStream+.update(..))" +
+			" || execution(* org.springframework.batch.core.StepListener+.*(..))" +
+			" || execution(* org.springframework.batch.repeat.CompletionPolicy+.*(..))" +
+			" || execution(* org.springframework.core.convert.converter.Converter+.convert(..))" +
+			" || @annotation(com.mb.transactionbatchprocessor.aspect.PerRecord)" +
+			" || @within(com.mb.transactionbatchprocessor.aspect.PerRecord)")
+	public void perRecordPointcut() {
+	}
+
+	@Around("applicationPackagePointcut() && !perRecordPointcut()")
+	public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+		return methodTracer.trace(joinPoint);
+	}
+
+	/**
+	 * Opt-in tracing of the per-record methods excluded above.
+	 */
+	@Component
+	@Aspect
+	@ConditionalOnProperty(name = "tracing.per-record.enabled", havingValue = "true")
+	public static class PerRecordTracingAspect {
+
+		private final MethodTracer methodTracer;
+
+		public PerRecordTracingAspect(MethodTracer methodTracer) {
+			this.methodTracer = methodTracer;
+		}
+
+		@Around("com.mb.transactionbatchprocessor.aspect.TracingAspect.applicationPackagePointcut()" +
+				" && com.mb.transactionbatchprocessor.aspect.TracingAspect.perRecordPointcut()")
+		public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+			return methodTracer.trace(joinPoint);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Completion policy that resizes chunks between commits to keep each transaction near a target duration.
+ * <p>
+ * The time from the first write of a chunk until its commit is measured and smoothed into a cost per item,
+ * and the next chunk is sized to fit {@code targetCommitMillis}, changing by at most a factor of two at a time.
+ * Chunks that roll back, or whose skip rate exceeds {@code maxSkipRate}, halve the size because every skip
+ * forces the chunk to be rescanned item by item. Sizes stay within {@code minSize} and {@code maxSize}.
+ * <p>
+ * The current size and the recent size changes are kept in the step {@link ExecutionContext}, and a
+ * restarted step resumes with the last size. Instances hold per-step state, so each step execution needs
+ * its own (the bean is step scoped).
+ */
+public class AdaptiveChunkCompletionPolicy extends SimpleCompletionPolicy
+		implements ChunkListener, ItemWriteListener<TransactionRecord> {
+
+	private static final Logger logger = LoggerFactory.getLogger(AdaptiveChunkCompletionPolicy.class);
+
+	public static final String SIZE_KEY = "adaptiveChunk.size";
+	public static final String HISTORY_KEY = "adaptiveChunk.history";
+
+	private static final int HISTORY_LENGTH = 50;
+	private static final double SMOOTHING = 0.3;
+
+	private final int minSize;
+	private final int maxSize;
+	private final long targetCommitNanos;
+	private final double maxSkipRate;
+
+	private final Deque<String> history = new ArrayDeque<>();
+	private boolean restored;
+	private long chunkCount;
+	private long lastSkipCount;
+	private long writeStartNanos;
+	private int writeItemCount;
+	private double nanosPerItem;
+
+	public AdaptiveChunkCompletionPolicy(int initialSize, int minSize, int maxSize, long targetCommitMillis, double maxSkipRate) {
+		super(Math.max(minSize, Math.min(maxSize, initialSize)));
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.targetCommitNanos = targetCommitMillis * 1_000_000;
+		this.maxSkipRate = maxSkipRate;
+	}
+
+	@Override
+	public void beforeChunk(ChunkContext context) {
+		if (!restored) {
+			restored = true;
+			StepExecution stepExecution = context.getStepContext().getStepExecution();
+			ExecutionContext executionContext = stepExecution.getExecutionContext();
+			if (executionContext.containsKey(SIZE_KEY)) {
+				setChunkSize(executionContext.getInt(SIZE_KEY));
+				logger.info("Resuming {} with chunk size {}", stepExecution.getStepName(), getChunkSize());
+			}
+			lastSkipCount = stepExecution.getSkipCount();
+		}
+		writeStartNanos = 0;
+	}
+
+	@Override
+	public void beforeWrite(Chunk<? extends TransactionRecord> items) {
+		// A rescan after a failed write calls this once per item, so only the first write of a chunk is timed
+		if (writeStartNanos == 0) {
+			writeStartNanos = System.nanoTime();
+			writeItemCount = items.size();
+		}
+	}
+
+	@Override
+	public void afterChunk(ChunkContext context) {
+		StepExecution stepExecution = context.getStepContext().getStepExecution();
+		long skipCount = stepExecution.getSkipCount();
+		long chunkSkips = skipCount - lastSkipCount;
+		lastSkipCount = skipCount;
+
+		if (writeStartNanos == 0) {
+			return;  // Nothing was written, e.g. the last chunk of the input was empty or fully skipped
+		}
+		adjust(System.nanoTime() - writeStartNanos, writeItemCount, chunkSkips);
+		record(stepExecution.getExecutionContext());
+	}
+
+	@Override
+	public void afterChunkError(ChunkContext context) {
+		resize(getChunkSize() / 2);
+		record(context.getStepContext().getStepExecution().getExecutionContext());
+	}
+
+	/**
+	 * Chooses the size of the next chunk from the write and commit time of the last one.
+	 */
+	public int adjust(long writeCommitNanos, int itemCount, long skipCount) {
+		chunkCount++;
+		if (itemCount <= 0) {
+			return getChunkSize();
+		}
+
+		double sample = (double) writeCommitNanos / itemCount;
+		nanosPerItem = nanosPerItem == 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * nanosPerItem;
+
+		int size = getChunkSize();
+		long desired = nanosPerItem > 0 ? (long) (targetCommitNanos / nanosPerItem) : (long) size * 2;
+		int next = (int) Math.max(size / 2, Math.min((long) size * 2, desired));
+		if ((double) skipCount / itemCount > maxSkipRate) {
+			next = Math.min(next, size / 2);
+		}
+		return resize(next);
+	}
+
+	private int resize(int size) {
+		int next = Math.max(minSize, Math.min(maxSize, size));
+		if (next != getChunkSize()) {
+			logger.debug("Changing chunk size from {} to {} after chunk {}", getChunkSize(), next, chunkCount);
+			setChunkSize(next);
+			history.addLast(chunkCount + "=" + next);
+			if (history.size() > HISTORY_LENGTH) {
+				history.removeFirst();
+			}
+		}
+		return next;
+	}
+
+	private void record(ExecutionContext executionContext) {
+		executionContext.putInt(SIZE_KEY, getChunkSize());
+		executionContext.putString(HISTORY_KEY, String.join(",", history));
+	}
+}
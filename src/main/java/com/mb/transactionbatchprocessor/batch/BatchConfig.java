@@ -1,49 +1,94 @@
 package com.mb.transactionbatchprocessor.batch;
 
+import com.mb.transactionbatchprocessor.archive.TransactionFileArchiver;
 import com.mb.transactionbatchprocessor.exception.InvalidTransactionRecordException;
 import com.mb.transactionbatchprocessor.model.TransactionRecord;
-import com.mb.transactionbatchprocessor.util.StringToLocalDateConverter;
-import com.mb.transactionbatchprocessor.util.StringToLocalTimeConverter;
+import com.mb.transactionbatchprocessor.reference.ReferenceDataCache;
+import com.mb.transactionbatchprocessor.util.CustomJobExecutionListener;
+import com.mb.transactionbatchprocessor.util.NaturalKeyFilter;
+import com.mb.transactionbatchprocessor.util.NaturalKeys;
+import com.mb.transactionbatchprocessor.validation.TransactionRuleEngine;
+import com.mb.transactionbatchprocessor.validation.ValidationError;
+import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.SkipListener;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.job.DefaultJobParametersValidator;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.partition.support.Partitioner;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.LineMapper;
 import org.springframework.batch.item.file.MultiResourceItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
 import org.springframework.batch.item.file.builder.MultiResourceItemReaderBuilder;
-import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.format.support.DefaultFormattingConversionService;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
 import java.io.File;
-import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.time.Clock;
 import java.util.Arrays;
+import java.util.List;
 
 @Configuration
-@EnableBatchProcessing
+@EnableBatchProcessing(taskExecutorRef = "jobLauncherTaskExecutor")
 public class BatchConfig {
 
 	private static final Logger logger = LoggerFactory.getLogger(BatchConfig.class);
 
-	@Value("${transaction.input.dir}")
-	private String inputDir;
+	/**
+	 * Optional job parameter naming the directory to import; {@code transaction.input.dir} when absent.
+	 */
+	public static final String INPUT_DIR_PARAMETER = "input.dir";
+
+	private static final String INPUT_DIR = "#{jobParameters['" + INPUT_DIR_PARAMETER + "'] ?: '${transaction.input.dir}'}";
+
+	/**
+	 * Job parameter of {@code replayRejectsJob} naming the error file whose rejects are imported again.
+	 */
+	public static final String REPLAY_FILE_PARAMETER = "replay.file";
+
+	private static final String REPLAY_FILE = "#{jobParameters['" + REPLAY_FILE_PARAMETER + "']}";
+
+	private static final String MAPPED_READER_TYPE = "mapped";
+	private static final String BATCH_WRITER_MODE = "batch";
 
 	@Value("${transaction.completed.dir}")
 	private String completedDir;
@@ -51,6 +96,97 @@ public class BatchConfig {
 	@Value("${transaction.error.dir}")
 	private String errorDir;
 
+	@Value("${transaction.reader.type:line}")
+	private String readerType;
+
+	@Value("${transaction.writer.mode:batch}")
+	private String writerMode;
+
+	@Value("${transaction.writer.rows-per-statement:500}")
+	private int writerRowsPerStatement;
+
+	@Value("${transaction.writer.load-data.enabled:false}")
+	private boolean loadDataEnabled;
+
+	@Value("${transaction.partition.enabled:false}")
+	private boolean partitionEnabled;
+
+	@Value("${transaction.partition.pool-size:4}")
+	private int partitionPoolSize;
+
+	@Value("${transaction.partition.max-range-bytes:67108864}")
+	private long partitionMaxRangeBytes;
+
+	@Value("${transaction.lease.enabled:false}")
+	private boolean leaseEnabled;
+
+	@Value("${transaction.lease.node-id:}")
+	private String leaseNodeId;
+
+	@Value("${transaction.lease.ttl-millis:30000}")
+	private long leaseTtlMillis;
+
+	@Value("${transaction.chunk.size:10}")
+	private int chunkSize;
+
+	@Value("${transaction.chunk.adaptive.enabled:false}")
+	private boolean adaptiveChunkEnabled;
+
+	@Value("${transaction.chunk.adaptive.min-size:10}")
+	private int adaptiveChunkMinSize;
+
+	@Value("${transaction.chunk.adaptive.max-size:5000}")
+	private int adaptiveChunkMaxSize;
+
+	@Value("${transaction.chunk.adaptive.target-commit-millis:250}")
+	private long adaptiveChunkTargetCommitMillis;
+
+	@Value("${transaction.chunk.adaptive.max-skip-rate:0.01}")
+	private double adaptiveChunkMaxSkipRate;
+
+	@Value("${transaction.virtual-threads.enabled:false}")
+	private boolean virtualThreadsEnabled;
+
+	@Value("${transaction.natural-key.enabled:false}")
+	private boolean naturalKeyEnabled;
+
+	@Value("${transaction.natural-key.filter.expected-keys:10000000}")
+	private long naturalKeyFilterExpectedKeys;
+
+	@Value("${transaction.natural-key.filter.false-positive-rate:0.01}")
+	private double naturalKeyFilterFalsePositiveRate;
+
+	// Initialized for the benchmarks, which create this class without Spring
+	@Value("${transaction.validation.rules:account-required}")
+	private List<String> validationRules = List.of("account-required");
+
+	@Value("${transaction.reference.snapshot:}")
+	private String referenceSnapshot = "";
+
+	@Value("${transaction.reference.hot-entries:65536}")
+	private int referenceHotEntries;
+
+	@Value("${transaction.daily-summary.enabled:false}")
+	private boolean dailySummaryEnabled;
+
+	@Value("${transaction.daily-summary.max-entries:1000000}")
+	private int dailySummaryMaxEntries;
+
+	@Value("${transaction.archive.enabled:false}")
+	private boolean archiveEnabled;
+
+	@Value("${transaction.archive.rows-per-block:65536}")
+	private int archiveRowsPerBlock;
+
+	@Value("${transaction.finalize.threads:4}")
+	private int finalizeThreads;
+
+	@Value("${transaction.pipeline.enabled:false}")
+	private boolean pipelineEnabled;
+
+	@Value("${transaction.pipeline.capacity:2000}")
+	private int pipelineCapacity;
+
 	private final DataSource dataSource;
 	private final JobRepository jobRepository;
 	private final PlatformTransactionManager transactionManager;
@@ -62,50 +198,102 @@ public class BatchConfig {
 	}
 
 	@Bean
-	public MultiResourceItemReader<TransactionRecord> multiResourceItemReader() {
+	@StepScope
+	public MultiResourceItemReader<TransactionRecord> multiResourceItemReader(@Value(INPUT_DIR) String inputDir) {
+		return multiResourceReader(inputDir);
+	}
+
+	private MultiResourceItemReader<TransactionRecord> multiResourceReader(String inputDir) {
 		logger.info("Loading resources from directory: {}", inputDir);
 		Resource[] resources = getResources(inputDir);
 
+		// A delegate of its own, because executions for different directories may run at the same time
 		logger.info("Configuring MultiResourceItemReader with {} resources", resources.length);
 		return new MultiResourceItemReaderBuilder<TransactionRecord>()
 				.name("multiResourceItemReader")
 				.resources(resources)
-				.delegate(transactionRecordReader())
+				.delegate(new SourceTrackingReader(MAPPED_READER_TYPE.equals(readerType)
+						? new MappedTransactionRecordReader()
+						: transactionRecordReaderBuilder().build()))
 				.build();
 	}
 
 	@Bean
 	public FlatFileItemReader<TransactionRecord> transactionRecordReader() {
-		BeanWrapperFieldSetMapper<TransactionRecord> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
-		fieldSetMapper.setTargetType(TransactionRecord.class);
+		return transactionRecordReaderBuilder().build();
+	}
 
-		DefaultFormattingConversionService conversionService = new DefaultFormattingConversionService();
-		conversionService.addConverter(new StringToLocalDateConverter());
-		conversionService.addConverter(new StringToLocalTimeConverter());
-		fieldSetMapper.setConversionService(conversionService);
+	@Bean
+	public MappedTransactionRecordReader mappedTransactionRecordReader() {
+		return new MappedTransactionRecordReader();
+	}
+
+	@Bean
+	@StepScope
+	public TransactionRecordPartitionReader partitionTransactionRecordReader(
+			@Value("#{stepExecutionContext['" + TransactionFilePartitioner.FILE_NAME_KEY + "']}") String fileName,
+			@Value("#{stepExecutionContext['" + TransactionFilePartitioner.START_OFFSET_KEY + "']}") Long startOffset,
+			@Value("#{stepExecutionContext['" + TransactionFilePartitioner.END_OFFSET_KEY + "']}") Long endOffset,
+			@Value("#{stepExecution}") StepExecution stepExecution) {
+		return partitionReader(fileName, startOffset, endOffset, stepExecution);
+	}
 
+	private TransactionRecordPartitionReader partitionReader(String fileName, Long startOffset, Long endOffset,
+															 StepExecution stepExecution) {
+		if (stepExecution.getExecutionContext().containsKey(TransactionFilePartitioner.LEASE_LOST_KEY)) {
+			// FileLeaseListener found the range leased by another node when the worker started
+			return TransactionRecordPartitionReader.empty();
+		}
+
+		logger.info("Configuring {} partition reader for file: {} range: [{}, {})", readerType, fileName, startOffset, endOffset);
+		if (MAPPED_READER_TYPE.equals(readerType)) {
+			return new TransactionRecordPartitionReader(new MappedTransactionRecordReader(new FileSystemResource(fileName), startOffset, endOffset));
+		}
+		return new TransactionRecordPartitionReader(new TransactionRecordRangeReader(new FileSystemResource(fileName), startOffset, endOffset,
+				transactionRecordLineMapper()));
+	}
+
+	private FlatFileItemReaderBuilder<TransactionRecord> transactionRecordReaderBuilder() {
 		return new FlatFileItemReaderBuilder<TransactionRecord>()
 				.name("transactionRecordItemReader")
 				.linesToSkip(1)  // Skip the header row
-				.delimited()
-				.delimiter("|")
-				.names("accountNumber", "trxAmount", "description", "trxDate", "trxTime", "customerId")
-				.fieldSetMapper(fieldSetMapper)
-				.build();
+				.lineMapper(transactionRecordLineMapper());
+	}
+
+	private LineMapper<TransactionRecord> transactionRecordLineMapper() {
+		DelimitedLineTokenizer lineTokenizer = new DelimitedLineTokenizer("|");
+		lineTokenizer.setNames("accountNumber", "trxAmount", "description", "trxDate", "trxTime", "customerId");
+
+		DefaultLineMapper<TransactionRecord> lineMapper = new DefaultLineMapper<>();
+		lineMapper.setLineTokenizer(lineTokenizer);
+		lineMapper.setFieldSetMapper(new TransactionRecordFieldSetMapper());
+
+		// Keep the line number so that a rejected record can be located in its file
+		return (line, lineNumber) -> {
+			TransactionRecord transactionRecord = lineMapper.mapLine(line, lineNumber);
+			transactionRecord.setSourceLine(lineNumber);
+			return transactionRecord;
+		};
 	}
 
 	@Bean
 	public ItemProcessor<TransactionRecord, TransactionRecord> transactionRecordProcessor() {
 		logger.info("Configuring ItemProcessor for TransactionRecord");
+		ReferenceDataCache referenceData = referenceSnapshot.isEmpty() ? null : referenceDataCache();
+		if (referenceData != null) {
+			logger.info("Checking accounts against the reference snapshot '{}' with {} hot entries", referenceSnapshot, referenceHotEntries);
+		}
+		TransactionRuleEngine ruleEngine = TransactionRuleEngine.compile(validationRules, Clock.systemDefaultZone(), referenceData);
+		logger.info("Validating records with {} rules: {}", ruleEngine.size(), ruleEngine.getDeclarations());
 		return transactionRecord -> {
-			// Perform validation
-			try {
-				Double trxAmount = transactionRecord.getTrxAmount();
-				if (transactionRecord.getAccountNumber() == null || trxAmount == null || trxAmount.isNaN()) {
-					throw new InvalidTransactionRecordException("Invalid data in record: " + transactionRecord);
-				}
-			} catch (NumberFormatException e) {
-				throw new InvalidTransactionRecordException("Invalid number format in record: " + transactionRecord);
+			// Fill in a missing customer id from the reference data before it is validated
+			if (referenceData != null && (transactionRecord.getCustomerId() == null || transactionRecord.getCustomerId().isEmpty())) {
+				transactionRecord.setCustomerId(referenceData.customerId(transactionRecord.getAccountNumber()));
+			}
+
+			ValidationError error = ruleEngine.validate(transactionRecord);
+			if (error != null) {
+				throw new InvalidTransactionRecordException(error);
 			}
 
 			// Initialize version if null
@@ -113,89 +301,376 @@ public class BatchConfig {
 				transactionRecord.setVersion(0);  // Set the initial version to 0
 			}
 
+			if (naturalKeyEnabled) {
+				transactionRecord.setNaturalKey(NaturalKeys.hash(transactionRecord));
+			}
+
 			return transactionRecord;
 		};
 	}
 
 	@Bean
 	public ItemWriter<TransactionRecord> transactionRecordWriter() {
-		logger.info("Configuring JdbcBatchItemWriter for TransactionRecord");
-		return new JdbcBatchItemWriterBuilder<TransactionRecord>()
-				.dataSource(dataSource)
-				.beanMapped()
-				.sql("INSERT INTO transaction_record (account_number, trx_amount, description, trx_date, trx_time, customer_id, version) " +
-						"VALUES (:accountNumber, :trxAmount, :description, :trxDate, :trxTime, :customerId, :version)")
-				.build();
+		logger.info("Configuring {} writer for TransactionRecord", writerMode);
+		ItemWriter<TransactionRecord> writer;
+		if (!BATCH_WRITER_MODE.equals(writerMode)) {
+			BulkTransactionRecordWriter.Mode mode = BulkTransactionRecordWriter.Mode.fromProperty(writerMode);
+			if (mode == BulkTransactionRecordWriter.Mode.LOAD_DATA && !loadDataEnabled) {
+				throw new IllegalStateException("transaction.writer.mode=load-data requires transaction.writer.load-data.enabled=true, "
+						+ "because LOAD DATA LOCAL INFILE has not been verified against a MySQL server");
+			}
+			writer = new BulkTransactionRecordWriter(dataSource, mode, writerRowsPerStatement, naturalKeyEnabled);
+		} else {
+			TransactionRecordStatementSetter statementSetter = new TransactionRecordStatementSetter(naturalKeyEnabled);
+			writer = new JdbcBatchItemWriterBuilder<TransactionRecord>()
+					.dataSource(dataSource)
+					.sql(statementSetter.insertSql())
+					.itemPreparedStatementSetter(statementSetter)
+					.build();
+		}
+
+		if (dailySummaryEnabled) {
+			// Inside the duplicate filter, so that only the records actually written are summed
+			logger.info("Summing daily account totals, spilling to disk above {} account days per step", dailySummaryMaxEntries);
+			ItemWriter<TransactionRecord> recordWriter = writer;
+			DailyAccountSummaryAggregator aggregator = dailyAccountSummaryAggregator();
+			writer = chunk -> {
+				recordWriter.write(chunk);
+				// A natural key repeated within the chunk only bumps the version of its row
+				aggregator.add(naturalKeyEnabled ? new Chunk<>(DeduplicatingTransactionRecordWriter.distinctByNaturalKey(chunk)) : chunk);
+			};
+		}
+
+		if (!naturalKeyEnabled) {
+			return writer;
+		}
+		// One filter for the writer shared by all steps, so that it remembers keys across files and jobs. The writer loads
+		// the keys of the earlier processes into it once the context has started
+		NaturalKeyFilter filter = new NaturalKeyFilter(naturalKeyFilterExpectedKeys, naturalKeyFilterFalsePositiveRate);
+		logger.info("Upserting by natural key, with a duplicate filter of {} KiB and {} hash functions for {} keys",
+				filter.bitCount() / 8 / 1024, filter.hashCount(), naturalKeyFilterExpectedKeys);
+		return new DeduplicatingTransactionRecordWriter(writer, filter, dataSource);
+	}
+
+	@Bean
+	public ReferenceDataCache referenceDataCache() {
+		return new ReferenceDataCache(Paths.get(referenceSnapshot), referenceHotEntries);
 	}
 
 	@Bean
-	public Job importTransactionRecordJob(JobCompletionNotificationListener listener, Step step1, Step moveFilesStep) {
+	public Job importTransactionRecordJob(JobCompletionNotificationListener listener, CustomJobExecutionListener resultListener,
+										  BatchMetricsListener metricsListener, InputFileSet inputFileSet, Step step1, Step moveFilesStep) {
 		logger.info("Building importTransactionRecordJob");
-		return new JobBuilder("importTransactionRecordJob", jobRepository)
+		JobBuilder jobBuilder = new JobBuilder("importTransactionRecordJob", jobRepository)
 				.incrementer(new RunIdIncrementer())
+				.listener(inputFileSet);
+		if (!referenceSnapshot.isEmpty()) {
+			// Picks up a changed snapshot before the steps start
+			jobBuilder.listener(referenceDataCache());
+		}
+		return jobBuilder
 				.listener(listener)
+				.listener(resultListener)
+				.listener(metricsListener)
 				.start(step1)
 				.next(moveFilesStep)
 				.build();
 	}
 
 	@Bean
-	public Step step1() {
-		logger.info("Configuring Step1: Reading, Processing, and Writing TransactionRecords");
-		return new StepBuilder("step1", jobRepository)
-				.<TransactionRecord, TransactionRecord>chunk(10, transactionManager)
-				.reader(multiResourceItemReader())
+	public InputFileSet inputFileSet(@Value("${transaction.input.dir}") String inputDir) {
+		return new InputFileSet(inputDir);
+	}
+
+	@Bean
+	public Job replayRejectsJob(JobCompletionNotificationListener listener, CustomJobExecutionListener resultListener,
+								BatchMetricsListener metricsListener, Step replayStep, Step replayFinalizeStep) {
+		logger.info("Building replayRejectsJob");
+		JobBuilder jobBuilder = new JobBuilder("replayRejectsJob", jobRepository)
+				.incrementer(new RunIdIncrementer())
+				.validator(new DefaultJobParametersValidator(new String[]{REPLAY_FILE_PARAMETER}, new String[0]));
+		if (!referenceSnapshot.isEmpty()) {
+			jobBuilder.listener(referenceDataCache());
+		}
+		return jobBuilder
+				.listener(listener)
+				.listener(resultListener)
+				.listener(metricsListener)
+				.start(replayStep)
+				.next(replayFinalizeStep)
+				.build();
+	}
+
+	@Bean
+	public Step replayStep(BatchMetricsListener metricsListener) {
+		logger.info("Configuring replayStep: Reading only the rejected lines of an error file");
+		return faultTolerantChunk(new StepBuilder("replayStep", jobRepository)
+				.<TransactionRecord, TransactionRecord>chunk(chunkSize, transactionManager)
+				.reader(rejectReplayReader(null))
 				.processor(transactionRecordProcessor())
 				.writer(transactionRecordWriter())
-				.faultTolerant()
+				.faultTolerant(), metricsListener)
+				.build();
+	}
+
+	@Bean
+	@StepScope
+	public RejectReplayReader rejectReplayReader(@Value(REPLAY_FILE) String replayFile) {
+		return new RejectReplayReader(Paths.get(replayFile), transactionRecordLineMapper());
+	}
+
+	@Bean
+	public Step replayFinalizeStep() {
+		return new StepBuilder("replayFinalizeStep", jobRepository)
+				.tasklet(rejectReplayTasklet(null), transactionManager)
+				.build();
+	}
+
+	@Bean
+	@StepScope
+	public RejectReplayTasklet rejectReplayTasklet(@Value(REPLAY_FILE) String replayFile) {
+		return new RejectReplayTasklet(Paths.get(replayFile), processedFileMover());
+	}
+
+	@Bean
+	public Step step1(BatchMetricsListener metricsListener) {
+		if (partitionEnabled) {
+			logger.info("Configuring Step1: Partitioning input files across {} worker threads", partitionPoolSize);
+			return new StepBuilder("step1", jobRepository)
+					.partitioner("step1Worker", transactionFilePartitioner(null))
+					.step(step1Worker(metricsListener))
+					.gridSize(partitionPoolSize)
+					.taskExecutor(partitionTaskExecutor())
+					.build();
+		}
+
+		logger.info("Configuring Step1: Reading, Processing, and Writing TransactionRecords");
+		return transactionRecordChunkStep("step1", multiResourceItemReader(null), metricsListener);
+	}
+
+	@Bean
+	public Step step1Worker(BatchMetricsListener metricsListener) {
+		logger.info("Configuring step1Worker: Reading, Processing, and Writing one file partition");
+		return transactionRecordChunkStep("step1Worker", partitionTransactionRecordReader(null, null, null, null), metricsListener);
+	}
+
+	private Step transactionRecordChunkStep(String name, ItemReader<TransactionRecord> reader,
+											BatchMetricsListener metricsListener) {
+		ItemProcessor<TransactionRecord, TransactionRecord> processor = transactionRecordProcessor();
+		if (pipelineEnabled) {
+			// The step scoped pipeline wraps this same reader and processor, see transactionRecordPipeline()
+			logger.info("Configuring {} to read and validate up to {} records ahead of the writer", name, pipelineCapacity);
+			ReadAheadPipeline<TransactionRecord> pipeline = transactionRecordPipeline(null, null, null, null, null);
+			reader = pipeline;
+			processor = pipeline;
+		}
+
+		StepBuilder stepBuilder = new StepBuilder(name, jobRepository);
+		if (!adaptiveChunkEnabled) {
+			logger.info("Configuring {} with a fixed chunk size of {}", name, chunkSize);
+			return faultTolerantChunk(stepBuilder.<TransactionRecord, TransactionRecord>chunk(chunkSize, transactionManager)
+					.reader(reader)
+					.processor(processor)
+					.writer(transactionRecordWriter())
+					.faultTolerant(), metricsListener)
+					.build();
+		}
+
+		logger.info("Configuring {} with an adaptive chunk size between {} and {}", name, adaptiveChunkMinSize, adaptiveChunkMaxSize);
+		AdaptiveChunkCompletionPolicy completionPolicy = adaptiveChunkCompletionPolicy();
+		return faultTolerantChunk(stepBuilder.<TransactionRecord, TransactionRecord>chunk(completionPolicy, transactionManager)
+				.reader(reader)
+				.processor(processor)
+				.writer(transactionRecordWriter())
+				.faultTolerant(), metricsListener)
+				.listener((ChunkListener) completionPolicy)
+				.listener((ItemWriteListener<TransactionRecord>) completionPolicy)
+				.build();
+	}
+
+	private SimpleStepBuilder<TransactionRecord, TransactionRecord> faultTolerantChunk(
+			FaultTolerantStepBuilder<TransactionRecord, TransactionRecord> builder, BatchMetricsListener metricsListener) {
+		builder
 				.skip(InvalidTransactionRecordException.class)
 				.skip(FlatFileParseException.class)  // Skip parsing errors
 				.skipLimit(Integer.MAX_VALUE)
-				.listener(skipListener())
-				.build();
+				.listener((SkipListener<TransactionRecord, TransactionRecord>) fileSkipTracker())
+				.listener((StepExecutionListener) fileSkipTracker());
+		if (leaseEnabled) {
+			builder.listener((StepExecutionListener) fileLeaseListener())
+					.listener((ChunkListener) fileLeaseListener());
+		} else {
+			// Only acts on partition workers, which know their file
+			builder.listener(fileCompletionListener());
+		}
+		builder
+				.listener((SkipListener<TransactionRecord, TransactionRecord>) metricsListener)
+				.listener((ChunkListener) metricsListener)
+				.listener((ItemReadListener<TransactionRecord>) metricsListener)
+				.listener((ItemProcessListener<TransactionRecord, TransactionRecord>) metricsListener)
+				.listener((ItemWriteListener<TransactionRecord>) metricsListener);
+		if (dailySummaryEnabled) {
+			// Registered last, as step listeners are called back in reverse after the step: a failed upsert fails
+			// the step before its file is moved or its lease completed
+			builder.listener(dailyAccountSummaryAggregator());
+		}
+		return builder;
+	}
+
+	@Bean
+	@StepScope
+	public DailyAccountSummaryAggregator dailyAccountSummaryAggregator() {
+		// Step scoped, so that the writer shared by all steps adds each chunk to the totals of its own step
+		return new DailyAccountSummaryAggregator(dataSource, dailySummaryMaxEntries);
+	}
+
+	@Bean
+	@StepScope
+	public AdaptiveChunkCompletionPolicy adaptiveChunkCompletionPolicy() {
+		return new AdaptiveChunkCompletionPolicy(chunkSize, adaptiveChunkMinSize, adaptiveChunkMaxSize,
+				adaptiveChunkTargetCommitMillis, adaptiveChunkMaxSkipRate);
+	}
+
+	@Bean
+	@StepScope
+	public ReadAheadPipeline<TransactionRecord> transactionRecordPipeline(
+			@Value("#{stepExecutionContext['" + TransactionFilePartitioner.FILE_NAME_KEY + "']}") String fileName,
+			@Value("#{stepExecutionContext['" + TransactionFilePartitioner.START_OFFSET_KEY + "']}") Long startOffset,
+			@Value("#{stepExecutionContext['" + TransactionFilePartitioner.END_OFFSET_KEY + "']}") Long endOffset,
+			@Value(INPUT_DIR) String inputDir,
+			@Value("#{stepExecution}") StepExecution stepExecution) {
+		// Only one step reads: the workers when partitioning is enabled, otherwise step1 itself. The reader is
+		// created directly because a step scoped proxy cannot be resolved on the read-ahead thread.
+		ItemReader<TransactionRecord> reader = partitionEnabled
+				? partitionReader(fileName, startOffset, endOffset, stepExecution)
+				: multiResourceReader(inputDir);
+		return new ReadAheadPipeline<>(reader, transactionRecordProcessor(), pipelineCapacity, pipelineTaskExecutor());
+	}
+
+	@Bean
+	public AsyncTaskExecutor pipelineTaskExecutor() {
+		// One read-ahead thread per running step, so the number of threads follows the number of partitions
+		SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("pipeline-");
+		taskExecutor.setVirtualThreads(virtualThreadsEnabled);
+		return taskExecutor;
+	}
+
+	@Bean
+	@StepScope
+	public Partitioner transactionFilePartitioner(@Value(INPUT_DIR) String inputDir) {
+		return new TransactionFilePartitioner(inputDir, partitionMaxRangeBytes, leaseEnabled ? fileLeaseCoordinator(null) : null);
+	}
+
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "transaction.lease.enabled", havingValue = "true")
+	public FileLeaseCoordinator fileLeaseCoordinator(JobExplorer jobExplorer) {
+		if (!partitionEnabled) {
+			throw new IllegalStateException("transaction.lease.enabled requires transaction.partition.enabled, "
+					+ "because the leases are taken on the file ranges of the partitions");
+		}
+		String nodeId = leaseNodeId.isEmpty() ? defaultNodeId() : leaseNodeId;
+		return new FileLeaseCoordinator(dataSource, jobExplorer, nodeId, leaseTtlMillis);
+	}
+
+	private static String defaultNodeId() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			host = "localhost";
+		}
+		return host + ":" + ProcessHandle.current().pid();
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "transaction.lease.enabled", havingValue = "true")
+	public FileLeaseListener fileLeaseListener() {
+		return new FileLeaseListener(fileLeaseCoordinator(null), processedFileMover());
+	}
+
+	@Bean
+	public TaskExecutor partitionTaskExecutor() {
+		if (virtualThreadsEnabled) {
+			// One virtual thread per partition, throttled to the connections left over by the job repository
+			int concurrencyLimit = Math.max(1, maximumPoolSize() - 1);
+			logger.info("Running partitions on virtual threads, at most {} at a time", concurrencyLimit);
+			SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("partition-");
+			taskExecutor.setVirtualThreads(true);
+			taskExecutor.setConcurrencyLimit(concurrencyLimit);
+			return taskExecutor;
+		}
+
+		// Bounded so that concurrent partitions never outnumber the available DB connections
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(partitionPoolSize);
+		taskExecutor.setMaxPoolSize(partitionPoolSize);
+		taskExecutor.setThreadNamePrefix("partition-");
+		taskExecutor.initialize();
+		return taskExecutor;
+	}
+
+	@Bean
+	public TaskExecutor jobLauncherTaskExecutor(JobCompletionWaiter jobCompletionWaiter) {
+		if (virtualThreadsEnabled) {
+			// The launcher returns as soon as the job has started; TransactionBatchProcessorApplication waits for it
+			SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("job-");
+			taskExecutor.setVirtualThreads(true);
+			taskExecutor.setTaskDecorator(jobCompletionWaiter);
+			return taskExecutor;
+		}
+		return new SyncTaskExecutor();
+	}
+
+	private int maximumPoolSize() {
+		if (dataSource instanceof HikariDataSource hikariDataSource) {
+			return hikariDataSource.getMaximumPoolSize();
+		}
+		logger.warn("Cannot determine the connection pool size of {}, using transaction.partition.pool-size", dataSource);
+		return partitionPoolSize + 1;
 	}
 
 	@Bean
 	public Step moveFilesStep() {
 		logger.info("Configuring moveFilesStep to move processed files");
 		return new StepBuilder("moveFilesStep", jobRepository)
-				.tasklet(new FileMovingTasklet(inputDir, completedDir, errorDir), transactionManager)
+				.tasklet(fileMovingTasklet(null, null), transactionManager)
 				.build();
 	}
 
 	@Bean
-	public SkipListener<TransactionRecord, TransactionRecord> skipListener() {
-		return new SkipListener<>() {
-			@Override
-			public void onSkipInRead(Throwable t) {
-				logger.error("Error during reading, skipped: {}", t.getMessage());
-				markFileAsError();
-			}
+	@StepScope
+	public FileMovingTasklet fileMovingTasklet(@Value(INPUT_DIR) String inputDir, JobExplorer jobExplorer) {
+		return new FileMovingTasklet(inputDir, processedFileMover(), finalizeTaskExecutor(), jobExplorer,
+				leaseEnabled ? fileLeaseCoordinator(null) : null);
+	}
 
-			@Override
-			public void onSkipInWrite(TransactionRecord item, Throwable t) {
-				logger.error("Error during writing, skipped item: {}, error: {}", item, t.getMessage());
-				markFileAsError();
-			}
+	@Bean
+	public TaskExecutor finalizeTaskExecutor() {
+		// Moves are I/O bound, so a few at a time hide the latency of slow or remote directories
+		SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("finalize-");
+		taskExecutor.setVirtualThreads(virtualThreadsEnabled);
+		taskExecutor.setConcurrencyLimit(finalizeThreads);
+		return taskExecutor;
+	}
 
-			@Override
-			public void onSkipInProcess(TransactionRecord item, Throwable t) {
-				logger.error("Error during processing, skipped item: {}, error: {}", item, t.getMessage());
-				markFileAsError();
-			}
+	@Bean
+	@StepScope
+	public FileSkipTracker fileSkipTracker() {
+		return new FileSkipTracker();
+	}
 
-			private void markFileAsError() {
-				try {
-					File errorFile = new File(inputDir + "/processing_error.flag");
-					if (!errorFile.exists()) {
-						errorFile.createNewFile();
-					}
-					logger.info("Created error flag file: {}", errorFile.getAbsolutePath());
-				} catch (IOException e) {
-					logger.error("Failed to create error flag file. Error: {}", e.getMessage());
-				}
-			}
-		};
+	@Bean
+	public FileCompletionListener fileCompletionListener() {
+		return new FileCompletionListener(processedFileMover());
+	}
+
+	@Bean
+	public ProcessedFileMover processedFileMover() {
+		if (!archiveEnabled) {
+			return new ProcessedFileMover(completedDir, errorDir);
+		}
+		logger.info("Archiving completed files in blocks of {} records", archiveRowsPerBlock);
+		return new ProcessedFileMover(completedDir, errorDir, new TransactionFileArchiver(transactionRecordLineMapper(), archiveRowsPerBlock));
 	}
 
 	private Resource[] getResources(String directoryPath) {
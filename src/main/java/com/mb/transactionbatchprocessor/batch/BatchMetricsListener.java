@@ -0,0 +1,270 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes import metrics to Micrometer:
+ * <ul>
+ *     <li>{@code transaction.chunk.read}, {@code .process}, {@code .write} and {@code .commit} timers, one sample
+ *     per chunk holding the time spent in that stage, tagged by step;</li>
+ *     <li>{@code transaction.records.written}, counting written records by step;</li>
+ *     <li>{@code transaction.skips}, counting skipped items by stage and exception type;</li>
+ *     <li>{@code transaction.file.records.per.second}, the throughput of each input file, tagged by the file
+ *     the records were read from and the job execution, updated as its chunks are written and removed when the
+ *     job ends.</li>
+ * </ul>
+ * Connection pool wait times are published by Actuator as {@code hikaricp.connections.acquire}. When
+ * {@code transaction.metrics.dump-file} is set, all meters are written there in Prometheus format after
+ * each job.
+ * <p>
+ * Partition workers share this listener, so chunk timings are kept per thread.
+ */
+@Component
+public class BatchMetricsListener implements JobExecutionListener, ChunkListener,
+		ItemReadListener<TransactionRecord>, ItemProcessListener<TransactionRecord, TransactionRecord>,
+		ItemWriteListener<TransactionRecord>, SkipListener<TransactionRecord, TransactionRecord> {
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchMetricsListener.class);
+
+	private static final String PARTITION_SEPARATOR = ":";
+
+	private final MeterRegistry meterRegistry;
+	private final ObjectProvider<PrometheusMeterRegistry> prometheusMeterRegistry;
+	private final Map<String, FileThroughput> fileThroughputs = new ConcurrentHashMap<>();
+	private final ThreadLocal<ChunkTimings> chunkTimings = ThreadLocal.withInitial(ChunkTimings::new);
+
+	@Value("${transaction.metrics.dump-file:}")
+	private String dumpFile;
+
+	public BatchMetricsListener(MeterRegistry meterRegistry, ObjectProvider<PrometheusMeterRegistry> prometheusMeterRegistry) {
+		this.meterRegistry = meterRegistry;
+		this.prometheusMeterRegistry = prometheusMeterRegistry;
+	}
+
+	@Override
+	public void afterJob(JobExecution jobExecution) {
+		if (!dumpFile.isEmpty()) {
+			dump();
+		}
+
+		// Input files are not seen again, so their gauges would otherwise pile up in a long-running process
+		String prefix = jobExecution.getId() + PARTITION_SEPARATOR;
+		fileThroughputs.entrySet().removeIf(entry -> {
+			if (!entry.getKey().startsWith(prefix)) {
+				return false;
+			}
+			meterRegistry.remove(entry.getValue().gauge);
+			return true;
+		});
+	}
+
+	private void dump() {
+		PrometheusMeterRegistry registry = prometheusMeterRegistry.getIfAvailable();
+		if (registry == null) {
+			logger.warn("No Prometheus registry is available, metrics are not written to {}", dumpFile);
+			return;
+		}
+
+		try {
+			Path path = Paths.get(dumpFile);
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			Files.writeString(path, registry.scrape(), StandardCharsets.UTF_8);
+			logger.info("Metrics written to {}", path.toAbsolutePath());
+		} catch (IOException e) {
+			logger.error("Failed to write metrics to {}. Error: {}", dumpFile, e.getMessage());
+		}
+	}
+
+	@Override
+	public void beforeChunk(ChunkContext context) {
+		chunkTimings.get().reset(stepName(context.getStepContext().getStepName()), context.getStepContext().getStepExecution());
+	}
+
+	@Override
+	public void afterChunk(ChunkContext context) {
+		ChunkTimings timings = chunkTimings.get();
+		record("transaction.chunk.read", timings.step, timings.readNanos);
+		record("transaction.chunk.process", timings.step, timings.processNanos);
+		if (timings.writeEnd != 0) {
+			record("transaction.chunk.write", timings.step, timings.writeNanos);
+			record("transaction.chunk.commit", timings.step, System.nanoTime() - timings.writeEnd);
+		}
+	}
+
+	@Override
+	public void beforeRead() {
+		chunkTimings.get().start = System.nanoTime();
+	}
+
+	@Override
+	public void afterRead(TransactionRecord item) {
+		ChunkTimings timings = chunkTimings.get();
+		timings.readNanos += System.nanoTime() - timings.start;
+	}
+
+	@Override
+	public void onReadError(Exception ex) {
+		afterRead(null);
+	}
+
+	@Override
+	public void beforeProcess(TransactionRecord item) {
+		chunkTimings.get().start = System.nanoTime();
+	}
+
+	@Override
+	public void afterProcess(TransactionRecord item, TransactionRecord result) {
+		ChunkTimings timings = chunkTimings.get();
+		timings.processNanos += System.nanoTime() - timings.start;
+	}
+
+	@Override
+	public void onProcessError(TransactionRecord item, Exception e) {
+		afterProcess(item, null);
+	}
+
+	@Override
+	public void beforeWrite(Chunk<? extends TransactionRecord> items) {
+		chunkTimings.get().start = System.nanoTime();
+	}
+
+	@Override
+	public void afterWrite(Chunk<? extends TransactionRecord> items) {
+		ChunkTimings timings = chunkTimings.get();
+		timings.writeEnd = System.nanoTime();
+		timings.writeNanos += timings.writeEnd - timings.start;
+		meterRegistry.counter("transaction.records.written", "step", timings.step).increment(items.size());
+
+		// A step without partitions reads several files, and the partitions of a file run side by side, so a
+		// file's rate covers the first start of a step writing it to its last write
+		Map<String, Long> writeCounts = new HashMap<>();
+		for (TransactionRecord item : items) {
+			writeCounts.merge(item.getSourceFile() == null ? timings.step : item.getSourceFile(), 1L, Long::sum);
+		}
+		LocalDateTime now = LocalDateTime.now();
+		writeCounts.forEach((sourceFile, writeCount) -> {
+			String file = Paths.get(sourceFile).getFileName().toString();
+			fileThroughputs.computeIfAbsent(timings.jobExecutionId + PARTITION_SEPARATOR + sourceFile,
+							key -> new FileThroughput(file, timings.jobExecutionId))
+					.add(writeCount, timings.stepStart, now);
+		});
+	}
+
+	@Override
+	public void onWriteError(Exception exception, Chunk<? extends TransactionRecord> items) {
+		ChunkTimings timings = chunkTimings.get();
+		timings.writeNanos += System.nanoTime() - timings.start;
+	}
+
+	@Override
+	public void onSkipInRead(Throwable t) {
+		countSkip("read", t);
+	}
+
+	@Override
+	public void onSkipInProcess(TransactionRecord item, Throwable t) {
+		countSkip("process", t);
+	}
+
+	@Override
+	public void onSkipInWrite(TransactionRecord item, Throwable t) {
+		countSkip("write", t);
+	}
+
+	private void countSkip(String stage, Throwable t) {
+		meterRegistry.counter("transaction.skips", "stage", stage, "exception", t.getClass().getSimpleName()).increment();
+	}
+
+	private void record(String name, String step, long nanos) {
+		meterRegistry.timer(name, "step", step).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static String stepName(String stepName) {
+		int separator = stepName.indexOf(PARTITION_SEPARATOR);
+		return separator < 0 ? stepName : stepName.substring(0, separator);
+	}
+
+	private static final class ChunkTimings {
+
+		private String step;
+		private Long jobExecutionId;
+		private LocalDateTime stepStart;
+		private long start;
+		private long readNanos;
+		private long processNanos;
+		private long writeNanos;
+		private long writeEnd;
+
+		void reset(String step, StepExecution stepExecution) {
+			this.step = step;
+			this.jobExecutionId = stepExecution.getJobExecutionId();
+			this.stepStart = stepExecution.getStartTime() == null ? LocalDateTime.now() : stepExecution.getStartTime();
+			readNanos = 0;
+			processNanos = 0;
+			writeNanos = 0;
+			writeEnd = 0;
+		}
+	}
+
+	private final class FileThroughput {
+
+		private final Gauge gauge;
+		private long records;
+		private LocalDateTime firstStart;
+		private LocalDateTime lastEnd;
+
+		FileThroughput(String file, Long jobExecutionId) {
+			this.gauge = Gauge.builder("transaction.file.records.per.second", this, FileThroughput::recordsPerSecond)
+					.description("Records written per second for one input file")
+					.tag("file", file)
+					.tag("job.execution.id", String.valueOf(jobExecutionId))
+					.register(meterRegistry);
+		}
+
+		synchronized void add(long writeCount, LocalDateTime start, LocalDateTime end) {
+			records += writeCount;
+			firstStart = firstStart == null || start.isBefore(firstStart) ? start : firstStart;
+			lastEnd = lastEnd == null || end.isAfter(lastEnd) ? end : lastEnd;
+		}
+
+		synchronized double recordsPerSecond() {
+			if (firstStart == null) {
+				return 0;
+			}
+			long nanos = Math.max(1, Duration.between(firstStart, lastEnd).toNanos());
+			return records * 1e9 / nanos;
+		}
+	}
+}
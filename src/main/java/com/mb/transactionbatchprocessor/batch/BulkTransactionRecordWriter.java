@@ -0,0 +1,201 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.MinorUnitsAttributeConverter;
+import com.mysql.cj.jdbc.JdbcStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes each chunk of {@link TransactionRecord}s in as few round trips as possible.
+ * <ul>
+ *     <li>{@link Mode#MULTI_ROW} sends {@code INSERT ... VALUES (...),(...),...} statements of up to
+ *     {@code rowsPerStatement} rows.</li>
+ *     <li>{@link Mode#LOAD_DATA} streams the chunk from memory through MySQL's {@code LOAD DATA LOCAL INFILE}.
+ *     It needs {@code allowLoadLocalInfile=true} on the JDBC URL and {@code local_infile} enabled on the server,
+ *     and falls back to {@link Mode#MULTI_ROW} on other databases. The tests run on H2 and only cover that
+ *     fallback, so the load itself has not been verified against a MySQL server.</li>
+ * </ul>
+ * The bulk statement runs behind a savepoint. If it fails, or loads fewer rows than the chunk holds, the
+ * savepoint is rolled back and the chunk is inserted row by row, so a bad record surfaces with the same
+ * exception as with {@code JdbcBatchItemWriter} and the step's skip handling is unchanged.
+ * <p>
+ * With natural keys every statement is an upsert, see {@link TransactionRecordStatementSetter}. {@code LOAD DATA}
+ * cannot update existing rows, so {@link Mode#LOAD_DATA} then writes multi-row upserts instead.
+ */
+public class BulkTransactionRecordWriter implements ItemWriter<TransactionRecord> {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkTransactionRecordWriter.class);
+
+	private static final String LOAD_DATA_SQL = "LOAD DATA LOCAL INFILE 'chunk.tsv' INTO TABLE transaction_record " +
+			"CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' " +
+			"(" + TransactionRecordStatementSetter.COLUMNS + ")";
+
+	public enum Mode {
+		MULTI_ROW,
+		LOAD_DATA;
+
+		public static Mode fromProperty(String value) {
+			return Mode.valueOf(value.trim().toUpperCase().replace('-', '_'));
+		}
+	}
+
+	private final DataSource dataSource;
+	private final JdbcTemplate jdbcTemplate;
+	private final int rowsPerStatement;
+	private final TransactionRecordStatementSetter statementSetter;
+	private final Map<Integer, String> multiRowSql = new ConcurrentHashMap<>();
+	private volatile Mode mode;
+
+	public BulkTransactionRecordWriter(DataSource dataSource, Mode mode, int rowsPerStatement) {
+		this(dataSource, mode, rowsPerStatement, false);
+	}
+
+	public BulkTransactionRecordWriter(DataSource dataSource, Mode mode, int rowsPerStatement, boolean naturalKey) {
+		this.dataSource = dataSource;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.rowsPerStatement = rowsPerStatement;
+		this.statementSetter = new TransactionRecordStatementSetter(naturalKey);
+		if (naturalKey && mode == Mode.LOAD_DATA) {
+			logger.warn("LOAD DATA cannot upsert by natural key, switching to multi-row upserts");
+			mode = Mode.MULTI_ROW;
+		}
+		this.mode = mode;
+	}
+
+	@Override
+	public void write(Chunk<? extends TransactionRecord> chunk) throws SQLException {
+		List<? extends TransactionRecord> items = chunk.getItems();
+		if (items.isEmpty()) {
+			return;
+		}
+
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+			try {
+				boolean written = mode == Mode.LOAD_DATA ? loadData(connection, items) : insertMultiRow(connection, items);
+				if (written) {
+					if (savepoint != null) {
+						connection.releaseSavepoint(savepoint);
+					}
+					return;
+				}
+				logger.warn("Bulk write stored fewer rows than the {} records in the chunk, retrying row by row", items.size());
+			} catch (SQLException e) {
+				logger.warn("Bulk write of {} records failed, retrying row by row: {}", items.size(), e.getMessage());
+			}
+
+			if (savepoint != null) {
+				connection.rollback(savepoint);
+			}
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+
+		// Same statements and exception translation as the default JdbcBatchItemWriter, one row at a time
+		for (TransactionRecord transactionRecord : items) {
+			jdbcTemplate.update(statementSetter.insertSql(), ps -> statementSetter.setValues(transactionRecord, ps));
+		}
+	}
+
+	private boolean insertMultiRow(Connection connection, List<? extends TransactionRecord> items) throws SQLException {
+		for (int from = 0; from < items.size(); from += rowsPerStatement) {
+			List<? extends TransactionRecord> rows = items.subList(from, Math.min(items.size(), from + rowsPerStatement));
+			try (PreparedStatement ps = connection.prepareStatement(multiRowSql.computeIfAbsent(rows.size(), this::buildMultiRowSql))) {
+				int index = 1;
+				for (TransactionRecord transactionRecord : rows) {
+					statementSetter.setValues(transactionRecord, ps, index);
+					index += statementSetter.columnCount();
+				}
+				// An upsert counts an updated row twice on MySQL
+				if (ps.executeUpdate() < rows.size()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private String buildMultiRowSql(int rowCount) {
+		StringBuilder sql = new StringBuilder("INSERT INTO transaction_record (")
+				.append(statementSetter.columns())
+				.append(") VALUES ")
+				.append(statementSetter.rowPlaceholders());
+		for (int i = 1; i < rowCount; i++) {
+			sql.append(", ").append(statementSetter.rowPlaceholders());
+		}
+		return sql.append(statementSetter.upsertClause()).toString();
+	}
+
+	private boolean loadData(Connection connection, List<? extends TransactionRecord> items) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			if (!statement.isWrapperFor(JdbcStatement.class)) {
+				logger.warn("LOAD DATA LOCAL INFILE needs the MySQL driver, switching to multi-row inserts");
+				mode = Mode.MULTI_ROW;
+				return insertMultiRow(connection, items);
+			}
+
+			statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(new ByteArrayInputStream(toLoadDataRows(items)));
+			int loaded = statement.executeUpdate(LOAD_DATA_SQL);
+			// LOCAL loads turn rejected rows into warnings, so a short count means some rows were dropped
+			return loaded == items.size() && statement.getWarnings() == null;
+		}
+	}
+
+	/**
+	 * Encodes records as the tab-separated rows expected by {@code LOAD DATA} with backslash escaping.
+	 */
+	public static byte[] toLoadDataRows(List<? extends TransactionRecord> items) {
+		StringBuilder rows = new StringBuilder(items.size() * 80);
+		for (TransactionRecord transactionRecord : items) {
+			appendField(rows, transactionRecord.getAccountNumber()).append('\t');
+			rows.append(MinorUnitsAttributeConverter.toDecimal(transactionRecord.getTrxAmountMinor()).toPlainString()).append('\t');
+			appendField(rows, transactionRecord.getDescription()).append('\t');
+			LocalDate trxDate = transactionRecord.getTrxDate();
+			appendField(rows, trxDate == null ? null : DateTimeFormatter.ISO_LOCAL_DATE.format(trxDate)).append('\t');
+			LocalTime trxTime = transactionRecord.getTrxTime();
+			appendField(rows, trxTime == null ? null : DateTimeFormatter.ISO_LOCAL_TIME.format(trxTime)).append('\t');
+			appendField(rows, transactionRecord.getCustomerId()).append('\t');
+			rows.append(transactionRecord.getVersion()).append('\n');
+		}
+		return rows.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static StringBuilder appendField(StringBuilder rows, String value) {
+		if (value == null) {
+			return rows.append("\\N");
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '\\' -> rows.append("\\\\");
+				case '\t' -> rows.append("\\t");
+				case '\n' -> rows.append("\\n");
+				case '\r' -> rows.append("\\r");
+				case '\0' -> rows.append("\\0");
+				default -> rows.append(c);
+			}
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,338 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.AccountDayTotals;
+import com.mb.transactionbatchprocessor.util.MinorUnitsAttributeConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sums the amounts and counts the transactions written by one step per account and day, and adds them to
+ * {@code daily_account_summary} when the step ends, so that the daily totals need not be recomputed from
+ * {@code transaction_record} after each import.
+ * <p>
+ * Records are only counted once the chunk that wrote them has committed. When more than the configured number of
+ * account days are held, the totals are spilled to a temporary file as a run sorted by account and day; at the
+ * end of the step the runs are merged and each account day is upserted once, adding to the totals already in the
+ * table, all in one transaction. The totals of the committed chunks are added even when the step fails, so a
+ * restarted step only counts the records it writes itself. Records without an account number or a date are not
+ * counted.
+ * <p>
+ * If the upsert fails, the step fails and its totals are kept in spill files named in its execution context, so
+ * that the restarted step adds them along with its own. The totals of a process that is killed are lost.
+ * <p>
+ * One instance is used per step execution.
+ */
+public class DailyAccountSummaryAggregator implements StepExecutionListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(DailyAccountSummaryAggregator.class);
+
+	static final String UPSERT_SQL = "INSERT INTO daily_account_summary (account_number, trx_date, total_amount, trx_count) " +
+			"VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE total_amount = total_amount + VALUES(total_amount), " +
+			"trx_count = trx_count + VALUES(trx_count)";
+
+	static final String PENDING_SPILLS_KEY = "dailySummary.pendingSpills";
+
+	private static final int UPSERT_BATCH_SIZE = 1000;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final int maxEntries;
+	private final AccountDayTotals totals = new AccountDayTotals();
+	private final List<TransactionRecord> uncommitted = new ArrayList<>();
+	private final List<Path> spills = new ArrayList<>();
+
+	public DailyAccountSummaryAggregator(DataSource dataSource, int maxEntries) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Counts the records of a chunk that has just been written, once its transaction commits.
+	 */
+	public void add(Chunk<? extends TransactionRecord> chunk) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		if (totals.size() >= maxEntries) {
+			spill();
+		}
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			chunk.forEach(this::count);
+			return;
+		}
+		if (uncommitted.isEmpty()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					if (status == STATUS_COMMITTED) {
+						uncommitted.forEach(DailyAccountSummaryAggregator.this::count);
+					}
+					uncommitted.clear();
+				}
+			});
+		}
+		uncommitted.addAll(chunk.getItems());
+	}
+
+	private void count(TransactionRecord transactionRecord) {
+		if (transactionRecord.getAccountNumber() != null && transactionRecord.getTrxDate() != null) {
+			totals.add(transactionRecord.getAccountNumber(), transactionRecord.getTrxDate().toEpochDay(), transactionRecord.getTrxAmountMinor());
+		}
+	}
+
+	/**
+	 * Takes over the totals that the failed execution of this step could not add.
+	 */
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		ExecutionContext executionContext = stepExecution.getExecutionContext();
+		if (!executionContext.containsKey(PENDING_SPILLS_KEY)) {
+			return;
+		}
+		for (String spill : executionContext.getString(PENDING_SPILLS_KEY).split(File.pathSeparator)) {
+			if (Files.exists(Paths.get(spill))) {
+				spills.add(Paths.get(spill));
+			} else {
+				logger.error("The daily account totals in spill file '{}' are lost, daily_account_summary is missing them", spill);
+			}
+		}
+	}
+
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		if (totals.isEmpty() && spills.isEmpty()) {
+			return null;
+		}
+
+		long start = System.nanoTime();
+		long upserted;
+		try {
+			if (!spills.isEmpty() && !totals.isEmpty()) {
+				spill();
+			}
+			// One transaction, so that a failed upsert adds nothing and can be redone as a whole
+			upserted = transactionTemplate.execute(status -> {
+				try {
+					if (spills.isEmpty()) {
+						Upserts upserts = new Upserts();
+						totals.forEachSorted(upserts::add);
+						return upserts.finish();
+					}
+					return merge();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException | DataAccessException | TransactionException e) {
+			logger.error("Failed to add the daily account totals of {} to daily_account_summary, failing the step so " +
+					"that its restart adds them", stepExecution.getStepName(), e);
+			keepPending(stepExecution);
+			stepExecution.setStatus(BatchStatus.FAILED);
+			return ExitStatus.FAILED.addExitDescription(e);
+		}
+
+		logger.info("Added {} daily account totals of {} to daily_account_summary in {} ms", upserted,
+				stepExecution.getStepName(), (System.nanoTime() - start) / 1_000_000);
+		totals.clear();
+		for (Path spill : spills) {
+			try {
+				Files.deleteIfExists(spill);
+			} catch (IOException e) {
+				logger.warn("Failed to delete spill file '{}': {}", spill, e.getMessage());
+			}
+		}
+		spills.clear();
+		stepExecution.getExecutionContext().remove(PENDING_SPILLS_KEY);
+		return null;
+	}
+
+	/**
+	 * Spills the totals still held, and names all spill files in the execution context for the restarted step.
+	 */
+	private void keepPending(StepExecution stepExecution) {
+		try {
+			if (!totals.isEmpty()) {
+				spill();
+			}
+		} catch (UncheckedIOException e) {
+			logger.error("The daily account totals of {} held in memory are lost, daily_account_summary is missing them",
+					stepExecution.getStepName(), e);
+		}
+		if (!spills.isEmpty()) {
+			stepExecution.getExecutionContext().putString(PENDING_SPILLS_KEY, String.join(File.pathSeparator,
+					spills.stream().map(Path::toString).toList()));
+		}
+	}
+
+	private void spill() {
+		Path spill = null;
+		try {
+			spill = Files.createTempFile("daily-account-totals-", ".spill");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spill), 64 * 1024))) {
+				out.writeInt(totals.size());
+				totals.forEachSorted((accountNumber, epochDay, amountMinor, count) -> {
+					out.writeUTF(accountNumber);
+					out.writeLong(epochDay);
+					out.writeLong(amountMinor);
+					out.writeLong(count);
+				});
+			}
+			spills.add(spill);
+			logger.debug("Spilled {} daily account totals to '{}'", totals.size(), spill);
+			totals.clear();
+		} catch (IOException e) {
+			if (spill != null) {
+				try {
+					Files.deleteIfExists(spill);
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			throw new UncheckedIOException("Failed to spill the daily account totals", e);
+		}
+	}
+
+	/**
+	 * Merges the sorted runs of the spill files, adding up the totals of the same account day.
+	 */
+	private long merge() throws IOException {
+		PriorityQueue<Run> runs = new PriorityQueue<>(Comparator.<Run, String>comparing(run -> run.accountNumber)
+				.thenComparingLong(run -> run.epochDay));
+		try {
+			for (Path spill : spills) {
+				Run run = new Run(spill);
+				if (run.next()) {
+					runs.add(run);
+				} else {
+					run.close();
+				}
+			}
+
+			Upserts upserts = new Upserts();
+			while (!runs.isEmpty()) {
+				Run first = runs.poll();
+				String accountNumber = first.accountNumber;
+				long epochDay = first.epochDay;
+				long amountMinor = first.amountMinor;
+				long count = first.count;
+				advance(runs, first);
+				while (!runs.isEmpty() && runs.peek().epochDay == epochDay && runs.peek().accountNumber.equals(accountNumber)) {
+					Run same = runs.poll();
+					amountMinor += same.amountMinor;
+					count += same.count;
+					advance(runs, same);
+				}
+				upserts.add(accountNumber, epochDay, amountMinor, count);
+			}
+			return upserts.finish();
+		} finally {
+			for (Run run : runs) {
+				run.close();
+			}
+		}
+	}
+
+	private static void advance(PriorityQueue<Run> runs, Run run) throws IOException {
+		if (run.next()) {
+			runs.add(run);
+		} else {
+			run.close();
+		}
+	}
+
+	/**
+	 * One sorted run of totals read back from a spill file.
+	 */
+	private static final class Run {
+
+		private final DataInputStream in;
+		private int remaining;
+		private String accountNumber;
+		private long epochDay;
+		private long amountMinor;
+		private long count;
+
+		Run(Path spill) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spill), 64 * 1024));
+			this.remaining = in.readInt();
+		}
+
+		boolean next() throws IOException {
+			if (remaining == 0) {
+				return false;
+			}
+			remaining--;
+			accountNumber = in.readUTF();
+			epochDay = in.readLong();
+			amountMinor = in.readLong();
+			count = in.readLong();
+			return true;
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/**
+	 * Batches the upserts, in the sorted order they are added, which keeps concurrent steps from deadlocking.
+	 */
+	private final class Upserts {
+
+		private final List<Object[]> batch = new ArrayList<>(UPSERT_BATCH_SIZE);
+		private long upserted;
+
+		void add(String accountNumber, long epochDay, long amountMinor, long count) {
+			batch.add(new Object[]{accountNumber, LocalDate.ofEpochDay(epochDay), MinorUnitsAttributeConverter.toDecimal(amountMinor), count});
+			if (batch.size() == UPSERT_BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		long finish() {
+			flush();
+			return upserted;
+		}
+
+		private void flush() {
+			if (!batch.isEmpty()) {
+				jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+				upserted += batch.size();
+				batch.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.NaturalKeyFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drops records whose natural key has already been imported before they reach the delegate writer.
+ * <p>
+ * A key that {@link NaturalKeyFilter} has never seen is new, so most records of a new file pass straight
+ * through. The keys that the filter may have seen are looked up in one query per chunk, and only those found
+ * in {@code transaction_record} are dropped, so a false positive of the filter costs a lookup but never loses a
+ * record. A new record repeated within the chunk is not in the table yet, so it is passed on with the chunk and the
+ * upsert bumps its version. The filter is shared by all steps and jobs of the application and is first loaded with
+ * the keys already in the table once the application context has started, when the schema exists, so it also catches
+ * the files that repeat one imported by an earlier process.
+ * <p>
+ * The delegate still writes with upserts, which keeps the table free of duplicates when concurrent partitions
+ * write the same new key. Keys are added to the filter once the delegate has written them; if the chunk then
+ * rolls back the filter only over-reports, which the lookup corrects.
+ */
+public class DeduplicatingTransactionRecordWriter implements ItemWriter<TransactionRecord>, SmartInitializingSingleton {
+
+	private static final Logger logger = LoggerFactory.getLogger(DeduplicatingTransactionRecordWriter.class);
+
+	private static final String EXISTING_KEYS_SQL = "SELECT natural_key FROM transaction_record WHERE natural_key IN (:keys)";
+	private static final String ALL_KEYS_SQL = "SELECT natural_key FROM transaction_record WHERE natural_key IS NOT NULL";
+	private static final int LOAD_FETCH_SIZE = 10_000;
+
+	private final ItemWriter<TransactionRecord> delegate;
+	private final NaturalKeyFilter filter;
+	private final DataSource dataSource;
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	public DeduplicatingTransactionRecordWriter(ItemWriter<TransactionRecord> delegate, NaturalKeyFilter filter, DataSource dataSource) {
+		this.delegate = delegate;
+		this.filter = filter;
+		this.dataSource = dataSource;
+		this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		long startedAt = System.currentTimeMillis();
+		long loaded = loadExistingKeys();
+		logger.info("Loaded {} existing natural keys into the duplicate filter in {} ms", loaded, System.currentTimeMillis() - startedAt);
+	}
+
+	/**
+	 * Puts the keys already in {@code transaction_record} into the filter and returns how many there were. The keys
+	 * are read with a fetch size of {@value #LOAD_FETCH_SIZE} rows, which MySQL Connector/J only honours with
+	 * {@code useCursorFetch=true} in the URL; otherwise it buffers the whole result while it is read.
+	 */
+	public long loadExistingKeys() {
+		JdbcTemplate keyTemplate = new JdbcTemplate(dataSource);
+		keyTemplate.setFetchSize(LOAD_FETCH_SIZE);
+		AtomicLong loaded = new AtomicLong();
+		keyTemplate.query(ALL_KEYS_SQL, resultSet -> {
+			filter.put(resultSet.getString(1));
+			loaded.incrementAndGet();
+		});
+		return loaded.get();
+	}
+
+	/**
+	 * The records of a chunk without the repeats of a natural key earlier in the chunk, which the upsert writes to the
+	 * same row.
+	 */
+	public static List<TransactionRecord> distinctByNaturalKey(Chunk<? extends TransactionRecord> chunk) {
+		Set<String> keys = new HashSet<>();
+		List<TransactionRecord> distinct = new ArrayList<>(chunk.size());
+		for (TransactionRecord transactionRecord : chunk) {
+			if (keys.add(transactionRecord.getNaturalKey())) {
+				distinct.add(transactionRecord);
+			}
+		}
+		return distinct;
+	}
+
+	@Override
+	public void write(Chunk<? extends TransactionRecord> chunk) throws Exception {
+		List<TransactionRecord> unique = new ArrayList<>(chunk.getItems());
+		Set<String> candidates = new HashSet<>();
+		for (TransactionRecord transactionRecord : chunk) {
+			String naturalKey = transactionRecord.getNaturalKey();
+			if (filter.mightContain(naturalKey)) {
+				candidates.add(naturalKey);
+			}
+		}
+
+		Set<String> existing = candidates.isEmpty()
+				? Set.of()
+				: new HashSet<>(jdbcTemplate.queryForList(EXISTING_KEYS_SQL, Map.of("keys", candidates), String.class));
+		if (!existing.isEmpty()) {
+			unique.removeIf(transactionRecord -> existing.contains(transactionRecord.getNaturalKey()));
+		}
+
+		int dropped = chunk.size() - unique.size();
+		if (dropped > 0) {
+			logger.debug("Dropped {} of {} records as duplicates", dropped, chunk.size());
+		}
+		if (unique.isEmpty()) {
+			return;
+		}
+
+		delegate.write(new Chunk<>(unique));
+		for (TransactionRecord transactionRecord : unique) {
+			filter.put(transactionRecord.getNaturalKey());
+		}
+	}
+}
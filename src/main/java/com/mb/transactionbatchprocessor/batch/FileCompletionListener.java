@@ -0,0 +1,91 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves each input file to the completed or error directory as soon as all of its partitions have committed,
+ * instead of after the whole job. A file goes to the error directory only if one of its own partitions skipped
+ * a record, with the rejects of all of its partitions. If any of its partitions does not complete, the file stays
+ * in the input directory.
+ * <p>
+ * A file that cannot be moved here is left for {@link FileMovingTasklet}.
+ */
+public class FileCompletionListener implements StepExecutionListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileCompletionListener.class);
+
+	private final ProcessedFileMover fileMover;
+	private final Map<String, FileProgress> fileProgress = new ConcurrentHashMap<>();
+
+	public FileCompletionListener(ProcessedFileMover fileMover) {
+		this.fileMover = fileMover;
+	}
+
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		ExecutionContext executionContext = stepExecution.getExecutionContext();
+		if (!executionContext.containsKey(TransactionFilePartitioner.FILE_NAME_KEY)) {
+			return null;
+		}
+
+		String fileName = executionContext.getString(TransactionFilePartitioner.FILE_NAME_KEY);
+		Map<String, Long> skips = FileSkipTracker.getSkips(executionContext);
+		Map<String, List<String>> rejects = FileSkipTracker.getRejects(executionContext);
+		String key = stepExecution.getJobExecutionId() + ":" + fileName;
+		FileProgress progress = fileProgress.computeIfAbsent(key,
+				name -> new FileProgress(executionContext.getInt(TransactionFilePartitioner.RANGE_COUNT_KEY, 1)));
+		if (!progress.finish(stepExecution.getStatus() == BatchStatus.COMPLETED,
+				skips.containsKey(fileName) || skips.containsKey(FileSkipTracker.UNKNOWN_FILE),
+				rejects.getOrDefault(fileName, List.of()), rejects.getOrDefault(FileSkipTracker.UNKNOWN_FILE, List.of()))) {
+			return null;
+		}
+
+		fileProgress.remove(key);
+		if (progress.failed) {
+			logger.warn("Not all partitions of '{}' completed, leaving it in the input directory", fileName);
+			return null;
+		}
+		try {
+			fileMover.move(new File(fileName), progress.hasErrors, progress.rejects);
+		} catch (IOException e) {
+			logger.warn("Leaving '{}' to be moved after the job. Error: {}", fileName, e.getMessage());
+		}
+		return null;
+	}
+
+	private static final class FileProgress {
+
+		private int remaining;
+		private boolean failed;
+		private boolean hasErrors;
+		private final List<String> rejects = new ArrayList<>();
+
+		FileProgress(int partitions) {
+			this.remaining = partitions;
+		}
+
+		/**
+		 * Records one finished partition and returns whether it was the file's last.
+		 */
+		synchronized boolean finish(boolean completed, boolean skipped, List<String> fileRejects, List<String> unknownRejects) {
+			failed |= !completed;
+			hasErrors |= skipped;
+			rejects.addAll(fileRejects);
+			rejects.addAll(unknownRejects);
+			return --remaining == 0;
+		}
+	}
+}
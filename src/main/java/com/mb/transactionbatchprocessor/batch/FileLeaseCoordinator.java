@@ -0,0 +1,304 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets several nodes import from the same input directory by leasing the byte ranges of each file, as created
+ * by {@link TransactionFilePartitioner}, in the {@code file_lease} table of the job repository database.
+ * <p>
+ * Every node partitions every file, leaving out the ranges that are done or leased by another node, and each
+ * worker leases its range when it starts; a worker that finds its range leased reads nothing. A lease lasts
+ * {@code ttlMillis} and is renewed by a heartbeat while its worker runs, and by every chunk of the worker within
+ * the chunk's transaction. A chunk whose lease has passed to another node therefore rolls back. A lease is free
+ * to be taken over when it has expired, which happens when its node died, or when it was released because its
+ * worker failed. The worker that takes it over starts the range from the execution context of the last worker
+ * that held it, so the range resumes from that worker's last committed chunk.
+ * <p>
+ * When a worker completes its range the lease is marked done with the number of records it skipped. Whichever
+ * node then finds every range of the file done takes the lease on moving it, and moves it with the rejects of
+ * all its ranges. Leases are taken by compare-and-set on the row, so at most one node holds each of them.
+ * Expiry uses the clocks of the nodes, which must be synchronized to well within the lease duration.
+ */
+public class FileLeaseCoordinator implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileLeaseCoordinator.class);
+
+	static final String LEASED = "LEASED";
+	static final String FREE = "FREE";
+	static final String DONE = "DONE";
+
+	private static final long MOVE_RANGE = -1;
+	private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	/**
+	 * The keys of a worker's execution context that describe its partition, which stay as this node set them
+	 * when a range is taken over.
+	 */
+	private static final Set<String> PARTITION_KEYS = Set.of(TransactionFilePartitioner.FILE_NAME_KEY,
+			TransactionFilePartitioner.START_OFFSET_KEY, TransactionFilePartitioner.END_OFFSET_KEY,
+			TransactionFilePartitioner.RANGE_COUNT_KEY, TransactionFilePartitioner.FILE_KEY_KEY,
+			TransactionFilePartitioner.LEASE_KEY_KEY, TransactionFilePartitioner.LEASE_LOST_KEY);
+
+	private static final String SELECT_SQL = "SELECT owner_node, status, expires_at, job_execution_id, step_execution_id " +
+			"FROM file_lease WHERE lease_key = ?";
+	private static final String INSERT_SQL = "INSERT INTO file_lease (lease_key, file_key, range_start, range_count, owner_node, " +
+			"status, expires_at, job_execution_id, step_execution_id, skip_count) VALUES (?, ?, ?, ?, ?, 'LEASED', ?, ?, ?, 0)";
+	private static final String TAKE_SQL = "UPDATE file_lease SET owner_node = ?, status = 'LEASED', expires_at = ?, " +
+			"job_execution_id = COALESCE(?, job_execution_id), step_execution_id = COALESCE(?, step_execution_id) " +
+			"WHERE lease_key = ? AND owner_node = ? AND status = ? AND expires_at = ?";
+	private static final String RENEW_SQL = "UPDATE file_lease SET expires_at = ? WHERE lease_key = ? AND owner_node = ? AND status = 'LEASED'";
+	private static final String UNAVAILABLE_SQL = "SELECT range_start FROM file_lease WHERE file_key = ? AND range_start >= 0 " +
+			"AND (status = 'DONE' OR status = 'LEASED' AND owner_node <> ? AND expires_at >= ?)";
+	private static final String COMPLETE_SQL = "UPDATE file_lease SET status = 'DONE', expires_at = ?, skip_count = ? " +
+			"WHERE lease_key = ? AND owner_node = ? AND status = 'LEASED'";
+	private static final String RELEASE_SQL = "UPDATE file_lease SET status = 'FREE' WHERE lease_key = ? AND owner_node = ? AND status = 'LEASED'";
+	private static final String RANGES_SQL = "SELECT range_count, status, skip_count, job_execution_id, step_execution_id " +
+			"FROM file_lease WHERE file_key = ? AND range_start >= 0";
+	private static final String MOVED_SQL = "SELECT file_key FROM file_lease WHERE range_start < 0 AND status = 'DONE' AND expires_at < ?";
+	private static final String PURGE_SQL = "DELETE FROM file_lease WHERE file_key = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final JobExplorer jobExplorer;
+	private final String nodeId;
+	private final long ttlMillis;
+	private final ScheduledExecutorService heartbeat;
+	private final Map<String, StepExecution> running = new ConcurrentHashMap<>();
+
+	public FileLeaseCoordinator(DataSource dataSource, JobExplorer jobExplorer, String nodeId, long ttlMillis) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jobExplorer = jobExplorer;
+		this.nodeId = nodeId;
+		this.ttlMillis = ttlMillis;
+		this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "lease-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeat.scheduleWithFixedDelay(this::heartbeat, ttlMillis / 3, ttlMillis / 3, TimeUnit.MILLISECONDS);
+		logger.info("Leasing input files as node '{}' for {} ms at a time", nodeId, ttlMillis);
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Identifies a file by its name, size and modification time, so that nodes that mount the input directory
+	 * at different paths agree on it.
+	 */
+	public static String fileKey(File file) {
+		return file.getName() + "|" + file.length() + "|" + file.lastModified();
+	}
+
+	public static String leaseKey(String fileKey, long rangeStart) {
+		return fileKey + "@" + (rangeStart == MOVE_RANGE ? "move" : Long.toString(rangeStart));
+	}
+
+	/**
+	 * The start offsets of the ranges of a file that are done, or leased by another node whose lease has not
+	 * expired, for the partitioner to leave out. Nothing is leased here; the workers lease their own ranges.
+	 */
+	public Set<Long> unavailableRanges(String fileKey) {
+		return new HashSet<>(jdbcTemplate.queryForList(UNAVAILABLE_SQL, Long.class, fileKey, nodeId, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Leases a range for the worker step that imports it, before its reader is opened, and renews the lease
+	 * with the heartbeat while the step runs. A range taken over from another worker resumes from that worker's
+	 * execution context, which is copied into the step's.
+	 *
+	 * @return whether this node holds the lease
+	 */
+	public boolean acquire(String fileKey, long rangeStart, int rangeCount, StepExecution stepExecution) {
+		Lease previous = acquire(fileKey, rangeStart, rangeCount, stepExecution.getJobExecutionId(), stepExecution.getId());
+		if (previous == null) {
+			return false;
+		}
+		running.put(leaseKey(fileKey, rangeStart), stepExecution);
+		if (previous.stepExecutionId != null && !previous.stepExecutionId.equals(stepExecution.getId())) {
+			StepExecution last = jobExplorer.getStepExecution(previous.jobExecutionId, previous.stepExecutionId);
+			if (last != null) {
+				ExecutionContext executionContext = stepExecution.getExecutionContext();
+				for (Map.Entry<String, Object> entry : last.getExecutionContext().entrySet()) {
+					if (!entry.getKey().startsWith("batch.") && !PARTITION_KEYS.contains(entry.getKey())) {
+						executionContext.put(entry.getKey(), entry.getValue());
+					}
+				}
+				logger.info("Took over range {} of '{}' from node '{}', resuming from step execution {}", rangeStart, fileKey,
+						previous.ownerNode, previous.stepExecutionId);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Renews the lease from within a chunk's transaction.
+	 *
+	 * @throws IllegalStateException if the lease has passed to another node
+	 */
+	public void renew(String leaseKey) {
+		if (jdbcTemplate.update(RENEW_SQL, System.currentTimeMillis() + ttlMillis, leaseKey, nodeId) == 0) {
+			throw new IllegalStateException("Lost the lease on " + leaseKey + " to another node");
+		}
+	}
+
+	public void complete(String leaseKey, long skipCount) {
+		running.remove(leaseKey);
+		if (jdbcTemplate.update(COMPLETE_SQL, System.currentTimeMillis(), skipCount, leaseKey, nodeId) == 0) {
+			logger.warn("The lease on {} had passed to another node before its range completed", leaseKey);
+		}
+	}
+
+	/**
+	 * Frees the lease for another node, which resumes the range from the execution context of the last worker.
+	 */
+	public void release(String leaseKey) {
+		running.remove(leaseKey);
+		jdbcTemplate.update(RELEASE_SQL, leaseKey, nodeId);
+	}
+
+	/**
+	 * Moves the file if every one of its ranges is done and no other node is moving it, with the rejects of all
+	 * its ranges.
+	 *
+	 * @return where the file was moved, or {@code null} if it was left for now
+	 */
+	public Path finishFile(File file, ProcessedFileMover fileMover) throws IOException {
+		String fileKey = fileKey(file);
+		List<Map<String, Object>> ranges = jdbcTemplate.queryForList(RANGES_SQL, fileKey);
+		if (ranges.isEmpty() || ranges.size() != ((Number) ranges.get(0).get("range_count")).intValue()
+				|| ranges.stream().anyMatch(range -> !DONE.equals(range.get("status")))) {
+			return null;
+		}
+		String moveKey = leaseKey(fileKey, MOVE_RANGE);
+		if (acquire(fileKey, MOVE_RANGE, ranges.size(), null, null) == null) {
+			return null;
+		}
+
+		try {
+			boolean hasErrors = ranges.stream().anyMatch(range -> ((Number) range.get("skip_count")).longValue() > 0);
+			List<String> rejects = new ArrayList<>();
+			if (hasErrors) {
+				for (Map<String, Object> range : ranges) {
+					if (range.get("step_execution_id") == null) {
+						continue;
+					}
+					StepExecution stepExecution = jobExplorer.getStepExecution(((Number) range.get("job_execution_id")).longValue(),
+							((Number) range.get("step_execution_id")).longValue());
+					if (stepExecution != null) {
+						FileSkipTracker.getRejects(stepExecution.getExecutionContext()).values().forEach(rejects::addAll);
+					}
+				}
+			}
+			Path target = fileMover.move(file, hasErrors, rejects);
+			complete(moveKey, 0);
+			return target;
+		} catch (IOException | RuntimeException e) {
+			release(moveKey);
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() {
+		heartbeat.shutdownNow();
+	}
+
+	/**
+	 * Renews the leases of the steps of this node that are still running, and deletes the leases of files that
+	 * were moved more than a day ago. The lease of a step that ended without completing or releasing it is left
+	 * to expire.
+	 */
+	void heartbeat() {
+		try {
+			long now = System.currentTimeMillis();
+			running.values().removeIf(stepExecution -> !stepExecution.getStatus().isRunning());
+			List<Object[]> renewals = new ArrayList<>();
+			for (String leaseKey : running.keySet()) {
+				renewals.add(new Object[]{now + ttlMillis, leaseKey, nodeId});
+			}
+			if (!renewals.isEmpty()) {
+				jdbcTemplate.batchUpdate(RENEW_SQL, renewals);
+			}
+			for (String fileKey : jdbcTemplate.queryForList(MOVED_SQL, String.class, now - RETENTION_MILLIS)) {
+				jdbcTemplate.update(PURGE_SQL, fileKey);
+			}
+		} catch (DataAccessException e) {
+			logger.warn("Failed to renew the leases of node '{}'. Error: {}", nodeId, e.getMessage());
+		}
+	}
+
+	/**
+	 * Takes the lease if it is new, free, expired or already held by this node, and binds it to the given step
+	 * execution if there is one.
+	 *
+	 * @return the lease as it was before, or {@code null} if another node holds it or it is done
+	 */
+	private Lease acquire(String fileKey, long rangeStart, int rangeCount, Long jobExecutionId, Long stepExecutionId) {
+		String leaseKey = leaseKey(fileKey, rangeStart);
+		for (int attempt = 0; attempt < 2; attempt++) {
+			long now = System.currentTimeMillis();
+			List<Lease> leases = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Lease(rs.getString(1), rs.getString(2), rs.getLong(3),
+					rs.getObject(4, Long.class), rs.getObject(5, Long.class)), leaseKey);
+			if (leases.isEmpty()) {
+				try {
+					jdbcTemplate.update(INSERT_SQL, leaseKey, fileKey, rangeStart, rangeCount, nodeId, now + ttlMillis,
+							jobExecutionId, stepExecutionId);
+					return new Lease(nodeId, LEASED, now + ttlMillis, null, null);
+				} catch (DuplicateKeyException e) {
+					continue;  // Another node inserted it first, look again
+				}
+			}
+
+			Lease lease = leases.get(0);
+			boolean available = FREE.equals(lease.status)
+					|| LEASED.equals(lease.status) && (nodeId.equals(lease.ownerNode) || lease.expiresAt < now);
+			if (!available) {
+				return null;
+			}
+			if (jdbcTemplate.update(TAKE_SQL, nodeId, now + ttlMillis, jobExecutionId, stepExecutionId, leaseKey,
+					lease.ownerNode, lease.status, lease.expiresAt) == 1) {
+				return lease;
+			}
+		}
+		return null;
+	}
+
+	private static final class Lease {
+
+		private final String ownerNode;
+		private final String status;
+		private final long expiresAt;
+		private final Long jobExecutionId;
+		private final Long stepExecutionId;
+
+		Lease(String ownerNode, String status, long expiresAt, Long jobExecutionId, Long stepExecutionId) {
+			this.ownerNode = ownerNode;
+			this.status = status;
+			this.expiresAt = expiresAt;
+			this.jobExecutionId = jobExecutionId;
+			this.stepExecutionId = stepExecutionId;
+		}
+	}
+}
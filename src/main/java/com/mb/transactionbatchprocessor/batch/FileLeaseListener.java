@@ -0,0 +1,96 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Takes the place of {@link FileCompletionListener} with {@code transaction.lease.enabled=true}. Leases the range
+ * of each partition worker when it starts, and renews the lease at the start of every chunk, inside its
+ * transaction, so that a chunk of a worker whose lease passed to another node rolls back. When the worker completes, the lease is marked done and
+ * the file is moved if all its ranges are done, on whichever nodes they were imported; when it fails, the lease
+ * is released for another node to resume the range.
+ * <p>
+ * Steps without a lease, and workers that found their lease taken when they started, are left alone.
+ */
+public class FileLeaseListener implements StepExecutionListener, ChunkListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileLeaseListener.class);
+
+	private final FileLeaseCoordinator coordinator;
+	private final ProcessedFileMover fileMover;
+
+	public FileLeaseListener(FileLeaseCoordinator coordinator, ProcessedFileMover fileMover) {
+		this.coordinator = coordinator;
+		this.fileMover = fileMover;
+	}
+
+	/**
+	 * Leases the worker's range before its reader is opened, or marks the lease lost so that it reads nothing.
+	 */
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		ExecutionContext executionContext = stepExecution.getExecutionContext();
+		if (!executionContext.containsKey(TransactionFilePartitioner.LEASE_KEY_KEY)) {
+			return;
+		}
+		if (coordinator.acquire(executionContext.getString(TransactionFilePartitioner.FILE_KEY_KEY),
+				executionContext.getLong(TransactionFilePartitioner.START_OFFSET_KEY),
+				executionContext.getInt(TransactionFilePartitioner.RANGE_COUNT_KEY), stepExecution)) {
+			executionContext.remove(TransactionFilePartitioner.LEASE_LOST_KEY);
+		} else {
+			logger.info("Range {} of file: {} is leased by another node, skipping it",
+					executionContext.getLong(TransactionFilePartitioner.START_OFFSET_KEY),
+					executionContext.getString(TransactionFilePartitioner.FILE_NAME_KEY));
+			executionContext.put(TransactionFilePartitioner.LEASE_LOST_KEY, true);
+		}
+	}
+
+	@Override
+	public void beforeChunk(ChunkContext context) {
+		String leaseKey = heldLease(context.getStepContext().getStepExecution().getExecutionContext());
+		if (leaseKey != null) {
+			coordinator.renew(leaseKey);
+		}
+	}
+
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		ExecutionContext executionContext = stepExecution.getExecutionContext();
+		String leaseKey = heldLease(executionContext);
+		if (leaseKey == null) {
+			return null;
+		}
+		if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+			coordinator.release(leaseKey);
+			return null;
+		}
+
+		long skipCount = FileSkipTracker.getSkips(executionContext).values().stream().mapToLong(Long::longValue).sum();
+		coordinator.complete(leaseKey, skipCount);
+		String fileName = executionContext.getString(TransactionFilePartitioner.FILE_NAME_KEY);
+		try {
+			coordinator.finishFile(new File(fileName), fileMover);
+		} catch (IOException e) {
+			logger.warn("Leaving '{}' to be moved after the job. Error: {}", fileName, e.getMessage());
+		}
+		return null;
+	}
+
+	private static String heldLease(ExecutionContext executionContext) {
+		if (!executionContext.containsKey(TransactionFilePartitioner.LEASE_KEY_KEY)
+				|| executionContext.containsKey(TransactionFilePartitioner.LEASE_LOST_KEY)) {
+			return null;
+		}
+		return executionContext.getString(TransactionFilePartitioner.LEASE_KEY_KEY);
+	}
+}
@@ -2,19 +2,38 @@ package com.mb.transactionbatchprocessor.batch;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.tasklet.Tasklet;
 import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Moves the files left in the input directory after the import. Only the files that had records skipped, as
+ * counted by {@link FileSkipTracker} in the job's steps, go to the error directory, together with their rejects.
+ * <p>
+ * The files are moved concurrently on the given executor. A file that cannot be moved does not stop the others;
+ * once every file has been tried the step fails, leaving the unmoved files in the input directory.
+ * <p>
+ * With a {@link JobExplorer} the skips of a restarted job instance are taken from the last execution of each
+ * step, including the steps that completed before the restart and were not run again.
+ * <p>
+ * With a {@link FileLeaseCoordinator} only the files whose ranges are all done, on this node or others, are
+ * moved, with the skips and rejects recorded for their ranges; the other files may still be imported elsewhere.
+ */
 public class FileMovingTasklet implements Tasklet {
 
 	private static final Logger logger = LoggerFactory.getLogger(FileMovingTasklet.class);
@@ -22,21 +41,42 @@ public class FileMovingTasklet implements Tasklet {
 	private final String inputDir;
 	private final String completedDir;
 	private final String errorDir;
+	private final ProcessedFileMover fileMover;
+	private final TaskExecutor taskExecutor;
+	private final JobExplorer jobExplorer;
+	private final FileLeaseCoordinator leaseCoordinator;
 
 	public FileMovingTasklet(String inputDir, String completedDir, String errorDir) {
+		this(inputDir, completedDir, errorDir, new SyncTaskExecutor());
+	}
+
+	public FileMovingTasklet(String inputDir, String completedDir, String errorDir, TaskExecutor taskExecutor) {
+		this(inputDir, completedDir, errorDir, taskExecutor, null);
+	}
+
+	public FileMovingTasklet(String inputDir, String completedDir, String errorDir, TaskExecutor taskExecutor, JobExplorer jobExplorer) {
+		this(inputDir, new ProcessedFileMover(completedDir, errorDir), taskExecutor, jobExplorer);
+	}
+
+	public FileMovingTasklet(String inputDir, ProcessedFileMover fileMover, TaskExecutor taskExecutor, JobExplorer jobExplorer) {
+		this(inputDir, fileMover, taskExecutor, jobExplorer, null);
+	}
+
+	public FileMovingTasklet(String inputDir, ProcessedFileMover fileMover, TaskExecutor taskExecutor, JobExplorer jobExplorer,
+							 FileLeaseCoordinator leaseCoordinator) {
 		this.inputDir = inputDir;
-		this.completedDir = completedDir;
-		this.errorDir = errorDir;
+		this.completedDir = fileMover.getCompletedDir();
+		this.errorDir = fileMover.getErrorDir();
+		this.fileMover = fileMover;
+		this.taskExecutor = taskExecutor;
+		this.jobExplorer = jobExplorer;
+		this.leaseCoordinator = leaseCoordinator;
 	}
 
 	@Override
 	public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws IOException {
 		logger.info("Starting to move files from '{}' to '{}' or '{}'", inputDir, completedDir, errorDir);
 
-		// Ensure the completed and error directories exist
-		createDirectoryIfNotExists(completedDir);
-		createDirectoryIfNotExists(errorDir);
-
 		File folder = new File(inputDir);
 		File[] files = folder.listFiles((dir, name) -> name.endsWith(".txt"));
 
@@ -45,58 +85,51 @@ public class FileMovingTasklet implements Tasklet {
 			return RepeatStatus.FINISHED;
 		}
 
-		// Check for the error flag file
-		File errorFlag = new File(inputDir + "/processing_error.flag");
-		boolean hasErrors = errorFlag.exists();
-		logger.info("hasErrors: {}", hasErrors);
-
+		JobExecution jobExecution = chunkContext.getStepContext() == null
+				? null
+				: chunkContext.getStepContext().getStepExecution().getJobExecution();
+		Collection<StepExecution> stepExecutions = jobExecution == null
+				? List.of()
+				: jobExplorer == null ? jobExecution.getStepExecutions() : FileSkipTracker.lastStepExecutions(jobExecution, jobExplorer);
+		Map<String, Long> skips = FileSkipTracker.getSkips(stepExecutions);
+		Map<String, List<String>> rejects = FileSkipTracker.getRejects(stepExecutions);
+		boolean allHaveErrors = skips.containsKey(FileSkipTracker.UNKNOWN_FILE);
+		logger.info("Files with errors: {}", skips.keySet());
+
+		List<CompletableFuture<Void>> moves = new ArrayList<>(files.length);
 		for (File file : files) {
-			// Generate the timestamp
-			String timestamp = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
-
-			// Determine target directory and file name
-			Path targetPath;
-			if (hasErrors) {
-				String newFileName = file.getName().replace(".txt", "_ERROR_" + timestamp + ".txt");
-				targetPath = Paths.get(errorDir, newFileName);
-				logger.info("File '{}' contains errors. Moving to '{}'", file.getName(), targetPath);
-			} else {
-				String newFileName = file.getName().replace(".txt", "_" + timestamp + ".txt");
-				targetPath = Paths.get(completedDir, newFileName);
-				logger.info("Successfully processed file: '{}'. Moving to '{}'", file.getName(), targetPath);
-			}
+			String fileName = file.getAbsolutePath();
+			boolean hasErrors = allHaveErrors || skips.containsKey(fileName);
+			List<String> fileRejects = new ArrayList<>(rejects.getOrDefault(fileName, List.of()));
+			fileRejects.addAll(rejects.getOrDefault(FileSkipTracker.UNKNOWN_FILE, List.of()));
+			moves.add(CompletableFuture.runAsync(() -> {
+				try {
+					if (leaseCoordinator != null) {
+						leaseCoordinator.finishFile(file, fileMover);
+						return;
+					}
+					fileMover.move(file, hasErrors, fileRejects);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+			}, taskExecutor));
+		}
 
+		List<Throwable> failures = new ArrayList<>();
+		for (CompletableFuture<Void> move : moves) {
 			try {
-				Files.move(file.toPath(), targetPath);
-			} catch (IOException e) {
-				logger.error("Failed to move file: '{}' to '{}'. Error: {}", file.getName(), targetPath, e.getMessage());
-				throw e;
+				move.join();
+			} catch (CompletionException e) {
+				failures.add(e.getCause());
 			}
 		}
-
-		// Clean up the error flag file after processing
-		if (hasErrors) {
-			if (errorFlag.delete()) {
-				logger.info("Deleted error flag file: {}", errorFlag.getAbsolutePath());
-			} else {
-				logger.warn("Failed to delete error flag file: {}", errorFlag.getAbsolutePath());
-			}
+		if (!failures.isEmpty()) {
+			IOException exception = new IOException("Failed to move " + failures.size() + " of " + files.length + " files from " + inputDir);
+			failures.forEach(exception::addSuppressed);
+			throw exception;
 		}
 
 		logger.info("Completed moving files from '{}' to '{}' or '{}'", inputDir, completedDir, errorDir);
 		return RepeatStatus.FINISHED;
 	}
-
-	private void createDirectoryIfNotExists(String dirPath) {
-		Path path = Paths.get(dirPath);
-		if (!Files.exists(path)) {
-			try {
-				Files.createDirectories(path);
-				logger.info("Created directory: {}", dirPath);
-			} catch (IOException e) {
-				logger.error("Failed to create directory: {}", dirPath, e.getMessage());
-				throw new RuntimeException("Failed to create directory: " + dirPath, e);
-			}
-		}
-	}
 }
@@ -0,0 +1,175 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.exception.TransactionParseException;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.NestedExceptionUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logs skipped records and counts them per input file, so that only the files with skips are moved to the
+ * error directory. The counts are saved in the step's {@link ExecutionContext} under {@link #SKIPS_KEY} as a map
+ * from absolute file path to count, and therefore survive a restart. A skip whose file cannot be told is counted
+ * under {@link #UNKNOWN_FILE}, which marks every file of the step.
+ * <p>
+ * Each skip is also recorded under {@link #REJECTS_KEY} as one {@link RejectedLine}, which locates the skipped
+ * line as far as the reader knows and gives the stage and the reason. At most
+ * {@link #MAX_REJECTS_PER_FILE} are kept per file. {@link ProcessedFileMover} writes them next to the error file.
+ * <p>
+ * One instance is used per step execution.
+ */
+public class FileSkipTracker implements SkipListener<TransactionRecord, TransactionRecord>, StepExecutionListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileSkipTracker.class);
+
+	public static final String SKIPS_KEY = "fileSkips";
+	public static final String REJECTS_KEY = "fileRejects";
+	public static final String UNKNOWN_FILE = "*";
+
+	static final int MAX_REJECTS_PER_FILE = 10_000;
+
+	private final Map<String, Long> skips = new HashMap<>();
+	private HashMap<String, ArrayList<String>> rejects;
+	private StepExecution stepExecution;
+
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		this.stepExecution = stepExecution;
+		skips.putAll(getSkips(stepExecution.getExecutionContext()));
+		// The reject lines can run into thousands, so they are saved in place rather than copied on every skip
+		rejects = new HashMap<>();
+		getRejects(stepExecution.getExecutionContext()).forEach((fileName, lines) -> rejects.put(fileName, new ArrayList<>(lines)));
+		stepExecution.getExecutionContext().put(REJECTS_KEY, rejects);
+	}
+
+	@Override
+	public void onSkipInRead(Throwable t) {
+		logger.error("Error during reading, skipped: {}", t.getMessage());
+		if (t instanceof TransactionParseException parseException) {
+			// The input is the line without its terminator, as the readers return it
+			int length = parseException.getLineOffset() < 0 ? -1 : parseException.getInput().getBytes(StandardCharsets.UTF_8).length;
+			count(parseException.getFileName(), new RejectedLine(parseException.getLineNumber(), parseException.getLineOffset(),
+					length, "read", reason(t)));
+		} else {
+			count(null, new RejectedLine(-1, -1, -1, "read", reason(t)));
+		}
+	}
+
+	@Override
+	public void onSkipInWrite(TransactionRecord item, Throwable t) {
+		logger.error("Error during writing, skipped item: {}, error: {}", item, t.getMessage());
+		count(item.getSourceFile(), rejectedLine(item, "write", t));
+	}
+
+	@Override
+	public void onSkipInProcess(TransactionRecord item, Throwable t) {
+		logger.error("Error during processing, skipped item: {}, error: {}", item, t.getMessage());
+		count(item.getSourceFile(), rejectedLine(item, "process", t));
+	}
+
+	private void count(String fileName, RejectedLine rejectedLine) {
+		if (fileName == null) {
+			logger.warn("Cannot tell which file the skipped record came from, all files of this step will be marked as errors");
+			fileName = UNKNOWN_FILE;
+		}
+		skips.merge(fileName, 1L, Long::sum);
+		// Saved with the chunk that contains the skip
+		stepExecution.getExecutionContext().put(SKIPS_KEY, new HashMap<>(skips));
+
+		List<String> fileRejects = rejects.computeIfAbsent(fileName, name -> new ArrayList<>());
+		if (fileRejects.size() < MAX_REJECTS_PER_FILE) {
+			fileRejects.add(rejectedLine.toString());
+		} else if (fileRejects.size() == MAX_REJECTS_PER_FILE) {
+			logger.warn("More than {} records of '{}' were skipped, only the first are kept as rejects", MAX_REJECTS_PER_FILE, fileName);
+			fileRejects.add(RejectedLine.truncated(MAX_REJECTS_PER_FILE));
+		}
+	}
+
+	private static RejectedLine rejectedLine(TransactionRecord item, String stage, Throwable t) {
+		return new RejectedLine(item.getSourceLine(), item.getSourceOffset(), item.getSourceLength(), stage, reason(t));
+	}
+
+	private static String reason(Throwable t) {
+		Throwable cause = NestedExceptionUtils.getMostSpecificCause(t);
+		return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+	}
+
+	@SuppressWarnings("unchecked")
+	public static Map<String, Long> getSkips(ExecutionContext executionContext) {
+		Object skips = executionContext.get(SKIPS_KEY);
+		return skips instanceof Map<?, ?> map ? (Map<String, Long>) map : Map.of();
+	}
+
+	@SuppressWarnings("unchecked")
+	public static Map<String, List<String>> getRejects(ExecutionContext executionContext) {
+		Object rejects = executionContext.get(REJECTS_KEY);
+		return rejects instanceof Map<?, ?> map ? (Map<String, List<String>>) map : Map.of();
+	}
+
+	/**
+	 * The skip counts of all steps of a job execution, possibly including {@link #UNKNOWN_FILE}.
+	 */
+	public static Map<String, Long> getSkips(JobExecution jobExecution) {
+		return getSkips(jobExecution.getStepExecutions());
+	}
+
+	public static Map<String, Long> getSkips(Collection<StepExecution> stepExecutions) {
+		Map<String, Long> skips = new HashMap<>();
+		for (StepExecution stepExecution : stepExecutions) {
+			getSkips(stepExecution.getExecutionContext()).forEach((fileName, count) -> skips.merge(fileName, count, Long::sum));
+		}
+		return skips;
+	}
+
+	/**
+	 * The reject lines of all steps of a job execution, by file.
+	 */
+	public static Map<String, List<String>> getRejects(JobExecution jobExecution) {
+		return getRejects(jobExecution.getStepExecutions());
+	}
+
+	public static Map<String, List<String>> getRejects(Collection<StepExecution> stepExecutions) {
+		Map<String, List<String>> rejects = new HashMap<>();
+		for (StepExecution stepExecution : stepExecutions) {
+			getRejects(stepExecution.getExecutionContext()).forEach((fileName, lines) ->
+					rejects.computeIfAbsent(fileName, name -> new ArrayList<>()).addAll(lines));
+		}
+		return rejects;
+	}
+
+	/**
+	 * The last execution of each step of a job instance, up to the given execution. A restarted job execution
+	 * only runs the steps and partitions that did not complete before; their earlier executions still hold the
+	 * skips of the files they read. A restarted step starts from the counts it saved, so its last execution has
+	 * them all.
+	 */
+	public static Collection<StepExecution> lastStepExecutions(JobExecution jobExecution, JobExplorer jobExplorer) {
+		Map<String, StepExecution> lastExecutions = new HashMap<>();
+		for (JobExecution execution : jobExplorer.getJobExecutions(jobExecution.getJobInstance())) {
+			if (execution.getId() < jobExecution.getId()) {
+				execution.getStepExecutions().forEach(stepExecution -> lastExecutions.merge(stepExecution.getStepName(), stepExecution,
+						(last, other) -> last.getId() > other.getId() ? last : other));
+			}
+		}
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			// The partitions that are not run again still get a step execution, but it is never saved
+			if (stepExecution.getId() != null) {
+				lastExecutions.put(stepExecution.getStepName(), stepExecution);
+			}
+		}
+		return lastExecutions.values();
+	}
+}
@@ -0,0 +1,135 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Records the input files of a job execution, by absolute path with their size, modification time and CRC32C
+ * checksum, in the job's {@link ExecutionContext} under {@link #FILES_KEY}. A restarted execution inherits the
+ * context, so the record always describes the files its job instance started with. {@link RestartingJobLauncher}
+ * compares it with the files in the input directory to decide whether an unfinished execution can be resumed.
+ * Only a file whose size matches but whose modification time has changed is read again for that.
+ */
+public class InputFileSet implements JobExecutionListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(InputFileSet.class);
+
+	public static final String FILES_KEY = "inputFiles";
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * The coarsest modification time resolution of the file systems in use, two seconds on FAT. A file modified
+	 * this recently may be modified again without its modification time changing.
+	 */
+	private static final long MTIME_RESOLUTION_MILLIS = 2000;
+
+	private final String defaultInputDir;
+
+	public InputFileSet(String defaultInputDir) {
+		this.defaultInputDir = defaultInputDir;
+	}
+
+	@Override
+	public void beforeJob(JobExecution jobExecution) {
+		if (jobExecution.getExecutionContext().containsKey(FILES_KEY)) {
+			return;
+		}
+		String inputDir = jobExecution.getJobParameters().getString(BatchConfig.INPUT_DIR_PARAMETER, defaultInputDir);
+		try {
+			jobExecution.getExecutionContext().put(FILES_KEY, scan(inputDir));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to checksum the input files in " + inputDir, e);
+		}
+	}
+
+	/**
+	 * The {@code .txt} files in the directory, sorted by absolute path, each with {@code <size>:<mtime>:<crc32c>},
+	 * or {@code <size>:<crc32c>} if it was modified too recently for its modification time to show a later change.
+	 */
+	public static TreeMap<String, String> scan(String inputDir) throws IOException {
+		TreeMap<String, String> files = new TreeMap<>();
+		long start = System.nanoTime();
+		long settledBefore = System.currentTimeMillis() - MTIME_RESOLUTION_MILLIS;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		for (File file : list(inputDir)) {
+			// The modification time is taken first, so that a file written while it is read does not look unchanged later
+			long lastModified = file.lastModified();
+			String checksum = Long.toHexString(checksum(file, buffer));
+			files.put(file.getAbsolutePath(), lastModified < settledBefore
+					? file.length() + ":" + lastModified + ":" + checksum
+					: file.length() + ":" + checksum);
+		}
+		logger.info("Checksummed {} input files in {} ms", files.size(), (System.nanoTime() - start) / 1_000_000);
+		return files;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static Map<String, String> recorded(ExecutionContext executionContext) {
+		Object files = executionContext.get(FILES_KEY);
+		return files instanceof Map<?, ?> map ? (Map<String, String>) map : Map.of();
+	}
+
+	/**
+	 * Whether the directory holds files and every one of them is one of the recorded files, unchanged. Recorded
+	 * files may be missing, because files are moved away as soon as they have been imported. A file of the
+	 * recorded size is checksummed only if its modification time differs from the recorded one.
+	 */
+	public static boolean covers(Map<String, String> recorded, String inputDir) throws IOException {
+		File[] current = list(inputDir);
+		if (current.length == 0) {
+			return false;
+		}
+
+		ByteBuffer buffer = null;
+		for (File file : current) {
+			String fingerprint = recorded.get(file.getAbsolutePath());
+			if (fingerprint == null) {
+				return false;
+			}
+			// <size>:<mtime>:<crc32c>, or <size>:<crc32c> for a file that was recent or recorded by an earlier version
+			String[] parts = fingerprint.split(":");
+			if (Long.parseLong(parts[0]) != file.length()) {
+				return false;
+			}
+			if (parts.length == 3 && Long.parseLong(parts[1]) == file.lastModified()) {
+				continue;
+			}
+			if (buffer == null) {
+				buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			}
+			if (!Long.toHexString(checksum(file, buffer)).equals(parts[parts.length - 1])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static File[] list(String inputDir) {
+		File[] files = new File(inputDir).listFiles((dir, name) -> name.endsWith(".txt"));
+		return files == null ? new File[0] : files;
+	}
+
+	private static long checksum(File file, ByteBuffer buffer) throws IOException {
+		CRC32C checksum = new CRC32C();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (channel.read(buffer.clear()) > 0) {
+				checksum.update(buffer.flip());
+			}
+		}
+		return checksum.getValue();
+	}
+}
@@ -0,0 +1,67 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Waits for a job that {@code jobLauncherTaskExecutor} runs on a thread of its own, with
+ * {@code transaction.virtual-threads.enabled=true}, without polling its status.
+ * <p>
+ * The executor decorates the task of a job launched through {@link #runAndWait(Callable)} so that it signals when
+ * it ends. That is after the job's listeners have run and its end has been saved in the job repository, which a
+ * {@code JobExecutionListener} would run before. Jobs launched any other way are left undecorated.
+ */
+@Component
+public class JobCompletionWaiter implements TaskDecorator {
+
+	private final ThreadLocal<Launch> launching = new ThreadLocal<>();
+
+	/**
+	 * Launches a job and returns its execution once it has finished, also if the launcher runs it asynchronously.
+	 */
+	public JobExecution runAndWait(Callable<JobExecution> launch) throws Exception {
+		Launch current = new Launch();
+		launching.set(current);
+		JobExecution execution;
+		try {
+			execution = launch.call();
+		} finally {
+			launching.remove();
+		}
+
+		// The job's status is final before its end is saved, so only a job that ran on the launching thread is done
+		if (current.decorated) {
+			current.finished.get();
+		}
+		return execution;
+	}
+
+	@Override
+	public Runnable decorate(Runnable task) {
+		Launch current = launching.get();
+		if (current == null) {
+			return task;
+		}
+		current.decorated = true;
+		return () -> {
+			try {
+				task.run();
+			} finally {
+				current.finished.complete(null);
+			}
+		};
+	}
+
+	/**
+	 * A launch on the launching thread, and whether it handed the job's task to the executor.
+	 */
+	private static final class Launch {
+
+		private final CompletableFuture<Void> finished = new CompletableFuture<>();
+		private boolean decorated;
+	}
+}
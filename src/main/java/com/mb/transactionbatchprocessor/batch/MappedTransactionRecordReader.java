@@ -0,0 +1,248 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.exception.TransactionParseException;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.ByteRangeCharSequence;
+import com.mb.transactionbatchprocessor.util.DateTimeFieldParser;
+import com.mb.transactionbatchprocessor.util.FixedPointAmountParser;
+import com.mb.transactionbatchprocessor.util.ResourcePaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.ResourceAwareItemReaderItemStream;
+import org.springframework.batch.item.util.ExecutionContextUserSupport;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+
+/**
+ * Reads the pipe-delimited transaction format straight from a memory-mapped file.
+ * <p>
+ * Separators are located by scanning the mapped bytes and each record is built directly from the field
+ * offsets, without a {@code FieldSet}, bean reflection or conversion service. Dates, times and amounts are
+ * decoded in place by {@link DateTimeFieldParser} and {@link FixedPointAmountParser}. Only the six columns declared by
+ * {@code transactionRecordReader()} are supported and quoting is not. Lines with a different column count or
+ * unparseable values are reported as {@link TransactionParseException} so the step's skip policy still applies.
+ * <p>
+ * Like {@link TransactionRecordRangeReader}, it can be limited to a byte range and saves the offset of the next
+ * unread line for restarts. It can also be used as the delegate of a {@code MultiResourceItemReader}.
+ */
+public class MappedTransactionRecordReader implements ResourceAwareItemReaderItemStream<TransactionRecord> {
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedTransactionRecordReader.class);
+
+	private static final String POSITION_KEY = "position";
+	private static final String LINE_COUNT_KEY = "line.count";
+
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+	private static final int FIELD_COUNT = 6;
+
+	private final ExecutionContextUserSupport executionContextUserSupport = new ExecutionContextUserSupport("mappedTransactionRecordReader");
+	private Resource resource;
+	private String fileName;
+	private final long startOffset;
+	private final long endOffset;
+
+	private final int[] separators = new int[FIELD_COUNT - 1];
+	private int separatorCount;
+	private byte[] fieldBuffer = new byte[64];
+	private final ByteRangeCharSequence field = new ByteRangeCharSequence();
+	private final DateTimeFieldParser dateTimeParser = new DateTimeFieldParser();
+	private FileChannel channel;
+	private long fileSize;
+	private MappedByteBuffer window;
+	private long windowOffset;
+	private long position;
+	private long lineCount;
+
+	public MappedTransactionRecordReader() {
+		this(null, 0, Long.MAX_VALUE);
+	}
+
+	public MappedTransactionRecordReader(Resource resource, long startOffset, long endOffset) {
+		this.resource = resource;
+		this.startOffset = startOffset;
+		this.endOffset = endOffset;
+	}
+
+	@Override
+	public void setResource(Resource resource) {
+		this.resource = resource;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		try {
+			fileName = ResourcePaths.absolutePath(resource);
+			channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+			fileSize = channel.size();
+			window = null;
+			lineCount = 0;
+
+			if (executionContext.containsKey(executionContextUserSupport.getKey(POSITION_KEY))) {
+				// The saved position is always the start of a line, so no realignment is needed
+				position = executionContext.getLong(executionContextUserSupport.getKey(POSITION_KEY));
+				lineCount = executionContext.getLong(executionContextUserSupport.getKey(LINE_COUNT_KEY));
+				logger.info("Resuming range [{}, {}) of '{}' at offset {}", startOffset, endOffset, resource, position);
+			} else if (startOffset == 0) {
+				position = nextLineStart(0);  // Skip the header row
+				lineCount = 1;
+			} else {
+				// Align to the first line that starts inside this range
+				position = nextLineStart(startOffset - 1);
+			}
+		} catch (IOException e) {
+			throw new ItemStreamException("Failed to open range [" + startOffset + ", " + endOffset + ") of " + resource, e);
+		}
+	}
+
+	@Override
+	public TransactionRecord read() throws Exception {
+		if (position >= endOffset || position >= fileSize) {
+			return null;
+		}
+
+		long lineOffset = position;
+		int start = map(lineOffset);
+		int end = scanLine(start);
+		if (end < 0) {
+			// The line runs past the mapped window, so map a new window starting at the line
+			start = remap(lineOffset);
+			end = scanLine(start);
+		}
+
+		int next = end < window.limit() ? end + 1 : end;
+		position = windowOffset + next;
+		if (end > start && window.get(end - 1) == '\r') {
+			end--;
+		}
+		lineCount++;
+
+		int fieldCount = separatorCount + 1;
+		if (fieldCount != FIELD_COUNT) {
+			throw parseException("Incorrect number of tokens found in record: expected " + FIELD_COUNT + " actual " + fieldCount,
+					null, lineOffset, start, end);
+		}
+
+		try {
+			TransactionRecord transactionRecord = new TransactionRecord();
+			transactionRecord.setAccountNumber(string(start, separators[0]));
+			transactionRecord.setTrxAmountMinor(FixedPointAmountParser.parse(field.wrap(window, separators[0] + 1, separators[1])));
+			transactionRecord.setDescription(string(separators[1] + 1, separators[2]));
+			transactionRecord.setTrxDate(dateTimeParser.parseDate(field.wrap(window, separators[2] + 1, separators[3])));
+			transactionRecord.setTrxTime(dateTimeParser.parseTime(field.wrap(window, separators[3] + 1, separators[4])));
+			transactionRecord.setCustomerId(string(separators[4] + 1, end));
+			transactionRecord.setSourceFile(fileName);
+			transactionRecord.setSourceOffset(lineOffset);
+			transactionRecord.setSourceLine(lineNumber());
+			transactionRecord.setSourceLength(end - start);
+			return transactionRecord;
+		} catch (NumberFormatException | DateTimeException e) {
+			throw parseException(e.getMessage(), e, lineOffset, start, end);
+		}
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		executionContext.putLong(executionContextUserSupport.getKey(POSITION_KEY), position);
+		executionContext.putLong(executionContextUserSupport.getKey(LINE_COUNT_KEY), lineCount);
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		window = null;
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new ItemStreamException("Failed to close " + resource, e);
+		} finally {
+			channel = null;
+		}
+	}
+
+	/**
+	 * Returns the index of the line terminator starting at {@code start}, the window limit if the file ends
+	 * inside the window, or -1 if the line continues past the window. Separator positions are recorded as it scans.
+	 */
+	private int scanLine(int start) {
+		int limit = window.limit();
+		separatorCount = 0;
+		for (int i = start; i < limit; i++) {
+			byte b = window.get(i);
+			if (b == '\n') {
+				return i;
+			}
+			if (b == '|') {
+				if (separatorCount < separators.length) {
+					separators[separatorCount] = i;
+				}
+				separatorCount++;
+			}
+		}
+		return windowOffset + limit >= fileSize ? limit : -1;
+	}
+
+	private String string(int start, int end) {
+		int length = end - start;
+		if (length > fieldBuffer.length) {
+			fieldBuffer = new byte[Math.max(length, fieldBuffer.length * 2)];
+		}
+		window.get(start, fieldBuffer, 0, length);
+		return new String(fieldBuffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private long nextLineStart(long offset) throws IOException {
+		while (offset < fileSize) {
+			int start = map(offset);
+			int limit = window.limit();
+			for (int i = start; i < limit; i++) {
+				if (window.get(i) == '\n') {
+					return windowOffset + i + 1;
+				}
+			}
+			offset = windowOffset + limit;
+		}
+		return fileSize;
+	}
+
+	/**
+	 * Makes sure {@code offset} lies inside the mapped window and returns its index in the window.
+	 */
+	private int map(long offset) throws IOException {
+		if (window == null || offset < windowOffset || offset >= windowOffset + window.limit()) {
+			return remap(offset);
+		}
+		return (int) (offset - windowOffset);
+	}
+
+	private int remap(long offset) throws IOException {
+		if (window != null && offset == windowOffset && windowOffset + window.limit() < fileSize) {
+			throw new IOException("Line at offset " + offset + " in " + resource + " is longer than " + WINDOW_SIZE + " bytes");
+		}
+		windowOffset = offset;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, fileSize - offset));
+		return 0;
+	}
+
+	private TransactionParseException parseException(String reason, Throwable cause, long lineOffset, int start, int end) {
+		String line = string(start, end);
+		return new TransactionParseException("Parsing error at line: " + lineCount + " (byte offset " + lineOffset
+				+ ") in resource=[" + resource.getDescription() + "], input=[" + line + "]: " + reason, cause, line, lineNumber(), fileName, lineOffset);
+	}
+
+	/**
+	 * Line numbers only count from the start of the file for the range at offset 0.
+	 */
+	private int lineNumber() {
+		return startOffset == 0 ? (int) lineCount : -1;
+	}
+}
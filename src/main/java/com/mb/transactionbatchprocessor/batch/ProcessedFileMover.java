@@ -0,0 +1,268 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.archive.TransactionFileArchiver;
+import com.mb.transactionbatchprocessor.util.ExclusiveFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves an imported input file to the completed directory, or to the error directory if any of its records
+ * was skipped, adding a timestamp to its name, and a sequence number after it if that name is taken.
+ * <p>
+ * The move is atomic, so the file never appears half-written in the target directory, and never replaces a file
+ * that is there. When the target is on another file system the file is copied to a temporary name there and then
+ * put into place. A failed move is retried
+ * with a growing delay. An error file gets a {@code <name>.rejects} sidecar, written before the file itself is
+ * moved, with one tab-separated line per skipped record as recorded by {@link FileSkipTracker}.
+ * <p>
+ * With a {@link TransactionFileArchiver} a file without errors is stored in the completed directory as a
+ * verified columnar archive instead, and the file itself is deleted. If the file cannot be archived it is moved
+ * as it is.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class ProcessedFileMover {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProcessedFileMover.class);
+
+	private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+	private static final String REJECTS_SUFFIX = ".rejects";
+	private static final int MAX_ATTEMPTS = 3;
+	private static final long RETRY_DELAY_MILLIS = 100;
+
+	private final String completedDir;
+	private final String errorDir;
+	private final TransactionFileArchiver archiver;
+
+	public ProcessedFileMover(String completedDir, String errorDir) {
+		this(completedDir, errorDir, null);
+	}
+
+	public ProcessedFileMover(String completedDir, String errorDir, TransactionFileArchiver archiver) {
+		this.completedDir = completedDir;
+		this.errorDir = errorDir;
+		this.archiver = archiver;
+	}
+
+	public String getCompletedDir() {
+		return completedDir;
+	}
+
+	public String getErrorDir() {
+		return errorDir;
+	}
+
+	public Path move(File file, boolean hasErrors) throws IOException {
+		return move(file, hasErrors, List.of());
+	}
+
+	/**
+	 * Moves the file, writing the given reject lines next to it if it has errors.
+	 */
+	public Path move(File file, boolean hasErrors, List<String> rejects) throws IOException {
+		// Ensure the completed and error directories exist
+		createDirectoryIfNotExists(completedDir);
+		createDirectoryIfNotExists(errorDir);
+
+		String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+		if (!hasErrors && archiver != null) {
+			Path archived = archive(file, timestamp);
+			if (archived != null) {
+				return archived;
+			}
+		}
+
+		for (int attempt = 1; ; attempt++) {
+			Path targetPath = targetPath(file, hasErrors, timestamp, 0);
+			try {
+				for (int sequence = 1; !place(file, targetPath, hasErrors, rejects); sequence++) {
+					targetPath = targetPath(file, hasErrors, timestamp, sequence);
+				}
+				return targetPath;
+			} catch (IOException e) {
+				if (attempt == MAX_ATTEMPTS) {
+					logger.error("Failed to move file: '{}' to '{}'. Error: {}", file.getName(), targetPath, e.getMessage());
+					throw e;
+				}
+				logger.warn("Failed to move file: '{}' to '{}' (attempt {} of {}), retrying. Error: {}",
+						file.getName(), targetPath, attempt, MAX_ATTEMPTS, e.getMessage());
+				sleep(RETRY_DELAY_MILLIS << (attempt - 1));
+			}
+		}
+	}
+
+	/**
+	 * The name of the moved file, with a sequence number after the timestamp if that name is taken.
+	 */
+	private Path targetPath(File file, boolean hasErrors, String timestamp, int sequence) {
+		String suffix = (hasErrors ? "_ERROR_" : "_") + timestamp + (sequence == 0 ? "" : "_" + sequence);
+		return Paths.get(hasErrors ? errorDir : completedDir, file.getName().replace(".txt", suffix + ".txt"));
+	}
+
+	/**
+	 * Moves the file to the target, with its rejects sidecar first if it has errors.
+	 *
+	 * @return false, leaving the file where it is, if the target or its sidecar exists
+	 */
+	private static boolean place(File file, Path targetPath, boolean hasErrors, List<String> rejects) throws IOException {
+		if (Files.exists(targetPath)) {
+			return false;
+		}
+		Path rejectsPath = null;
+		if (hasErrors) {
+			rejectsPath = rejectsPath(targetPath);
+			if (!createRejects(rejectsPath, file.getName(), rejects)) {
+				return false;
+			}
+			logger.info("File '{}' contains errors. Moving to '{}'", file.getName(), targetPath);
+		} else {
+			logger.info("Successfully processed file: '{}'. Moving to '{}'", file.getName(), targetPath);
+		}
+
+		try {
+			moveAtomically(file.toPath(), targetPath);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			if (rejectsPath != null) {
+				Files.delete(rejectsPath);
+			}
+			return false;
+		} catch (IOException e) {
+			if (rejectsPath != null && !Files.exists(targetPath)) {
+				Files.deleteIfExists(rejectsPath);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Archives the file and deletes it, or returns {@code null} if it could not be archived.
+	 */
+	private Path archive(File file, String timestamp) throws IOException {
+		for (int sequence = 0; ; sequence++) {
+			Path targetPath = targetPath(file, false, timestamp, sequence);
+			Path archivePath = targetPath.resolveSibling(targetPath.getFileName() + TransactionFileArchiver.ARCHIVE_SUFFIX);
+			if (Files.exists(archivePath)) {
+				continue;
+			}
+			try {
+				archiver.archive(file.toPath(), archivePath);
+			} catch (FileAlreadyExistsException e) {
+				continue;
+			} catch (IOException e) {
+				logger.warn("Failed to archive file: '{}', moving it as it is. Error: {}", file.getName(), e.getMessage());
+				return null;
+			}
+			ExclusiveFiles.deleteMoved(file.toPath(), archivePath);
+			return archivePath;
+		}
+	}
+
+	/**
+	 * Moves the file so that it appears complete at the target, which must not exist. If the file cannot be deleted
+	 * once it is in place, the target is removed again and the move fails.
+	 *
+	 * @throws FileAlreadyExistsException if the target exists
+	 */
+	private static void moveAtomically(Path source, Path target) throws IOException {
+		try {
+			Files.createLink(target, source);
+		} catch (FileAlreadyExistsException e) {
+			throw e;
+		} catch (FileSystemException | UnsupportedOperationException e) {
+			// Crossing file systems, or without hard links: copy next to the target, then put it into place
+			Path temp = ExclusiveFiles.createTempSibling(target);
+			try {
+				Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+				ExclusiveFiles.moveNew(temp, target);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+		ExclusiveFiles.deleteMoved(source, target);
+	}
+
+	/**
+	 * The sidecar holding the rejects of an error file.
+	 */
+	public static Path rejectsPath(Path errorFile) {
+		return errorFile.resolveSibling(errorFile.getFileName() + REJECTS_SUFFIX);
+	}
+
+	/**
+	 * Replaces the sidecar atomically with the given reject lines, under a header naming the original file.
+	 */
+	static void writeRejects(Path rejectsPath, String originalName, List<String> rejects) throws IOException {
+		Path temp = ExclusiveFiles.createTempSibling(rejectsPath);
+		try {
+			Files.write(temp, rejectsLines(originalName, rejects), StandardCharsets.UTF_8);
+			Files.move(temp, rejectsPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Writes a new sidecar, unless one of that name exists.
+	 *
+	 * @return whether the sidecar was written
+	 */
+	private static boolean createRejects(Path rejectsPath, String originalName, List<String> rejects) throws IOException {
+		if (Files.exists(rejectsPath)) {
+			return false;
+		}
+		Path temp = ExclusiveFiles.createTempSibling(rejectsPath);
+		try {
+			Files.write(temp, rejectsLines(originalName, rejects), StandardCharsets.UTF_8);
+			ExclusiveFiles.moveNew(temp, rejectsPath);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static List<String> rejectsLines(String originalName, List<String> rejects) {
+		List<String> lines = new ArrayList<>(rejects.size() + 1);
+		lines.add(RejectedLine.comment(originalName + ": " + RejectedLine.HEADER));
+		lines.addAll(rejects);
+		return lines;
+	}
+
+	private static void sleep(long millis) throws IOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while retrying a file move", e);
+		}
+	}
+
+	private void createDirectoryIfNotExists(String dirPath) {
+		Path path = Paths.get(dirPath);
+		if (!Files.exists(path)) {
+			try {
+				Files.createDirectories(path);
+				logger.info("Created directory: {}", dirPath);
+			} catch (IOException e) {
+				logger.error("Failed to create directory: {}", dirPath, e.getMessage());
+				throw new RuntimeException("Failed to create directory: " + dirPath, e);
+			}
+		}
+	}
+}
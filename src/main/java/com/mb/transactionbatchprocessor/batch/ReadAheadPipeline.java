@@ -0,0 +1,257 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ParseException;
+import org.springframework.batch.item.util.ExecutionContextUserSupport;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads and processes items on a background thread while the step thread writes and commits earlier chunks.
+ * <p>
+ * Items are read from the delegate reader, run through the delegate processor and handed over through a
+ * bounded queue, so the background thread blocks once it is {@code capacity} items ahead of the writer.
+ * The pipeline is registered as both the reader and the processor of the step: {@link #read()} takes the
+ * next item from the queue and {@link #process} returns the result computed for it ahead of time. Read and
+ * process failures are rethrown on the step thread in the same order and from the same stage as without the
+ * pipeline, so the step's skip policy and skip listeners see them unchanged.
+ * <p>
+ * Because the delegate runs ahead, its own state does not describe what has been committed. The pipeline
+ * instead saves how many items the step has taken, and on restart discards that many reads from a freshly
+ * opened delegate. The delegate processor is called from the background thread and must be thread-safe.
+ * Closing the pipeline waits for the background thread to stop before it closes the delegate reader. One
+ * instance serves one step execution at a time.
+ */
+public class ReadAheadPipeline<T> implements ItemStreamReader<T>, ItemProcessor<T, T>, ChunkListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReadAheadPipeline.class);
+
+	private static final String READ_COUNT_KEY = "read.count";
+
+	private final ExecutionContextUserSupport executionContextUserSupport = new ExecutionContextUserSupport("readAheadPipeline");
+	private final ItemReader<T> reader;
+	private final ItemProcessor<T, T> processor;
+	private final int capacity;
+	private final AsyncTaskExecutor taskExecutor;
+
+	private final Map<T, Entry<T>> pending = new IdentityHashMap<>();
+	private BlockingQueue<Entry<T>> queue;
+	private Future<?> producer;
+	private AtomicBoolean producerStarted;
+	private CountDownLatch producerFinished;
+	private volatile boolean closed;
+	private boolean exhausted;
+	private long readCount;
+
+	public ReadAheadPipeline(ItemReader<T> reader, ItemProcessor<T, T> processor, int capacity, AsyncTaskExecutor taskExecutor) {
+		this.reader = reader;
+		this.processor = processor;
+		this.capacity = capacity;
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		readCount = executionContext.getLong(executionContextUserSupport.getKey(READ_COUNT_KEY), 0L);
+		exhausted = false;
+		closed = false;
+		pending.clear();
+		queue = new ArrayBlockingQueue<>(capacity);
+
+		// The delegate's saved position would point past uncommitted items, so it always starts from the beginning
+		if (reader instanceof ItemStream stream) {
+			stream.open(new ExecutionContext());
+		}
+		long skipped = readCount;
+		if (skipped > 0) {
+			logger.info("Restarting {} after {} items already taken by the step", executionContextUserSupport.getName(), skipped);
+		}
+		AtomicBoolean started = new AtomicBoolean();
+		CountDownLatch finished = new CountDownLatch(1);
+		producerStarted = started;
+		producerFinished = finished;
+		producer = taskExecutor.submit(() -> {
+			if (!started.compareAndSet(false, true)) {
+				return;  // Closed before it started
+			}
+			try {
+				produce(skipped);
+			} finally {
+				finished.countDown();
+			}
+		});
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		executionContext.putLong(executionContextUserSupport.getKey(READ_COUNT_KEY), readCount);
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		closed = true;
+		if (producer != null) {
+			producer.cancel(true);
+			// A cancelled future returns at once, while the producer may still be reading from the delegate
+			if (!producerStarted.compareAndSet(false, true)) {
+				awaitProducer();
+			}
+			producer = null;
+		}
+		pending.clear();
+		queue = null;
+		if (reader instanceof ItemStream stream) {
+			stream.close();
+		}
+	}
+
+	private void awaitProducer() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				producerFinished.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public T read() throws Exception {
+		if (exhausted) {
+			return null;
+		}
+
+		Entry<T> entry = queue.take();
+		if (entry.end) {
+			exhausted = true;
+			return null;
+		}
+		readCount++;
+		if (entry.item == null) {
+			throw entry.failure;
+		}
+		pending.put(entry.item, entry);
+		return entry.item;
+	}
+
+	@Override
+	public T process(T item) throws Exception {
+		Entry<T> entry = pending.get(item);
+		if (entry == null) {
+			// Not read through this pipeline, or released by an earlier commit
+			return processor.process(item);
+		}
+		if (entry.failure != null) {
+			throw entry.failure;
+		}
+		return entry.result;
+	}
+
+	@Override
+	public void afterChunk(ChunkContext context) {
+		// Results are kept until the commit because a rolled back chunk is processed again item by item
+		pending.clear();
+	}
+
+	private void produce(long skip) {
+		try {
+			for (long i = 0; i < skip; i++) {
+				try {
+					if (reader.read() == null) {
+						break;
+					}
+				} catch (ParseException e) {
+					// Counted by the step as a skipped read in the earlier run
+				}
+			}
+
+			while (!closed) {
+				T item;
+				try {
+					item = reader.read();
+				} catch (ParseException e) {
+					queue.put(Entry.failedRead(e));
+					continue;
+				}
+				if (item == null) {
+					break;
+				}
+
+				Entry<T> entry;
+				try {
+					entry = Entry.processed(item, processor.process(item));
+				} catch (Exception e) {
+					entry = Entry.failedProcess(item, e);
+				}
+				queue.put(entry);
+			}
+			queue.put(Entry.end());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Throwable t) {
+			// Anything other than a bad record stops the pipeline and is raised on the step thread
+			if (!closed) {
+				logger.error("Read-ahead for {} stopped: {}", executionContextUserSupport.getName(), t.getMessage());
+				Exception failure = t instanceof Exception e ? e : new ItemStreamException("Read-ahead failed", t);
+				try {
+					queue.put(Entry.failedRead(failure));
+					queue.put(Entry.end());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	private static final class Entry<T> {
+
+		private final T item;
+		private final T result;
+		private final Exception failure;
+		private final boolean end;
+
+		private Entry(T item, T result, Exception failure, boolean end) {
+			this.item = item;
+			this.result = result;
+			this.failure = failure;
+			this.end = end;
+		}
+
+		static <T> Entry<T> processed(T item, T result) {
+			return new Entry<>(item, result, null, false);
+		}
+
+		static <T> Entry<T> failedProcess(T item, Exception failure) {
+			return new Entry<>(item, null, failure, false);
+		}
+
+		static <T> Entry<T> failedRead(Exception failure) {
+			return new Entry<>(null, null, failure, false);
+		}
+
+		static <T> Entry<T> end() {
+			return new Entry<>(null, null, null, true);
+		}
+	}
+}
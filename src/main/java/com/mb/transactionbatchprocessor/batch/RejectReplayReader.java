@@ -0,0 +1,226 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.exception.TransactionParseException;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.util.ExecutionContextUserSupport;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads only the lines of an error file that are listed in its {@code .rejects} sidecar, so that corrected
+ * lines can be imported again without importing the rest of the file twice.
+ * <p>
+ * The rejected lines may have been corrected in place, but no line may be added or removed and the other lines
+ * must not change. When every reject has a byte offset and length the reader seeks straight to each line, in
+ * order of offset, and moves the later offsets by however much the corrected lines before them have grown or
+ * shrunk. Otherwise the rejects are located by line number in a single pass that only counts newlines.
+ * <p>
+ * Records and parse errors carry the line's current position, so the rejects left after a replay describe the
+ * file as it is now. The index of the next reject and the accumulated shift are saved in the
+ * {@link ExecutionContext}, so a restarted replay resumes after its last committed chunk.
+ */
+public class RejectReplayReader implements ItemStreamReader<TransactionRecord> {
+
+	private static final Logger logger = LoggerFactory.getLogger(RejectReplayReader.class);
+
+	private static final String INDEX_KEY = "index";
+	private static final String SHIFT_KEY = "shift";
+
+	private final ExecutionContextUserSupport executionContextUserSupport = new ExecutionContextUserSupport("rejectReplayReader");
+	private final Path file;
+	private final String fileName;
+	private final LineMapper<TransactionRecord> lineMapper;
+
+	private List<RejectedLine> rejects;
+	private long[] offsets;
+	private boolean seeking;
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(256);
+	private int index;
+	private long shift;
+
+	public RejectReplayReader(Path file, LineMapper<TransactionRecord> lineMapper) {
+		this.file = file.toAbsolutePath();
+		this.fileName = this.file.toString();
+		this.lineMapper = lineMapper;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		try {
+			rejects = readRejects(ProcessedFileMover.rejectsPath(file));
+			seeking = rejects.stream().allMatch(reject -> reject.getOffset() >= 0 && reject.getLength() >= 0);
+			if (seeking) {
+				rejects.sort(Comparator.comparingLong(RejectedLine::getOffset));
+			} else if (rejects.stream().allMatch(reject -> reject.getLine() > 0)) {
+				rejects.sort(Comparator.comparingInt(RejectedLine::getLine));
+				offsets = lineOffsets(rejects);
+			} else {
+				throw new ItemStreamException("Cannot locate the rejects of " + file + ": some have neither a byte offset and length nor a line number");
+			}
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+		} catch (IOException e) {
+			throw new ItemStreamException("Failed to open the rejects of " + file, e);
+		}
+
+		index = executionContext.getInt(executionContextUserSupport.getKey(INDEX_KEY), 0);
+		shift = executionContext.getLong(executionContextUserSupport.getKey(SHIFT_KEY), 0);
+		logger.info("Replaying {} rejected lines of '{}' by {}, starting at reject {}", rejects.size(), file,
+				seeking ? "byte offset" : "line number", index);
+	}
+
+	@Override
+	public TransactionRecord read() throws Exception {
+		if (index == rejects.size()) {
+			return null;
+		}
+
+		RejectedLine reject = rejects.get(index);
+		long offset = seeking ? reject.getOffset() + shift : offsets[index];
+		if (offset > 0 && byteAt(offset - 1) != '\n') {
+			throw new ItemStreamException("Rejected line " + reject + " no longer starts at byte " + offset + " of " + file
+					+ ", were lines other than the rejected ones changed?");
+		}
+		int length = readLine(offset);
+		if (seeking) {
+			shift += length - reject.getLength();
+		}
+		index++;
+
+		String line = new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+		TransactionRecord transactionRecord;
+		try {
+			transactionRecord = lineMapper.mapLine(line, reject.getLine());
+		} catch (Exception e) {
+			throw new TransactionParseException("Parsing error at line: " + reject.getLine() + " (byte offset " + offset
+					+ ") in resource=[" + file + "], input=[" + line + "]", e, line, reject.getLine(), fileName, offset);
+		}
+		transactionRecord.setSourceFile(fileName);
+		transactionRecord.setSourceOffset(offset);
+		transactionRecord.setSourceLine(reject.getLine());
+		transactionRecord.setSourceLength(length);
+		return transactionRecord;
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		executionContext.putInt(executionContextUserSupport.getKey(INDEX_KEY), index);
+		executionContext.putLong(executionContextUserSupport.getKey(SHIFT_KEY), shift);
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new ItemStreamException("Failed to close " + file, e);
+		} finally {
+			channel = null;
+		}
+	}
+
+	private List<RejectedLine> readRejects(Path rejectsPath) throws IOException {
+		if (!Files.exists(rejectsPath)) {
+			throw new ItemStreamException("No rejects to replay: " + rejectsPath + " does not exist");
+		}
+
+		List<RejectedLine> located = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		for (String text : Files.readAllLines(rejectsPath, StandardCharsets.UTF_8)) {
+			RejectedLine reject = RejectedLine.parse(text);
+			if (reject == null) {
+				continue;
+			}
+			if (reject.getLine() <= 0 && reject.getOffset() < 0) {
+				logger.warn("Cannot replay a reject without a line number or byte offset: {}", reject);
+			} else if (seen.add(reject.getOffset() >= 0 ? "@" + reject.getOffset() : "#" + reject.getLine())) {
+				// A line is listed once, whichever stage skipped it
+				located.add(reject);
+			}
+		}
+		return located;
+	}
+
+	/**
+	 * Finds where each of the given lines, sorted by line number, starts in the file.
+	 */
+	private long[] lineOffsets(List<RejectedLine> sortedRejects) throws IOException {
+		long[] lineOffsets = new long[sortedRejects.size()];
+		int next = 0;
+		int line = 1;
+		long position = 0;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+			while (next < lineOffsets.length && sortedRejects.get(next).getLine() == line) {
+				lineOffsets[next++] = position;
+			}
+			int b;
+			while (next < lineOffsets.length && (b = in.read()) >= 0) {
+				position++;
+				if (b == '\n') {
+					line++;
+					while (next < lineOffsets.length && sortedRejects.get(next).getLine() == line) {
+						lineOffsets[next++] = position;
+					}
+				}
+			}
+		}
+		if (next < lineOffsets.length) {
+			throw new ItemStreamException("Rejected line " + sortedRejects.get(next).getLine() + " is past the end of " + file);
+		}
+		return lineOffsets;
+	}
+
+	private int byteAt(long offset) throws IOException {
+		ByteBuffer single = ByteBuffer.allocate(1);
+		return channel.read(single, offset) == 1 ? single.get(0) : -1;
+	}
+
+	/**
+	 * Reads the line starting at the given offset into the buffer and returns its length without the terminator.
+	 */
+	private int readLine(long offset) throws IOException {
+		buffer.clear();
+		int scanned = 0;
+		while (true) {
+			if (!buffer.hasRemaining()) {
+				buffer = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.capacity() * 2)).position(buffer.position());
+			}
+			int read = channel.read(buffer, offset + buffer.position());
+			for (int i = scanned; i < buffer.position(); i++) {
+				if (buffer.get(i) == '\n') {
+					return i > 0 && buffer.get(i - 1) == '\r' ? i - 1 : i;
+				}
+			}
+			scanned = buffer.position();
+			if (read < 0) {
+				if (scanned == 0) {
+					throw new ItemStreamException("Rejected line at byte " + offset + " is past the end of " + file);
+				}
+				return scanned > 0 && buffer.get(scanned - 1) == '\r' ? scanned - 1 : scanned;
+			}
+		}
+	}
+}
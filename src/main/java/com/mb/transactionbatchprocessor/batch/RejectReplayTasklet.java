@@ -0,0 +1,70 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Finishes a replay of an error file's rejects. If every replayed line was imported, the error file is moved
+ * to the completed directory and its sidecar is deleted, so the same lines cannot be replayed twice. Otherwise
+ * the sidecar is replaced with the lines that were rejected again, and the file stays in the error directory.
+ * <p>
+ * A sidecar that was truncated lists only the first of the file's rejects, so the lines past them were never
+ * replayed. Such a file stays in the error directory even when every listed line was imported, and its sidecar
+ * keeps the truncation comment.
+ */
+public class RejectReplayTasklet implements Tasklet {
+
+	private static final Logger logger = LoggerFactory.getLogger(RejectReplayTasklet.class);
+
+	private final Path file;
+	private final ProcessedFileMover fileMover;
+
+	public RejectReplayTasklet(Path file, ProcessedFileMover fileMover) {
+		this.file = file.toAbsolutePath();
+		this.fileMover = fileMover;
+	}
+
+	@Override
+	public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws IOException {
+		Map<String, List<String>> rejects = FileSkipTracker.getRejects(chunkContext.getStepContext().getStepExecution().getJobExecution());
+		List<String> remaining = new ArrayList<>(rejects.getOrDefault(file.toString(), List.of()));
+		remaining.addAll(rejects.getOrDefault(FileSkipTracker.UNKNOWN_FILE, List.of()));
+
+		Path rejectsPath = ProcessedFileMover.rejectsPath(file);
+		boolean truncated = false;
+		if (Files.exists(rejectsPath)) {
+			try (Stream<String> lines = Files.lines(rejectsPath)) {
+				truncated = lines.anyMatch(RejectedLine::isTruncated);
+			}
+		}
+		if (truncated && remaining.stream().noneMatch(RejectedLine::isTruncated)) {
+			remaining.add(RejectedLine.truncated(FileSkipTracker.MAX_REJECTS_PER_FILE));
+		}
+
+		if (truncated && remaining.size() == 1) {
+			ProcessedFileMover.writeRejects(rejectsPath, file.getFileName().toString(), remaining);
+			logger.warn("All listed rejects of '{}' were imported, but it had more than {} rejects that were not listed. "
+					+ "It stays in the error directory", file.getFileName(), FileSkipTracker.MAX_REJECTS_PER_FILE);
+		} else if (remaining.isEmpty()) {
+			fileMover.move(file.toFile(), false);
+			Files.deleteIfExists(rejectsPath);
+			logger.info("All rejects of '{}' were imported", file.getFileName());
+		} else {
+			ProcessedFileMover.writeRejects(rejectsPath, file.getFileName().toString(), remaining);
+			logger.warn("{} rejects of '{}' were rejected again, see {}", remaining.size(), file.getFileName(), rejectsPath);
+		}
+		return RepeatStatus.FINISHED;
+	}
+}
@@ -0,0 +1,84 @@
+package com.mb.transactionbatchprocessor.batch;
+
+/**
+ * One line of a {@code .rejects} sidecar: where a skipped record's line is in its file, the stage at which it
+ * was skipped and why. The line number, byte offset and length in bytes, without the line terminator, are -1
+ * where the reader did not know them.
+ */
+public final class RejectedLine {
+
+	static final String HEADER = "line\tbyte offset\tbyte length\tstage\treason (-1 where unknown)";
+
+	private static final String COMMENT = "#";
+	private static final String TRUNCATED = COMMENT + " truncated";
+	private static final String SEPARATOR = "\t";
+
+	private final int line;
+	private final long offset;
+	private final int length;
+	private final String stage;
+	private final String reason;
+
+	public RejectedLine(int line, long offset, int length, String stage, String reason) {
+		this.line = line;
+		this.offset = offset;
+		this.length = length;
+		this.stage = stage;
+		this.reason = reason.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+	}
+
+	/**
+	 * Parses a sidecar line, returning {@code null} for comments and blank lines.
+	 */
+	public static RejectedLine parse(String text) {
+		if (text.isBlank() || text.startsWith(COMMENT)) {
+			return null;
+		}
+		String[] fields = text.split(SEPARATOR, 5);
+		if (fields.length < 5) {
+			throw new IllegalArgumentException("Malformed reject line: " + text);
+		}
+		return new RejectedLine(Integer.parseInt(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+				fields[3], fields[4]);
+	}
+
+	static String comment(String text) {
+		return COMMENT + " " + text;
+	}
+
+	/**
+	 * The comment that ends a sidecar whose file had more rejects than were kept.
+	 */
+	static String truncated(int kept) {
+		return TRUNCATED + " after " + kept + " rejects";
+	}
+
+	static boolean isTruncated(String text) {
+		return text.startsWith(TRUNCATED);
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public String getStage() {
+		return stage;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	@Override
+	public String toString() {
+		return line + SEPARATOR + offset + SEPARATOR + length + SEPARATOR + stage + SEPARATOR + reason;
+	}
+}
@@ -0,0 +1,103 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Launches the import so that an interrupted run is resumed instead of started again.
+ * <p>
+ * If the last execution of the job did not complete, and every file now in the input directory is one of the
+ * files recorded by {@link InputFileSet} for it with the same size and checksum, that execution is restarted
+ * with its original parameters. Spring Batch then skips the steps and partitions that completed and resumes
+ * the others from their last committed chunk. Otherwise a new job instance is started with the given parameters.
+ * <p>
+ * An execution that is still marked as running can only be left over from a process that died, because the
+ * one-shot application runs one import at a time. It is marked as failed before it is restarted. This must not
+ * be used while another process may be importing from the same job repository.
+ */
+@Component
+public class RestartingJobLauncher {
+
+	private static final Logger logger = LoggerFactory.getLogger(RestartingJobLauncher.class);
+
+	private final JobLauncher jobLauncher;
+	private final JobExplorer jobExplorer;
+	private final JobRepository jobRepository;
+
+	public RestartingJobLauncher(JobLauncher jobLauncher, JobExplorer jobExplorer, JobRepository jobRepository) {
+		this.jobLauncher = jobLauncher;
+		this.jobExplorer = jobExplorer;
+		this.jobRepository = jobRepository;
+	}
+
+	public JobExecution run(Job job, JobParameters jobParameters, String inputDir) throws Exception {
+		JobInstance lastInstance = jobExplorer.getLastJobInstance(job.getName());
+		JobExecution lastExecution = lastInstance == null ? null : jobExplorer.getLastJobExecution(lastInstance);
+		if (lastExecution == null || lastExecution.getStatus() == BatchStatus.COMPLETED
+				|| lastExecution.getStatus() == BatchStatus.ABANDONED) {
+			return jobLauncher.run(job, jobParameters);
+		}
+
+		Map<String, String> recorded = InputFileSet.recorded(lastExecution.getExecutionContext());
+		if (recorded.isEmpty() || !InputFileSet.covers(recorded, inputDir)) {
+			logger.info("The input files have changed since execution {} ended with status {}, starting a new run",
+					lastExecution.getId(), lastExecution.getStatus());
+			return jobLauncher.run(job, jobParameters);
+		}
+
+		if (lastExecution.isRunning()) {
+			markFailed(lastExecution);
+		}
+		logger.info("Resuming execution {} of job instance {} over the same input files", lastExecution.getId(), lastInstance.getInstanceId());
+		return jobLauncher.run(job, lastExecution.getJobParameters());
+	}
+
+	/**
+	 * Runs the job instance of the given parameters, restarting its last execution if it did not complete. An
+	 * execution still marked as running is taken to be left over from a process that died and marked as failed.
+	 */
+	public JobExecution resume(Job job, JobParameters jobParameters) throws Exception {
+		JobExecution lastExecution = jobRepository.getLastJobExecution(job.getName(), jobParameters);
+		if (lastExecution != null && lastExecution.isRunning()) {
+			markFailed(lastExecution);
+		}
+		if (lastExecution != null) {
+			logger.info("Resuming execution {} of job instance {}", lastExecution.getId(), lastExecution.getJobInstance().getInstanceId());
+		}
+		return jobLauncher.run(job, jobParameters);
+	}
+
+	private void markFailed(JobExecution jobExecution) {
+		logger.warn("Execution {} is still marked as {} from a process that stopped, marking it as failed",
+				jobExecution.getId(), jobExecution.getStatus());
+		LocalDateTime now = LocalDateTime.now();
+		ExitStatus exitStatus = ExitStatus.FAILED.addExitDescription("The process running this execution stopped");
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			if (stepExecution.getStatus().isRunning()) {
+				stepExecution.setStatus(BatchStatus.FAILED);
+				stepExecution.setExitStatus(exitStatus);
+				stepExecution.setEndTime(now);
+				jobRepository.update(stepExecution);
+			}
+		}
+		jobExecution.upgradeStatus(BatchStatus.FAILED);
+		jobExecution.setStatus(BatchStatus.FAILED);
+		jobExecution.setExitStatus(exitStatus);
+		jobExecution.setEndTime(now);
+		jobRepository.update(jobExecution);
+	}
+}
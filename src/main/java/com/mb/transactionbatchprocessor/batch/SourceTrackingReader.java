@@ -0,0 +1,62 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.exception.TransactionParseException;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.ResourcePaths;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.ResourceAwareItemReaderItemStream;
+import org.springframework.core.io.Resource;
+
+/**
+ * Delegate of a {@code MultiResourceItemReader} that records which file each record came from, and reports
+ * parse errors as {@link TransactionParseException} with that file.
+ */
+public class SourceTrackingReader implements ResourceAwareItemReaderItemStream<TransactionRecord> {
+
+	private final ResourceAwareItemReaderItemStream<TransactionRecord> delegate;
+	private String fileName;
+
+	public SourceTrackingReader(ResourceAwareItemReaderItemStream<TransactionRecord> delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void setResource(Resource resource) {
+		fileName = ResourcePaths.absolutePath(resource);
+		delegate.setResource(resource);
+	}
+
+	@Override
+	public TransactionRecord read() throws Exception {
+		TransactionRecord transactionRecord;
+		try {
+			transactionRecord = delegate.read();
+		} catch (TransactionParseException e) {
+			throw e;
+		} catch (FlatFileParseException e) {
+			throw new TransactionParseException(e.getMessage(), e, e.getInput(), e.getLineNumber(), fileName, -1);
+		}
+
+		if (transactionRecord != null) {
+			transactionRecord.setSourceFile(fileName);
+		}
+		return transactionRecord;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		delegate.open(executionContext);
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		delegate.update(executionContext);
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		delegate.close();
+	}
+}
@@ -0,0 +1,317 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.util.ExclusiveFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps importing files as they arrive in {@code transaction.input.dir}, for {@code transaction.watch.enabled=true}.
+ * <p>
+ * A file is ready once a {@code <name>.done} marker exists next to it, or once its size and modification time
+ * have not changed for {@code transaction.watch.stable-millis}. The files that are ready together are moved into
+ * a directory of their own under {@code .runs} and imported by one job execution whose {@code input.dir}
+ * parameter points there. A file therefore belongs to exactly one execution, and each execution moves its
+ * files to the completed or error directory as a one-shot run does. At most
+ * {@code transaction.watch.max-concurrent-jobs} executions run at a time; later files wait in the input directory.
+ * <p>
+ * The run directory identifies the job instance. A failed execution leaves its files in its run directory, and
+ * the watcher restarts it with the same parameters when it next starts, so that it resumes from its last committed
+ * chunk instead of importing the files again. Watching starts with the application context and stops, after the running executions
+ * have finished, when it closes.
+ */
+@Component
+@ConditionalOnProperty(name = "transaction.watch.enabled", havingValue = "true")
+public class TransactionDirectoryWatcher implements SmartLifecycle {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransactionDirectoryWatcher.class);
+
+	private static final String RUNS_DIR = ".runs";
+	private static final String DONE_SUFFIX = ".done";
+	private static final String FILE_SUFFIX = ".txt";
+
+	private final JobLauncher jobLauncher;
+	private final RestartingJobLauncher restartingJobLauncher;
+	private final JobCompletionWaiter jobCompletionWaiter;
+	private final Job importTransactionRecordJob;
+	private final Path inputDir;
+	private final long stableMillis;
+	private final int maxConcurrentJobs;
+	private final Semaphore jobSlots;
+	private final SimpleAsyncTaskExecutor jobExecutor = new SimpleAsyncTaskExecutor("watch-");
+	private final Map<Path, FileState> pending = new HashMap<>();
+	private volatile boolean running;
+	private Thread watchThread;
+
+	public TransactionDirectoryWatcher(JobLauncher jobLauncher, RestartingJobLauncher restartingJobLauncher,
+									   JobCompletionWaiter jobCompletionWaiter,
+									   @Qualifier("importTransactionRecordJob") Job importTransactionRecordJob,
+									   @Value("${transaction.input.dir}") String inputDir,
+									   @Value("${transaction.watch.stable-millis:2000}") long stableMillis,
+									   @Value("${transaction.watch.max-concurrent-jobs:2}") int maxConcurrentJobs,
+									   @Value("${transaction.virtual-threads.enabled:false}") boolean virtualThreadsEnabled) {
+		this.jobLauncher = jobLauncher;
+		this.restartingJobLauncher = restartingJobLauncher;
+		this.jobCompletionWaiter = jobCompletionWaiter;
+		this.importTransactionRecordJob = importTransactionRecordJob;
+		this.inputDir = Paths.get(inputDir).toAbsolutePath();
+		this.stableMillis = stableMillis;
+		this.maxConcurrentJobs = maxConcurrentJobs;
+		this.jobSlots = new Semaphore(maxConcurrentJobs);
+		jobExecutor.setVirtualThreads(virtualThreadsEnabled);
+	}
+
+	@Override
+	public synchronized void start() {
+		running = true;
+		watchThread = new Thread(this::watch, "watcher");
+		watchThread.start();
+	}
+
+	@Override
+	public synchronized void stop() {
+		running = false;
+		try {
+			watchThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	private void watch() {
+		try {
+			watchUntilStopped();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			logger.error("Failed to watch directory: {}. Error: {}", inputDir, e.getMessage());
+			running = false;
+		}
+	}
+
+	private void watchUntilStopped() throws IOException, InterruptedException {
+		Files.createDirectories(inputDir);
+		recoverRuns();
+
+		logger.info("Watching directory: {} (stable after {} ms, at most {} jobs at a time)", inputDir, stableMillis, maxConcurrentJobs);
+		try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+			inputDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			// Files that arrived before the watch was registered produce no events
+			scan();
+
+			long pollMillis = Math.max(10, Math.min(stableMillis / 4, 500));
+			while (running) {
+				WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							scan();
+						} else {
+							track(inputDir.resolve((Path) event.context()));
+						}
+					}
+					key.reset();
+				}
+				launchReadyFiles();
+			}
+		} finally {
+			// Every slot is free again once the last running execution has finished
+			jobSlots.acquire(maxConcurrentJobs);
+			jobSlots.release(maxConcurrentJobs);
+			logger.info("Stopped watching directory: {}", inputDir);
+		}
+	}
+
+	private void scan() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir)) {
+			for (Path file : files) {
+				track(file);
+			}
+		}
+	}
+
+	private void track(Path path) {
+		String name = path.getFileName().toString();
+		if (name.endsWith(FILE_SUFFIX + DONE_SUFFIX)) {
+			path = path.resolveSibling(name.substring(0, name.length() - DONE_SUFFIX.length()));
+		} else if (!name.endsWith(FILE_SUFFIX)) {
+			return;
+		}
+		pending.putIfAbsent(path, new FileState());
+	}
+
+	private void launchReadyFiles() {
+		List<Path> ready = new ArrayList<>();
+		long now = System.nanoTime();
+		for (Iterator<Map.Entry<Path, FileState>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+			Map.Entry<Path, FileState> entry = iterator.next();
+			Path file = entry.getKey();
+			if (!Files.isRegularFile(file)) {
+				iterator.remove();
+			} else if (Files.exists(doneMarker(file)) || entry.getValue().isStable(file, now, stableMillis)) {
+				ready.add(file);
+			}
+		}
+		if (ready.isEmpty() || !jobSlots.tryAcquire()) {
+			return;
+		}
+
+		Path runDir;
+		try {
+			runDir = createRunDir();
+		} catch (IOException e) {
+			jobSlots.release();
+			logger.error("Failed to create a run directory, retrying on the next poll. Error: {}", e.getMessage());
+			return;
+		}
+
+		int moved = 0;
+		for (Path file : ready) {
+			try {
+				ExclusiveFiles.moveNew(file, runDir.resolve(file.getFileName()));
+				pending.remove(file);
+				moved++;
+				Files.deleteIfExists(doneMarker(file));
+			} catch (FileAlreadyExistsException e) {
+				logger.warn("A file named '{}' is already in {}, retrying on the next poll", file.getFileName(), runDir);
+			} catch (IOException e) {
+				logger.warn("Failed to move '{}' into {}, retrying on the next poll. Error: {}", file.getFileName(), runDir, e.getMessage());
+			}
+		}
+		if (moved == 0) {
+			jobSlots.release();
+			return;
+		}
+
+		logger.info("Moved {} files into {}", moved, runDir);
+		jobExecutor.execute(() -> runJob(runDir, false));
+	}
+
+	private Path createRunDir() throws IOException {
+		Path runsDir = Files.createDirectories(inputDir.resolve(RUNS_DIR));
+		String name = "run-" + System.currentTimeMillis();
+		Path runDir = runsDir.resolve(name);
+		for (int attempt = 1; Files.exists(runDir); attempt++) {
+			runDir = runsDir.resolve(name + "-" + attempt);
+		}
+		return Files.createDirectory(runDir);
+	}
+
+	private void runJob(Path runDir, boolean recovered) {
+		try {
+			// The run directory alone identifies the job instance, so that a failed run is restarted with the same parameters
+			JobParameters jobParameters = new JobParametersBuilder()
+					.addString(BatchConfig.INPUT_DIR_PARAMETER, runDir.toString())
+					.addLong("startAt", System.currentTimeMillis(), false)
+					.toJobParameters();
+			// With virtual threads enabled the job runs on its own thread
+			JobExecution execution = jobCompletionWaiter.runAndWait(() -> recovered
+					? restartingJobLauncher.resume(importTransactionRecordJob, jobParameters)
+					: jobLauncher.run(importTransactionRecordJob, jobParameters));
+
+			if (execution.getStatus() == BatchStatus.COMPLETED) {
+				Files.deleteIfExists(runDir);
+				logger.info("Imported files from {}", runDir);
+			} else {
+				logger.error("Job finished with status {}, files are left in {}", execution.getStatus(), runDir);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Interrupted while importing files from {}", runDir);
+		} catch (Exception e) {
+			logger.error("Failed to import files from {}. Error: {}", runDir, e.getMessage());
+		} finally {
+			jobSlots.release();
+		}
+	}
+
+	private void recoverRuns() throws IOException, InterruptedException {
+		Path runsDir = inputDir.resolve(RUNS_DIR);
+		if (!Files.isDirectory(runsDir)) {
+			return;
+		}
+
+		try (DirectoryStream<Path> runDirs = Files.newDirectoryStream(runsDir, Files::isDirectory)) {
+			for (Path runDir : runDirs) {
+				boolean unfinished;
+				try (DirectoryStream<Path> files = Files.newDirectoryStream(runDir, "*" + FILE_SUFFIX)) {
+					unfinished = files.iterator().hasNext();
+				}
+				if (!unfinished) {
+					Files.deleteIfExists(runDir);
+					continue;
+				}
+
+				// Resumed in place, so that the rows the run already committed are not imported again
+				jobSlots.acquire();
+				logger.warn("Restarting the unfinished run {}", runDir);
+				jobExecutor.execute(() -> runJob(runDir, true));
+			}
+		}
+	}
+
+	private static Path doneMarker(Path file) {
+		return file.resolveSibling(file.getFileName() + DONE_SUFFIX);
+	}
+
+	private static final class FileState {
+
+		private long size = -1;
+		private long modified = -1;
+		private long unchangedSince;
+
+		boolean isStable(Path file, long now, long stableMillis) {
+			long currentSize;
+			long currentModified;
+			try {
+				currentSize = Files.size(file);
+				currentModified = Files.getLastModifiedTime(file).toMillis();
+			} catch (IOException e) {
+				return false;
+			}
+
+			if (currentSize != size || currentModified != modified) {
+				size = currentSize;
+				modified = currentModified;
+				unchangedSince = now;
+				return false;
+			}
+			return now - unchangedSince >= TimeUnit.MILLISECONDS.toNanos(stableMillis);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates one worker partition per input file so that files are imported concurrently.
+ * Files larger than {@code maxRangeBytes} are split further into byte ranges of roughly equal size,
+ * which {@link TransactionRecordRangeReader} aligns to line boundaries.
+ * The directory is listed when the job runs rather than when the context starts.
+ * <p>
+ * With a {@link FileLeaseCoordinator} the ranges that are done or leased by another node are left out. The
+ * partitions name their lease, which each worker takes when it starts, so that a node only holds the leases of
+ * the ranges it is importing.
+ */
+public class TransactionFilePartitioner implements Partitioner {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransactionFilePartitioner.class);
+
+	public static final String FILE_NAME_KEY = "fileName";
+	public static final String START_OFFSET_KEY = "startOffset";
+	public static final String END_OFFSET_KEY = "endOffset";
+	public static final String RANGE_COUNT_KEY = "rangeCount";
+	public static final String FILE_KEY_KEY = "fileKey";
+	public static final String LEASE_KEY_KEY = "leaseKey";
+	public static final String LEASE_LOST_KEY = "leaseLost";
+
+	private final String inputDir;
+	private final long maxRangeBytes;
+	private final FileLeaseCoordinator leaseCoordinator;
+
+	public TransactionFilePartitioner(String inputDir, long maxRangeBytes) {
+		this(inputDir, maxRangeBytes, null);
+	}
+
+	public TransactionFilePartitioner(String inputDir, long maxRangeBytes, FileLeaseCoordinator leaseCoordinator) {
+		this.inputDir = inputDir;
+		this.maxRangeBytes = maxRangeBytes;
+		this.leaseCoordinator = leaseCoordinator;
+	}
+
+	@Override
+	public Map<String, ExecutionContext> partition(int gridSize) {
+		File folder = new File(inputDir);
+		File[] files = folder.listFiles((dir, name) -> name.endsWith(".txt"));
+
+		Map<String, ExecutionContext> partitions = new HashMap<>();
+		if (files == null || files.length == 0) {
+			logger.warn("No .txt files found in directory: {}", inputDir);
+			return partitions;
+		}
+
+		// Sort so that partition names are stable across restarts of the same file set
+		Arrays.sort(files, Comparator.comparing(File::getName));
+		int leasedElsewhere = 0;
+		for (File file : files) {
+			long length = file.length();
+			long rangeCount = Math.max(1, (length + maxRangeBytes - 1) / maxRangeBytes);
+			String fileKey = leaseCoordinator == null ? null : FileLeaseCoordinator.fileKey(file);
+			Set<Long> unavailable = leaseCoordinator == null ? Set.of() : leaseCoordinator.unavailableRanges(fileKey);
+			for (long range = 0; range < rangeCount; range++) {
+				long startOffset = length * range / rangeCount;
+				if (unavailable.contains(startOffset)) {
+					leasedElsewhere++;
+					continue;
+				}
+				ExecutionContext context = new ExecutionContext();
+				if (leaseCoordinator != null) {
+					context.putString(FILE_KEY_KEY, fileKey);
+					context.putString(LEASE_KEY_KEY, FileLeaseCoordinator.leaseKey(fileKey, startOffset));
+				}
+				context.putString(FILE_NAME_KEY, file.getAbsolutePath());
+				context.putLong(START_OFFSET_KEY, startOffset);
+				context.putLong(END_OFFSET_KEY, range == rangeCount - 1 ? Long.MAX_VALUE : length * (range + 1) / rangeCount);
+				context.putInt(RANGE_COUNT_KEY, (int) rangeCount);
+				partitions.put("partition" + partitions.size(), context);
+			}
+			if (rangeCount > 1) {
+				logger.info("Split file '{}' ({} bytes) into {} byte ranges", file.getName(), length, rangeCount);
+			}
+		}
+
+		if (leasedElsewhere > 0) {
+			logger.info("Left {} ranges that are leased by other nodes or done", leasedElsewhere);
+		}
+		logger.info("Created {} partitions from {} files in directory: {}", partitions.size(), files.length, inputDir);
+		return partitions;
+	}
+}
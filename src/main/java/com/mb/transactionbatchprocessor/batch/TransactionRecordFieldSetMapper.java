@@ -0,0 +1,30 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.FixedPointAmountParser;
+import com.mb.transactionbatchprocessor.util.StringToLocalDateConverter;
+import com.mb.transactionbatchprocessor.util.StringToLocalTimeConverter;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+/**
+ * Maps the tokenized transaction columns onto a {@link TransactionRecord} without bean reflection.
+ * The amount is parsed exactly into minor units.
+ */
+public class TransactionRecordFieldSetMapper implements FieldSetMapper<TransactionRecord> {
+
+	private final StringToLocalDateConverter dateConverter = new StringToLocalDateConverter();
+	private final StringToLocalTimeConverter timeConverter = new StringToLocalTimeConverter();
+
+	@Override
+	public TransactionRecord mapFieldSet(FieldSet fieldSet) {
+		TransactionRecord transactionRecord = new TransactionRecord();
+		transactionRecord.setAccountNumber(fieldSet.readRawString("accountNumber"));
+		transactionRecord.setTrxAmountMinor(FixedPointAmountParser.parse(fieldSet.readRawString("trxAmount")));
+		transactionRecord.setDescription(fieldSet.readRawString("description"));
+		transactionRecord.setTrxDate(dateConverter.convert(fieldSet.readRawString("trxDate")));
+		transactionRecord.setTrxTime(timeConverter.convert(fieldSet.readRawString("trxTime")));
+		transactionRecord.setCustomerId(fieldSet.readRawString("customerId"));
+		return transactionRecord;
+	}
+}
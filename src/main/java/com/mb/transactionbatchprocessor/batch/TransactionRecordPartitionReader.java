@@ -0,0 +1,56 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+/**
+ * Reads the byte range of a partition with the configured reader, {@link TransactionRecordRangeReader} or
+ * {@link MappedTransactionRecordReader}, or nothing at all when the worker found the range leased by another node.
+ * <p>
+ * The partition reader is a step scoped bean. Spring Batch only looks for listener annotations on a step scoped
+ * reader that is declared with a class, and warns about one declared with an interface, which a choice between
+ * readers would otherwise need.
+ */
+public class TransactionRecordPartitionReader implements ItemStreamReader<TransactionRecord> {
+
+	private final ItemStreamReader<TransactionRecord> delegate;
+
+	public TransactionRecordPartitionReader(ItemStreamReader<TransactionRecord> delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * A reader for a range whose lease another node holds, which returns no records.
+	 */
+	public static TransactionRecordPartitionReader empty() {
+		return new TransactionRecordPartitionReader(null);
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		if (delegate != null) {
+			delegate.open(executionContext);
+		}
+	}
+
+	@Override
+	public TransactionRecord read() throws Exception {
+		return delegate == null ? null : delegate.read();
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		if (delegate != null) {
+			delegate.update(executionContext);
+		}
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		if (delegate != null) {
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.exception.TransactionParseException;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.ResourcePaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.util.ExecutionContextUserSupport;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of one byte range of a transaction file.
+ * <p>
+ * A line belongs to the range that contains its first byte, so a range starting in the middle of a line
+ * skips ahead to the next newline and the last line of a range may run past its end offset. The header
+ * line is only skipped by the range starting at offset 0. The offset of the next unread line is saved in
+ * the {@link ExecutionContext} so that a restarted range resumes from its last committed chunk.
+ */
+public class TransactionRecordRangeReader implements ItemStreamReader<TransactionRecord> {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransactionRecordRangeReader.class);
+
+	private static final String POSITION_KEY = "position";
+	private static final String LINE_COUNT_KEY = "line.count";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ExecutionContextUserSupport executionContextUserSupport = new ExecutionContextUserSupport("transactionRecordRangeReader");
+	private final Resource resource;
+	private final String fileName;
+	private final long startOffset;
+	private final long endOffset;
+	private final LineMapper<TransactionRecord> lineMapper;
+	private final Charset charset = StandardCharsets.UTF_8;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private byte[] lineBuffer = new byte[256];
+	private FileChannel channel;
+	private long bufferOffset;
+	private int bufferPosition;
+	private int bufferLimit;
+	private long lineCount;
+	private long lineOffset;
+	private int lineLength;
+
+	public TransactionRecordRangeReader(Resource resource, long startOffset, long endOffset,
+										LineMapper<TransactionRecord> lineMapper) {
+		this.resource = resource;
+		this.fileName = ResourcePaths.absolutePath(resource);
+		this.startOffset = startOffset;
+		this.endOffset = endOffset;
+		this.lineMapper = lineMapper;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		try {
+			channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+
+			if (executionContext.containsKey(executionContextUserSupport.getKey(POSITION_KEY))) {
+				// The saved position is always the start of a line, so no realignment is needed
+				seek(executionContext.getLong(executionContextUserSupport.getKey(POSITION_KEY)));
+				lineCount = executionContext.getLong(executionContextUserSupport.getKey(LINE_COUNT_KEY));
+				logger.info("Resuming range [{}, {}) of '{}' at offset {}", startOffset, endOffset, resource, position());
+			} else if (startOffset == 0) {
+				seek(0);
+				skipLine();  // Skip the header row
+				lineCount = 1;
+			} else {
+				// Align to the first line that starts inside this range
+				seek(startOffset - 1);
+				skipLine();
+			}
+		} catch (IOException e) {
+			throw new ItemStreamException("Failed to open range [" + startOffset + ", " + endOffset + ") of " + resource, e);
+		}
+	}
+
+	@Override
+	public TransactionRecord read() throws Exception {
+		String line = readLine();
+		if (line == null) {
+			return null;
+		}
+
+		lineCount++;
+		TransactionRecord transactionRecord;
+		try {
+			transactionRecord = lineMapper.mapLine(line, (int) lineCount);
+		} catch (Exception e) {
+			throw new TransactionParseException("Parsing error at line: " + lineCount + " (byte offset " + lineOffset
+					+ ") in resource=[" + resource.getDescription() + "], input=[" + line + "]", e, line, lineNumber(), fileName, lineOffset);
+		}
+		transactionRecord.setSourceFile(fileName);
+		transactionRecord.setSourceOffset(lineOffset);
+		transactionRecord.setSourceLine(lineNumber());
+		transactionRecord.setSourceLength(lineLength);
+		return transactionRecord;
+	}
+
+	/**
+	 * Line numbers only count from the start of the file for the range at offset 0.
+	 */
+	private int lineNumber() {
+		return startOffset == 0 ? (int) lineCount : -1;
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		executionContext.putLong(executionContextUserSupport.getKey(POSITION_KEY), position());
+		executionContext.putLong(executionContextUserSupport.getKey(LINE_COUNT_KEY), lineCount);
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new ItemStreamException("Failed to close " + resource, e);
+		} finally {
+			channel = null;
+		}
+	}
+
+	/**
+	 * Returns the next line owned by this range without its line terminator, or {@code null} when the range is exhausted.
+	 */
+	private String readLine() throws IOException {
+		lineOffset = position();
+		if (lineOffset >= endOffset) {
+			return null;
+		}
+
+		int length = 0;
+		while (true) {
+			if (bufferPosition == bufferLimit && !fill()) {
+				if (length == 0) {
+					return null;
+				}
+				break;
+			}
+
+			int newline = indexOfNewline();
+			int end = newline < 0 ? bufferLimit : newline;
+			int count = end - bufferPosition;
+			if (length + count > lineBuffer.length) {
+				lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, length + count));
+			}
+			System.arraycopy(buffer, bufferPosition, lineBuffer, length, count);
+			length += count;
+
+			if (newline >= 0) {
+				bufferPosition = newline + 1;
+				break;
+			}
+			bufferPosition = bufferLimit;
+		}
+
+		if (length > 0 && lineBuffer[length - 1] == '\r') {
+			length--;
+		}
+		lineLength = length;
+		return new String(lineBuffer, 0, length, charset);
+	}
+
+	private void skipLine() throws IOException {
+		while (bufferPosition < bufferLimit || fill()) {
+			int newline = indexOfNewline();
+			if (newline >= 0) {
+				bufferPosition = newline + 1;
+				return;
+			}
+			bufferPosition = bufferLimit;
+		}
+	}
+
+	private int indexOfNewline() {
+		for (int i = bufferPosition; i < bufferLimit; i++) {
+			if (buffer[i] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private boolean fill() throws IOException {
+		bufferOffset += bufferLimit;
+		bufferPosition = 0;
+		bufferLimit = 0;
+
+		int read = channel.read(ByteBuffer.wrap(buffer), bufferOffset);
+		if (read <= 0) {
+			return false;
+		}
+		bufferLimit = read;
+		return true;
+	}
+
+	private void seek(long offset) {
+		bufferOffset = offset;
+		bufferPosition = 0;
+		bufferLimit = 0;
+	}
+
+	private long position() {
+		return bufferOffset + bufferPosition;
+	}
+}
@@ -0,0 +1,83 @@
+package com.mb.transactionbatchprocessor.batch;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.MinorUnitsAttributeConverter;
+import org.springframework.batch.item.database.ItemPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Binds the columns of a {@link TransactionRecord} insert without bean reflection.
+ * <p>
+ * With natural keys the {@code natural_key} column is bound as well, and {@link #insertSql()} turns a row whose
+ * natural key already exists into an update that bumps its {@code version}.
+ */
+public class TransactionRecordStatementSetter implements ItemPreparedStatementSetter<TransactionRecord> {
+
+	public static final String COLUMNS = "account_number, trx_amount, description, trx_date, trx_time, customer_id, version";
+	public static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+	public static final int COLUMN_COUNT = 7;
+	public static final String INSERT_SQL = "INSERT INTO transaction_record (" + COLUMNS + ") VALUES " + ROW_PLACEHOLDERS;
+
+	public static final String NATURAL_KEY_COLUMNS = COLUMNS + ", natural_key";
+	public static final String NATURAL_KEY_ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+	public static final String UPSERT_CLAUSE = " ON DUPLICATE KEY UPDATE version = version + 1";
+	public static final String UPSERT_SQL = "INSERT INTO transaction_record (" + NATURAL_KEY_COLUMNS + ") VALUES "
+			+ NATURAL_KEY_ROW_PLACEHOLDERS + UPSERT_CLAUSE;
+
+	private final boolean naturalKey;
+
+	public TransactionRecordStatementSetter() {
+		this(false);
+	}
+
+	public TransactionRecordStatementSetter(boolean naturalKey) {
+		this.naturalKey = naturalKey;
+	}
+
+	public String insertSql() {
+		return naturalKey ? UPSERT_SQL : INSERT_SQL;
+	}
+
+	public String columns() {
+		return naturalKey ? NATURAL_KEY_COLUMNS : COLUMNS;
+	}
+
+	public String rowPlaceholders() {
+		return naturalKey ? NATURAL_KEY_ROW_PLACEHOLDERS : ROW_PLACEHOLDERS;
+	}
+
+	public int columnCount() {
+		return naturalKey ? COLUMN_COUNT + 1 : COLUMN_COUNT;
+	}
+
+	/**
+	 * The clause appended to a multi-row insert, empty without natural keys.
+	 */
+	public String upsertClause() {
+		return naturalKey ? UPSERT_CLAUSE : "";
+	}
+
+	@Override
+	public void setValues(TransactionRecord transactionRecord, PreparedStatement ps) throws SQLException {
+		setValues(transactionRecord, ps, 1);
+	}
+
+	/**
+	 * Binds one row starting at parameter {@code firstIndex}, so that several rows can share a multi-row statement.
+	 */
+	public void setValues(TransactionRecord transactionRecord, PreparedStatement ps, int firstIndex) throws SQLException {
+		ps.setString(firstIndex, transactionRecord.getAccountNumber());
+		// Amounts only become BigDecimal here, at the JDBC boundary
+		ps.setBigDecimal(firstIndex + 1, MinorUnitsAttributeConverter.toDecimal(transactionRecord.getTrxAmountMinor()));
+		ps.setString(firstIndex + 2, transactionRecord.getDescription());
+		ps.setObject(firstIndex + 3, transactionRecord.getTrxDate());
+		ps.setObject(firstIndex + 4, transactionRecord.getTrxTime());
+		ps.setString(firstIndex + 5, transactionRecord.getCustomerId());
+		ps.setInt(firstIndex + 6, transactionRecord.getVersion());
+		if (naturalKey) {
+			ps.setString(firstIndex + 7, transactionRecord.getNaturalKey());
+		}
+	}
+}
@@ -1,7 +1,31 @@
 package com.mb.transactionbatchprocessor.exception;
 
+import com.mb.transactionbatchprocessor.validation.ValidationError;
+
 public class InvalidTransactionRecordException extends RuntimeException {
+
+	private final ValidationError error;
+
 	public InvalidTransactionRecordException(String message) {
 		super(message);
+		this.error = null;
+	}
+
+	/**
+	 * A record rejected by a validation rule. Invalid records are expected and skipped, so the exception has no
+	 * stack trace and its message is only built when it is asked for.
+	 */
+	public InvalidTransactionRecordException(ValidationError error) {
+		super(null, null, false, false);
+		this.error = error;
+	}
+
+	public ValidationError getError() {
+		return error;
+	}
+
+	@Override
+	public String getMessage() {
+		return error == null ? super.getMessage() : error.name() + ": " + error.getDescription();
 	}
 }
@@ -0,0 +1,28 @@
+package com.mb.transactionbatchprocessor.exception;
+
+import org.springframework.batch.item.file.FlatFileParseException;
+
+/**
+ * A line that could not be parsed, together with the input file it came from and, if known, the byte offset
+ * at which the line starts. The line number is -1 when it is not known either.
+ */
+public class TransactionParseException extends FlatFileParseException {
+
+	private final String fileName;
+	private final long lineOffset;
+
+	public TransactionParseException(String message, Throwable cause, String input, int lineNumber, String fileName,
+									 long lineOffset) {
+		super(message, cause, input, lineNumber);
+		this.fileName = fileName;
+		this.lineOffset = lineOffset;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public long getLineOffset() {
+		return lineOffset;
+	}
+}
@@ -0,0 +1,44 @@
+package com.mb.transactionbatchprocessor.model;
+
+import com.mb.transactionbatchprocessor.util.MinorUnitsAttributeConverter;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * The total amount and number of the transactions of one account on one day, kept up to date by
+ * {@code DailyAccountSummaryAggregator} with {@code transaction.daily-summary.enabled=true}.
+ */
+@Entity
+@IdClass(DailyAccountSummary.Key.class)
+@Data
+@NoArgsConstructor
+public class DailyAccountSummary {
+
+	@Id
+	private String accountNumber;
+
+	@Id
+	private LocalDate trxDate;
+
+	// Amount in minor units (e.g. cents), stored as DECIMAL(19,2) like transaction_record.trx_amount
+	@Column(name = "total_amount", precision = 19, scale = 2, nullable = false)
+	@Convert(converter = MinorUnitsAttributeConverter.class)
+	private long totalAmountMinor;
+
+	@Column(nullable = false)
+	private long trxCount;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Key implements Serializable {
+
+		private String accountNumber;
+		private LocalDate trxDate;
+	}
+}
@@ -0,0 +1,52 @@
+package com.mb.transactionbatchprocessor.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A lease on one byte range of an input file, or on moving the file once all its ranges are done, held by one
+ * node with {@code transaction.lease.enabled=true}. Managed by {@code FileLeaseCoordinator}.
+ */
+@Entity
+@Table(indexes = {
+		@Index(name = "ix_file_lease_file_key", columnList = "file_key"),
+		@Index(name = "ix_file_lease_owner_node", columnList = "owner_node")
+})
+@Data
+@NoArgsConstructor
+public class FileLease {
+
+	@Id
+	@Column(length = 512)
+	private String leaseKey;
+
+	// File name, size and modification time, so that a file delivered again under the same name is a new file
+	@Column(length = 512, nullable = false)
+	private String fileKey;
+
+	// -1 for the lease on moving the file
+	@Column(nullable = false)
+	private long rangeStart;
+
+	@Column(nullable = false)
+	private int rangeCount;
+
+	@Column(length = 128, nullable = false)
+	private String ownerNode;
+
+	// LEASED, FREE or DONE
+	@Column(length = 8, nullable = false)
+	private String status;
+
+	// Epoch millis; the time the lease was done for a DONE lease
+	@Column(nullable = false)
+	private long expiresAt;
+
+	private Long jobExecutionId;
+
+	private Long stepExecutionId;
+
+	@Column(nullable = false)
+	private long skipCount;
+}
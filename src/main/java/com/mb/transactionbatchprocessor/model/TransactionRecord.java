@@ -1,13 +1,17 @@
 package com.mb.transactionbatchprocessor.model;
 
+import com.mb.transactionbatchprocessor.util.MinorUnitsAttributeConverter;
+import com.mb.transactionbatchprocessor.util.NaturalKeys;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
+@Table(indexes = @Index(name = "ux_transaction_record_natural_key", columnList = "natural_key", unique = true))
 @Data
 @NoArgsConstructor
 public class TransactionRecord {
@@ -17,7 +21,12 @@ public class TransactionRecord {
 	private Long id;
 
 	private String accountNumber;
-	private Double trxAmount;
+
+	// Amount in minor units (e.g. cents), stored as DECIMAL(19,2)
+	@Column(name = "trx_amount", precision = 19, scale = 2, nullable = false)
+	@Convert(converter = MinorUnitsAttributeConverter.class)
+	private long trxAmountMinor;
+
 	private String description;
 	private LocalDate trxDate;
 	private LocalTime trxTime;
@@ -26,6 +35,28 @@ public class TransactionRecord {
 	@Version
 	private Integer version;
 
+	// Hash of the business fields, see NaturalKeys; only set with transaction.natural-key.enabled=true
+	@Column(name = "natural_key", length = NaturalKeys.LENGTH)
+	private String naturalKey;
+
+	// Where the record was read from: the absolute path of the input file, used to route that file on errors,
+	// and the byte offset, length and line number of its line where the reader knows them (-1 otherwise)
+	@Transient
+	@EqualsAndHashCode.Exclude
+	private String sourceFile;
+
+	@Transient
+	@EqualsAndHashCode.Exclude
+	private long sourceOffset = -1;
+
+	@Transient
+	@EqualsAndHashCode.Exclude
+	private int sourceLine = -1;
+
+	@Transient
+	@EqualsAndHashCode.Exclude
+	private int sourceLength = -1;
+
 	@PrePersist
 	@PreUpdate
 	protected void onCreate() {
@@ -0,0 +1,163 @@
+package com.mb.transactionbatchprocessor.reference;
+
+import com.mb.transactionbatchprocessor.aspect.PerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Looks up the customer id of an account in the {@link ReferenceIndex} of a reference snapshot, through a
+ * bounded off-heap table of recently used accounts.
+ * <p>
+ * The hot table is direct-mapped: each account has exactly one slot, and a lookup that misses replaces whatever
+ * the slot held, so the table never grows beyond the configured number of entries and keeps the accounts that
+ * are looked up most often. It serves repeated accounts from a few megabytes instead of from pages of the index
+ * spread over gigabytes. Unknown accounts are cached as well. Lookups allocate nothing and never block;
+ * concurrent lookups may overwrite each other's slots, and each slot carries a check word so that a torn entry is
+ * treated as a miss.
+ * <p>
+ * The snapshot is loaded on first use. Before each job the cache checks whether the snapshot has changed, and if
+ * so maps the index of the new snapshot, building it if needed, and starts with an empty hot table. Lookups that
+ * are under way finish against the previous index. If the new snapshot cannot be loaded, the previous one stays
+ * in use.
+ */
+public class ReferenceDataCache implements JobExecutionListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+	private static final int HOT_SLOT_BYTES = 24;
+
+	private final Path snapshot;
+	private final int hotEntries;
+	private volatile State state;
+
+	/**
+	 * @param hotEntries the size of the hot table, rounded up to a power of two; 0 disables it
+	 */
+	public ReferenceDataCache(Path snapshot, int hotEntries) {
+		this.snapshot = snapshot;
+		this.hotEntries = hotEntries <= 0 ? 0 : Integer.highestOneBit(Math.max(1, hotEntries - 1)) << 1;
+	}
+
+	@Override
+	public void beforeJob(JobExecution jobExecution) {
+		try {
+			reload();
+		} catch (IOException e) {
+			if (state == null) {
+				throw new UncheckedIOException("Failed to load the reference snapshot " + snapshot, e);
+			}
+			logger.error("Failed to reload the reference snapshot '{}', keeping the previous one. Error: {}", snapshot, e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the snapshot if it has changed since it was last loaded.
+	 *
+	 * @return whether a new snapshot was loaded
+	 */
+	public synchronized boolean reload() throws IOException {
+		long size = Files.size(snapshot);
+		long modified = Files.getLastModifiedTime(snapshot).toMillis();
+		State current = state;
+		if (current != null && current.snapshotSize == size && current.snapshotModified == modified) {
+			return false;
+		}
+		ReferenceIndex index = ReferenceIndex.open(snapshot);
+		state = new State(index, hotEntries, size, modified);
+		logger.info("Loaded {} reference accounts from '{}'{}", index.size(), snapshot,
+				current == null ? "" : ", replacing the previous snapshot");
+		return true;
+	}
+
+	/**
+	 * The key of the customer id of the account, as from {@link ReferenceIndex#encode}, {@code 0} if the account
+	 * has no customer id, or {@link ReferenceIndex#NOT_FOUND} if the account is not in the snapshot.
+	 */
+	@PerRecord
+	public long customerKey(String accountNumber) {
+		long accountKey = ReferenceIndex.encode(accountNumber);
+		if (accountKey == 0) {
+			return ReferenceIndex.NOT_FOUND;
+		}
+		State current = state();
+		ByteBuffer hot = current.hot;
+		if (hot == null) {
+			return current.index.get(accountKey);
+		}
+
+		int position = (int) ((ReferenceIndex.mix(accountKey) >>> 32) & current.hotMask) * HOT_SLOT_BYTES;
+		long key = hot.getLong(position);
+		long customerKey = hot.getLong(position + 8);
+		if (key == accountKey && hot.getLong(position + 16) == check(key, customerKey)) {
+			return customerKey;
+		}
+		customerKey = current.index.get(accountKey);
+		hot.putLong(position, accountKey);
+		hot.putLong(position + 8, customerKey);
+		hot.putLong(position + 16, check(accountKey, customerKey));
+		return customerKey;
+	}
+
+	@PerRecord
+	public boolean isKnownAccount(String accountNumber) {
+		return customerKey(accountNumber) != ReferenceIndex.NOT_FOUND;
+	}
+
+	/**
+	 * The customer id of the account in the snapshot, or {@code null} if it has none or is unknown.
+	 */
+	@PerRecord
+	public String customerId(String accountNumber) {
+		return ReferenceIndex.decode(customerKey(accountNumber));
+	}
+
+	public long size() {
+		return state().index.size();
+	}
+
+	private State state() {
+		State current = state;
+		if (current != null) {
+			return current;
+		}
+		synchronized (this) {
+			if (state == null) {
+				try {
+					reload();
+				} catch (IOException e) {
+					throw new UncheckedIOException("Failed to load the reference snapshot " + snapshot, e);
+				}
+			}
+			return state;
+		}
+	}
+
+	private static long check(long key, long value) {
+		return ReferenceIndex.mix(key ^ Long.rotateLeft(value, 32)) ^ 0x5bd1e9955bd1e995L;
+	}
+
+	private static final class State {
+
+		private final ReferenceIndex index;
+		private final ByteBuffer hot;
+		private final int hotMask;
+		private final long snapshotSize;
+		private final long snapshotModified;
+
+		State(ReferenceIndex index, int hotEntries, long snapshotSize, long snapshotModified) {
+			this.index = index;
+			this.hot = hotEntries == 0 ? null : ByteBuffer.allocateDirect(hotEntries * HOT_SLOT_BYTES);
+			this.hotMask = hotEntries - 1;
+			this.snapshotSize = snapshotSize;
+			this.snapshotModified = snapshotModified;
+		}
+	}
+}
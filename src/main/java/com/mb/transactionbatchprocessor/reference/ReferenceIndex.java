@@ -0,0 +1,261 @@
+package com.mb.transactionbatchprocessor.reference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only map from account number to customer id, kept in a memory-mapped file so that tens of millions of
+ * accounts take no heap.
+ * <p>
+ * The index is built from a pipe-delimited snapshot with a header row and {@code ACCOUNT_NUMBER|CUSTOMER_ID} lines,
+ * into {@code <snapshot>.idx} next to it. The index records the size and modification time of the snapshot it
+ * was built from, and is rebuilt only when the snapshot changes. It is an open-addressing hash table of 16-byte
+ * slots, each holding an account key and a customer key as produced by {@link #encode}, at a load factor of at
+ * most one half, so a lookup probes one or two slots on average and allocates nothing.
+ * <p>
+ * Keys are exact encodings of numbers of 1 to 17 digits, leading zeros included. Snapshot lines whose account
+ * number or customer id are not such numbers are skipped, and an account that appears more than once takes the
+ * customer id of its last line. Instances are immutable and thread-safe.
+ */
+public final class ReferenceIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReferenceIndex.class);
+
+	/**
+	 * Returned by {@link #get} for an account that is not in the snapshot.
+	 */
+	public static final long NOT_FOUND = -1;
+
+	public static final String INDEX_SUFFIX = ".idx";
+
+	private static final long MAGIC = 0x5452585245464944L;  // "TRXREFID"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+	private static final int SLOT_BYTES = 16;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final int SLOTS_PER_SEGMENT_SHIFT = SEGMENT_SHIFT - 4;
+	private static final long SLOT_IN_SEGMENT_MASK = (1L << SLOTS_PER_SEGMENT_SHIFT) - 1;
+	private static final int MAX_DIGITS = 17;
+	private static final long DIGITS_MASK = (1L << 57) - 1;
+
+	private final ByteBuffer[] segments;
+	private final long mask;
+	private final long size;
+	private final long snapshotSize;
+	private final long snapshotModified;
+
+	private ReferenceIndex(ByteBuffer[] segments, long capacity, long size, long snapshotSize, long snapshotModified) {
+		this.segments = segments;
+		this.mask = capacity - 1;
+		this.size = size;
+		this.snapshotSize = snapshotSize;
+		this.snapshotModified = snapshotModified;
+	}
+
+	/**
+	 * Maps the index of the snapshot, building it first if it is missing or was built from another version of
+	 * the snapshot.
+	 */
+	public static ReferenceIndex open(Path snapshot) throws IOException {
+		Path indexPath = snapshot.resolveSibling(snapshot.getFileName() + INDEX_SUFFIX);
+		long snapshotSize = Files.size(snapshot);
+		long snapshotModified = Files.getLastModifiedTime(snapshot).toMillis();
+		if (Files.exists(indexPath)) {
+			ReferenceIndex index = map(indexPath);
+			if (index != null && index.snapshotSize == snapshotSize && index.snapshotModified == snapshotModified) {
+				logger.info("Mapped the reference index '{}' of {} accounts", indexPath, index.size);
+				return index;
+			}
+		}
+		build(snapshot, indexPath, snapshotSize, snapshotModified);
+		ReferenceIndex index = map(indexPath);
+		if (index == null) {
+			throw new IOException("Failed to map the reference index that was just built: " + indexPath);
+		}
+		return index;
+	}
+
+	/**
+	 * The customer key of the account key, {@code 0} if the account has no customer id, or {@link #NOT_FOUND}.
+	 */
+	public long get(long accountKey) {
+		if (accountKey == 0) {
+			return NOT_FOUND;
+		}
+		for (long slot = mix(accountKey) & mask; ; slot = (slot + 1) & mask) {
+			ByteBuffer segment = segments[(int) (slot >>> SLOTS_PER_SEGMENT_SHIFT)];
+			int position = (int) ((slot & SLOT_IN_SEGMENT_MASK) * SLOT_BYTES);
+			long key = segment.getLong(position);
+			if (key == accountKey) {
+				return segment.getLong(position + 8);
+			}
+			if (key == 0) {
+				return NOT_FOUND;
+			}
+		}
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * The key of a number of 1 to 17 digits: its value, with its length in the bits above, so that {@code 042}
+	 * and {@code 42} differ. Any other text, {@code null} included, has the key {@code 0}.
+	 */
+	public static long encode(CharSequence digits) {
+		if (digits == null) {
+			return 0;
+		}
+		int length = digits.length();
+		if (length == 0 || length > MAX_DIGITS) {
+			return 0;
+		}
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			char c = digits.charAt(i);
+			if (c < '0' || c > '9') {
+				return 0;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return ((long) length << 57) | value;
+	}
+
+	/**
+	 * The digits of a key from {@link #encode}, or {@code null} for {@code 0}.
+	 */
+	public static String decode(long key) {
+		if (key <= 0) {
+			return null;
+		}
+		int length = (int) (key >>> 57);
+		StringBuilder digits = new StringBuilder(length).append(key & DIGITS_MASK);
+		while (digits.length() < length) {
+			digits.insert(0, '0');
+		}
+		return digits.toString();
+	}
+
+	static long mix(long key) {
+		key *= 0x9e3779b97f4a7c15L;
+		return key ^ (key >>> 29);
+	}
+
+	/**
+	 * Maps an index file, or returns {@code null} if it is not a complete index of this version.
+	 */
+	private static ReferenceIndex map(Path indexPath) throws IOException {
+		try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES) {
+				return null;
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			long capacity = header.getLong(24);
+			if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION
+					|| Long.bitCount(capacity) != 1 || channel.size() != HEADER_BYTES + capacity * SLOT_BYTES) {
+				return null;
+			}
+			ByteBuffer[] segments = mapSegments(channel, FileChannel.MapMode.READ_ONLY, capacity);
+			return new ReferenceIndex(segments, capacity, header.getLong(32), header.getLong(40), header.getLong(48));
+		}
+	}
+
+	private static ByteBuffer[] mapSegments(FileChannel channel, FileChannel.MapMode mode, long capacity) throws IOException {
+		long bytes = capacity * SLOT_BYTES;
+		ByteBuffer[] segments = new ByteBuffer[(int) ((bytes + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+		for (int i = 0; i < segments.length; i++) {
+			long offset = (long) i << SEGMENT_SHIFT;
+			segments[i] = channel.map(mode, HEADER_BYTES + offset, Math.min(1L << SEGMENT_SHIFT, bytes - offset));
+		}
+		return segments;
+	}
+
+	private static void build(Path snapshot, Path indexPath, long snapshotSize, long snapshotModified) throws IOException {
+		long start = System.nanoTime();
+		long lines = 0;
+		try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+			reader.readLine();  // Skip the header row
+			while (reader.readLine() != null) {
+				lines++;
+			}
+		}
+		long capacity = Math.max(16, Long.highestOneBit(Math.max(1, lines * 2 - 1)) << 1);
+
+		Path temp = indexPath.resolveSibling("." + indexPath.getFileName() + ".tmp");
+		try {
+			long size = 0;
+			long skipped = 0;
+			try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw")) {
+				file.setLength(0);
+				file.setLength(HEADER_BYTES + capacity * SLOT_BYTES);
+				FileChannel channel = file.getChannel();
+				ByteBuffer[] segments = mapSegments(channel, FileChannel.MapMode.READ_WRITE, capacity);
+				try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+					reader.readLine();
+					for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+						int separator = line.indexOf('|');
+						long accountKey = encode(separator < 0 ? line : line.substring(0, separator));
+						String customerId = separator < 0 ? "" : line.substring(separator + 1).trim();
+						long customerKey = customerId.isEmpty() ? 0 : encode(customerId);
+						if (accountKey == 0 || (customerKey == 0 && !customerId.isEmpty())) {
+							skipped++;
+							continue;
+						}
+						if (put(segments, capacity - 1, accountKey, customerKey)) {
+							size++;
+						}
+					}
+				}
+				for (ByteBuffer segment : segments) {
+					((MappedByteBuffer) segment).force();
+				}
+
+				MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+				header.putLong(0, MAGIC);
+				header.putInt(8, VERSION);
+				header.putLong(24, capacity);
+				header.putLong(32, size);
+				header.putLong(40, snapshotSize);
+				header.putLong(48, snapshotModified);
+				header.force();
+			}
+			Files.move(temp, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			if (skipped > 0) {
+				logger.warn("Skipped {} lines of '{}' that do not hold an account number and customer id of 1 to {} digits",
+						skipped, snapshot, MAX_DIGITS);
+			}
+			logger.info("Built the reference index '{}' of {} accounts in {} ms", indexPath, size, (System.nanoTime() - start) / 1_000_000);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Adds or replaces the entry, returning whether the account is new.
+	 */
+	private static boolean put(ByteBuffer[] segments, long mask, long accountKey, long customerKey) {
+		for (long slot = mix(accountKey) & mask; ; slot = (slot + 1) & mask) {
+			ByteBuffer segment = segments[(int) (slot >>> SLOTS_PER_SEGMENT_SHIFT)];
+			int position = (int) ((slot & SLOT_IN_SEGMENT_MASK) * SLOT_BYTES);
+			long key = segment.getLong(position);
+			if (key == 0 || key == accountKey) {
+				segment.putLong(position, accountKey);
+				segment.putLong(position + 8, customerKey);
+				return key == 0;
+			}
+		}
+	}
+}
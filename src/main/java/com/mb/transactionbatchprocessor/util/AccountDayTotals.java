@@ -0,0 +1,159 @@
+package com.mb.transactionbatchprocessor.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running amount totals and transaction counts per account and day, in amount minor units.
+ * <p>
+ * The totals live in an open-addressing hash table of primitive arrays, so adding a transaction allocates
+ * nothing once its account has been seen. Each account number is given a small id the first time it is added,
+ * and the table is keyed by that id and the epoch day packed into one {@code long}. Each entry takes about
+ * {@link #BYTES_PER_ENTRY} bytes at the maximum load factor. The class is not thread-safe.
+ */
+public class AccountDayTotals {
+
+	/**
+	 * Receives the totals in order of account number, then day.
+	 */
+	@FunctionalInterface
+	public interface Consumer {
+		void accept(String accountNumber, long epochDay, long amountMinor, long count) throws IOException;
+	}
+
+	public static final int BYTES_PER_ENTRY = 48;
+
+	private static final long EMPTY = -1L;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final Map<String, Integer> accountIds = new HashMap<>();
+	private final List<String> accounts = new ArrayList<>();
+
+	private long[] keys;
+	private long[] amounts;
+	private long[] counts;
+	private int size;
+
+	public AccountDayTotals() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the account number is null, which could not be sorted
+	 */
+	public void add(String accountNumber, long epochDay, long amountMinor) {
+		if (accountNumber == null) {
+			throw new IllegalArgumentException("The account number is required");
+		}
+		Integer accountId = accountIds.get(accountNumber);
+		if (accountId == null) {
+			accountId = accounts.size();
+			accountIds.put(accountNumber, accountId);
+			accounts.add(accountNumber);
+		}
+
+		long key = ((long) accountId << 32) | (epochDay & 0xffffffffL);
+		int slot = slot(key);
+		if (keys[slot] == EMPTY) {
+			keys[slot] = key;
+			if (++size > keys.length / 2) {
+				grow();
+				slot = slot(key);
+			}
+		}
+		amounts[slot] += amountMinor;
+		counts[slot]++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Passes every total to the consumer, sorted by account number and then day, so that sorted runs of totals
+	 * can be merged.
+	 */
+	public void forEachSorted(Consumer consumer) throws IOException {
+		String[] sortedAccounts = accounts.toArray(new String[0]);
+		Arrays.sort(sortedAccounts);
+		int[] rankById = new int[sortedAccounts.length];
+		int[] idByRank = new int[sortedAccounts.length];
+		for (int rank = 0; rank < sortedAccounts.length; rank++) {
+			int accountId = accountIds.get(sortedAccounts[rank]);
+			rankById[accountId] = rank;
+			idByRank[rank] = accountId;
+		}
+
+		// Sort keys that hold the account's rank instead of its id, flipping the sign bit of the day so that
+		// days before 1970 sort first
+		long[] order = new long[size];
+		int next = 0;
+		for (long key : keys) {
+			if (key != EMPTY) {
+				order[next++] = ((long) rankById[(int) (key >>> 32)] << 32) | (((int) key ^ Integer.MIN_VALUE) & 0xffffffffL);
+			}
+		}
+		Arrays.sort(order);
+
+		for (long sortKey : order) {
+			int rank = (int) (sortKey >>> 32);
+			int epochDay = (int) sortKey ^ Integer.MIN_VALUE;
+			int slot = slot(((long) idByRank[rank] << 32) | (epochDay & 0xffffffffL));
+			consumer.accept(sortedAccounts[rank], epochDay, amounts[slot], counts[slot]);
+		}
+	}
+
+	public void clear() {
+		accountIds.clear();
+		accounts.clear();
+		allocate(INITIAL_CAPACITY);
+		size = 0;
+	}
+
+	/**
+	 * The slot holding the key, or the empty slot where it belongs.
+	 */
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) mix(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static long mix(long key) {
+		key *= 0x9e3779b97f4a7c15L;
+		return key ^ (key >>> 29);
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		long[] oldAmounts = amounts;
+		long[] oldCounts = counts;
+		allocate(oldKeys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				amounts[slot] = oldAmounts[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		amounts = new long[capacity];
+		counts = new long[capacity];
+	}
+}
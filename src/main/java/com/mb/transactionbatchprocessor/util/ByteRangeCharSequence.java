@@ -0,0 +1,44 @@
+package com.mb.transactionbatchprocessor.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A reusable view of a byte range as ASCII characters, so that field parsers can read a mapped
+ * buffer in place. The view is repointed for each field and must not be retained.
+ */
+public final class ByteRangeCharSequence implements CharSequence {
+
+	private ByteBuffer buffer;
+	private int offset;
+	private int length;
+
+	public ByteRangeCharSequence wrap(ByteBuffer buffer, int start, int end) {
+		this.buffer = buffer;
+		this.offset = start;
+		this.length = end - start;
+		return this;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) (buffer.get(offset + index) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		buffer.get(offset + start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length).toString();
+	}
+}
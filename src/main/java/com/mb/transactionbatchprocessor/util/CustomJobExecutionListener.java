@@ -7,27 +7,46 @@ import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class CustomJobExecutionListener implements JobExecutionListener {
 
 	private static final Logger logger = LoggerFactory.getLogger(CustomJobExecutionListener.class);
 
+	// Partition worker executions are named "<workerStep>:<partition>" and already roll up into their manager step
+	private static final String PARTITION_SEPARATOR = ":";
+
 	@Override
 	public void beforeJob(JobExecution jobExecution) {
 	}
 
 	@Override
 	public void afterJob(JobExecution jobExecution) {
-		long successCount = jobExecution.getStepExecutions().stream()
+		List<StepExecution> stepExecutions = jobExecution.getStepExecutions().stream()
+				.filter(stepExecution -> !stepExecution.getStepName().contains(PARTITION_SEPARATOR))
+				.toList();
+
+		long readCount = stepExecutions.stream()
+				.mapToLong(StepExecution::getReadCount)
+				.sum();
+
+		long successCount = stepExecutions.stream()
 				.mapToLong(StepExecution::getWriteCount)
 				.sum();
 
-		long failureCount = jobExecution.getStepExecutions().stream()
+		long failureCount = stepExecutions.stream()
 				.mapToLong(stepExecution -> stepExecution.getProcessSkipCount() + stepExecution.getWriteSkipCount())
 				.sum();
 
+		long readSkipCount = stepExecutions.stream()
+				.mapToLong(StepExecution::getReadSkipCount)
+				.sum();
+
 		logger.info("Job completed with the following results:");
+		logger.info("Read records: {}", readCount);
 		logger.info("Successfully processed records: {}", successCount);
 		logger.info("Failed records: {}", failureCount);
+		logger.info("Unparseable lines: {}", readSkipCount);
 	}
 }
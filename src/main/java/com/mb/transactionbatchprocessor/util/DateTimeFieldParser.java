@@ -0,0 +1,103 @@
+package com.mb.transactionbatchprocessor.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parses {@code yyyy-MM-dd} dates and {@code HH:mm:ss} times directly from a character range.
+ * <p>
+ * Digits are decoded in place without creating a String, and recently seen dates are kept in a small
+ * direct-mapped cache because a feed file only covers a few distinct days. Input in any other layout, or
+ * with invalid values, falls back to the ISO formatters so that accepted values and errors stay identical
+ * to {@link LocalDate#parse} and {@link LocalTime#parse}.
+ * <p>
+ * The cache only holds immutable {@link LocalDate} instances and every hit is verified, so a parser can be
+ * shared between threads; a racing update can only cost a cache miss.
+ */
+public class DateTimeFieldParser {
+
+	private static final int DATE_LENGTH = 10;
+	private static final int TIME_LENGTH = 8;
+	private static final int CACHE_SIZE = 32;
+
+	private final LocalDate[] dateCache = new LocalDate[CACHE_SIZE];
+
+	public LocalDate parseDate(CharSequence text) {
+		return parseDate(text, 0, text.length());
+	}
+
+	public LocalDate parseDate(CharSequence text, int start, int end) {
+		if (end - start != DATE_LENGTH || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') {
+			return parseIsoDate(text, start, end);
+		}
+
+		int year = digits(text, start, 4);
+		int month = digits(text, start + 5, 2);
+		int day = digits(text, start + 8, 2);
+		if (year < 0 || month < 0 || day < 0) {
+			return parseIsoDate(text, start, end);
+		}
+
+		int slot = (year * 372 + month * 31 + day) & (CACHE_SIZE - 1);
+		LocalDate cached = dateCache[slot];
+		if (cached != null && cached.getDayOfMonth() == day && cached.getMonthValue() == month && cached.getYear() == year) {
+			return cached;
+		}
+
+		try {
+			LocalDate date = LocalDate.of(year, month, day);
+			dateCache[slot] = date;
+			return date;
+		} catch (DateTimeException e) {
+			return parseIsoDate(text, start, end);
+		}
+	}
+
+	public LocalTime parseTime(CharSequence text) {
+		return parseTime(text, 0, text.length());
+	}
+
+	public LocalTime parseTime(CharSequence text, int start, int end) {
+		if (end - start != TIME_LENGTH || text.charAt(start + 2) != ':' || text.charAt(start + 5) != ':') {
+			return parseIsoTime(text, start, end);
+		}
+
+		int hour = digits(text, start, 2);
+		int minute = digits(text, start + 3, 2);
+		int second = digits(text, start + 6, 2);
+		if (hour < 0 || minute < 0 || second < 0) {
+			return parseIsoTime(text, start, end);
+		}
+
+		try {
+			return LocalTime.of(hour, minute, second);
+		} catch (DateTimeException e) {
+			return parseIsoTime(text, start, end);
+		}
+	}
+
+	/**
+	 * Decodes {@code count} ASCII digits, or returns -1 if any of them is not a digit.
+	 */
+	private static int digits(CharSequence text, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static LocalDate parseIsoDate(CharSequence text, int start, int end) {
+		return LocalDate.parse(text.subSequence(start, end), DateTimeFormatter.ISO_LOCAL_DATE);
+	}
+
+	private static LocalTime parseIsoTime(CharSequence text, int start, int end) {
+		return LocalTime.parse(text.subSequence(start, end), DateTimeFormatter.ISO_LOCAL_TIME);
+	}
+}
@@ -0,0 +1,61 @@
+package com.mb.transactionbatchprocessor.util;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Puts complete files into place under names that must not be taken yet. A rename would silently replace a file
+ * of the same name, such as one moved there by another thread or node in the same second.
+ */
+public final class ExclusiveFiles {
+
+	private ExclusiveFiles() {
+	}
+
+	/**
+	 * Creates an empty hidden file next to the target, unique to the caller, to write the target's content into.
+	 */
+	public static Path createTempSibling(Path target) throws IOException {
+		return Files.createTempFile(target.toAbsolutePath().getParent(), "." + target.getFileName() + ".", ".tmp");
+	}
+
+	/**
+	 * Moves a file to a target on the same file system, which appears complete. The file is hard linked as the
+	 * target and then deleted, which fails if the target exists; on a file system without hard links it is renamed
+	 * after checking that the target does not exist.
+	 *
+	 * @throws FileAlreadyExistsException if the target exists; the file is left where it was
+	 * @throws IOException if the file could not be moved; it is then left where it was and the target is removed
+	 */
+	public static void moveNew(Path source, Path target) throws IOException {
+		try {
+			Files.createLink(target, source);
+		} catch (FileAlreadyExistsException e) {
+			throw e;
+		} catch (FileSystemException | UnsupportedOperationException e) {
+			Files.move(source, target);
+			return;
+		}
+		deleteMoved(source, target);
+	}
+
+	/**
+	 * Deletes a file that has just been linked or copied to a target. If it cannot be deleted the target is deleted
+	 * instead, so that a retry of the move does not leave a second copy of the file under another name.
+	 */
+	public static void deleteMoved(Path source, Path target) throws IOException {
+		try {
+			Files.delete(source);
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(target);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+}
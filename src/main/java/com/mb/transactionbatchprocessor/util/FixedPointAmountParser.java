@@ -0,0 +1,80 @@
+package com.mb.transactionbatchprocessor.util;
+
+/**
+ * Parses decimal amounts exactly into a {@code long} of minor units with {@link #SCALE} fraction digits.
+ * <p>
+ * Accepts an optional sign, digits and an optional fraction, surrounded by optional whitespace, for example
+ * {@code 123}, {@code -123.4} or {@code 123.45}. Fraction digits beyond the scale are only accepted when they
+ * are zero, so an amount is never rounded. Exponents, {@code NaN} and {@code Infinity} are rejected.
+ */
+public final class FixedPointAmountParser {
+
+	public static final int SCALE = 2;
+
+	private static final long[] POWERS_OF_TEN = {1, 10, 100};
+
+	private FixedPointAmountParser() {
+	}
+
+	public static long parse(CharSequence text) {
+		return parse(text, 0, text.length());
+	}
+
+	public static long parse(CharSequence text, int start, int end) {
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+
+		int i = start;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+
+		long units = 0;
+		int digitCount = 0;
+		int fractionDigits = -1;
+		for (; i < end; i++) {
+			char c = text.charAt(i);
+			if (c == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+				continue;
+			}
+			int digit = c - '0';
+			if (digit < 0 || digit > 9) {
+				throw invalidAmount(text, start, end);
+			}
+			digitCount++;
+			if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+				if (digit != 0) {
+					throw invalidAmount(text, start, end);
+				}
+				continue;
+			}
+			if (units > (Long.MAX_VALUE - digit) / 10) {
+				throw invalidAmount(text, start, end);
+			}
+			units = units * 10 + digit;
+		}
+
+		if (digitCount == 0) {
+			throw invalidAmount(text, start, end);
+		}
+
+		int scaledDigits = Math.max(0, Math.min(fractionDigits, SCALE));
+		long multiplier = POWERS_OF_TEN[SCALE - scaledDigits];
+		if (units > Long.MAX_VALUE / multiplier) {
+			throw invalidAmount(text, start, end);
+		}
+		units *= multiplier;
+		return negative ? -units : units;
+	}
+
+	private static NumberFormatException invalidAmount(CharSequence text, int start, int end) {
+		return new NumberFormatException("Invalid amount: \"" + text.subSequence(start, end) + "\"");
+	}
+}
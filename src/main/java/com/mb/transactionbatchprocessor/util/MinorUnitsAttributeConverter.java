@@ -0,0 +1,31 @@
+package com.mb.transactionbatchprocessor.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps amounts held as {@code long} minor units to the {@code DECIMAL} column used in the database.
+ */
+@Converter
+public class MinorUnitsAttributeConverter implements AttributeConverter<Long, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Long minorUnits) {
+		return minorUnits == null ? null : toDecimal(minorUnits);
+	}
+
+	@Override
+	public Long convertToEntityAttribute(BigDecimal amount) {
+		return amount == null ? null : toMinorUnits(amount);
+	}
+
+	public static BigDecimal toDecimal(long minorUnits) {
+		return BigDecimal.valueOf(minorUnits, FixedPointAmountParser.SCALE);
+	}
+
+	public static long toMinorUnits(BigDecimal amount) {
+		return amount.movePointRight(FixedPointAmountParser.SCALE).longValueExact();
+	}
+}
@@ -0,0 +1,60 @@
+package com.mb.transactionbatchprocessor.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter over natural keys from {@link NaturalKeys}. {@link #mightContain} never misses a key that was
+ * {@link #put}, and wrongly reports an unseen key at about the configured false positive rate once the expected
+ * number of keys has been added. The filter is thread-safe and never blocks.
+ * <p>
+ * The keys are already uniformly distributed hashes, so the bit positions are derived from their two 64-bit
+ * halves by double hashing instead of hashing them again.
+ */
+public class NaturalKeyFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	public NaturalKeyFilter(long expectedKeys, double falsePositiveRate) {
+		long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = words * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedKeys) * Math.log(2)));
+	}
+
+	public boolean mightContain(String naturalKey) {
+		long h1 = Long.parseUnsignedLong(naturalKey, 0, 16, 16);
+		long h2 = Long.parseUnsignedLong(naturalKey, 16, 32, 16);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void put(String naturalKey) {
+		long h1 = Long.parseUnsignedLong(naturalKey, 0, 16, 16);
+		long h2 = Long.parseUnsignedLong(naturalKey, 16, 32, 16);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current = bits.get(word);
+			while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+	}
+
+	public long bitCount() {
+		return bitCount;
+	}
+
+	public int hashCount() {
+		return hashCount;
+	}
+}
@@ -0,0 +1,61 @@
+package com.mb.transactionbatchprocessor.util;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+
+/**
+ * Computes the natural key of a {@link TransactionRecord}: the first 128 bits, as 32 lowercase hex digits, of
+ * the SHA-256 of its account number, amount, date, time, customer id and description joined by {@code |}.
+ * Null fields are left out.
+ * <p>
+ * The value equals MySQL's
+ * {@code LEFT(SHA2(CONCAT_WS('|', account_number, trx_amount, trx_date, trx_time, customer_id, description), 256), 32)}
+ * for the stored row, so existing rows can be given their keys in SQL.
+ */
+public final class NaturalKeys {
+
+	public static final int LENGTH = 32;
+
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+	private static final HexFormat HEX = HexFormat.of();
+	private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(NaturalKeys::sha256);
+
+	private NaturalKeys() {
+	}
+
+	public static String hash(TransactionRecord transactionRecord) {
+		StringBuilder key = new StringBuilder(96);
+		append(key, transactionRecord.getAccountNumber());
+		append(key, MinorUnitsAttributeConverter.toDecimal(transactionRecord.getTrxAmountMinor()).toPlainString());
+		append(key, transactionRecord.getTrxDate() == null ? null : transactionRecord.getTrxDate().toString());
+		append(key, transactionRecord.getTrxTime() == null ? null : TIME_FORMAT.format(transactionRecord.getTrxTime()));
+		append(key, transactionRecord.getCustomerId());
+		append(key, transactionRecord.getDescription());
+
+		byte[] digest = SHA_256.get().digest(key.toString().getBytes(StandardCharsets.UTF_8));
+		return HEX.formatHex(digest, 0, LENGTH / 2);
+	}
+
+	private static void append(StringBuilder key, String value) {
+		if (value == null) {
+			return;
+		}
+		if (!key.isEmpty()) {
+			key.append('|');
+		}
+		key.append(value);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
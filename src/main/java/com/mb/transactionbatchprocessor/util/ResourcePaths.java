@@ -0,0 +1,22 @@
+package com.mb.transactionbatchprocessor.util;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+
+public final class ResourcePaths {
+
+	private ResourcePaths() {
+	}
+
+	/**
+	 * The absolute path of a file resource, as the partitioner records it, or the description of any other resource.
+	 */
+	public static String absolutePath(Resource resource) {
+		try {
+			return resource.getFile().getAbsolutePath();
+		} catch (IOException e) {
+			return resource.getDescription();
+		}
+	}
+}
@@ -3,13 +3,14 @@ package com.mb.transactionbatchprocessor.util;
 import org.springframework.core.convert.converter.Converter;
 
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 
 public class StringToLocalDateConverter implements Converter<String, LocalDate> {
+
+	private final DateTimeFieldParser parser = new DateTimeFieldParser();
+
 	@Override
 	public LocalDate convert(String source) {
-		return LocalDate.parse(source, DateTimeFormatter.ISO_LOCAL_DATE);
+		return parser.parseDate(source);
 	}
 }
 
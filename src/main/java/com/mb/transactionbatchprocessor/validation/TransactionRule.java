@@ -0,0 +1,13 @@
+package com.mb.transactionbatchprocessor.validation;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+
+/**
+ * One compiled validation rule. Returns {@code null} for a valid record, so that checking a valid record
+ * allocates nothing.
+ */
+@FunctionalInterface
+public interface TransactionRule {
+
+	ValidationError check(TransactionRecord transactionRecord);
+}
@@ -0,0 +1,311 @@
+package com.mb.transactionbatchprocessor.validation;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.reference.ReferenceDataCache;
+import com.mb.transactionbatchprocessor.reference.ReferenceIndex;
+import com.mb.transactionbatchprocessor.util.FixedPointAmountParser;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Validates records against rules declared in {@code transaction.validation.rules}, compiled once into an array of
+ * {@link TransactionRule}s that is checked in declaration order until the first failure.
+ * <p>
+ * Each rule is {@code name} or {@code name=argument}:
+ * <ul>
+ *     <li>{@code account-required}, {@code customer-id-required}, {@code description-required}: the field is present
+ *     and not empty</li>
+ *     <li>{@code account-digits=N} or {@code account-digits=MIN-MAX}: only digits, N or MIN to MAX of them</li>
+ *     <li>{@code customer-id-digits=N} or {@code customer-id-digits=MIN-MAX}: the same for the customer id</li>
+ *     <li>{@code amount-min=AMOUNT}, {@code amount-max=AMOUNT}: inclusive bounds of the amount, such as {@code 0.01}</li>
+ *     <li>{@code amount-non-zero}: the amount is not zero</li>
+ *     <li>{@code date-from=YYYY-MM-DD}, {@code date-to=YYYY-MM-DD}: inclusive bounds of the transaction date</li>
+ *     <li>{@code date-max-age-days=N}: the transaction date is at most N days before the day it is checked on</li>
+ *     <li>{@code date-not-future}: the transaction date is not after the day it is checked on</li>
+ *     <li>{@code account-known}: the account is in the reference snapshot</li>
+ *     <li>{@code customer-matches-account}: the account is in the reference snapshot, and the customer id is the
+ *     account's unless the snapshot has none for it</li>
+ * </ul>
+ * The last two need a {@link ReferenceDataCache}.
+ * Arguments are parsed and checked when the rules are compiled, so the checks only compare primitives and
+ * characters. The current day is read from a clock, so that a long-running application does not keep checking
+ * against the day it started on; it is only worked out again once the clock passes midnight. A record that fails yields a {@link ValidationError} instead of a formatted message.
+ */
+public final class TransactionRuleEngine {
+
+	private final TransactionRule[] rules;
+	private final List<String> declarations;
+
+	private TransactionRuleEngine(TransactionRule[] rules, List<String> declarations) {
+		this.rules = rules;
+		this.declarations = declarations;
+	}
+
+	public static TransactionRuleEngine compile(List<String> declarations) {
+		return compile(declarations, Clock.systemDefaultZone(), null);
+	}
+
+	/**
+	 * Compiles the rules, with relative date windows always counted back from the given day.
+	 */
+	public static TransactionRuleEngine compile(List<String> declarations, LocalDate today) {
+		return compile(declarations, today, null);
+	}
+
+	/**
+	 * Compiles the rules, with relative date windows always counted back from the given day and reference rules
+	 * checked against the given cache, which may be {@code null} if no reference rule is declared.
+	 */
+	public static TransactionRuleEngine compile(List<String> declarations, LocalDate today, ReferenceDataCache referenceData) {
+		return compile(declarations, Clock.fixed(today.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC), referenceData);
+	}
+
+	/**
+	 * Compiles the rules, with relative date windows counted back from the clock's day at the time a record is
+	 * checked, and reference rules checked against the given cache.
+	 */
+	public static TransactionRuleEngine compile(List<String> declarations, Clock clock, ReferenceDataCache referenceData) {
+		CurrentDay today = new CurrentDay(clock);
+		List<TransactionRule> rules = new ArrayList<>(declarations.size());
+		List<String> compiled = new ArrayList<>(declarations.size());
+		for (String declaration : declarations) {
+			String trimmed = declaration.trim();
+			if (trimmed.isEmpty()) {
+				continue;
+			}
+			int equals = trimmed.indexOf('=');
+			String name = equals < 0 ? trimmed : trimmed.substring(0, equals).trim();
+			String argument = equals < 0 ? null : trimmed.substring(equals + 1).trim();
+			try {
+				rules.add(rule(name, argument, today, referenceData));
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Invalid validation rule '" + trimmed + "': " + e.getMessage(), e);
+			}
+			compiled.add(trimmed);
+		}
+		return new TransactionRuleEngine(rules.toArray(new TransactionRule[0]), List.copyOf(compiled));
+	}
+
+	/**
+	 * The first rule the record fails, or {@code null} if it passes them all.
+	 */
+	public ValidationError validate(TransactionRecord transactionRecord) {
+		for (TransactionRule rule : rules) {
+			ValidationError error = rule.check(transactionRecord);
+			if (error != null) {
+				return error;
+			}
+		}
+		return null;
+	}
+
+	public int size() {
+		return rules.length;
+	}
+
+	public List<String> getDeclarations() {
+		return declarations;
+	}
+
+	private static TransactionRule rule(String name, String argument, CurrentDay today, ReferenceDataCache referenceData) {
+		switch (name) {
+			case "account-required":
+				noArgument(argument);
+				return transactionRecord -> isEmpty(transactionRecord.getAccountNumber()) ? ValidationError.ACCOUNT_MISSING : null;
+			case "account-digits": {
+				int[] range = digitRange(argument);
+				int min = range[0];
+				int max = range[1];
+				return transactionRecord -> {
+					String accountNumber = transactionRecord.getAccountNumber();
+					if (accountNumber == null) {
+						return ValidationError.ACCOUNT_MISSING;
+					}
+					return isDigits(accountNumber, min, max) ? null : ValidationError.ACCOUNT_FORMAT;
+				};
+			}
+			case "customer-id-required":
+				noArgument(argument);
+				return transactionRecord -> isEmpty(transactionRecord.getCustomerId()) ? ValidationError.CUSTOMER_ID_MISSING : null;
+			case "customer-id-digits": {
+				int[] range = digitRange(argument);
+				int min = range[0];
+				int max = range[1];
+				return transactionRecord -> {
+					String customerId = transactionRecord.getCustomerId();
+					if (customerId == null) {
+						return ValidationError.CUSTOMER_ID_MISSING;
+					}
+					return isDigits(customerId, min, max) ? null : ValidationError.CUSTOMER_ID_FORMAT;
+				};
+			}
+			case "description-required":
+				noArgument(argument);
+				return transactionRecord -> isEmpty(transactionRecord.getDescription()) ? ValidationError.DESCRIPTION_MISSING : null;
+			case "amount-non-zero":
+				noArgument(argument);
+				return transactionRecord -> transactionRecord.getTrxAmountMinor() == 0 ? ValidationError.AMOUNT_ZERO : null;
+			case "amount-min": {
+				long min = FixedPointAmountParser.parse(required(argument));
+				return transactionRecord -> transactionRecord.getTrxAmountMinor() < min ? ValidationError.AMOUNT_TOO_LOW : null;
+			}
+			case "amount-max": {
+				long max = FixedPointAmountParser.parse(required(argument));
+				return transactionRecord -> transactionRecord.getTrxAmountMinor() > max ? ValidationError.AMOUNT_TOO_HIGH : null;
+			}
+			case "date-from": {
+				long firstDay = LocalDate.parse(required(argument)).toEpochDay();
+				return notBefore(() -> firstDay);
+			}
+			case "date-to": {
+				long lastDay = LocalDate.parse(required(argument)).toEpochDay();
+				return notAfter(() -> lastDay);
+			}
+			case "date-max-age-days": {
+				int maxAge = Integer.parseInt(required(argument));
+				return notBefore(() -> today.epochDay() - maxAge);
+			}
+			case "date-not-future":
+				noArgument(argument);
+				return notAfter(today::epochDay);
+			case "account-known":
+				noArgument(argument);
+				requireReferenceData(referenceData);
+				return transactionRecord -> referenceData.isKnownAccount(transactionRecord.getAccountNumber()) ? null : ValidationError.ACCOUNT_UNKNOWN;
+			case "customer-matches-account":
+				noArgument(argument);
+				requireReferenceData(referenceData);
+				return transactionRecord -> {
+					long customerKey = referenceData.customerKey(transactionRecord.getAccountNumber());
+					if (customerKey == ReferenceIndex.NOT_FOUND) {
+						return ValidationError.ACCOUNT_UNKNOWN;
+					}
+					return customerKey == 0 || customerKey == ReferenceIndex.encode(transactionRecord.getCustomerId())
+							? null
+							: ValidationError.CUSTOMER_ID_MISMATCH;
+				};
+			default:
+				throw new IllegalArgumentException("unknown rule");
+		}
+	}
+
+	private static TransactionRule notBefore(LongSupplier firstDay) {
+		return transactionRecord -> {
+			LocalDate trxDate = transactionRecord.getTrxDate();
+			if (trxDate == null) {
+				return ValidationError.DATE_MISSING;
+			}
+			return trxDate.toEpochDay() < firstDay.getAsLong() ? ValidationError.DATE_TOO_EARLY : null;
+		};
+	}
+
+	private static TransactionRule notAfter(LongSupplier lastDay) {
+		return transactionRecord -> {
+			LocalDate trxDate = transactionRecord.getTrxDate();
+			if (trxDate == null) {
+				return ValidationError.DATE_MISSING;
+			}
+			return trxDate.toEpochDay() > lastDay.getAsLong() ? ValidationError.DATE_TOO_LATE : null;
+		};
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+
+	private static boolean isDigits(String value, int min, int max) {
+		int length = value.length();
+		if (length < min || length > max) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses {@code N} or {@code MIN-MAX}.
+	 */
+	private static int[] digitRange(String argument) {
+		String range = required(argument);
+		int dash = range.indexOf('-');
+		int min = Integer.parseInt(dash < 0 ? range : range.substring(0, dash).trim());
+		int max = dash < 0 ? min : Integer.parseInt(range.substring(dash + 1).trim());
+		if (min < 1 || max < min) {
+			throw new IllegalArgumentException("expected N or MIN-MAX with 1 <= MIN <= MAX");
+		}
+		return new int[]{min, max};
+	}
+
+	private static String required(String argument) {
+		if (argument == null || argument.isEmpty()) {
+			throw new IllegalArgumentException("an argument is required");
+		}
+		return argument;
+	}
+
+	private static void requireReferenceData(ReferenceDataCache referenceData) {
+		if (referenceData == null) {
+			throw new IllegalArgumentException("requires transaction.reference.snapshot");
+		}
+	}
+
+	private static void noArgument(String argument) {
+		if (argument != null) {
+			throw new IllegalArgumentException("takes no argument");
+		}
+	}
+
+	/**
+	 * The day of a clock, worked out again only once the clock has left the day it last returned.
+	 */
+	private static final class CurrentDay {
+
+		private final Clock clock;
+		private volatile Day day;
+
+		CurrentDay(Clock clock) {
+			this.clock = clock;
+			this.day = day(clock.millis());
+		}
+
+		long epochDay() {
+			Day current = day;
+			long now = clock.millis();
+			if (now >= current.endMillis || now < current.startMillis) {
+				current = day(now);
+				day = current;
+			}
+			return current.epochDay;
+		}
+
+		private Day day(long now) {
+			LocalDate today = Instant.ofEpochMilli(now).atZone(clock.getZone()).toLocalDate();
+			return new Day(today.toEpochDay(), today.atStartOfDay(clock.getZone()).toInstant().toEpochMilli(),
+					today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli());
+		}
+	}
+
+	private static final class Day {
+
+		private final long epochDay;
+		private final long startMillis;
+		private final long endMillis;
+
+		Day(long epochDay, long startMillis, long endMillis) {
+			this.epochDay = epochDay;
+			this.startMillis = startMillis;
+			this.endMillis = endMillis;
+		}
+	}
+}
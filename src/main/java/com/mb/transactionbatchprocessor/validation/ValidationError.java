@@ -0,0 +1,31 @@
+package com.mb.transactionbatchprocessor.validation;
+
+/**
+ * Why a {@link TransactionRule} rejected a record. The name is the error code reported for skipped records.
+ */
+public enum ValidationError {
+
+	ACCOUNT_MISSING("the account number is missing"),
+	ACCOUNT_FORMAT("the account number has the wrong format"),
+	ACCOUNT_UNKNOWN("the account number is not in the reference data"),
+	CUSTOMER_ID_MISSING("the customer id is missing"),
+	CUSTOMER_ID_FORMAT("the customer id has the wrong format"),
+	CUSTOMER_ID_MISMATCH("the customer id is not the account's"),
+	DESCRIPTION_MISSING("the description is missing"),
+	AMOUNT_ZERO("the amount is zero"),
+	AMOUNT_TOO_LOW("the amount is below the minimum"),
+	AMOUNT_TOO_HIGH("the amount is above the maximum"),
+	DATE_MISSING("the transaction date is missing"),
+	DATE_TOO_EARLY("the transaction date is before the accepted window"),
+	DATE_TOO_LATE("the transaction date is after the accepted window");
+
+	private final String description;
+
+	ValidationError(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
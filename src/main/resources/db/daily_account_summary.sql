@@ -0,0 +1,17 @@
+-- Creates the table filled in by transaction.daily-summary.enabled=true, for databases that are not managed by
+-- spring.jpa.hibernate.ddl-auto, and fills it in from the transactions already imported. Run it once before
+-- enabling the daily summary; the imports after it add their own transactions to the totals.
+
+CREATE TABLE daily_account_summary (
+    account_number VARCHAR(255) NOT NULL,
+    trx_date DATE NOT NULL,
+    total_amount DECIMAL(19, 2) NOT NULL,
+    trx_count BIGINT NOT NULL,
+    PRIMARY KEY (account_number, trx_date)
+);
+
+INSERT INTO daily_account_summary (account_number, trx_date, total_amount, trx_count)
+SELECT account_number, trx_date, SUM(trx_amount), COUNT(*)
+FROM transaction_record
+WHERE account_number IS NOT NULL AND trx_date IS NOT NULL
+GROUP BY account_number, trx_date;
@@ -0,0 +1,19 @@
+-- Creates the lease table used by transaction.lease.enabled=true, for databases that are not managed by
+-- spring.jpa.hibernate.ddl-auto. Run it once in the job repository database before starting the first node.
+
+CREATE TABLE file_lease (
+    lease_key VARCHAR(512) NOT NULL,
+    file_key VARCHAR(512) NOT NULL,
+    range_start BIGINT NOT NULL,
+    range_count INT NOT NULL,
+    owner_node VARCHAR(128) NOT NULL,
+    status VARCHAR(8) NOT NULL,
+    expires_at BIGINT NOT NULL,
+    job_execution_id BIGINT,
+    step_execution_id BIGINT,
+    skip_count BIGINT NOT NULL,
+    PRIMARY KEY (lease_key)
+);
+
+CREATE INDEX ix_file_lease_file_key ON file_lease (file_key);
+CREATE INDEX ix_file_lease_owner_node ON file_lease (owner_node);
@@ -0,0 +1,17 @@
+-- Creates the transaction_record table for databases that are not managed by spring.jpa.hibernate.ddl-auto, such
+-- as with the lean profile, which starts without Hibernate. Run it once against the application database.
+
+CREATE TABLE transaction_record (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    account_number VARCHAR(255),
+    trx_amount DECIMAL(19, 2) NOT NULL,
+    description VARCHAR(255),
+    trx_date DATE,
+    trx_time TIME,
+    customer_id VARCHAR(255),
+    version INT,
+    natural_key VARCHAR(32),
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX ux_transaction_record_natural_key ON transaction_record (natural_key);
@@ -0,0 +1,8 @@
+-- Migrates an existing transaction_record table from the DOUBLE amount column to an exact DECIMAL(19,2).
+-- spring.jpa.hibernate.ddl-auto=update does not change the type of an existing column, so run this once
+-- against the application database before starting the new version.
+
+-- Rows that cannot be represented with two fraction digits would be rounded by the conversion; review them first
+SELECT id, trx_amount FROM transaction_record WHERE trx_amount <> ROUND(trx_amount, 2) OR trx_amount IS NULL;
+
+ALTER TABLE transaction_record MODIFY trx_amount DECIMAL(19,2) NOT NULL;
@@ -0,0 +1,18 @@
+-- Adds the natural key used by transaction.natural-key.enabled=true to an existing transaction_record table and
+-- fills it in for the rows already imported. spring.jpa.hibernate.ddl-auto=update adds the column but leaves it
+-- empty, so run this once against the application database before enabling natural keys.
+
+ALTER TABLE transaction_record ADD COLUMN natural_key VARCHAR(32) NULL;
+
+-- Must match com.mb.transactionbatchprocessor.util.NaturalKeys
+UPDATE transaction_record
+SET natural_key = LEFT(SHA2(CONCAT_WS('|', account_number, trx_amount, trx_date, trx_time, customer_id, description), 256), 32)
+WHERE natural_key IS NULL;
+
+-- Rows imported more than once share a key and would fail the unique index; review and delete the extra copies first
+SELECT natural_key, COUNT(*) AS copies, MIN(id) AS first_id
+FROM transaction_record
+GROUP BY natural_key
+HAVING COUNT(*) > 1;
+
+CREATE UNIQUE INDEX ux_transaction_record_natural_key ON transaction_record (natural_key);
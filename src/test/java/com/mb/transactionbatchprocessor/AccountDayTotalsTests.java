@@ -0,0 +1,62 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.util.AccountDayTotals;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountDayTotalsTests {
+
+	@Test
+	void testTotalsAreSummedAndVisitedInAccountAndDayOrder() throws Exception {
+		AccountDayTotals totals = new AccountDayTotals();
+		long day = LocalDate.of(2019, 9, 12).toEpochDay();
+		totals.add("200", day, 150);
+		totals.add("100", day + 1, 5);
+		totals.add("100", day, 10);
+		totals.add("200", day, -50);
+		totals.add("100", -3, 1);
+		assertEquals(4, totals.size());
+
+		List<String> visited = new ArrayList<>();
+		totals.forEachSorted((accountNumber, epochDay, amountMinor, count) ->
+				visited.add(accountNumber + "@" + epochDay + "=" + amountMinor + "/" + count));
+		assertEquals(List.of("100@-3=1/1", "100@" + day + "=10/1", "100@" + (day + 1) + "=5/1", "200@" + day + "=100/2"), visited);
+	}
+
+	@Test
+	void testAccountNumberIsRequired() throws Exception {
+		AccountDayTotals totals = new AccountDayTotals();
+		totals.add("100", 0, 10);
+		assertThrows(IllegalArgumentException.class, () -> totals.add(null, 0, 10));
+		assertEquals(1, totals.size());
+		totals.forEachSorted((accountNumber, epochDay, amountMinor, count) -> assertEquals("100", accountNumber));
+	}
+
+	@Test
+	void testTotalsSurviveGrowthAndClear() throws Exception {
+		AccountDayTotals totals = new AccountDayTotals();
+		for (int i = 0; i < 100_000; i++) {
+			totals.add(Integer.toString(i % 5_000), (i / 5_000) % 8, i);
+		}
+		assertEquals(5_000 * 8, totals.size());
+
+		long[] sums = new long[2];
+		totals.forEachSorted((accountNumber, epochDay, amountMinor, count) -> {
+			sums[0] += amountMinor;
+			sums[1] += count;
+		});
+		assertEquals(100_000L * 99_999 / 2, sums[0]);
+		assertEquals(100_000, sums[1]);
+
+		totals.clear();
+		assertEquals(0, totals.size());
+		totals.add("1", 1, 1);
+		assertEquals(1, totals.size());
+	}
+}
@@ -0,0 +1,127 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.AdaptiveChunkCompletionPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/adaptive/input",
+		"transaction.completed.dir=target/test-data/adaptive/completed",
+		"transaction.error.dir=target/test-data/adaptive/error",
+		"transaction.partition.enabled=true",
+		"transaction.partition.pool-size=2",
+		"transaction.chunk.adaptive.enabled=true",
+		"transaction.chunk.adaptive.min-size=2",
+		"transaction.chunk.adaptive.max-size=40"
+})
+class AdaptiveChunkCompletionPolicyTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/adaptive");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testChunkGrowsWhenCommitsAreFast() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(10, 10, 5000, 250, 0.01);
+
+		// 1 ms for 10 rows fits 2,500 rows in the target, but each step may at most double the size
+		assertEquals(20, policy.adjust(TimeUnit.MILLISECONDS.toNanos(1), 10, 0));
+		assertEquals(40, policy.adjust(TimeUnit.MILLISECONDS.toNanos(2), 20, 0));
+		for (int i = 0; i < 20; i++) {
+			policy.adjust(TimeUnit.MICROSECONDS.toNanos(100) * policy.getChunkSize(), policy.getChunkSize(), 0);
+		}
+		assertEquals(2500, policy.getChunkSize());
+
+		// Never beyond the configured maximum, however cheap rows become
+		for (int i = 0; i < 20; i++) {
+			policy.adjust(TimeUnit.MICROSECONDS.toNanos(1) * policy.getChunkSize(), policy.getChunkSize(), 0);
+		}
+		assertEquals(5000, policy.getChunkSize());
+	}
+
+	@Test
+	void testChunkShrinksWhenCommitsAreSlow() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(1000, 10, 5000, 250, 0.01);
+
+		// 1 s for 1,000 rows is four times the target, but each step may at most halve the size
+		assertEquals(500, policy.adjust(TimeUnit.SECONDS.toNanos(1), 1000, 0));
+		for (int i = 0; i < 20; i++) {
+			policy.adjust(TimeUnit.MILLISECONDS.toNanos(1) * policy.getChunkSize(), policy.getChunkSize(), 0);
+		}
+		assertEquals(250, policy.getChunkSize());
+	}
+
+	@Test
+	void testChunkShrinksWhenSkipRateIsTooHigh() {
+		AdaptiveChunkCompletionPolicy policy = new AdaptiveChunkCompletionPolicy(100, 10, 5000, 250, 0.01);
+
+		assertEquals(200, policy.adjust(TimeUnit.MILLISECONDS.toNanos(1), 100, 1));
+		assertEquals(100, policy.adjust(TimeUnit.MILLISECONDS.toNanos(1), 200, 5));
+		assertEquals(50, policy.adjust(TimeUnit.MILLISECONDS.toNanos(1), 100, 50));
+	}
+
+	@Test
+	void testChunkSizesAreRecordedInStepExecutionContext() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedA.txt"), 500, 7);
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedB.txt"), 300, 8);
+
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis())
+				.toJobParameters());
+
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		assertEquals(800, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+
+		// Every partition sizes its own chunks and keeps its own record of the sizes it chose
+		List<StepExecution> workers = execution.getStepExecutions().stream()
+				.filter(step -> step.getStepName().startsWith("step1Worker:"))
+				.toList();
+		assertEquals(2, workers.size());
+		for (StepExecution worker : workers) {
+			int size = worker.getExecutionContext().getInt(AdaptiveChunkCompletionPolicy.SIZE_KEY);
+			assertTrue(size >= 2 && size <= 40, "chunk size " + size);
+			assertTrue(worker.getCommitCount() < worker.getWriteCount() / 2, "commits " + worker.getCommitCount());
+			assertTrue(worker.getExecutionContext().containsKey(AdaptiveChunkCompletionPolicy.HISTORY_KEY));
+		}
+	}
+}
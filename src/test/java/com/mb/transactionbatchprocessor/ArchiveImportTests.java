@@ -0,0 +1,89 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.archive.ColumnarArchiveReader;
+import com.mb.transactionbatchprocessor.archive.TransactionArchiveCli;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/archive-import/input",
+		"transaction.completed.dir=target/test-data/archive-import/completed",
+		"transaction.error.dir=target/test-data/archive-import/error",
+		"transaction.archive.enabled=true",
+		"transaction.archive.rows-per-block=64"
+})
+class ArchiveImportTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/archive-import");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testCompletedFilesAreArchivedAndErrorFilesKept() throws Exception {
+		Path feedA = TEST_INPUT_DIR.resolve("feedA.txt");
+		TransactionFeedGenerator.write(feedA, 300, 51);
+		List<String> original = Files.readAllLines(feedA);
+		Path feedB = TEST_INPUT_DIR.resolve("feedB.txt");
+		TransactionFeedGenerator.write(feedB, 20, 52);
+		List<String> lines = new ArrayList<>(Files.readAllLines(feedB));
+		lines.set(5, lines.get(5).replaceFirst("\\|[^|]+\\|", "|not-a-number|"));
+		Files.write(feedB, lines);
+
+		assertEquals(BatchStatus.COMPLETED, jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters()).getStatus());
+
+		File[] completed = TEST_DATA_DIR.resolve("completed").toFile().listFiles();
+		assertEquals(1, completed.length);
+		assertTrue(completed[0].getName().matches("feedA_\\d{14}\\.txt\\.tcol"), completed[0].getName());
+		List<String> archived = new ArrayList<>(List.of(TransactionFeedGenerator.HEADER));
+		try (ColumnarArchiveReader reader = new ColumnarArchiveReader(completed[0].toPath())) {
+			assertEquals(5, reader.getBlockCount());
+			reader.forEach(transactionRecord -> archived.add(TransactionArchiveCli.format(transactionRecord)));
+		}
+		assertEquals(original, archived);
+
+		// The error file is moved as it is, so that its rejects can be corrected and replayed
+		assertEquals(2, TEST_DATA_DIR.resolve("error").toFile().list().length);
+		assertEquals(0, TEST_INPUT_DIR.toFile().list().length);
+	}
+}
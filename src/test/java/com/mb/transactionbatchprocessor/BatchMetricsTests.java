@@ -0,0 +1,85 @@
+package com.mb.transactionbatchprocessor;
+
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/metrics/input",
+		"transaction.completed.dir=target/test-data/metrics/completed",
+		"transaction.error.dir=target/test-data/metrics/error",
+		"transaction.partition.enabled=true",
+		"transaction.partition.max-range-bytes=4096",
+		"transaction.metrics.dump-file=target/test-data/metrics/metrics.prom"
+})
+class BatchMetricsTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/metrics");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private PrometheusMeterRegistry prometheusMeterRegistry;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testImportIsInstrumented() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedA.txt"), 300, 5);
+		Files.writeString(TEST_INPUT_DIR.resolve("feedB.txt"),
+				TransactionFeedGenerator.HEADER + "\n" +
+						"8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+						"8872838283|not-a-number|FUND TRANSFER|2019-09-12|11:11:11|222\n");
+
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis())
+				.toJobParameters());
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+
+		String scrape = prometheusMeterRegistry.scrape();
+		for (String stage : new String[]{"read", "process", "write", "commit"}) {
+			assertTrue(scrape.contains("transaction_chunk_" + stage + "_seconds_count{step=\"step1Worker\"}"), stage);
+		}
+		assertTrue(scrape.contains("transaction_records_written_total{step=\"step1Worker\"} 301.0"), scrape);
+		assertTrue(scrape.contains("transaction_skips_total{exception=\"TransactionParseException\",stage=\"read\"} 1.0"), scrape);
+		assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_count"), scrape);
+
+		// The throughput of each file is dumped with the job, and its gauge removed once the job has ended
+		String dump = Files.readString(TEST_DATA_DIR.resolve("metrics.prom"));
+		assertTrue(dump.contains("transaction_records_written_total{step=\"step1Worker\"} 301.0"), dump);
+		assertTrue(dump.contains("transaction_file_records_per_second{file=\"feedA.txt\",job_execution_id=\"" + execution.getId() + "\"}"), dump);
+		assertTrue(dump.contains("transaction_file_records_per_second{file=\"feedB.txt\",job_execution_id=\"" + execution.getId() + "\"}"), dump);
+		assertFalse(scrape.contains("transaction_file_records_per_second"), scrape);
+	}
+}
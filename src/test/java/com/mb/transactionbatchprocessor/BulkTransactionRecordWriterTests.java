@@ -0,0 +1,133 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BulkTransactionRecordWriter;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.NaturalKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkTransactionRecordWriterTests {
+
+	private DriverManagerDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setUp() {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		jdbcTemplate.execute("CREATE TABLE transaction_record (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+				"account_number VARCHAR(20) NOT NULL, trx_amount DECIMAL(19,2) NOT NULL, description VARCHAR(255), " +
+				"trx_date DATE, trx_time TIME, customer_id VARCHAR(20), version INT)");
+	}
+
+	@Test
+	void testMultiRowModeWritesEveryRecord() {
+		BulkTransactionRecordWriter writer = new BulkTransactionRecordWriter(dataSource, BulkTransactionRecordWriter.Mode.MULTI_ROW, 7);
+		List<TransactionRecord> items = records(50);
+
+		write(writer, items);
+
+		assertEquals(50, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+		assertEquals(new BigDecimal("429.25"), jdbcTemplate.queryForObject("SELECT SUM(trx_amount) FROM transaction_record", BigDecimal.class));
+	}
+
+	@Test
+	void testLoadDataModeFallsBackToMultiRowWithoutMySql() {
+		BulkTransactionRecordWriter writer = new BulkTransactionRecordWriter(dataSource, BulkTransactionRecordWriter.Mode.LOAD_DATA, 500);
+
+		write(writer, records(10));
+
+		assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+	}
+
+	@Test
+	void testFailedChunkIsRetriedRowByRow() {
+		BulkTransactionRecordWriter writer = new BulkTransactionRecordWriter(dataSource, BulkTransactionRecordWriter.Mode.MULTI_ROW, 500);
+		List<TransactionRecord> items = records(5);
+		items.get(3).setAccountNumber(null);
+
+		// The bulk statement is rolled back to its savepoint and the row-by-row retry reports the bad record
+		transactionTemplate.executeWithoutResult(status -> {
+			assertThrows(DataIntegrityViolationException.class, () -> writer.write(new Chunk<>(items)));
+			assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+			// The step rolls the failed chunk back
+			status.setRollbackOnly();
+		});
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+
+		// The scan of a single good record, as the fault-tolerant step does after a failed chunk, still succeeds
+		write(writer, items.subList(0, 1));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+	}
+
+	@Test
+	void testNaturalKeyModeUpsertsRepeatedRecords() {
+		jdbcTemplate.execute("ALTER TABLE transaction_record ADD COLUMN natural_key VARCHAR(32)");
+		jdbcTemplate.execute("CREATE UNIQUE INDEX ux_transaction_record_natural_key ON transaction_record (natural_key)");
+		BulkTransactionRecordWriter writer = new BulkTransactionRecordWriter(dataSource, BulkTransactionRecordWriter.Mode.LOAD_DATA, 4, true);
+		List<TransactionRecord> items = records(10);
+		items.forEach(transactionRecord -> transactionRecord.setNaturalKey(NaturalKeys.hash(transactionRecord)));
+
+		write(writer, items);
+		write(writer, items.subList(5, 10));
+
+		assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+		assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record WHERE version = 1", Integer.class));
+	}
+
+	@Test
+	void testLoadDataRowsAreEscaped() {
+		TransactionRecord transactionRecord = records(1).get(0);
+		transactionRecord.setDescription("TAB\tNEWLINE\nBACKSLASH\\");
+		transactionRecord.setCustomerId(null);
+
+		String rows = new String(BulkTransactionRecordWriter.toLoadDataRows(List.of(transactionRecord)), StandardCharsets.UTF_8);
+
+		assertEquals("8872838283\t0.01\tTAB\\tNEWLINE\\nBACKSLASH\\\\\t2019-09-12\t11:11:00\t\\N\t0\n", rows);
+	}
+
+	private void write(BulkTransactionRecordWriter writer, List<TransactionRecord> items) {
+		transactionTemplate.executeWithoutResult(status -> {
+			try {
+				writer.write(new Chunk<>(items));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private List<TransactionRecord> records(int count) {
+		List<TransactionRecord> items = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			TransactionRecord transactionRecord = new TransactionRecord();
+			transactionRecord.setAccountNumber("8872838283");
+			transactionRecord.setTrxAmountMinor((long) i * i);
+			transactionRecord.setDescription("FUND TRANSFER");
+			transactionRecord.setTrxDate(LocalDate.of(2019, 9, 12));
+			transactionRecord.setTrxTime(LocalTime.of(11, 11));
+			transactionRecord.setCustomerId("222");
+			transactionRecord.setVersion(0);
+			items.add(transactionRecord);
+		}
+		return items;
+	}
+}
@@ -0,0 +1,137 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.archive.ColumnarArchiveReader;
+import com.mb.transactionbatchprocessor.archive.TransactionArchiveCli;
+import com.mb.transactionbatchprocessor.archive.TransactionFileArchiver;
+import com.mb.transactionbatchprocessor.batch.TransactionRecordFieldSetMapper;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarArchiveTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/archive");
+
+	private TransactionFileArchiver archiver;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_DATA_DIR);
+		DelimitedLineTokenizer lineTokenizer = new DelimitedLineTokenizer("|");
+		lineTokenizer.setNames("accountNumber", "trxAmount", "description", "trxDate", "trxTime", "customerId");
+		DefaultLineMapper<TransactionRecord> lineMapper = new DefaultLineMapper<>();
+		lineMapper.setLineTokenizer(lineTokenizer);
+		lineMapper.setFieldSetMapper(new TransactionRecordFieldSetMapper());
+		archiver = new TransactionFileArchiver(lineMapper, 100);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testArchiveReadsBackAsTheOriginalLines() throws Exception {
+		Path feed = TEST_DATA_DIR.resolve("feed.txt");
+		TransactionFeedGenerator.write(feed, 1_050, 41);
+		Path archive = TEST_DATA_DIR.resolve("feed.tcol");
+
+		assertEquals(1_050, archiver.archive(feed, archive));
+		assertTrue(Files.size(archive) < Files.size(feed) / 2, "archive of " + Files.size(archive) + " bytes");
+		try (ColumnarArchiveReader reader = new ColumnarArchiveReader(archive)) {
+			assertEquals(11, reader.getBlockCount());
+			assertEquals(1_050, reader.getRowCount());
+		}
+
+		// The generated amounts always have two decimals, so the printed lines are the original ones
+		assertEquals(Files.readAllLines(feed), List.of(print(archive.toString()).split("\n")));
+	}
+
+	@Test
+	void testQueryReadsOnlyTheOverlappingBlocks() throws Exception {
+		Path feed = TEST_DATA_DIR.resolve("feed.txt");
+		TransactionFeedGenerator.write(feed, 1_000, 42);
+		List<String> lines = Files.readAllLines(feed);
+		List<String> sorted = new ArrayList<>(lines.subList(1, lines.size()));
+		sorted.sort(Comparator.comparing(line -> line.split("\\|")[3]));
+		sorted.add(0, lines.get(0));
+		Files.write(feed, sorted);
+		Path archive = TEST_DATA_DIR.resolve("feed.tcol");
+		archiver.archive(feed, archive);
+
+		LocalDate from = LocalDate.of(2019, 8, 1);
+		LocalDate to = LocalDate.of(2019, 8, 10);
+		List<String> expected = sorted.subList(1, sorted.size()).stream()
+				.filter(line -> {
+					LocalDate date = LocalDate.parse(line.split("\\|")[3]);
+					return !date.isBefore(from) && !date.isAfter(to);
+				})
+				.collect(Collectors.toList());
+		List<String> actual = new ArrayList<>();
+		int blocksRead;
+		try (ColumnarArchiveReader reader = new ColumnarArchiveReader(archive)) {
+			blocksRead = reader.forEach(from, to, null, transactionRecord -> actual.add(TransactionArchiveCli.format(transactionRecord)));
+		}
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, actual);
+		assertTrue(blocksRead <= 3, blocksRead + " blocks read");
+
+		String account = expected.get(0).split("\\|")[0];
+		String printed = print("--from", from.toString(), "--to", to.toString(), "--account", account, archive.toString());
+		List<String> expectedForAccount = new ArrayList<>(List.of(TransactionFeedGenerator.HEADER));
+		expected.stream().filter(line -> line.startsWith(account + "|")).forEach(expectedForAccount::add);
+		assertEquals(expectedForAccount, List.of(printed.split("\n")));
+	}
+
+	@Test
+	void testUnparseableFileLeavesNoArchive() throws Exception {
+		Path feed = TEST_DATA_DIR.resolve("feed.txt");
+		Files.writeString(feed, TransactionFeedGenerator.HEADER + "\n8872838283|not-a-number|FUND TRANSFER|2019-09-12|11:11:11|222\n");
+		Path archive = TEST_DATA_DIR.resolve("feed.tcol");
+
+		assertThrows(IOException.class, () -> archiver.archive(feed, archive));
+		assertEquals(List.of(feed), Files.list(TEST_DATA_DIR).collect(Collectors.toList()));
+	}
+
+	@Test
+	void testExistingArchiveIsNotReplaced() throws Exception {
+		Path feed = TEST_DATA_DIR.resolve("feed.txt");
+		TransactionFeedGenerator.write(feed, 10, 33);
+		Path archive = TEST_DATA_DIR.resolve("feed.tcol");
+		Files.writeString(archive, "another archive");
+
+		assertThrows(FileAlreadyExistsException.class, () -> archiver.archive(feed, archive));
+		assertEquals("another archive", Files.readString(archive));
+		assertEquals(2, Files.list(TEST_DATA_DIR).count());
+	}
+
+	private static String print(String... args) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		assertEquals(0, TransactionArchiveCli.run(args, new PrintStream(out), new PrintStream(err)));
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,148 @@
+package com.mb.transactionbatchprocessor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/daily-summary/input",
+		"transaction.completed.dir=target/test-data/daily-summary/completed",
+		"transaction.error.dir=target/test-data/daily-summary/error",
+		"transaction.daily-summary.enabled=true",
+		"transaction.daily-summary.max-entries=16",
+		"transaction.natural-key.enabled=true",
+		"transaction.partition.enabled=true",
+		"transaction.partition.max-range-bytes=4096"
+})
+class DailyAccountSummaryTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/daily-summary");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+		jdbcTemplate.update("DELETE FROM daily_account_summary");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testSummaryMatchesTheImportedRecordsAcrossImports() throws Exception {
+		// Several transactions of one account on one day, spread over the partitions, and a line that is skipped
+		Path feedA = TEST_INPUT_DIR.resolve("feedA.txt");
+		TransactionFeedGenerator.write(feedA, 300, 41);
+		List<String> lines = new ArrayList<>(Files.readAllLines(feedA));
+		for (int i = 0; i < 5; i++) {
+			lines.add(1 + i * 60, "8872838283|10.0" + i + "|FUND TRANSFER|2019-09-12|11:11:1" + i + "|222");
+		}
+		lines.set(100, lines.get(100).replaceFirst("\\|[^|]+\\|", "|not-a-number|"));
+		Files.write(feedA, lines);
+
+		assertEquals(BatchStatus.COMPLETED, run().getStatus());
+		assertSummaryMatchesRecords();
+		Map<String, Object> day = jdbcTemplate.queryForMap("SELECT total_amount, trx_count FROM daily_account_summary " +
+				"WHERE account_number = '8872838283' AND trx_date = DATE '2019-09-12'");
+		assertEquals(0, new BigDecimal("50.10").compareTo((BigDecimal) day.get("total_amount")), day.toString());
+		assertEquals(5L, ((Number) day.get("trx_count")).longValue());
+
+		// A second import adds to the totals; the redelivered records are dropped, so they are not counted twice
+		List<String> original = Files.readAllLines(TEST_DATA_DIR.resolve("error").toFile().listFiles(
+				(dir, name) -> name.endsWith(".txt"))[0].toPath());
+		Path feedB = TEST_INPUT_DIR.resolve("feedB.txt");
+		TransactionFeedGenerator.write(feedB, 200, 42);
+		List<String> overlapping = new ArrayList<>(Files.readAllLines(feedB));
+		overlapping.addAll(original.subList(1, 40));
+		overlapping.add("8872838283|20.00|FUND TRANSFER|2019-09-12|12:00:00|222");
+		Files.write(feedB, overlapping);
+
+		assertEquals(BatchStatus.COMPLETED, run().getStatus());
+		assertSummaryMatchesRecords();
+		assertEquals(6L, jdbcTemplate.queryForObject("SELECT trx_count FROM daily_account_summary " +
+				"WHERE account_number = '8872838283' AND trx_date = DATE '2019-09-12'", Long.class));
+	}
+
+	@Test
+	void testFailedUpsertFailsTheStepAndIsRedoneOnRestart() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feed.txt"), 300, 43);
+		JobParameters parameters = new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters();
+
+		jdbcTemplate.execute("ALTER TABLE daily_account_summary RENAME TO daily_account_summary_offline");
+		JobExecution failed;
+		try {
+			failed = jobLauncher.run(importTransactionRecordJob, parameters);
+		} finally {
+			jdbcTemplate.execute("ALTER TABLE daily_account_summary_offline RENAME TO daily_account_summary");
+		}
+		assertEquals(BatchStatus.FAILED, failed.getStatus());
+		assertEquals(300, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+		assertEquals(1, TEST_INPUT_DIR.toFile().list().length, "the file is not moved while its totals are missing");
+		assertTrue(failed.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().startsWith("step1Worker:"))
+				.allMatch(stepExecution -> stepExecution.getStatus() == BatchStatus.FAILED));
+
+		JobExecution restarted = jobLauncher.run(importTransactionRecordJob, parameters);
+		assertEquals(BatchStatus.COMPLETED, restarted.getStatus());
+		assertEquals(0, restarted.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().startsWith("step1Worker:"))
+				.mapToLong(StepExecution::getReadCount)
+				.sum());
+		assertEquals(300, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+		assertSummaryMatchesRecords();
+		assertEquals(0, TEST_INPUT_DIR.toFile().list().length);
+	}
+
+	private void assertSummaryMatchesRecords() {
+		int days = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT DISTINCT account_number, trx_date FROM transaction_record) days", Integer.class);
+		assertEquals(days, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_account_summary", Integer.class));
+		assertEquals(days, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_account_summary s JOIN (" +
+				"SELECT account_number, trx_date, SUM(trx_amount) AS total_amount, COUNT(*) AS trx_count " +
+				"FROM transaction_record GROUP BY account_number, trx_date) t " +
+				"ON s.account_number = t.account_number AND s.trx_date = t.trx_date " +
+				"AND s.total_amount = t.total_amount AND s.trx_count = t.trx_count", Integer.class));
+	}
+
+	private JobExecution run() throws Exception {
+		return jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters());
+	}
+}
@@ -0,0 +1,92 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.FileSkipTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/routing/input",
+		"transaction.completed.dir=target/test-data/routing/completed",
+		"transaction.error.dir=target/test-data/routing/error",
+		"transaction.pipeline.enabled=true"
+})
+class FileErrorRoutingTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/routing");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testOnlyFilesWithSkipsAreMovedToTheErrorDirectory() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedA.txt"), 50, 1);
+		Files.writeString(TEST_INPUT_DIR.resolve("feedB.txt"),
+				TransactionFeedGenerator.HEADER + "\n" +
+						"8872838283|not-a-number|FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+						"8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+						"8872838283|1.001|FUND TRANSFER|2019-09-12|11:11:11|222\n");
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedC.txt"), 50, 2);
+
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis())
+				.toJobParameters());
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+
+		StepExecution step1 = execution.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().equals("step1"))
+				.findFirst()
+				.orElseThrow();
+		assertEquals(Map.of(TEST_INPUT_DIR.resolve("feedB.txt").toAbsolutePath().toString(), 2L),
+				FileSkipTracker.getSkips(step1.getExecutionContext()));
+
+		String[] completed = TEST_DATA_DIR.resolve("completed").toFile().list();
+		String[] failed = TEST_DATA_DIR.resolve("error").toFile().list();
+		assertEquals(2, completed.length, Arrays.toString(completed));
+		assertTrue(Arrays.stream(completed).noneMatch(name -> name.startsWith("feedB")), Arrays.toString(completed));
+		assertEquals(2, failed.length, Arrays.toString(failed));
+		Arrays.sort(failed);
+		assertTrue(failed[0].startsWith("feedB_ERROR_") && failed[0].endsWith(".txt"), failed[0]);
+		assertEquals(failed[0] + ".rejects", failed[1]);
+
+		// Only the skipped lines are listed, by line number, with the stage and reason
+		List<String> rejects = Files.readAllLines(TEST_DATA_DIR.resolve("error").resolve(failed[1]));
+		assertEquals(3, rejects.size(), rejects.toString());
+		assertTrue(rejects.get(1).startsWith("2\t-1\t-1\tread\tNumberFormatException: "), rejects.get(1));
+		assertTrue(rejects.get(2).startsWith("4\t-1\t-1\t"), rejects.get(2));
+	}
+}
@@ -0,0 +1,200 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.FileLeaseCoordinator;
+import com.mb.transactionbatchprocessor.batch.ProcessedFileMover;
+import com.mb.transactionbatchprocessor.batch.TransactionFilePartitioner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two coordinators with different node ids over the same database, standing in for two nodes.
+ */
+@SpringBootTest
+class FileLeaseCoordinatorTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/lease-coordinator");
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private JobExplorer jobExplorer;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private FileLeaseCoordinator nodeA;
+	private FileLeaseCoordinator nodeB;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_DATA_DIR.resolve("input"));
+		jdbcTemplate.update("DELETE FROM file_lease");
+		nodeA = new FileLeaseCoordinator(dataSource, jobExplorer, "node-a", 60_000);
+		nodeB = new FileLeaseCoordinator(dataSource, jobExplorer, "node-b", 60_000);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		nodeA.close();
+		nodeB.close();
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testRangeIsLeasedByOneNodeAtATime() {
+		assertTrue(nodeA.acquire("feed.txt|100|1", 0, 2, worker(1)));
+		assertTrue(nodeA.acquire("feed.txt|100|1", 0, 2, worker(2)), "a node keeps its own lease");
+		assertFalse(nodeB.acquire("feed.txt|100|1", 0, 2, worker(3)));
+		assertTrue(nodeB.acquire("feed.txt|100|1", 50, 2, worker(4)));
+
+		nodeA.release(FileLeaseCoordinator.leaseKey("feed.txt|100|1", 0));
+		assertTrue(nodeB.acquire("feed.txt|100|1", 0, 2, worker(5)));
+		assertFalse(nodeA.acquire("feed.txt|100|1", 0, 2, worker(6)));
+	}
+
+	@Test
+	void testExpiredLeaseIsTakenOverAndFencesTheOldOwner() {
+		String leaseKey = FileLeaseCoordinator.leaseKey("feed.txt|100|1", 0);
+		assertTrue(nodeA.acquire("feed.txt|100|1", 0, 1, worker(1)));
+		nodeA.renew(leaseKey);
+
+		// Node A stops renewing, as if it had died
+		jdbcTemplate.update("UPDATE file_lease SET expires_at = 0 WHERE lease_key = ?", leaseKey);
+		assertTrue(nodeB.acquire("feed.txt|100|1", 0, 1, worker(2)));
+		assertThrows(IllegalStateException.class, () -> nodeA.renew(leaseKey));
+
+		nodeA.complete(leaseKey, 0);
+		assertEquals("LEASED", jdbcTemplate.queryForObject("SELECT status FROM file_lease WHERE lease_key = ?", String.class, leaseKey));
+	}
+
+	@Test
+	void testBothNodesImportRangesOfTheSameFiles() throws IOException {
+		Path input = TEST_DATA_DIR.resolve("input");
+		TransactionFeedGenerator.write(input.resolve("feedA.txt"), 200, 42);
+		TransactionFeedGenerator.write(input.resolve("feedB.txt"), 200, 43);
+		TransactionFilePartitioner partitionerA = new TransactionFilePartitioner(input.toString(), 4096, nodeA);
+		TransactionFilePartitioner partitionerB = new TransactionFilePartitioner(input.toString(), 4096, nodeB);
+
+		// Partitioning leases nothing, so both nodes start with every range
+		Map<String, ExecutionContext> partitionsA = partitionerA.partition(1);
+		Map<String, ExecutionContext> partitionsB = partitionerB.partition(1);
+		assertTrue(partitionsA.size() >= 4, partitionsA.toString());
+		assertEquals(partitionsA.size(), partitionsB.size());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM file_lease", Integer.class));
+
+		// The workers of the two nodes start in turn, each leasing its range as it starts
+		List<ExecutionContext> workersA = new ArrayList<>(new TreeMap<>(partitionsA).values());
+		List<ExecutionContext> workersB = new ArrayList<>(new TreeMap<>(partitionsB).values());
+		Collections.reverse(workersB);
+		Set<String> leasedByA = new HashSet<>();
+		Set<String> leasedByB = new HashSet<>();
+		long stepExecutionId = 1;
+		for (int i = 0; i < workersA.size(); i++) {
+			if (start(nodeA, workersA.get(i), stepExecutionId++)) {
+				leasedByA.add(workersA.get(i).getString(TransactionFilePartitioner.LEASE_KEY_KEY));
+			}
+			if (start(nodeB, workersB.get(i), stepExecutionId++)) {
+				leasedByB.add(workersB.get(i).getString(TransactionFilePartitioner.LEASE_KEY_KEY));
+			}
+		}
+		assertFalse(leasedByA.isEmpty());
+		assertFalse(leasedByB.isEmpty());
+		assertEquals(partitionsA.size(), leasedByA.size() + leasedByB.size());
+		assertTrue(Collections.disjoint(leasedByA, leasedByB));
+
+		// A later partitioning on either node leaves out the ranges the other holds
+		assertEquals(leasedByA.size(), partitionerA.partition(1).size());
+		assertEquals(leasedByB.size(), partitionerB.partition(1).size());
+	}
+
+	@Test
+	void testHeartbeatOnlyRenewsTheLeasesOfRunningSteps() throws Exception {
+		try (FileLeaseCoordinator nodeC = new FileLeaseCoordinator(dataSource, jobExplorer, "node-c", 1_000)) {
+			StepExecution running = worker(1);
+			StepExecution ended = worker(2);
+			assertTrue(nodeC.acquire("feed.txt|100|1", 0, 2, running));
+			assertTrue(nodeC.acquire("feed.txt|100|1", 50, 2, ended));
+			running.setStatus(BatchStatus.STARTED);
+			// Ended without completing or releasing its lease, as a worker whose listener failed would
+			ended.setStatus(BatchStatus.FAILED);
+
+			Thread.sleep(1_500);
+			long now = System.currentTimeMillis();
+			assertTrue(expiresAt("feed.txt|100|1", 0) > now);
+			assertTrue(expiresAt("feed.txt|100|1", 50) < now);
+		}
+	}
+
+	@Test
+	void testFileIsMovedOnceAllItsRangesAreDone() throws IOException {
+		File file = TEST_DATA_DIR.resolve("input/feed.txt").toFile();
+		TransactionFeedGenerator.write(file.toPath(), 10, 41);
+		String fileKey = FileLeaseCoordinator.fileKey(file);
+		ProcessedFileMover fileMover = new ProcessedFileMover(TEST_DATA_DIR.resolve("completed").toString(),
+				TEST_DATA_DIR.resolve("error").toString());
+
+		assertTrue(nodeA.acquire(fileKey, 0, 2, worker(1)));
+		assertTrue(nodeB.acquire(fileKey, 300, 2, worker(2)));
+		nodeA.complete(FileLeaseCoordinator.leaseKey(fileKey, 0), 0);
+		assertFalse(nodeB.acquire(fileKey, 0, 2, worker(3)), "a done range is not imported again");
+		assertEquals(Set.of(0L, 300L), nodeA.unavailableRanges(fileKey));
+		assertEquals(Set.of(0L), nodeB.unavailableRanges(fileKey));
+		assertNull(nodeA.finishFile(file, fileMover));
+		assertTrue(file.exists());
+
+		nodeB.complete(FileLeaseCoordinator.leaseKey(fileKey, 300), 0);
+		Path moved = nodeB.finishFile(file, fileMover);
+		assertNotNull(moved);
+		assertTrue(moved.startsWith(TEST_DATA_DIR.resolve("completed")));
+		assertFalse(file.exists());
+		assertEquals("DONE", jdbcTemplate.queryForObject("SELECT status FROM file_lease WHERE lease_key = ?", String.class,
+				FileLeaseCoordinator.leaseKey(fileKey, -1)));
+	}
+
+	private static boolean start(FileLeaseCoordinator node, ExecutionContext partition, long stepExecutionId) {
+		return node.acquire(partition.getString(TransactionFilePartitioner.FILE_KEY_KEY),
+				partition.getLong(TransactionFilePartitioner.START_OFFSET_KEY),
+				partition.getInt(TransactionFilePartitioner.RANGE_COUNT_KEY), worker(stepExecutionId));
+	}
+
+	private static StepExecution worker(long stepExecutionId) {
+		return new StepExecution("step1Worker:partition0", new JobExecution(1L), stepExecutionId);
+	}
+
+	private long expiresAt(String fileKey, long rangeStart) {
+		return jdbcTemplate.queryForObject("SELECT expires_at FROM file_lease WHERE lease_key = ?", Long.class,
+				FileLeaseCoordinator.leaseKey(fileKey, rangeStart));
+	}
+}
@@ -0,0 +1,170 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.FileLeaseCoordinator;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/lease/input",
+		"transaction.completed.dir=target/test-data/lease/completed",
+		"transaction.error.dir=target/test-data/lease/error",
+		"transaction.partition.enabled=true",
+		"transaction.partition.pool-size=1",
+		"transaction.partition.max-range-bytes=2048",
+		"transaction.lease.enabled=true",
+		"transaction.lease.node-id=node-a"
+})
+class FileLeaseImportTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/lease");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	/**
+	 * Once more than this many records have been written every write fails, as if the node had gone down.
+	 */
+	private static final AtomicInteger crashAfter = new AtomicInteger(Integer.MAX_VALUE);
+	private static final AtomicInteger written = new AtomicInteger();
+
+	@TestConfiguration
+	static class CrashingWriterConfiguration {
+
+		@Bean
+		static BeanPostProcessor crashingWriterPostProcessor() {
+			return new BeanPostProcessor() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!beanName.equals("transactionRecordWriter")) {
+						return bean;
+					}
+					ItemWriter<TransactionRecord> delegate = (ItemWriter<TransactionRecord>) bean;
+					return (ItemWriter<TransactionRecord>) chunk -> {
+						if (written.addAndGet(chunk.size()) > crashAfter.get()) {
+							throw new IllegalStateException("Simulated crash");
+						}
+						delegate.write(chunk);
+					};
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+		jdbcTemplate.update("DELETE FROM file_lease");
+		written.set(0);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		crashAfter.set(Integer.MAX_VALUE);
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testRangeLeasedByAnotherNodeIsImportedOnceItsLeaseExpires() throws Exception {
+		File feed = TEST_INPUT_DIR.resolve("feed.txt").toFile();
+		TransactionFeedGenerator.write(feed.toPath(), 300, 51);
+		String fileKey = FileLeaseCoordinator.fileKey(feed);
+		long rangeCount = (feed.length() + 2047) / 2048;
+		jdbcTemplate.update("INSERT INTO file_lease (lease_key, file_key, range_start, range_count, owner_node, status, " +
+						"expires_at, skip_count) VALUES (?, ?, 0, ?, 'node-b', 'LEASED', ?, 0)",
+				FileLeaseCoordinator.leaseKey(fileKey, 0), fileKey, rangeCount, System.currentTimeMillis() + 600_000);
+
+		assertEquals(BatchStatus.COMPLETED, run().getStatus());
+		int imported = rowCount();
+		assertTrue(imported > 0 && imported < 300, "imported " + imported);
+		assertTrue(feed.exists(), "the file is not moved while one of its ranges is leased elsewhere");
+		assertEquals(rangeCount - 1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM file_lease WHERE owner_node = 'node-a' " +
+				"AND status = 'DONE'", Long.class));
+
+		// Node B stopped renewing its lease
+		jdbcTemplate.update("UPDATE file_lease SET expires_at = 0 WHERE owner_node = 'node-b'");
+		JobExecution takeover = run();
+		assertEquals(BatchStatus.COMPLETED, takeover.getStatus());
+		assertEquals(1, takeover.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().startsWith("step1Worker:"))
+				.count());
+		assertEquals(300, rowCount());
+		assertEquals(0, duplicateCount());
+		assertEquals(0, TEST_INPUT_DIR.toFile().list().length);
+		assertEquals(1, TEST_DATA_DIR.resolve("completed").toFile().list().length);
+	}
+
+	@Test
+	void testRangesOfAFailedRunAreResumedFromTheirLastCommittedChunk() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feed.txt"), 300, 52);
+
+		crashAfter.set(120);
+		assertEquals(BatchStatus.FAILED, run().getStatus());
+		int committed = rowCount();
+		assertTrue(committed > 0 && committed <= 120, "committed " + committed);
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM file_lease WHERE status = 'LEASED'", Integer.class));
+
+		// A new job instance, which takes the released leases over with the execution contexts of the failed workers
+		crashAfter.set(Integer.MAX_VALUE);
+		JobExecution resumed = run();
+		assertEquals(BatchStatus.COMPLETED, resumed.getStatus());
+		long readAgain = resumed.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().startsWith("step1Worker:"))
+				.mapToLong(StepExecution::getReadCount)
+				.sum();
+		assertEquals(300 - committed, readAgain);
+		assertEquals(300, rowCount());
+		assertEquals(0, duplicateCount());
+		assertEquals(1, TEST_DATA_DIR.resolve("completed").toFile().list().length);
+	}
+
+	private JobExecution run() throws Exception {
+		return jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters());
+	}
+
+	private int rowCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class);
+	}
+
+	private int duplicateCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT account_number, trx_amount, description, " +
+				"trx_date, trx_time, customer_id FROM transaction_record GROUP BY account_number, trx_amount, description, " +
+				"trx_date, trx_time, customer_id HAVING COUNT(*) > 1) duplicates", Integer.class);
+	}
+}
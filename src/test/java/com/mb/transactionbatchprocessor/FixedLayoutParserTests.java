@@ -0,0 +1,135 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.util.ByteRangeCharSequence;
+import com.mb.transactionbatchprocessor.util.DateTimeFieldParser;
+import com.mb.transactionbatchprocessor.util.FixedPointAmountParser;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedLayoutParserTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(FixedLayoutParserTests.class);
+
+	private final DateTimeFieldParser parser = new DateTimeFieldParser();
+
+	@Test
+	void testMatchesIsoParsingOnFixture() throws Exception {
+		List<String> lines = Files.readAllLines(Paths.get("src/test/resources/input/testCorrectFile.txt"));
+		for (String line : lines.subList(1, lines.size())) {
+			String[] fields = line.split("\\|");
+			assertEquals(LocalDate.parse(fields[3], DateTimeFormatter.ISO_LOCAL_DATE), parser.parseDate(fields[3]));
+			assertEquals(LocalTime.parse(fields[4], DateTimeFormatter.ISO_LOCAL_TIME), parser.parseTime(fields[4]));
+			assertEquals(new BigDecimal(fields[1]).movePointRight(FixedPointAmountParser.SCALE).longValueExact(),
+					FixedPointAmountParser.parse(fields[1]));
+			assertEquals(Double.parseDouble(fields[1]), FixedPointAmountParser.parse(fields[1]) / 100.0);
+		}
+	}
+
+	@Test
+	void testDateEdgeCasesMatchIsoParsing() {
+		for (String text : new String[]{"2019-09-12", "2020-02-29", "0000-01-01", "+12019-09-12"}) {
+			assertEquals(LocalDate.parse(text, DateTimeFormatter.ISO_LOCAL_DATE), parser.parseDate(text));
+		}
+		for (String text : new String[]{"2019-02-29", "2019-13-01", "2019-00-10", "2019-9-12", "2019/09/12", "20x9-09-12", ""}) {
+			assertThrows(DateTimeParseException.class, () -> parser.parseDate(text), text);
+		}
+	}
+
+	@Test
+	void testTimeEdgeCasesMatchIsoParsing() {
+		for (String text : new String[]{"00:00:00", "23:59:59", "11:11", "11:11:11.5"}) {
+			assertEquals(LocalTime.parse(text, DateTimeFormatter.ISO_LOCAL_TIME), parser.parseTime(text));
+		}
+		for (String text : new String[]{"24:00:00", "11:60:00", "1:11:11", "11-11-11", ""}) {
+			assertThrows(DateTimeParseException.class, () -> parser.parseTime(text), text);
+		}
+	}
+
+	@Test
+	void testRecentDatesAreCached() {
+		assertSame(parser.parseDate("2019-09-12"), parser.parseDate("2019-09-12"));
+	}
+
+	@Test
+	void testAmountsAreParsedExactly() {
+		assertEquals(12300, FixedPointAmountParser.parse("123.00"));
+		assertEquals(12340, FixedPointAmountParser.parse("123.4"));
+		assertEquals(12300, FixedPointAmountParser.parse("123"));
+		assertEquals(12300, FixedPointAmountParser.parse("123."));
+		assertEquals(50, FixedPointAmountParser.parse(".5"));
+		assertEquals(-1, FixedPointAmountParser.parse("-0.01"));
+		assertEquals(12345, FixedPointAmountParser.parse(" +123.4500 "));
+		assertEquals(Long.MAX_VALUE, FixedPointAmountParser.parse("92233720368547758.07"));
+
+		for (String text : new String[]{"", ".", "-", "1.005", "1e3", "NaN", "Infinity", "12,30", "1.2.3", "92233720368547758.08"}) {
+			assertThrows(NumberFormatException.class, () -> FixedPointAmountParser.parse(text), text);
+		}
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkAmountAllocationPerMillionRows() {
+		int rows = 1_000_000;
+		byte[][] amounts = new byte[1024][];
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] = (i * 7919 % 1_000_000 + "." + String.format("%02d", i % 100)).getBytes(StandardCharsets.US_ASCII);
+		}
+		ByteBuffer[] buffers = new ByteBuffer[amounts.length];
+		for (int i = 0; i < amounts.length; i++) {
+			buffers[i] = ByteBuffer.wrap(amounts[i]);
+		}
+
+		// The boxed path as it was: a String per field, a boxed Double stored on the record, then an isNaN check
+		Object[] boxedSink = new Object[amounts.length];
+		long[] primitiveSink = new long[amounts.length];
+		ByteRangeCharSequence field = new ByteRangeCharSequence();
+		long boxedBytes = 0;
+		long primitiveBytes = 0;
+		for (int round = 0; round < 5; round++) {
+			long start = allocatedBytes();
+			for (int i = 0; i < rows; i++) {
+				int slot = i & (amounts.length - 1);
+				Double amount = Double.valueOf(new String(amounts[slot], StandardCharsets.US_ASCII));
+				if (!amount.isNaN()) {
+					boxedSink[slot] = amount;
+				}
+			}
+			boxedBytes = allocatedBytes() - start;
+
+			start = allocatedBytes();
+			for (int i = 0; i < rows; i++) {
+				int slot = i & (amounts.length - 1);
+				ByteBuffer buffer = buffers[slot];
+				primitiveSink[slot] = FixedPointAmountParser.parse(field.wrap(buffer, 0, buffer.limit()));
+			}
+			primitiveBytes = allocatedBytes() - start;
+		}
+
+		logger.info(String.format("Boxed Double amounts:   %,14d bytes allocated per million rows", boxedBytes));
+		logger.info(String.format("Primitive minor units:  %,14d bytes allocated per million rows", primitiveBytes));
+		assertEquals(primitiveSink[1], FixedPointAmountParser.parse(new String(amounts[1], StandardCharsets.US_ASCII)));
+		assertEquals(Double.parseDouble(new String(amounts[1], StandardCharsets.US_ASCII)), boxedSink[1]);
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+	}
+}
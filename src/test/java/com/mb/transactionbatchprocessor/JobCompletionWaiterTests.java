@@ -0,0 +1,84 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.JobCompletionWaiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobCompletionWaiterTests {
+
+	private final JobCompletionWaiter waiter = new JobCompletionWaiter();
+	private final SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("job-");
+
+	JobCompletionWaiterTests() {
+		taskExecutor.setTaskDecorator(waiter);
+	}
+
+	@Test
+	void testWaitsUntilTheJobTaskHasEnded() throws Exception {
+		AtomicBoolean saved = new AtomicBoolean();
+
+		JobExecution execution = waiter.runAndWait(() -> {
+			JobExecution jobExecution = new JobExecution(1L);
+			taskExecutor.execute(() -> {
+				sleep(200);
+				jobExecution.setStatus(BatchStatus.COMPLETED);
+				// The job repository is updated after the job's listeners have run
+				sleep(100);
+				saved.set(true);
+			});
+			return jobExecution;
+		});
+
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		assertTrue(saved.get());
+	}
+
+	@Test
+	void testWaitsForTheEndToBeSavedAfterTheStatusIsFinal() throws Exception {
+		AtomicBoolean saved = new AtomicBoolean();
+
+		JobExecution execution = waiter.runAndWait(() -> {
+			JobExecution jobExecution = new JobExecution(3L);
+			CountDownLatch statusSet = new CountDownLatch(1);
+			taskExecutor.execute(() -> {
+				jobExecution.setStatus(BatchStatus.COMPLETED);
+				statusSet.countDown();
+				sleep(200);
+				saved.set(true);
+			});
+			// A fast job has its final status before the launcher returns
+			statusSet.await();
+			return jobExecution;
+		});
+
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		assertTrue(saved.get());
+	}
+
+	@Test
+	void testReturnsAJobThatRanOnTheLaunchingThread() throws Exception {
+		JobExecution execution = waiter.runAndWait(() -> {
+			JobExecution jobExecution = new JobExecution(2L);
+			jobExecution.setStatus(BatchStatus.COMPLETED);
+			return jobExecution;
+		});
+
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
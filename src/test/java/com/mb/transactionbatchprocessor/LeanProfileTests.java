@@ -0,0 +1,81 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.aspect.MethodTracer;
+import com.mb.transactionbatchprocessor.aspect.TracingAspect;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/lean/input",
+		"transaction.completed.dir=target/test-data/lean/completed",
+		"transaction.error.dir=target/test-data/lean/error",
+		// Without Hibernate the application tables come from the scripts, as they would on a real database
+		"spring.sql.init.schema-locations=classpath:org/springframework/batch/core/schema-h2.sql,classpath:db/transaction_record.sql"
+})
+@ActiveProfiles("lean")
+class LeanProfileTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/lean");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testImportRunsWithoutHibernateOrAspects() throws Exception {
+		assertEquals(0, context.getBeanNamesForType(EntityManagerFactory.class).length);
+		assertEquals(0, context.getBeanNamesForType(TracingAspect.class).length);
+		assertEquals(0, context.getBeanNamesForType(MethodTracer.class).length);
+		assertFalse(AopUtils.isAopProxy(context.getBean("transactionRecordWriter")));
+
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feed.txt"), 100, 61);
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters());
+
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		assertEquals(100, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+		assertEquals(1, TEST_DATA_DIR.resolve("completed").toFile().list().length);
+	}
+}
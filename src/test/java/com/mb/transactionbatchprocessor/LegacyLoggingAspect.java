@@ -1,4 +1,4 @@
-package com.mb.transactionbatchprocessor.aspect;
+package com.mb.transactionbatchprocessor;
 
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
@@ -7,17 +7,18 @@ import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
 
-@Component
+/**
+ * The logging aspect that {@code TracingAspect} replaced, kept only as the baseline of {@link TracingAspectTests}.
+ */
 @Aspect
-public class LoggingAspect {
+class LegacyLoggingAspect {
 
-	private static final Logger logger = LoggerFactory.getLogger(LoggingAspect.class);
+	private static final Logger logger = LoggerFactory.getLogger(LegacyLoggingAspect.class);
 
-	@Pointcut("execution(* com.mb.transactionbatchprocessor..*(..)) && !execution(* com.mb.transactionbatchprocessor.batch.BatchConfig.transactionRecordProcessor(..)) && !execution(* com.mb.transactionbatchprocessor.batch.BatchConfig.process(..))")
+	@Pointcut("execution(* com.mb.transactionbatchprocessor..*(..)) && !execution(* com.mb.transactionbatchprocessor.batch.BatchConfig.transactionRecordProcessor(..)) && !execution(* com.mb.transactionbatchprocessor.batch.BatchConfig.process(..)) && !within(com.mb.transactionbatchprocessor.LegacyLoggingAspect)")
 	public void applicationPackagePointcut() {
 	}
 
@@ -0,0 +1,153 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import com.mb.transactionbatchprocessor.batch.MappedTransactionRecordReader;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedTransactionRecordReaderTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedTransactionRecordReaderTests.class);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testMatchesFlatFileReaderOnCorrectFile() throws Exception {
+		Resource resource = new FileSystemResource("src/test/resources/input/testCorrectFile.txt");
+
+		List<Object> expected = readAll(flatFileReader(resource));
+		List<Object> actual = readAll(new MappedTransactionRecordReader(resource, 0, Long.MAX_VALUE));
+
+		assertEquals(47, actual.size());
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testMatchesFlatFileReaderOnMalformedLines() throws Exception {
+		Path file = tempDir.resolve("malformed.txt");
+		Files.writeString(file, TransactionFeedGenerator.HEADER + "\n" +
+				"8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+				"8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11\n" +
+				"8872838283|123.00|FUND|TRANSFER|2019-09-12|11:11:11|222\n" +
+				"8872838283|abc|FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+				"8872838283||FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+				"8872838283|123.00|FUND TRANSFER|2019-13-12|11:11:11|222\n" +
+				"8872838283|123.00|FUND TRANSFER|2019-09-12|25:11:11|222\n" +
+				"\n" +
+				"8872838283|9.5|BILL PAYMENT|2019-09-12|11:11:11|222\r\n" +
+				"6872838260|1266663.00|FUND TRANSFER|2019-09-11|11:11:11|333");
+		Resource resource = new FileSystemResource(file);
+
+		List<Object> expected = readAll(flatFileReader(resource));
+		List<Object> actual = readAll(new MappedTransactionRecordReader(resource, 0, Long.MAX_VALUE));
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testRangesCoverEveryLineExactlyOnce() throws Exception {
+		Path file = Paths.get("src/test/resources/input/testCorrectFile.txt");
+		Resource resource = new FileSystemResource(file);
+		long length = Files.size(file);
+		List<Object> expected = readAll(new MappedTransactionRecordReader(resource, 0, Long.MAX_VALUE));
+
+		for (int rangeCount = 2; rangeCount <= 20; rangeCount++) {
+			List<Object> records = new ArrayList<>();
+			for (int range = 0; range < rangeCount; range++) {
+				long start = length * range / rangeCount;
+				long end = range == rangeCount - 1 ? Long.MAX_VALUE : length * (range + 1) / rangeCount;
+				records.addAll(readAll(new MappedTransactionRecordReader(resource, start, end)));
+			}
+			assertEquals(expected, records, "Records read with " + rangeCount + " ranges");
+		}
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkThroughputAgainstFlatFileReader() throws Exception {
+		int rows = 1_000_000;
+		Path file = tempDir.resolve("benchmark.txt");
+		TransactionFeedGenerator.write(file, rows, 42);
+		Resource resource = new FileSystemResource(file);
+
+		// Warm up both readers before measuring
+		for (int i = 0; i < 2; i++) {
+			count(flatFileReader(resource));
+			count(new MappedTransactionRecordReader(resource, 0, Long.MAX_VALUE));
+		}
+
+		long start = System.nanoTime();
+		long flatCount = count(flatFileReader(resource));
+		long flatNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long mappedCount = count(new MappedTransactionRecordReader(resource, 0, Long.MAX_VALUE));
+		long mappedNanos = System.nanoTime() - start;
+
+		assertEquals(rows, flatCount);
+		assertEquals(rows, mappedCount);
+		logger.info(String.format("FlatFileItemReader:            %,12.0f records/sec", rows * 1e9 / flatNanos));
+		logger.info(String.format("MappedTransactionRecordReader: %,12.0f records/sec", rows * 1e9 / mappedNanos));
+	}
+
+	private FlatFileItemReader<TransactionRecord> flatFileReader(Resource resource) {
+		FlatFileItemReader<TransactionRecord> reader = new BatchConfig(null, null, null).transactionRecordReader();
+		reader.setResource(resource);
+		return reader;
+	}
+
+	/**
+	 * Reads every line, recording the parse failure type in place of a record so that error handling is compared too.
+	 */
+	private List<Object> readAll(ItemStreamReader<TransactionRecord> reader) throws Exception {
+		List<Object> results = new ArrayList<>();
+		reader.open(new ExecutionContext());
+		try {
+			while (true) {
+				try {
+					TransactionRecord transactionRecord = reader.read();
+					if (transactionRecord == null) {
+						return results;
+					}
+					results.add(transactionRecord);
+				} catch (FlatFileParseException e) {
+					results.add(FlatFileParseException.class);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private long count(ItemStreamReader<TransactionRecord> reader) throws Exception {
+		long count = 0;
+		reader.open(new ExecutionContext());
+		try {
+			while (reader.read() != null) {
+				count++;
+			}
+		} finally {
+			reader.close();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,64 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.util.NaturalKeyFilter;
+import com.mb.transactionbatchprocessor.util.NaturalKeys;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NaturalKeyFilterTests {
+
+	@Test
+	void testNaturalKeyCoversTheBusinessFields() {
+		TransactionRecord transactionRecord = record(12300);
+		String naturalKey = NaturalKeys.hash(transactionRecord);
+
+		assertEquals(NaturalKeys.LENGTH, naturalKey.length());
+		assertTrue(naturalKey.matches("[0-9a-f]+"), naturalKey);
+
+		// The surrogate id and version are not part of the key
+		transactionRecord.setId(42L);
+		transactionRecord.setVersion(3);
+		assertEquals(naturalKey, NaturalKeys.hash(transactionRecord));
+
+		transactionRecord.setDescription("BILL PAYMENT");
+		assertNotEquals(naturalKey, NaturalKeys.hash(transactionRecord));
+		assertNotEquals(naturalKey, NaturalKeys.hash(record(12301)));
+	}
+
+	@Test
+	void testFilterNeverMissesAddedKeysAndRarelyReportsOthers() {
+		NaturalKeyFilter filter = new NaturalKeyFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put(NaturalKeys.hash(record(i)));
+		}
+
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain(NaturalKeys.hash(record(i))), "key " + i);
+		}
+		int falsePositives = 0;
+		for (int i = 10_000; i < 20_000; i++) {
+			if (filter.mightContain(NaturalKeys.hash(record(i)))) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 200, falsePositives + " false positives");
+	}
+
+	private static TransactionRecord record(long amountMinor) {
+		TransactionRecord transactionRecord = new TransactionRecord();
+		transactionRecord.setAccountNumber("8872838283");
+		transactionRecord.setTrxAmountMinor(amountMinor);
+		transactionRecord.setDescription("FUND TRANSFER");
+		transactionRecord.setTrxDate(LocalDate.of(2019, 9, 12));
+		transactionRecord.setTrxTime(LocalTime.of(11, 11));
+		transactionRecord.setCustomerId("222");
+		return transactionRecord;
+	}
+}
@@ -0,0 +1,132 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.DeduplicatingTransactionRecordWriter;
+import com.mb.transactionbatchprocessor.util.NaturalKeyFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/natural-key/input",
+		"transaction.completed.dir=target/test-data/natural-key/completed",
+		"transaction.error.dir=target/test-data/natural-key/error",
+		"transaction.natural-key.enabled=true",
+		"transaction.partition.enabled=true",
+		"transaction.partition.max-range-bytes=2048"
+})
+class NaturalKeyImportTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/natural-key");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testRedeliveredRecordsAreImportedOnce() throws Exception {
+		Path feedA = TEST_INPUT_DIR.resolve("feedA.txt");
+		TransactionFeedGenerator.write(feedA, 200, 11);
+		assertEquals(BatchStatus.COMPLETED, run().getStatus());
+		assertEquals(200, rowCount());
+
+		// The same file again, and a file overlapping it with a record repeated inside it
+		List<String> original = Files.readAllLines(TEST_DATA_DIR.resolve("completed").toFile().listFiles()[0].toPath());
+		Files.write(TEST_INPUT_DIR.resolve("feedA.txt"), original);
+		Path feedB = TEST_INPUT_DIR.resolve("feedB.txt");
+		TransactionFeedGenerator.write(feedB, 50, 12);
+		List<String> overlapping = new ArrayList<>(Files.readAllLines(feedB));
+		overlapping.addAll(original.subList(1, 51));
+		overlapping.add(original.get(1));
+		Files.write(feedB, overlapping);
+
+		JobExecution execution = run();
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		assertEquals(250, rowCount());
+		assertEquals(250, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT natural_key) FROM transaction_record", Integer.class));
+		// The known records were dropped before the upsert, which would have bumped their version
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record WHERE version > 0", Integer.class));
+
+		// The keys can be computed in SQL, as the migration script does for existing rows
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record WHERE natural_key <> " +
+				"LEFT(LOWER(RAWTOHEX(HASH('SHA-256', STRINGTOUTF8(CONCAT_WS('|', account_number, trx_amount, trx_date, trx_time, " +
+				"customer_id, description))))), 32)", Integer.class));
+	}
+
+	@Test
+	void testRecordRepeatedWithinAChunkIsUpserted() throws Exception {
+		Path feed = TEST_INPUT_DIR.resolve("feed.txt");
+		TransactionFeedGenerator.write(feed, 20, 13);
+		List<String> lines = new ArrayList<>(Files.readAllLines(feed));
+		lines.add(2, lines.get(1));
+		Files.write(feed, lines);
+
+		assertEquals(BatchStatus.COMPLETED, run().getStatus());
+		assertEquals(20, rowCount());
+		// The repeat reached the upsert, as it does without the duplicate filter
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record WHERE version = 1", Integer.class));
+	}
+
+	@Test
+	void testFilterIsLoadedWithTheKeysAlreadyImported() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feed.txt"), 100, 14);
+		assertEquals(BatchStatus.COMPLETED, run().getStatus());
+
+		// The filter of a process started after the import
+		NaturalKeyFilter filter = new NaturalKeyFilter(1_000, 0.01);
+		DeduplicatingTransactionRecordWriter writer = new DeduplicatingTransactionRecordWriter(chunk -> {
+		}, filter, dataSource);
+		assertEquals(100, writer.loadExistingKeys());
+		List<String> keys = jdbcTemplate.queryForList("SELECT natural_key FROM transaction_record", String.class);
+		assertTrue(keys.stream().allMatch(filter::mightContain));
+	}
+
+	private JobExecution run() throws Exception {
+		return jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters());
+	}
+
+	private int rowCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class);
+	}
+}
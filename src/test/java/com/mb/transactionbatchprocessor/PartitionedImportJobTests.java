@@ -0,0 +1,125 @@
+package com.mb.transactionbatchprocessor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/partitioned/input",
+		"transaction.completed.dir=target/test-data/partitioned/completed",
+		"transaction.error.dir=target/test-data/partitioned/error",
+		"transaction.partition.enabled=true",
+		"transaction.partition.pool-size=3",
+		"transaction.partition.max-range-bytes=1024"
+})
+class PartitionedImportJobTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/partitioned");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testFilesAreImportedInFileAndByteRangePartitions() throws Exception {
+		Path correctFile = Paths.get("src/test/resources/input/testCorrectFile.txt");
+		Files.copy(correctFile, TEST_INPUT_DIR.resolve("feedA.txt"));
+		Files.copy(correctFile, TEST_INPUT_DIR.resolve("feedB.txt"));
+		String header = "ACCOUNT_NUMBER|TRX_AMOUNT|DESCRIPTION|TRX_DATE|TRX_TIME|CUSTOMER_ID\n";
+		String goodLine = "8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n";
+		String badLine = "8872838283|not-a-number|FUND TRANSFER|2019-09-12|11:11:11|222";
+		Files.writeString(TEST_INPUT_DIR.resolve("feedC.txt"), header + goodLine + badLine + "\n");
+
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis())
+				.toJobParameters());
+
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+
+		long workerCount = execution.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().startsWith("step1Worker:"))
+				.count();
+		// feedA and feedB are split into three ranges each, feedC is small enough for a single partition
+		assertEquals(7, workerCount);
+
+		StepExecution managerExecution = execution.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().equals("step1"))
+				.findFirst()
+				.orElseThrow();
+		assertEquals(95, managerExecution.getReadCount());
+		assertEquals(95, managerExecution.getWriteCount());
+		assertEquals(1, managerExecution.getReadSkipCount());
+
+		Integer rowCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class);
+		assertEquals(95, rowCount);
+
+		// Amounts are stored exactly as DECIMAL(19,2)
+		BigDecimal expectedTotal = Files.readAllLines(correctFile).stream()
+				.skip(1)
+				.map(line -> new BigDecimal(line.split("\\|")[1]))
+				.reduce(BigDecimal.ZERO, BigDecimal::add)
+				.multiply(BigDecimal.valueOf(2))
+				.add(new BigDecimal("123.00"));
+		assertEquals(expectedTotal, jdbcTemplate.queryForObject("SELECT SUM(trx_amount) FROM transaction_record", BigDecimal.class));
+
+		// Only the file with the bad line is routed to the error directory
+		assertEquals(List.of("feedA_", "feedB_"), filePrefixes(TEST_DATA_DIR.resolve("completed")));
+		assertEquals(List.of("feedC_ERROR_", "feedC_ERROR_.rejects"), filePrefixes(TEST_DATA_DIR.resolve("error")));
+
+		// The sidecar locates the bad line by line number and byte offset
+		List<String> rejects;
+		try (Stream<Path> files = Files.list(TEST_DATA_DIR.resolve("error"))) {
+			Path rejectsFile = files.filter(file -> file.toString().endsWith(".rejects")).findFirst().orElseThrow();
+			rejects = Files.readAllLines(rejectsFile);
+		}
+		assertEquals(2, rejects.size(), rejects.toString());
+		assertTrue(rejects.get(0).startsWith("#"), rejects.get(0));
+		assertTrue(rejects.get(1).startsWith("3\t" + (header.length() + goodLine.length()) + "\t" + badLine.length() + "\tread\tNumberFormatException: "), rejects.get(1));
+	}
+
+	private static List<String> filePrefixes(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.map(file -> file.getFileName().toString().replaceAll("\\d{14}\\.txt", ""))
+					.sorted()
+					.toList();
+		}
+	}
+}
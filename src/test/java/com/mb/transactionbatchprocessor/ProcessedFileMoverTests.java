@@ -0,0 +1,95 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.ProcessedFileMover;
+import com.mb.transactionbatchprocessor.util.ExclusiveFiles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessedFileMoverTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/mover");
+
+	private final ProcessedFileMover fileMover = new ProcessedFileMover(TEST_DATA_DIR.resolve("completed").toString(),
+			TEST_DATA_DIR.resolve("error").toString());
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_DATA_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testTargetIsRemovedWhenTheMovedFileCannotBeDeleted() throws Exception {
+		Path source = TEST_DATA_DIR.resolve("feed.txt");
+		Path target = Files.writeString(TEST_DATA_DIR.resolve("feed_20240101000000.txt"), "copy");
+
+		// The source is already gone, so deleting it fails as it would for a file that cannot be deleted
+		assertThrows(IOException.class, () -> ExclusiveFiles.deleteMoved(source, target));
+		assertFalse(Files.exists(target));
+	}
+
+	@Test
+	void testFilesOfTheSameNameMovedInTheSameSecondAreAllKept() throws Exception {
+		int files = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(files);
+		try {
+			List<Future<Path>> moves = new ArrayList<>();
+			for (int i = 0; i < files; i++) {
+				Path dir = Files.createDirectories(TEST_DATA_DIR.resolve("input" + i));
+				Path file = Files.writeString(dir.resolve("feed.txt"), "file " + i);
+				boolean hasErrors = i % 2 == 1;
+				moves.add(executor.submit(() -> fileMover.move(file.toFile(), hasErrors, List.of("rejects of " + file))));
+			}
+			Set<Path> targets = new HashSet<>();
+			for (Future<Path> move : moves) {
+				targets.add(move.get());
+			}
+			assertEquals(files, targets.size());
+		} finally {
+			executor.shutdown();
+		}
+
+		Set<String> contents = new HashSet<>();
+		for (String dir : List.of("completed", "error")) {
+			try (Stream<Path> moved = Files.list(TEST_DATA_DIR.resolve(dir))) {
+				for (Path file : moved.filter(file -> file.toString().endsWith(".txt")).collect(Collectors.toList())) {
+					contents.add(Files.readString(file));
+					if (dir.equals("error")) {
+						String rejects = Files.readString(ProcessedFileMover.rejectsPath(file));
+						assertTrue(rejects.contains("input" + Files.readString(file).substring(5)), file + ": " + rejects);
+					}
+				}
+			}
+		}
+		assertEquals(files, contents.size());
+		// The error files and their sidecars, and no temporary files
+		try (Stream<Path> moved = Files.list(TEST_DATA_DIR.resolve("error"))) {
+			assertEquals(files / 2 * 2, moved.count());
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.ReadAheadPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/pipeline/input",
+		"transaction.completed.dir=target/test-data/pipeline/completed",
+		"transaction.error.dir=target/test-data/pipeline/error",
+		"transaction.partition.enabled=true",
+		"transaction.partition.pool-size=2",
+		"transaction.partition.max-range-bytes=4096",
+		"transaction.pipeline.enabled=true",
+		"transaction.pipeline.capacity=16"
+})
+class ReadAheadPipelineTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/pipeline");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testFailuresSurfaceInOrderFromTheirOwnStage() throws Exception {
+		ReadAheadPipeline<Integer> pipeline = pipeline(20, 4);
+		pipeline.open(new ExecutionContext());
+
+		List<Object> seen = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			try {
+				Integer item = pipeline.read();
+				try {
+					seen.add(pipeline.process(item));
+				} catch (IllegalArgumentException e) {
+					seen.add("process:" + item);
+				}
+			} catch (FlatFileParseException e) {
+				seen.add("read:" + e.getInput());
+			}
+		}
+		assertNull(pipeline.read());
+		assertNull(pipeline.read());
+		pipeline.close();
+
+		assertEquals(List.of(0, 10, 20, "read:3", 40, 50, 60, "process:7", 80, 90, 100, 110, 120, "read:13", 140,
+				150, 160, "process:17", 180, 190), seen);
+	}
+
+	@Test
+	void testRestartResumesAfterItemsTakenBeforeTheLastUpdate() throws Exception {
+		ExecutionContext executionContext = new ExecutionContext();
+		ReadAheadPipeline<Integer> pipeline = pipeline(20, 4);
+		pipeline.open(executionContext);
+		for (int i = 0; i < 6; i++) {
+			try {
+				pipeline.read();
+			} catch (FlatFileParseException e) {
+				// Counted like any other read
+			}
+		}
+		pipeline.update(executionContext);
+		pipeline.read();  // Taken but never committed
+		pipeline.close();
+
+		ReadAheadPipeline<Integer> restarted = pipeline(20, 4);
+		restarted.open(executionContext);
+		assertEquals(6, restarted.read());
+		assertThrows(IllegalArgumentException.class, () -> restarted.process(restarted.read()));
+		restarted.close();
+	}
+
+	@Test
+	void testCloseStopsReadAheadBlockedOnAFullQueue() throws Exception {
+		ReadAheadPipeline<Integer> pipeline = pipeline(1_000, 2);
+		pipeline.open(new ExecutionContext());
+		assertEquals(0, pipeline.read());
+		pipeline.close();
+	}
+
+	@Test
+	void testCloseWaitsForAReadInProgressBeforeClosingTheDelegate() throws Exception {
+		CountDownLatch reading = new CountDownLatch(1);
+		AtomicBoolean inRead = new AtomicBoolean();
+		AtomicBoolean closedDuringRead = new AtomicBoolean();
+		ItemStreamReader<Integer> reader = new ItemStreamReader<>() {
+			@Override
+			public Integer read() {
+				inRead.set(true);
+				reading.countDown();
+				// Blocked in I/O that ignores interrupts
+				long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+				while (System.nanoTime() < until) {
+					Thread.onSpinWait();
+				}
+				inRead.set(false);
+				return 1;
+			}
+
+			@Override
+			public void close() {
+				closedDuringRead.set(inRead.get());
+			}
+		};
+		ReadAheadPipeline<Integer> pipeline = new ReadAheadPipeline<>(reader, item -> item, 4,
+				new SimpleAsyncTaskExecutor("pipeline-test-"));
+		pipeline.open(new ExecutionContext());
+
+		assertTrue(reading.await(5, TimeUnit.SECONDS));
+		pipeline.close();
+		assertFalse(closedDuringRead.get(), "the delegate was closed while the producer was reading from it");
+	}
+
+	@Test
+	void testPartitionsAreImportedThroughThePipeline() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedA.txt"), 300, 11);
+		Files.writeString(TEST_INPUT_DIR.resolve("feedB.txt"),
+				TransactionFeedGenerator.HEADER + "\n" +
+						"8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+						"8872838283|not-a-number|FUND TRANSFER|2019-09-12|11:11:11|222\n" +
+						"8872838283|5.00|FUND TRANSFER|2019-09-12|11:11:11|222\n");
+
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis())
+				.toJobParameters());
+
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		StepExecution managerExecution = execution.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().equals("step1"))
+				.findFirst()
+				.orElseThrow();
+		assertEquals(302, managerExecution.getReadCount());
+		assertEquals(302, managerExecution.getWriteCount());
+		assertEquals(1, managerExecution.getReadSkipCount());
+		assertEquals(302, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+	}
+
+	/**
+	 * Items ending in 3 fail to read, items ending in 7 fail validation, and the rest are multiplied by ten.
+	 */
+	private static ReadAheadPipeline<Integer> pipeline(int count, int capacity) {
+		ItemReader<Integer> reader = new ItemReader<>() {
+			private int next;
+
+			@Override
+			public Integer read() {
+				if (next == count) {
+					return null;
+				}
+				int item = next++;
+				if (item % 10 == 3) {
+					throw new FlatFileParseException("Bad line", Integer.toString(item), item);
+				}
+				return item;
+			}
+		};
+		return new ReadAheadPipeline<>(reader, item -> {
+			if (item % 10 == 7) {
+				throw new IllegalArgumentException("Invalid item " + item);
+			}
+			return item * 10;
+		}, capacity, new SimpleAsyncTaskExecutor("pipeline-test-"));
+	}
+}
@@ -0,0 +1,157 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.reference.ReferenceDataCache;
+import com.mb.transactionbatchprocessor.reference.ReferenceIndex;
+import com.mb.transactionbatchprocessor.validation.TransactionRuleEngine;
+import com.mb.transactionbatchprocessor.validation.ValidationError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceDataCacheTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/reference");
+	private static final Path SNAPSHOT = TEST_DATA_DIR.resolve("accounts.txt");
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_DATA_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testLooksUpEveryAccountOfTheSnapshot() throws Exception {
+		writeSnapshot(100_000);
+		Files.writeString(SNAPSHOT, "0042|7\n42|\nnot-an-account|1\n8000000001|x\n8000000002|12345\n",
+				StandardOpenOption.APPEND);
+		ReferenceDataCache cache = new ReferenceDataCache(SNAPSHOT, 1024);
+
+		assertEquals(100_002, cache.size());
+		for (int i = 0; i < 100_000; i += 7) {
+			assertEquals(Integer.toString(i % 1_000), cache.customerId(Long.toString(8_000_000_000L + i)));
+		}
+		// The last line of a repeated account wins, leading zeros matter and bad lines are skipped
+		assertEquals("12345", cache.customerId("8000000002"));
+		assertEquals("7", cache.customerId("0042"));
+		assertTrue(cache.isKnownAccount("42"));
+		assertNull(cache.customerId("42"));
+		assertFalse(cache.isKnownAccount("042"));
+		assertFalse(cache.isKnownAccount("not-an-account"));
+		assertFalse(cache.isKnownAccount("9000000000"));
+		assertFalse(cache.isKnownAccount(null));
+		// Served from the hot table the second time
+		assertFalse(cache.isKnownAccount("9000000000"));
+		assertEquals("12345", cache.customerId("8000000002"));
+	}
+
+	@Test
+	void testReloadsOnlyAChangedSnapshot() throws Exception {
+		writeSnapshot(1_000);
+		ReferenceDataCache cache = new ReferenceDataCache(SNAPSHOT, 64);
+		assertTrue(cache.reload());
+		Path index = TEST_DATA_DIR.resolve("accounts.txt" + ReferenceIndex.INDEX_SUFFIX);
+		FileTime built = Files.getLastModifiedTime(index);
+		assertFalse(cache.reload());
+		assertEquals("5", cache.customerId("8000000005"));
+
+		// A second cache maps the existing index instead of building it again
+		assertEquals(1_000, new ReferenceDataCache(SNAPSHOT, 64).size());
+		assertEquals(built, Files.getLastModifiedTime(index));
+
+		Files.writeString(SNAPSHOT, "ACCOUNT_NUMBER|CUSTOMER_ID\n8000000005|55\n");
+		Files.setLastModifiedTime(SNAPSHOT, FileTime.fromMillis(Files.getLastModifiedTime(SNAPSHOT).toMillis() + 1_000));
+		assertTrue(cache.reload());
+		assertEquals(1, cache.size());
+		assertEquals("55", cache.customerId("8000000005"));
+		assertFalse(cache.isKnownAccount("8000000006"));
+	}
+
+	@Test
+	void testReferenceRules() throws Exception {
+		Files.writeString(SNAPSHOT, "ACCOUNT_NUMBER|CUSTOMER_ID\n8872838283|222\n8872838299|\n");
+		ReferenceDataCache cache = new ReferenceDataCache(SNAPSHOT, 64);
+		TransactionRuleEngine ruleEngine = TransactionRuleEngine.compile(List.of("account-known", "customer-matches-account"),
+				LocalDate.now(), cache);
+
+		assertNull(ruleEngine.validate(record("8872838283", "222")));
+		assertNull(ruleEngine.validate(record("8872838299", "999")));
+		assertEquals(ValidationError.CUSTOMER_ID_MISMATCH, ruleEngine.validate(record("8872838283", "223")));
+		assertEquals(ValidationError.ACCOUNT_UNKNOWN, ruleEngine.validate(record("8872838284", "222")));
+		assertThrows(IllegalArgumentException.class, () -> TransactionRuleEngine.compile(List.of("account-known")));
+	}
+
+	@Test
+	void testLookupsDoNotAllocate() throws Exception {
+		writeSnapshot(10_000);
+		ReferenceDataCache cache = new ReferenceDataCache(SNAPSHOT, 1024);
+		String[] accounts = new String[2_048];
+		for (int i = 0; i < accounts.length; i++) {
+			accounts[i] = Long.toString(8_000_000_000L + i * 7L);
+		}
+		cache.isKnownAccount(accounts[0]);
+
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long before = threadMXBean.getThreadAllocatedBytes(threadId);
+		int unknown = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (!cache.isKnownAccount(accounts[i & (accounts.length - 1)])) {
+				unknown++;
+			}
+		}
+		long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+		// Only the first 1,429 accounts are in the snapshot
+		int expected = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if ((i & (accounts.length - 1)) * 7 >= 10_000) {
+				expected++;
+			}
+		}
+		assertEquals(expected, unknown);
+		assertTrue(allocated < 64 * 1024, allocated + " bytes allocated");
+	}
+
+	private static void writeSnapshot(int accounts) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(SNAPSHOT)) {
+			writer.write("ACCOUNT_NUMBER|CUSTOMER_ID");
+			writer.newLine();
+			for (int i = 0; i < accounts; i++) {
+				writer.write(Long.toString(8_000_000_000L + i));
+				writer.write('|');
+				writer.write(Integer.toString(i % 1_000));
+				writer.newLine();
+			}
+		}
+	}
+
+	private static TransactionRecord record(String accountNumber, String customerId) {
+		TransactionRecord transactionRecord = new TransactionRecord();
+		transactionRecord.setAccountNumber(accountNumber);
+		transactionRecord.setCustomerId(customerId);
+		return transactionRecord;
+	}
+}
@@ -0,0 +1,122 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.aspect.MethodTimings;
+import com.mb.transactionbatchprocessor.aspect.MethodTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/reference-import/input",
+		"transaction.completed.dir=target/test-data/reference-import/completed",
+		"transaction.error.dir=target/test-data/reference-import/error",
+		"transaction.reference.snapshot=target/test-data/reference-import/accounts.txt",
+		"transaction.reference.hot-entries=256",
+		"transaction.validation.rules=account-known,customer-matches-account"
+})
+class ReferenceDataImportTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/reference-import");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+	private static final Path SNAPSHOT = TEST_DATA_DIR.resolve("accounts.txt");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MethodTracer methodTracer;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testRecordsAreCheckedAgainstTheSnapshotOfEachRun() throws Exception {
+		// The generated feeds use accounts 8000000000 to 8000000999, with the customer id in the last three digits
+		writeSnapshot(900);
+		Path feed = TEST_INPUT_DIR.resolve("feed.txt");
+		TransactionFeedGenerator.write(feed, 200, 61);
+		List<String> lines = new ArrayList<>(Files.readAllLines(feed));
+		lines.set(1, "8000000007|10.00|FUND TRANSFER|2019-09-12|11:11:11|");
+		lines.set(2, "8000000007|10.00|FUND TRANSFER|2019-09-12|11:11:11|8");
+		Files.write(feed, lines);
+		long unknown = lines.stream().skip(1).filter(line -> Long.parseLong(line.substring(7, 10)) >= 900).count();
+
+		JobExecution execution = run();
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		assertEquals(199 - unknown, rowCount());
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record WHERE account_number = '8000000007' " +
+				"AND trx_amount = 10.00 AND customer_id = '7'", Integer.class));
+
+		// The next run sees the accounts added to the snapshot
+		jdbcTemplate.update("DELETE FROM transaction_record");
+		writeSnapshot(1_000);
+		Files.setLastModifiedTime(SNAPSHOT, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+		TransactionFeedGenerator.write(feed, 200, 61);
+		assertEquals(BatchStatus.COMPLETED, run().getStatus());
+		assertEquals(200, rowCount());
+
+		// The lookups run once per record and are not traced
+		List<String> methods = methodTracer.getTimings().stream().map(MethodTimings::getMethod).toList();
+		assertTrue(methods.contains("ReferenceDataCache.beforeJob"), methods.toString());
+		assertTrue(methods.stream().noneMatch(method -> method.startsWith("ReferenceDataCache.")
+				&& !method.equals("ReferenceDataCache.beforeJob") && !method.equals("ReferenceDataCache.afterJob")), methods.toString());
+	}
+
+	private static void writeSnapshot(int accounts) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(SNAPSHOT)) {
+			writer.write("ACCOUNT_NUMBER|CUSTOMER_ID");
+			writer.newLine();
+			for (int i = 0; i < accounts; i++) {
+				writer.write(Long.toString(8_000_000_000L + i));
+				writer.write('|');
+				writer.write(Integer.toString(i));
+				writer.newLine();
+			}
+		}
+	}
+
+	private JobExecution run() throws Exception {
+		return jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters());
+	}
+
+	private int rowCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class);
+	}
+}
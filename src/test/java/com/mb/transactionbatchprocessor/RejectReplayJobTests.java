@@ -0,0 +1,173 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/replay/input",
+		"transaction.completed.dir=target/test-data/replay/completed",
+		"transaction.error.dir=target/test-data/replay/error",
+		"transaction.partition.enabled=true",
+		"transaction.partition.max-range-bytes=4096"
+})
+class RejectReplayJobTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/replay");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+	private static final Path TEST_ERROR_DIR = TEST_DATA_DIR.resolve("error");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private Job replayRejectsJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		Files.createDirectories(TEST_ERROR_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testCorrectedRejectsAreImportedByOffset() throws Exception {
+		// Bad amounts in the first, a middle and the last partition of the file
+		Path feed = TEST_INPUT_DIR.resolve("feed.txt");
+		TransactionFeedGenerator.write(feed, 300, 7);
+		List<String> lines = new ArrayList<>(Files.readAllLines(feed));
+		lines.set(20, lines.get(20).replaceFirst("\\|[^|]+\\|", "|not-a-number|"));
+		lines.set(150, lines.get(150).replaceFirst("\\|[^|]+\\|", "|9x|"));
+		lines.set(280, lines.get(280).replaceFirst("\\|[^|]+\\|", "|not-a-number|"));
+		Files.write(feed, lines);
+
+		assertEquals(BatchStatus.COMPLETED, run(importTransactionRecordJob, new JobParametersBuilder()).getStatus());
+		assertEquals(297, rowCount());
+		Path errorFile = errorFile();
+		assertEquals(4, Files.readAllLines(rejectsFile(errorFile)).size());
+
+		// Corrections that shrink and grow lines move the lines after them
+		String corrected = Files.readString(errorFile)
+				.replace("|not-a-number|", "|7.50|")
+				.replace("|9x|", "|123456.78|");
+		Files.writeString(errorFile, corrected);
+
+		JobExecution replay = run(replayRejectsJob, new JobParametersBuilder()
+				.addString(BatchConfig.REPLAY_FILE_PARAMETER, errorFile.toString()));
+		assertEquals(BatchStatus.COMPLETED, replay.getStatus());
+
+		// Only the three corrected lines were read and imported
+		assertEquals(3, replay.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().equals("replayStep"))
+				.findFirst()
+				.orElseThrow()
+				.getReadCount());
+		assertEquals(300, rowCount());
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record WHERE trx_amount = 7.50", Integer.class));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record WHERE trx_amount = 123456.78", Integer.class));
+
+		// The file is done, so its rejects cannot be replayed twice
+		assertFalse(Files.exists(errorFile));
+		assertFalse(Files.exists(rejectsFile(errorFile)));
+		assertEquals(1, TEST_DATA_DIR.resolve("completed").toFile().list().length);
+	}
+
+	@Test
+	void testRejectsByLineNumberThatFailAgainAreKept() throws Exception {
+		String goodLine = "8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222";
+		String badLine = "8872838283|1x|FUND TRANSFER|2019-09-12|11:11:11|222";
+		Path errorFile = TEST_ERROR_DIR.resolve("feed_ERROR_20240101000000.txt");
+		Files.write(errorFile, List.of(TransactionFeedGenerator.HEADER, goodLine, goodLine, badLine));
+		Files.write(rejectsFile(errorFile), List.of(
+				"# feed.txt",
+				"2\t-1\t-1\tread\tNumberFormatException: was bad, now corrected",
+				"4\t-1\t-1\tread\tNumberFormatException: still bad"));
+
+		JobExecution replay = run(replayRejectsJob, new JobParametersBuilder()
+				.addString(BatchConfig.REPLAY_FILE_PARAMETER, errorFile.toString()));
+		assertEquals(BatchStatus.COMPLETED, replay.getStatus());
+
+		// Line 3 was never rejected, so it is not imported again
+		assertEquals(1, rowCount());
+
+		// The sidecar now locates the remaining reject by offset as well
+		assertTrue(Files.exists(errorFile));
+		List<String> rejects = Files.readAllLines(rejectsFile(errorFile));
+		assertEquals(2, rejects.size(), rejects.toString());
+		int offset = TransactionFeedGenerator.HEADER.length() + 1 + 2 * (goodLine.length() + 1);
+		assertTrue(rejects.get(1).startsWith("4\t" + offset + "\t" + badLine.length() + "\tread\tNumberFormatException: "), rejects.get(1));
+	}
+
+	@Test
+	void testTruncatedRejectsKeepTheFileInError() throws Exception {
+		String goodLine = "8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222";
+		Path errorFile = TEST_ERROR_DIR.resolve("feed_ERROR_20240101000000.txt");
+		Files.write(errorFile, List.of(TransactionFeedGenerator.HEADER, goodLine, goodLine));
+		Files.write(rejectsFile(errorFile), List.of(
+				"# feed.txt",
+				"2\t-1\t-1\tread\tNumberFormatException: was bad, now corrected",
+				"# truncated after 10000 rejects"));
+
+		JobExecution replay = run(replayRejectsJob, new JobParametersBuilder()
+				.addString(BatchConfig.REPLAY_FILE_PARAMETER, errorFile.toString()));
+		assertEquals(BatchStatus.COMPLETED, replay.getStatus());
+		assertEquals(1, rowCount());
+
+		// The rejects past the listed ones were never replayed, so the file is not done
+		assertTrue(Files.exists(errorFile));
+		List<String> rejects = Files.readAllLines(rejectsFile(errorFile));
+		assertEquals(2, rejects.size(), rejects.toString());
+		assertTrue(rejects.get(1).startsWith("# truncated"), rejects.get(1));
+	}
+
+	private JobExecution run(Job job, JobParametersBuilder jobParameters) throws Exception {
+		return jobLauncher.run(job, jobParameters.addLong("startAt", System.nanoTime()).toJobParameters());
+	}
+
+	private int rowCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class);
+	}
+
+	private static Path errorFile() throws IOException {
+		try (Stream<Path> files = Files.list(TEST_ERROR_DIR)) {
+			return files.filter(file -> file.toString().endsWith(".txt")).findFirst().orElseThrow().toAbsolutePath();
+		}
+	}
+
+	private static Path rejectsFile(Path errorFile) {
+		return errorFile.resolveSibling(errorFile.getFileName() + ".rejects");
+	}
+}
@@ -0,0 +1,211 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.InputFileSet;
+import com.mb.transactionbatchprocessor.batch.RestartingJobLauncher;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/restart/input",
+		"transaction.completed.dir=target/test-data/restart/completed",
+		"transaction.error.dir=target/test-data/restart/error",
+		"transaction.partition.enabled=true",
+		"transaction.partition.pool-size=1",
+		"transaction.partition.max-range-bytes=2048"
+})
+// One worker thread, so that no partition commits after the simulated crash
+class RestartFromCheckpointTests {
+
+	private static final String INPUT_DIR = "target/test-data/restart/input";
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/restart");
+	private static final Path TEST_INPUT_DIR = Paths.get(INPUT_DIR);
+
+	/**
+	 * Once more than this many records have been written every write fails, as if the process had died.
+	 */
+	private static final AtomicInteger crashAfter = new AtomicInteger(Integer.MAX_VALUE);
+	private static final AtomicInteger written = new AtomicInteger();
+
+	@TestConfiguration
+	static class CrashingWriterConfiguration {
+
+		@Bean
+		static BeanPostProcessor crashingWriterPostProcessor() {
+			return new BeanPostProcessor() {
+				@Override
+				@SuppressWarnings("unchecked")
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!beanName.equals("transactionRecordWriter")) {
+						return bean;
+					}
+					ItemWriter<TransactionRecord> delegate = (ItemWriter<TransactionRecord>) bean;
+					return (ItemWriter<TransactionRecord>) chunk -> {
+						if (written.addAndGet(chunk.size()) > crashAfter.get()) {
+							throw new IllegalStateException("Simulated crash");
+						}
+						delegate.write(chunk);
+					};
+				}
+			};
+		}
+	}
+
+	@Autowired
+	private RestartingJobLauncher restartingJobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+		jdbcTemplate.update("DELETE FROM transaction_record");
+		written.set(0);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		crashAfter.set(Integer.MAX_VALUE);
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testKilledRunResumesFromTheLastCommittedChunkOfEachFile() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedA.txt"), 300, 31);
+		Path feedB = TEST_INPUT_DIR.resolve("feedB.txt");
+		TransactionFeedGenerator.write(feedB, 100, 32);
+		List<String> lines = new ArrayList<>(Files.readAllLines(feedB));
+		lines.set(50, lines.get(50).replaceFirst("\\|[^|]+\\|", "|not-a-number|"));
+		Files.write(feedB, lines);
+
+		crashAfter.set(120);
+		JobExecution crashed = run();
+		assertEquals(BatchStatus.FAILED, crashed.getStatus());
+		int committed = rowCount();
+		assertTrue(committed > 0 && committed <= 120, "committed " + committed);
+		simulateKill(crashed);
+
+		crashAfter.set(Integer.MAX_VALUE);
+		JobExecution resumed = run();
+		assertEquals(BatchStatus.COMPLETED, resumed.getStatus());
+		assertEquals(crashed.getJobInstance().getInstanceId(), resumed.getJobInstance().getInstanceId());
+		assertEquals(crashed.getJobParameters(), resumed.getJobParameters());
+
+		// Only the lines after the last committed chunk of each range were read again
+		long readAgain = resumed.getStepExecutions().stream()
+				.filter(stepExecution -> stepExecution.getStepName().startsWith("step1Worker:"))
+				.mapToLong(StepExecution::getReadCount)
+				.sum();
+		assertEquals(399 - committed, readAgain);
+		assertEquals(399, rowCount());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT account_number, trx_amount, description, " +
+				"trx_date, trx_time, customer_id FROM transaction_record GROUP BY account_number, trx_amount, description, " +
+				"trx_date, trx_time, customer_id HAVING COUNT(*) > 1) duplicates", Integer.class));
+
+		// The skip counted before or after the restart still routes its file to the error directory
+		assertEquals(1, TEST_DATA_DIR.resolve("completed").toFile().list().length);
+		assertEquals(2, TEST_DATA_DIR.resolve("error").toFile().list().length);
+	}
+
+	@Test
+	void testChangedInputFilesStartANewRun() throws Exception {
+		Path feed = TEST_INPUT_DIR.resolve("feed.txt");
+		TransactionFeedGenerator.write(feed, 100, 33);
+
+		crashAfter.set(30);
+		JobExecution crashed = run();
+		assertEquals(BatchStatus.FAILED, crashed.getStatus());
+		simulateKill(crashed);
+
+		crashAfter.set(Integer.MAX_VALUE);
+		Files.writeString(feed, "8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n", StandardOpenOption.APPEND);
+		JobExecution fresh = run();
+		assertEquals(BatchStatus.COMPLETED, fresh.getStatus());
+		assertNotEquals(crashed.getJobInstance().getInstanceId(), fresh.getJobInstance().getInstanceId());
+	}
+
+	@Test
+	void testInputFilesAreComparedByModificationTimeBeforeChecksum() throws Exception {
+		Path dir = TEST_DATA_DIR.resolve("files");
+		Files.createDirectories(dir);
+		assertFalse(InputFileSet.covers(Map.of(), dir.toString()));
+
+		Path feed = dir.resolve("feed.txt");
+		Files.writeString(feed, "8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n");
+		// A file that was just written is always checksummed, because a second write may keep its modification time
+		Map<String, String> recent = InputFileSet.scan(dir.toString());
+		Files.writeString(feed, "8872838283|124.00|FUND TRANSFER|2019-09-12|11:11:11|222\n");
+		assertFalse(InputFileSet.covers(recent, dir.toString()));
+
+		long lastModified = System.currentTimeMillis() - 60_000;
+		Files.setLastModifiedTime(feed, FileTime.fromMillis(lastModified));
+		Map<String, String> recorded = InputFileSet.scan(dir.toString());
+		assertTrue(InputFileSet.covers(recorded, dir.toString()));
+
+		// The same content under a new modification time, as when a file is delivered again
+		Files.setLastModifiedTime(feed, FileTime.fromMillis(lastModified - 60_000));
+		assertTrue(InputFileSet.covers(recorded, dir.toString()));
+
+		Files.writeString(feed, "8872838283|125.00|FUND TRANSFER|2019-09-12|11:11:11|222\n");
+		assertFalse(InputFileSet.covers(recorded, dir.toString()));
+
+		Files.delete(feed);
+		assertFalse(InputFileSet.covers(recorded, dir.toString()));
+	}
+
+	private JobExecution run() throws Exception {
+		JobParameters jobParameters = new JobParametersBuilder()
+				.addLong("startAt", System.nanoTime())
+				.toJobParameters();
+		return restartingJobLauncher.run(importTransactionRecordJob, jobParameters, INPUT_DIR);
+	}
+
+	/**
+	 * Leaves the execution as a killed process would: still marked as running in the job repository.
+	 */
+	private void simulateKill(JobExecution jobExecution) {
+		jdbcTemplate.update("UPDATE BATCH_JOB_EXECUTION SET STATUS = 'STARTED', EXIT_CODE = 'UNKNOWN', END_TIME = NULL " +
+				"WHERE JOB_EXECUTION_ID = ?", jobExecution.getId());
+		jdbcTemplate.update("UPDATE BATCH_STEP_EXECUTION SET STATUS = 'STARTED', EXIT_CODE = 'EXECUTING', END_TIME = NULL " +
+				"WHERE JOB_EXECUTION_ID = ? AND STATUS = 'FAILED'", jobExecution.getId());
+	}
+
+	private int rowCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class);
+	}
+}
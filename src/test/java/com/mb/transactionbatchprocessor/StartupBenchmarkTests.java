@@ -0,0 +1,143 @@
+package com.mb.transactionbatchprocessor;
+
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Launches the packaged application in a fresh JVM per run, as a scheduler would for each small drop, and times
+ * it from launch until the import of a one-record file has completed. Build the jar first with
+ * {@code mvn package -Plean -DskipTests}, so that it includes the ahead-of-time processed lean profile.
+ */
+class StartupBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(StartupBenchmarkTests.class);
+
+	private static final Path JAR = Paths.get("target/TransactionBatchProcessor-0.0.1-SNAPSHOT.jar");
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/startup");
+	private static final String AOT_INITIALIZER = "com/mb/transactionbatchprocessor/TransactionBatchProcessorApplication__ApplicationContextInitializer.class";
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkTimeToImportASmallDrop() throws Exception {
+		assumeTrue(Files.exists(JAR), "Package the application first: mvn package -Plean -DskipTests");
+
+		// The extracted layout keeps every class in a jar, which class data sharing requires
+		Path extracted = TEST_DATA_DIR.resolve("app");
+		run(List.of("java", "-Djarmode=tools", "-jar", JAR.toString(), "extract", "--destination", extracted.toString()), null);
+		Path application = extracted.resolve(JAR.getFileName());
+		Path h2 = Paths.get(Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		String classpath = application + File.pathSeparator + h2;
+		boolean aotProcessed;
+		try (JarFile jarFile = new JarFile(application.toFile())) {
+			aotProcessed = jarFile.getEntry(AOT_INITIALIZER) != null;
+		}
+
+		Path archive = TEST_DATA_DIR.resolve("application.jsa");
+		if (aotProcessed) {
+			// Training run, which stops once the context has been refreshed and writes the classes it loaded
+			launch(classpath, List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh",
+					"-Dspring.aot.enabled=true"), true, "training");
+		}
+
+		for (int round = 0; round < 3; round++) {
+			long fullNanos = launch(classpath, List.of(), false, "full");
+			long leanNanos = launch(classpath, List.of(), true, "lean");
+			if (!aotProcessed) {
+				logger.info(String.format("Small drop: full %,d ms, lean %,d ms (package with -Plean for AOT and CDS)",
+						fullNanos / 1_000_000, leanNanos / 1_000_000));
+				continue;
+			}
+			long aotNanos = launch(classpath, List.of("-Dspring.aot.enabled=true"), true, "aot");
+			long cdsNanos = launch(classpath, List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true"), true, "cds");
+			logger.info(String.format("Small drop: full %,d ms, lean %,d ms, lean with AOT %,d ms, lean with AOT and CDS %,d ms",
+					fullNanos / 1_000_000, leanNanos / 1_000_000, aotNanos / 1_000_000, cdsNanos / 1_000_000));
+		}
+	}
+
+	/**
+	 * Imports one record in a new JVM.
+	 *
+	 * @return the time from launch until the job status was printed
+	 */
+	private long launch(String classpath, List<String> jvmOptions, boolean lean, String name) throws Exception {
+		Path dir = TEST_DATA_DIR.resolve(name);
+		FileSystemUtils.deleteRecursively(dir);
+		Files.createDirectories(dir.resolve("input"));
+		TransactionFeedGenerator.write(dir.resolve("input/feed.txt"), 1, 71);
+
+		List<String> command = new ArrayList<>(List.of("java", "-cp", classpath));
+		command.addAll(jvmOptions);
+		command.add(TransactionBatchProcessorApplication.class.getName());
+		command.add("--spring.datasource.url=jdbc:h2:mem:startup;MODE=MySQL;DB_CLOSE_DELAY=-1");
+		command.add("--spring.datasource.username=sa");
+		command.add("--spring.sql.init.mode=always");
+		command.add("--transaction.input.dir=" + dir.resolve("input"));
+		command.add("--transaction.completed.dir=" + dir.resolve("completed"));
+		command.add("--transaction.error.dir=" + dir.resolve("error"));
+		if (lean) {
+			command.add("--spring.profiles.active=lean");
+			command.add("--spring.sql.init.schema-locations=classpath:org/springframework/batch/core/schema-h2.sql,classpath:db/transaction_record.sql");
+		} else {
+			command.add("--spring.jpa.hibernate.ddl-auto=create-drop");
+			command.add("--spring.sql.init.schema-locations=classpath:org/springframework/batch/core/schema-h2.sql");
+		}
+
+		long start = System.nanoTime();
+		long elapsed = run(command, "Job Status: COMPLETED") - start;
+		if (!name.equals("training")) {
+			assertEquals(1, dir.resolve("completed").toFile().list().length, name + " did not import the file");
+		}
+		return elapsed;
+	}
+
+	/**
+	 * Runs the command to the end.
+	 *
+	 * @return when the first line starting with {@code marker} was printed, or when the command ended without one
+	 */
+	private static long run(List<String> command, String marker) throws Exception {
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		long markedAt = 0;
+		List<String> output = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (markedAt == 0 && marker != null && line.startsWith(marker)) {
+					markedAt = System.nanoTime();
+				}
+				output.add(line);
+			}
+		}
+		int exitCode = process.waitFor();
+		if (exitCode != 0) {
+			output.forEach(logger::warn);
+		}
+		assertEquals(0, exitCode, String.join(" ", command));
+		return markedAt == 0 ? System.nanoTime() : markedAt;
+	}
+}
@@ -0,0 +1,267 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.BatchConfig;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Imports a generated feed with skewed accounts and dates and a rate of malformed lines end to end, on an
+ * embedded database, and checks that exactly the malformed lines were skipped.
+ * <p>
+ * The benchmark reports rows per second, peak heap and GC pauses for the sequential and partitioned imports,
+ * and fails when the throughput of either drops by more than {@code regression.max-drop} below the baseline in
+ * {@code regression.baseline}, which must be given, and is skipped without it. The baseline file should be kept
+ * outside {@code target}, which a clean build deletes. A missing baseline is recorded from the run, as is a new
+ * one with {@code regression.update-baseline=true}:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=ThroughputRegressionTests -Dregression.rows=50000000 -Dregression.baseline=/ci/throughput.properties
+ * </pre>
+ * The embedded database keeps every imported row on the heap, so give the test JVM room for it at large scale.
+ */
+class ThroughputRegressionTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(ThroughputRegressionTests.class);
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/throughput");
+
+	private static final long ROWS = Long.getLong("regression.rows", 1_000_000);
+	private static final double MALFORMED_RATE = Double.parseDouble(System.getProperty("regression.malformed-rate", "0.001"));
+	private static final double MAX_DROP = Double.parseDouble(System.getProperty("regression.max-drop", "0.2"));
+	private static final String BASELINE = System.getProperty("regression.baseline");
+	private static final boolean UPDATE_BASELINE = Boolean.getBoolean("regression.update-baseline");
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testExactlyTheMalformedLinesAreSkipped() throws Exception {
+		run("sequential", 20_000, 0.01, false);
+		run("partitioned", 20_000, 0.01, true);
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkImportThroughputAgainstTheBaseline() throws Exception {
+		assumeTrue(BASELINE != null && !BASELINE.isEmpty(),
+				"Give the baseline file to compare with, or to record: -Dregression.baseline=/ci/throughput-baseline.properties");
+		Path baselineFile = Paths.get(BASELINE);
+		Properties baseline = new Properties();
+		if (Files.exists(baselineFile)) {
+			try (InputStream in = Files.newInputStream(baselineFile)) {
+				baseline.load(in);
+			}
+		}
+
+		Properties results = new Properties();
+		StringBuilder regressions = new StringBuilder();
+		for (boolean partitioned : new boolean[]{false, true}) {
+			String scenario = partitioned ? "partitioned" : "sequential";
+			// A smaller import first, so that the measured one runs compiled code
+			run(scenario, Math.max(10_000, ROWS / 10), MALFORMED_RATE, partitioned);
+			Result result = run(scenario, ROWS, MALFORMED_RATE, partitioned);
+			logger.info(String.format("%s: %,d rows in %,d ms, %,.0f rows/s, peak heap %,d MB, %,d GC pauses of %,d ms in total and %,d ms at most, %,d skipped",
+					scenario, ROWS, result.elapsedNanos / 1_000_000, result.rowsPerSecond(), result.peakHeapBytes >> 20,
+					result.gcPauses, result.gcPauseMillis, result.maxGcPauseMillis, result.skipped));
+			results.setProperty(scenario + ".rows-per-second", String.format("%.0f", result.rowsPerSecond()));
+
+			String expected = baseline.getProperty(scenario + ".rows-per-second");
+			if (expected != null && result.rowsPerSecond() < Double.parseDouble(expected) * (1 - MAX_DROP)) {
+				regressions.append(String.format("%s fell to %,.0f rows/s from a baseline of %,.0f%n", scenario,
+						result.rowsPerSecond(), Double.parseDouble(expected)));
+			}
+		}
+
+		if (UPDATE_BASELINE || baseline.isEmpty()) {
+			Files.createDirectories(baselineFile.toAbsolutePath().getParent());
+			try (OutputStream out = Files.newOutputStream(baselineFile)) {
+				results.store(out, "Import throughput of " + ROWS + " rows, see ThroughputRegressionTests");
+			}
+			logger.info("Recorded the baseline in {}", baselineFile);
+			return;
+		}
+		assertTrue(regressions.isEmpty(), "Throughput dropped by more than " + Math.round(MAX_DROP * 100) + "%:\n" + regressions);
+	}
+
+	private Result run(String scenario, long rows, double malformedRate, boolean partitioned) throws Exception {
+		Path dir = TEST_DATA_DIR.resolve(scenario);
+		FileSystemUtils.deleteRecursively(dir);
+		Path inputDir = dir.resolve("input");
+		Files.createDirectories(inputDir);
+		Files.createDirectories(dir.resolve("empty"));
+		long malformed = TransactionFeedGenerator.feed(rows, 42)
+				.accounts(100_000, 1.1)
+				.days(365, 0.8)
+				.malformedRate(malformedRate)
+				.write(inputDir.resolve("feed.txt"));
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TransactionBatchProcessorApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(
+						// Command line arguments, because default properties would lose to the test application.properties.
+						// The application runner finds nothing to import; the job below is given the feed.
+						"--transaction.input.dir=" + dir.resolve("empty"),
+						"--transaction.completed.dir=" + dir.resolve("completed"),
+						"--transaction.error.dir=" + dir.resolve("error"),
+						"--transaction.chunk.size=500",
+						"--transaction.partition.enabled=" + partitioned,
+						"--transaction.partition.max-range-bytes=" + (partitioned ? 16 * 1024 * 1024 : 64 * 1024 * 1024),
+						"--tracing.enabled=false",
+						// H2's MySQL mode can hand out duplicate identity values under heavy concurrent inserts
+						"--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")) {
+			GcMonitor gcMonitor = new GcMonitor();
+			long start = System.nanoTime();
+			JobExecution execution;
+			try {
+				execution = context.getBean(JobLauncher.class).run(context.getBean("importTransactionRecordJob", Job.class),
+						new JobParametersBuilder()
+								.addString(BatchConfig.INPUT_DIR_PARAMETER, inputDir.toString())
+								.addLong("startAt", System.currentTimeMillis())
+								.toJobParameters());
+				while (execution.isRunning()) {
+					Thread.sleep(10);
+				}
+			} finally {
+				gcMonitor.close();
+			}
+			long elapsed = System.nanoTime() - start;
+
+			assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+			StepExecution step1 = execution.getStepExecutions().stream()
+					.filter(stepExecution -> stepExecution.getStepName().equals("step1"))
+					.findFirst()
+					.orElseThrow();
+			assertEquals(malformed, step1.getSkipCount(), scenario + " skipped lines that were not malformed, or missed some");
+			assertEquals(rows - malformed, step1.getWriteCount());
+			assertEquals(rows - malformed, (long) context.getBean(JdbcTemplate.class)
+					.queryForObject("SELECT COUNT(*) FROM transaction_record", Long.class));
+			if (malformed > 0) {
+				File[] rejects = dir.resolve("error").toFile().listFiles((errorDir, name) -> name.endsWith(".rejects"));
+				assertEquals(1, rejects.length);
+				long rejected = Files.readAllLines(rejects[0].toPath()).stream().filter(line -> !line.startsWith("#")).count();
+				assertEquals(Math.min(malformed, 10_000), rejected);
+			}
+			return new Result(rows, elapsed, gcMonitor, step1.getSkipCount());
+		}
+	}
+
+	private static final class Result {
+
+		private final long rows;
+		private final long elapsedNanos;
+		private final long peakHeapBytes;
+		private final int gcPauses;
+		private final long gcPauseMillis;
+		private final long maxGcPauseMillis;
+		private final long skipped;
+
+		Result(long rows, long elapsedNanos, GcMonitor gcMonitor, long skipped) {
+			this.rows = rows;
+			this.elapsedNanos = elapsedNanos;
+			this.peakHeapBytes = gcMonitor.peakHeapBytes;
+			this.gcPauses = gcMonitor.pauses;
+			this.gcPauseMillis = gcMonitor.pauseMillis;
+			this.maxGcPauseMillis = gcMonitor.maxPauseMillis;
+			this.skipped = skipped;
+		}
+
+		double rowsPerSecond() {
+			return rows * 1e9 / elapsedNanos;
+		}
+	}
+
+	/**
+	 * Collects the pauses of the collectors and the heap in use before each of them, which is where it peaks.
+	 */
+	private static final class GcMonitor implements NotificationListener {
+
+		private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(pool -> pool.getType() == MemoryType.HEAP)
+				.map(MemoryPoolMXBean::getName)
+				.collect(Collectors.toSet());
+		private long peakHeapBytes;
+		private int pauses;
+		private long pauseMillis;
+		private long maxPauseMillis;
+
+		GcMonitor() {
+			System.gc();
+			peakHeapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+			for (GarbageCollectorMXBean collector : collectors) {
+				((NotificationEmitter) collector).addNotificationListener(this, null, null);
+			}
+		}
+
+		@Override
+		public synchronized void handleNotification(Notification notification, Object handback) {
+			if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+				return;
+			}
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+			long heapBytes = 0;
+			for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageBeforeGc().entrySet()) {
+				if (heapPools.contains(pool.getKey())) {
+					heapBytes += pool.getValue().getUsed();
+				}
+			}
+			peakHeapBytes = Math.max(peakHeapBytes, heapBytes);
+			// Concurrent cycles run beside the application rather than pausing it
+			if (!info.getGcName().contains("Concurrent")) {
+				pauses++;
+				pauseMillis += info.getGcInfo().getDuration();
+				maxPauseMillis = Math.max(maxPauseMillis, info.getGcInfo().getDuration());
+			}
+		}
+
+		synchronized void close() throws Exception {
+			for (GarbageCollectorMXBean collector : collectors) {
+				((NotificationEmitter) collector).removeNotificationListener(this);
+			}
+			peakHeapBytes = Math.max(peakHeapBytes, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.aspect.MethodTimings;
+import com.mb.transactionbatchprocessor.aspect.MethodTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/tracing/input",
+		"transaction.completed.dir=target/test-data/tracing/completed",
+		"transaction.error.dir=target/test-data/tracing/error",
+		"transaction.partition.enabled=true",
+		"transaction.reader.type=mapped",
+		"tracing.sample-rate=1"
+})
+class TracingAspectTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(TracingAspectTests.class);
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/tracing");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+	private static final int RECORDS = 500;
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@Autowired
+	private MethodTracer methodTracer;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testPerRecordMethodsAreNotTraced() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feed.txt"), RECORDS, 3);
+
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis())
+				.toJobParameters());
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+
+		List<String> methods = methodTracer.getTimings().stream().map(MethodTimings::getMethod).toList();
+		assertTrue(methods.contains("CustomJobExecutionListener.afterJob"), methods.toString());
+		assertTrue(methods.stream().noneMatch(method -> method.endsWith(".read") || method.endsWith(".update")
+				|| method.endsWith(".write") || method.endsWith(".process")), methods.toString());
+		// A method called for every record, whatever its type, would have been called at least once per record
+		List<MethodTimings> perRecord = methodTracer.getTimings().stream()
+				.filter(methodTimings -> methodTimings.getCalls() >= RECORDS)
+				.toList();
+		assertTrue(perRecord.isEmpty(), perRecord.toString());
+
+		MethodTimings afterJob = methodTracer.getTimings().stream()
+				.filter(methodTimings -> methodTimings.getMethod().equals("CustomJobExecutionListener.afterJob"))
+				.findFirst()
+				.orElseThrow();
+		assertEquals(afterJob.getCalls(), afterJob.getSamples());
+	}
+
+	@Test
+	void testPercentilesAreReportedAsBucketUpperBounds() {
+		MethodTimings timings = new MethodTimings("test");
+		for (long micros = 1; micros <= 100; micros++) {
+			timings.recordSample(micros * 1_000);
+		}
+
+		assertEquals(100, timings.getSamples());
+		assertEquals(50_500, timings.getMeanNanos());
+		assertEquals(65_535, timings.getPercentileNanos(50));
+		assertEquals(100_000, timings.getPercentileNanos(99));
+		assertEquals(100_000, timings.getMaxNanos());
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkLegacyLoggingAgainstSampledTracing() throws Exception {
+		Path fixture = TEST_DATA_DIR.resolve("fixture.txt");
+		TransactionFeedGenerator.write(fixture, 200_000, 42);
+
+		List<String> results = new ArrayList<>();
+		for (int round = 0; round < 3; round++) {
+			long legacyNanos = importFixture(fixture, true);
+			long tracingNanos = importFixture(fixture, false);
+			results.add(String.format("Legacy logging aspect: %,d records/sec, sampled tracing: %,d records/sec",
+					200_000L * 1_000_000_000 / legacyNanos, 200_000L * 1_000_000_000 / tracingNanos));
+		}
+		results.forEach(logger::info);
+	}
+
+	private long importFixture(Path fixture, boolean legacy) throws Exception {
+		Path runDir = TEST_DATA_DIR.resolve(UUID.randomUUID().toString());
+		Path inputDir = runDir.resolve("input");
+		Files.createDirectories(inputDir);
+
+		Class<?>[] sources = legacy
+				? new Class<?>[]{TransactionBatchProcessorApplication.class, LegacyLoggingAspect.class}
+				: new Class<?>[]{TransactionBatchProcessorApplication.class};
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(sources)
+				.web(WebApplicationType.NONE)
+				.run(
+						"--transaction.input.dir=" + inputDir,
+						"--transaction.completed.dir=" + runDir.resolve("completed"),
+						"--transaction.error.dir=" + runDir.resolve("error"),
+						"--transaction.partition.enabled=true",
+						"--transaction.reader.type=mapped",
+						"--tracing.enabled=" + !legacy,
+						// Log to a file as in production rather than flooding the test output
+						"--logging.file.name=" + runDir.resolve("batch.log"),
+						"--logging.pattern.console=")) {
+			Files.copy(fixture, inputDir.resolve("feed.txt"));
+
+			long start = System.nanoTime();
+			JobExecution execution = context.getBean(JobLauncher.class).run(context.getBean("importTransactionRecordJob", Job.class),
+					new JobParametersBuilder()
+							.addLong("startAt", System.currentTimeMillis())
+							.toJobParameters());
+			long elapsed = System.nanoTime() - start;
+
+			assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+			assertEquals(200_000, context.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+			return elapsed;
+		}
+	}
+}
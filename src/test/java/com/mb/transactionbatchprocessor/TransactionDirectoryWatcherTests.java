@@ -0,0 +1,151 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.TransactionDirectoryWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/watch/input",
+		"transaction.completed.dir=target/test-data/watch/completed",
+		"transaction.error.dir=target/test-data/watch/error",
+		"transaction.watch.enabled=true",
+		"transaction.watch.stable-millis=500",
+		"transaction.watch.max-concurrent-jobs=2"
+})
+@DirtiesContext
+class TransactionDirectoryWatcherTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/watch");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+	private static final String GOOD_LINE = "8872838283|123.00|FUND TRANSFER|2019-09-12|11:11:11|222\n";
+	private static final String BAD_LINE = "8872838283|not-a-number|FUND TRANSFER|2019-09-12|11:11:11|222\n";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionDirectoryWatcher watcher;
+
+	@Autowired
+	private JobExplorer jobExplorer;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testFilesAreImportedOnceAsTheyComplete() throws Exception {
+		// A marker makes a file ready straight away
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedA.txt"), 100, 1);
+		Files.createFile(TEST_INPUT_DIR.resolve("feedA.txt.done"));
+
+		// Without a marker a file is only imported once it has stopped growing
+		Path feedB = TEST_INPUT_DIR.resolve("feedB.txt");
+		Files.writeString(feedB, TransactionFeedGenerator.HEADER + "\n" + GOOD_LINE);
+		Thread.sleep(200);
+		Files.writeString(feedB, GOOD_LINE + GOOD_LINE, StandardOpenOption.APPEND);
+
+		List<String> completed = awaitFiles(TEST_DATA_DIR.resolve("completed"), 2);
+		assertTrue(completed.stream().anyMatch(name -> name.startsWith("feedA_")), completed.toString());
+		assertTrue(completed.stream().anyMatch(name -> name.startsWith("feedB_")), completed.toString());
+
+		// A later file is imported by an execution of its own, so its error does not affect the files above
+		Files.writeString(TEST_INPUT_DIR.resolve("feedC.txt"), TransactionFeedGenerator.HEADER + "\n" + GOOD_LINE + BAD_LINE);
+		List<String> failed = awaitFiles(TEST_DATA_DIR.resolve("error"), 2);
+		assertTrue(failed.get(0).startsWith("feedC_ERROR_"), failed.toString());
+		assertEquals(failed.get(0) + ".rejects", failed.get(1));
+		assertEquals(2, list(TEST_DATA_DIR.resolve("completed")).size());
+		assertEquals(104, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+		assertTrue(list(TEST_INPUT_DIR).stream().noneMatch(name -> name.endsWith(".txt") || name.endsWith(".done")),
+				list(TEST_INPUT_DIR).toString());
+	}
+
+	@Test
+	void testFailedRunIsRestartedInPlaceWhenWatchingStarts() throws Exception {
+		jdbcTemplate.update("DELETE FROM transaction_record");
+		long instances = jobExplorer.getJobInstanceCount("importTransactionRecordJob");
+		// Registers the input directory again, which another test may have deleted while it was watched
+		watcher.stop();
+		watcher.start();
+		jdbcTemplate.execute("ALTER TABLE transaction_record RENAME TO transaction_record_offline");
+		try {
+			Files.writeString(TEST_INPUT_DIR.resolve("feed.txt"), TransactionFeedGenerator.HEADER + "\n" + GOOD_LINE + GOOD_LINE);
+			Files.createFile(TEST_INPUT_DIR.resolve("feed.txt.done"));
+			awaitFailedExecution(instances);
+		} finally {
+			jdbcTemplate.execute("ALTER TABLE transaction_record_offline RENAME TO transaction_record");
+		}
+		// A newer delivery of the same name waits in the input directory while the failed run is restarted
+		Files.writeString(TEST_INPUT_DIR.resolve("feed.txt"), TransactionFeedGenerator.HEADER + "\n" + GOOD_LINE);
+
+		watcher.stop();
+		watcher.start();
+
+		List<String> completed = awaitFiles(TEST_DATA_DIR.resolve("completed"), 2);
+		assertTrue(completed.stream().allMatch(name -> name.startsWith("feed_")), completed.toString());
+		assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+		// The failed run was resumed as the same job instance, which the newer delivery did not replace
+		assertEquals(instances + 2, jobExplorer.getJobInstanceCount("importTransactionRecordJob"));
+		JobInstance failedInstance = jobExplorer.getJobInstances("importTransactionRecordJob", 1, 1).get(0);
+		List<BatchStatus> statuses = jobExplorer.getJobExecutions(failedInstance).stream().map(JobExecution::getStatus).sorted().toList();
+		assertEquals(List.of(BatchStatus.COMPLETED, BatchStatus.FAILED), statuses);
+	}
+
+	private void awaitFailedExecution(long instances) throws Exception {
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (System.currentTimeMillis() < deadline) {
+			if (jobExplorer.getJobInstanceCount("importTransactionRecordJob") > instances) {
+				JobInstance instance = jobExplorer.getLastJobInstance("importTransactionRecordJob");
+				JobExecution execution = jobExplorer.getLastJobExecution(instance);
+				if (execution != null && execution.getStatus() == BatchStatus.FAILED) {
+					return;
+				}
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("The run did not fail");
+	}
+
+	private static List<String> awaitFiles(Path dir, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		List<String> names = list(dir);
+		while (names.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			names = list(dir);
+		}
+		assertEquals(count, names.size(), names.toString());
+		return names;
+	}
+
+	private static List<String> list(Path dir) {
+		String[] names = dir.toFile().list();
+		return names == null ? List.of() : Arrays.stream(names).sorted().toList();
+	}
+}
@@ -0,0 +1,191 @@
+package com.mb.transactionbatchprocessor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Writes synthetic transaction feeds shaped like {@code testCorrectFile.txt} for tests and benchmarks.
+ * <p>
+ * {@link #write(Path, int, long)} writes a uniform feed of 1,000 accounts over 120 days. {@link #feed(long, long)}
+ * adds a skew towards a few busy accounts and the most recent days, and a rate of malformed lines, at any
+ * number of rows. The same seed always gives the same feed. Large feeds can also be written from the command
+ * line:
+ * <pre>
+ * java -cp target/classes:target/test-classes com.mb.transactionbatchprocessor.TransactionFeedGenerator \
+ *     feed.txt 50000000 [seed] [accounts] [account skew] [days] [day skew] [malformed rate]
+ * </pre>
+ */
+final class TransactionFeedGenerator {
+
+	static final String HEADER = "ACCOUNT_NUMBER|TRX_AMOUNT|DESCRIPTION|TRX_DATE|TRX_TIME|CUSTOMER_ID";
+
+	private static final String[] DESCRIPTIONS = {"FUND TRANSFER", "ATM WITHDRWAL", "BILL PAYMENT", "3rd Party FUND TRANSFER"};
+	private static final LocalDate FIRST_DATE = LocalDate.of(2019, 7, 1);
+	private static final long FIRST_ACCOUNT = 8_000_000_000L;
+
+	private TransactionFeedGenerator() {
+	}
+
+	static void write(Path file, int rows, long seed) throws IOException {
+		feed(rows, seed).write(file);
+	}
+
+	static Feed feed(long rows, long seed) {
+		return new Feed(rows, seed);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: TransactionFeedGenerator <file> <rows> [seed] [accounts] [account skew] [days] [day skew] [malformed rate]");
+			System.exit(2);
+		}
+		Feed feed = feed(Long.parseLong(args[1]), args.length > 2 ? Long.parseLong(args[2]) : 42)
+				.accounts(args.length > 3 ? Integer.parseInt(args[3]) : 1_000, args.length > 4 ? Double.parseDouble(args[4]) : 0)
+				.days(args.length > 5 ? Integer.parseInt(args[5]) : 120, args.length > 6 ? Double.parseDouble(args[6]) : 0)
+				.malformedRate(args.length > 7 ? Double.parseDouble(args[7]) : 0);
+		long start = System.nanoTime();
+		long malformed = feed.write(Paths.get(args[0]));
+		System.out.printf("Wrote %,d rows, %,d of them malformed, to %s in %,d ms%n", feed.rows, malformed, args[0],
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * The shape of a feed. Skews are Zipf exponents: 0 spreads the rows evenly, and with 1 the second busiest
+	 * account or day has half as many rows as the busiest, the third a third, and so on.
+	 */
+	static final class Feed {
+
+		private final long rows;
+		private final long seed;
+		private int accounts = 1_000;
+		private double accountSkew;
+		private int days = 120;
+		private double daySkew;
+		private double malformedRate;
+
+		private Feed(long rows, long seed) {
+			this.rows = rows;
+			this.seed = seed;
+		}
+
+		/**
+		 * Account numbers {@code 8000000000} onwards, the lowest being the busiest when skewed.
+		 */
+		Feed accounts(int accounts, double skew) {
+			this.accounts = accounts;
+			this.accountSkew = skew;
+			return this;
+		}
+
+		/**
+		 * Days from 2019-07-01 onwards, the latest being the busiest when skewed.
+		 */
+		Feed days(int days, double skew) {
+			this.days = days;
+			this.daySkew = skew;
+			return this;
+		}
+
+		/**
+		 * The fraction of lines that the job must skip: an amount that is not a number, a date that does not
+		 * exist, a missing column or an empty account number, in equal parts.
+		 */
+		Feed malformedRate(double malformedRate) {
+			this.malformedRate = malformedRate;
+			return this;
+		}
+
+		/**
+		 * @return the number of malformed lines written
+		 */
+		long write(Path file) throws IOException {
+			Random random = new Random(seed);
+			double[] accountWeights = accountSkew > 0 ? cumulativeZipf(accounts, accountSkew) : null;
+			double[] dayWeights = daySkew > 0 ? cumulativeZipf(days, daySkew) : null;
+			StringBuilder line = new StringBuilder(96);
+			long malformed = 0;
+			try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+				writer.write(HEADER);
+				writer.newLine();
+				for (long i = 0; i < rows; i++) {
+					line.setLength(0);
+					long accountNumber = FIRST_ACCOUNT + (accountWeights == null ? random.nextInt(accounts) : sample(accountWeights, random));
+					int amount = random.nextInt(1_000_000);
+					int cents = random.nextInt(100);
+					String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+					LocalDate date = dayWeights == null
+							? FIRST_DATE.plusDays(random.nextInt(days))
+							: FIRST_DATE.plusDays(days - 1 - sample(dayWeights, random));
+					int hour = random.nextInt(24);
+					int minute = random.nextInt(60);
+					int second = random.nextInt(60);
+					// Only drawn when needed, so that feeds without malformed lines stay as they always were
+					int defect = malformedRate > 0 && random.nextDouble() < malformedRate ? random.nextInt(4) : -1;
+
+					if (defect != 3) {
+						line.append(accountNumber);
+					}
+					line.append('|');
+					if (defect == 0) {
+						line.append("not-a-number");
+					} else {
+						line.append(amount).append('.');
+						twoDigits(line, cents);
+					}
+					line.append('|').append(description).append('|');
+					if (defect == 1) {
+						line.append(date.getYear()).append("-13-45");
+					} else {
+						line.append(date);
+					}
+					line.append('|');
+					twoDigits(line, hour);
+					line.append(':');
+					twoDigits(line, minute);
+					line.append(':');
+					twoDigits(line, second);
+					if (defect != 2) {
+						line.append('|').append(accountNumber % 1_000);
+					}
+					if (defect >= 0) {
+						malformed++;
+					}
+					writer.append(line);
+					writer.newLine();
+				}
+			}
+			return malformed;
+		}
+
+		private static void twoDigits(StringBuilder line, int value) {
+			line.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+		}
+
+		private static double[] cumulativeZipf(int n, double skew) {
+			double[] cumulative = new double[n];
+			double sum = 0;
+			for (int rank = 0; rank < n; rank++) {
+				sum += 1 / Math.pow(rank + 1, skew);
+				cumulative[rank] = sum;
+			}
+			for (int rank = 0; rank < n; rank++) {
+				cumulative[rank] /= sum;
+			}
+			return cumulative;
+		}
+
+		/**
+		 * @return the rank, from 0, drawn with the weights
+		 */
+		private static int sample(double[] cumulative, Random random) {
+			int index = Arrays.binarySearch(cumulative, random.nextDouble());
+			return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+		}
+	}
+}
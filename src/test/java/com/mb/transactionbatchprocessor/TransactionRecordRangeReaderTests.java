@@ -0,0 +1,83 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.batch.TransactionRecordRangeReader;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionRecordRangeReaderTests {
+
+	private static final Path TEST_FILE = Paths.get("src/test/resources/input/testCorrectFile.txt");
+
+	// Keeps the raw line in the description so that records can be compared without the full mapping
+	private static final LineMapper<TransactionRecord> LINE_MAPPER = (line, lineNumber) -> {
+		TransactionRecord transactionRecord = new TransactionRecord();
+		transactionRecord.setDescription(line);
+		return transactionRecord;
+	};
+
+	@Test
+	void testRangesCoverEveryLineExactlyOnce() throws Exception {
+		Resource resource = new FileSystemResource(TEST_FILE);
+		long length = Files.size(TEST_FILE);
+		List<String> expected = Files.readAllLines(TEST_FILE);
+		expected = expected.subList(1, expected.size());
+
+		for (int rangeCount = 1; rangeCount <= 40; rangeCount++) {
+			List<String> lines = new ArrayList<>();
+			for (int range = 0; range < rangeCount; range++) {
+				long start = length * range / rangeCount;
+				long end = range == rangeCount - 1 ? Long.MAX_VALUE : length * (range + 1) / rangeCount;
+				lines.addAll(readAll(new TransactionRecordRangeReader(resource, start, end, LINE_MAPPER), new ExecutionContext()));
+			}
+			assertEquals(expected, lines, "Lines read with " + rangeCount + " ranges");
+		}
+	}
+
+	@Test
+	void testRestartResumesFromSavedPosition() throws Exception {
+		Resource resource = new FileSystemResource(TEST_FILE);
+		long length = Files.size(TEST_FILE);
+		List<String> expected = readAll(new TransactionRecordRangeReader(resource, length / 3, Long.MAX_VALUE, LINE_MAPPER),
+				new ExecutionContext());
+
+		ExecutionContext executionContext = new ExecutionContext();
+		TransactionRecordRangeReader reader = new TransactionRecordRangeReader(resource, length / 3, Long.MAX_VALUE, LINE_MAPPER);
+		reader.open(executionContext);
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			lines.add(reader.read().getDescription());
+		}
+		reader.update(executionContext);
+		reader.read();  // Read past the committed position, as a crashed chunk would
+		reader.close();
+
+		lines.addAll(readAll(new TransactionRecordRangeReader(resource, length / 3, Long.MAX_VALUE, LINE_MAPPER), executionContext));
+		assertEquals(expected, lines);
+	}
+
+	private List<String> readAll(TransactionRecordRangeReader reader, ExecutionContext executionContext) throws Exception {
+		List<String> lines = new ArrayList<>();
+		reader.open(executionContext);
+		try {
+			TransactionRecord transactionRecord;
+			while ((transactionRecord = reader.read()) != null) {
+				lines.add(transactionRecord.getDescription());
+			}
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+}
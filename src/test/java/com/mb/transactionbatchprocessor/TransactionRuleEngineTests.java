@@ -0,0 +1,178 @@
+package com.mb.transactionbatchprocessor;
+
+import com.mb.transactionbatchprocessor.exception.InvalidTransactionRecordException;
+import com.mb.transactionbatchprocessor.model.TransactionRecord;
+import com.mb.transactionbatchprocessor.validation.TransactionRuleEngine;
+import com.mb.transactionbatchprocessor.validation.ValidationError;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionRuleEngineTests {
+
+	private static final LocalDate TODAY = LocalDate.of(2019, 10, 1);
+
+	private static final List<String> RULES = List.of(
+			"account-required",
+			"account-digits=10",
+			"customer-id-digits=1-6",
+			"description-required",
+			"amount-non-zero",
+			"amount-min=-5000.00",
+			"amount-max=1000000",
+			"date-from=2019-01-01",
+			"date-max-age-days=90",
+			"date-not-future");
+
+	private final TransactionRuleEngine ruleEngine = TransactionRuleEngine.compile(RULES, TODAY);
+
+	@Test
+	void testEachRuleReportsItsError() {
+		assertEquals(RULES.size(), ruleEngine.size());
+		assertNull(ruleEngine.validate(record()));
+
+		TransactionRecord transactionRecord = record();
+		transactionRecord.setAccountNumber(null);
+		assertEquals(ValidationError.ACCOUNT_MISSING, ruleEngine.validate(transactionRecord));
+		transactionRecord.setAccountNumber("887283828X");
+		assertEquals(ValidationError.ACCOUNT_FORMAT, ruleEngine.validate(transactionRecord));
+		transactionRecord.setAccountNumber("887283828");
+		assertEquals(ValidationError.ACCOUNT_FORMAT, ruleEngine.validate(transactionRecord));
+
+		transactionRecord = record();
+		transactionRecord.setCustomerId("1234567");
+		assertEquals(ValidationError.CUSTOMER_ID_FORMAT, ruleEngine.validate(transactionRecord));
+		transactionRecord.setCustomerId(null);
+		assertEquals(ValidationError.CUSTOMER_ID_MISSING, ruleEngine.validate(transactionRecord));
+
+		transactionRecord = record();
+		transactionRecord.setDescription("");
+		assertEquals(ValidationError.DESCRIPTION_MISSING, ruleEngine.validate(transactionRecord));
+
+		transactionRecord = record();
+		transactionRecord.setTrxAmountMinor(0);
+		assertEquals(ValidationError.AMOUNT_ZERO, ruleEngine.validate(transactionRecord));
+		transactionRecord.setTrxAmountMinor(-500_001);
+		assertEquals(ValidationError.AMOUNT_TOO_LOW, ruleEngine.validate(transactionRecord));
+		transactionRecord.setTrxAmountMinor(-500_000);
+		assertNull(ruleEngine.validate(transactionRecord));
+		transactionRecord.setTrxAmountMinor(100_000_001);
+		assertEquals(ValidationError.AMOUNT_TOO_HIGH, ruleEngine.validate(transactionRecord));
+
+		transactionRecord = record();
+		transactionRecord.setTrxDate(TODAY.minusDays(91));
+		assertEquals(ValidationError.DATE_TOO_EARLY, ruleEngine.validate(transactionRecord));
+		transactionRecord.setTrxDate(TODAY.plusDays(1));
+		assertEquals(ValidationError.DATE_TOO_LATE, ruleEngine.validate(transactionRecord));
+		transactionRecord.setTrxDate(null);
+		assertEquals(ValidationError.DATE_MISSING, ruleEngine.validate(transactionRecord));
+	}
+
+	@Test
+	void testRelativeDateRulesFollowTheClock() {
+		MovingClock clock = new MovingClock(TODAY.atTime(23, 59).toInstant(ZoneOffset.UTC));
+		TransactionRuleEngine ruleEngine = TransactionRuleEngine.compile(List.of("date-max-age-days=1", "date-not-future"), clock, null);
+		TransactionRecord transactionRecord = record();
+
+		transactionRecord.setTrxDate(TODAY.plusDays(1));
+		assertEquals(ValidationError.DATE_TOO_LATE, ruleEngine.validate(transactionRecord));
+		transactionRecord.setTrxDate(TODAY.minusDays(1));
+		assertNull(ruleEngine.validate(transactionRecord));
+
+		clock.instant = clock.instant.plusSeconds(120);
+		transactionRecord.setTrxDate(TODAY.plusDays(1));
+		assertNull(ruleEngine.validate(transactionRecord));
+		transactionRecord.setTrxDate(TODAY.minusDays(1));
+		assertEquals(ValidationError.DATE_TOO_EARLY, ruleEngine.validate(transactionRecord));
+	}
+
+	@Test
+	void testInvalidDeclarationsFailAtCompileTime() {
+		assertThrows(IllegalArgumentException.class, () -> TransactionRuleEngine.compile(List.of("account-checksum")));
+		assertThrows(IllegalArgumentException.class, () -> TransactionRuleEngine.compile(List.of("account-digits")));
+		assertThrows(IllegalArgumentException.class, () -> TransactionRuleEngine.compile(List.of("account-digits=12-10")));
+		assertThrows(IllegalArgumentException.class, () -> TransactionRuleEngine.compile(List.of("amount-max=1e6")));
+		assertThrows(IllegalArgumentException.class, () -> TransactionRuleEngine.compile(List.of("date-from=yesterday")));
+		assertThrows(IllegalArgumentException.class, () -> TransactionRuleEngine.compile(List.of("date-not-future=true")));
+		assertEquals(0, TransactionRuleEngine.compile(List.of(" ", "")).size());
+	}
+
+	@Test
+	void testValidRecordsAreCheckedWithoutAllocating() {
+		TransactionRecord transactionRecord = record();
+		for (int i = 0; i < 100_000; i++) {
+			ruleEngine.validate(transactionRecord);
+		}
+
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long before = threadMXBean.getThreadAllocatedBytes(threadId);
+		int invalid = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (ruleEngine.validate(transactionRecord) != null) {
+				invalid++;
+			}
+		}
+		long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+		assertEquals(0, invalid);
+		// A few bytes per record would add up to megabytes
+		assertTrue(allocated < 64 * 1024, allocated + " bytes allocated");
+	}
+
+	@Test
+	void testRejectedRecordsCarryOnlyTheErrorCode() {
+		InvalidTransactionRecordException exception = new InvalidTransactionRecordException(ValidationError.AMOUNT_ZERO);
+
+		assertEquals(ValidationError.AMOUNT_ZERO, exception.getError());
+		assertEquals(0, exception.getStackTrace().length);
+		assertEquals("AMOUNT_ZERO: the amount is zero", exception.getMessage());
+	}
+
+	private static final class MovingClock extends Clock {
+
+		private Instant instant;
+
+		MovingClock(Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+
+	private static TransactionRecord record() {
+		TransactionRecord transactionRecord = new TransactionRecord();
+		transactionRecord.setAccountNumber("8872838283");
+		transactionRecord.setTrxAmountMinor(12300);
+		transactionRecord.setDescription("FUND TRANSFER");
+		transactionRecord.setTrxDate(LocalDate.of(2019, 9, 12));
+		transactionRecord.setTrxTime(LocalTime.of(11, 11, 11));
+		transactionRecord.setCustomerId("222");
+		return transactionRecord;
+	}
+}
@@ -0,0 +1,67 @@
+package com.mb.transactionbatchprocessor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"transaction.input.dir=target/test-data/unpartitioned-metrics/input",
+		"transaction.completed.dir=target/test-data/unpartitioned-metrics/completed",
+		"transaction.error.dir=target/test-data/unpartitioned-metrics/error",
+		"transaction.metrics.dump-file=target/test-data/unpartitioned-metrics/metrics.prom"
+})
+class UnpartitionedBatchMetricsTests {
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/unpartitioned-metrics");
+	private static final Path TEST_INPUT_DIR = TEST_DATA_DIR.resolve("input");
+
+	@Autowired
+	private JobLauncher jobLauncher;
+
+	@Autowired
+	private Job importTransactionRecordJob;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.createDirectories(TEST_INPUT_DIR);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	void testThroughputIsReportedPerFileOfTheStep() throws Exception {
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedA.txt"), 300, 7);
+		TransactionFeedGenerator.write(TEST_INPUT_DIR.resolve("feedB.txt"), 20, 8);
+
+		JobExecution execution = jobLauncher.run(importTransactionRecordJob, new JobParametersBuilder()
+				.addLong("startAt", System.currentTimeMillis())
+				.toJobParameters());
+		assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+
+		// One step reads both files, which are still reported apart
+		String dump = Files.readString(TEST_DATA_DIR.resolve("metrics.prom"));
+		assertTrue(dump.contains("transaction_file_records_per_second{file=\"feedA.txt\",job_execution_id=\"" + execution.getId() + "\"}"), dump);
+		assertTrue(dump.contains("transaction_file_records_per_second{file=\"feedB.txt\",job_execution_id=\"" + execution.getId() + "\"}"), dump);
+		assertFalse(dump.contains("transaction_file_records_per_second{file=\"step1\""), dump);
+	}
+}
@@ -0,0 +1,92 @@
+package com.mb.transactionbatchprocessor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadBenchmarkTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(VirtualThreadBenchmarkTests.class);
+
+	private static final Path TEST_DATA_DIR = Paths.get("target/test-data/virtual-threads");
+	private static final int FILES = 200;
+	private static final int ROWS_PER_FILE = 100;
+
+	@AfterEach
+	void tearDown() throws IOException {
+		FileSystemUtils.deleteRecursively(TEST_DATA_DIR);
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkPlatformAndVirtualThreadPartitions() throws Exception {
+		assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21, build with -Pjava21");
+
+		for (int round = 0; round < 3; round++) {
+			long platformNanos = importFiles(false);
+			long virtualNanos = importFiles(true);
+			logger.info(String.format("%,d files of %,d rows: platform threads %,d ms, virtual threads %,d ms",
+					FILES, ROWS_PER_FILE, platformNanos / 1_000_000, virtualNanos / 1_000_000));
+		}
+	}
+
+	private long importFiles(boolean virtualThreads) throws Exception {
+		String mode = virtualThreads ? "virtual" : "platform";
+		Path inputDir = TEST_DATA_DIR.resolve(mode).resolve("input");
+		Files.createDirectories(inputDir);
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TransactionBatchProcessorApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(
+						// Command line arguments, because default properties would lose to the test application.properties
+						"--transaction.input.dir=" + inputDir,
+						"--transaction.completed.dir=" + TEST_DATA_DIR.resolve(mode).resolve("completed"),
+						"--transaction.error.dir=" + TEST_DATA_DIR.resolve(mode).resolve("error"),
+						"--transaction.partition.enabled=true",
+						"--transaction.partition.pool-size=4",
+						"--transaction.virtual-threads.enabled=" + virtualThreads,
+						"--spring.datasource.hikari.maximum-pool-size=32",
+						// H2's MySQL mode can hand out duplicate identity values under heavy concurrent inserts
+						"--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")) {
+			for (int i = 0; i < FILES; i++) {
+				TransactionFeedGenerator.write(inputDir.resolve(String.format("feed%04d.txt", i)), ROWS_PER_FILE, i);
+			}
+
+			long start = System.nanoTime();
+			JobExecution execution = context.getBean(JobLauncher.class).run(context.getBean("importTransactionRecordJob", Job.class),
+					new JobParametersBuilder()
+							.addLong("startAt", System.currentTimeMillis())
+							.toJobParameters());
+			while (execution.isRunning()) {
+				Thread.sleep(10);
+			}
+			long elapsed = System.nanoTime() - start;
+
+			assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+			assertEquals(FILES * ROWS_PER_FILE,
+					context.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM transaction_record", Integer.class));
+			return elapsed;
+		}
+	}
+}